@@ -61,6 +61,16 @@ CREATE TABLE shelf_stock (
     FOREIGN KEY (item_code) REFERENCES items(item_code) ON DELETE CASCADE
 );
 
+-- Extra shelf counters for hot items (slot 0 is the shelf_stock row)
+CREATE TABLE shelf_stock_slots (
+    item_code VARCHAR(20) NOT NULL,
+    slot INT NOT NULL,
+    quantity INT NOT NULL DEFAULT 0,
+    last_updated TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (item_code, slot),
+    FOREIGN KEY (item_code) REFERENCES items(item_code) ON DELETE CASCADE
+);
+
 -- Website inventory (separate from shelf)
 CREATE TABLE website_inventory (
     item_code VARCHAR(20) PRIMARY KEY,
@@ -85,6 +95,16 @@ CREATE TABLE bills (
     FOREIGN KEY (customer_id) REFERENCES customers(customer_id)
 );
 
+-- Checkout request tokens, one per committed bill, so a retried checkout is not billed twice.
+-- checkout_ref names the journaled attempt that saved the bill, for crash recovery.
+CREATE TABLE checkout_requests (
+    request_token VARCHAR(64) PRIMARY KEY,
+    bill_id INT NOT NULL,
+    checkout_ref VARCHAR(64) UNIQUE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (bill_id) REFERENCES bills(bill_id) ON DELETE CASCADE
+);
+
 -- Bill items
 CREATE TABLE bill_items (
     bill_item_id INT PRIMARY KEY AUTO_INCREMENT,
@@ -98,11 +118,68 @@ CREATE TABLE bill_items (
     FOREIGN KEY (item_code) REFERENCES items(item_code)
 );
 
+-- Append-only stock movement ledger
+CREATE TABLE stock_movements (
+    movement_id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    item_code VARCHAR(20) NOT NULL,
+    location ENUM('SHELF', 'WEBSITE', 'WAREHOUSE') NOT NULL,
+    movement_type ENUM('RECEIVE', 'RESHELVE', 'TRANSFER', 'SALE', 'WRITE_OFF') NOT NULL,
+    quantity_delta INT NOT NULL,
+    reference VARCHAR(50),
+    moved_at TIMESTAMP(3) NOT NULL,
+    -- Outbox event the movement was recorded from; a redelivered event is not recorded twice
+    event_id BIGINT UNIQUE,
+    FOREIGN KEY (item_code) REFERENCES items(item_code)
+);
+
+-- Ledger snapshots: per-item positions after last_movement_id
+CREATE TABLE stock_snapshots (
+    snapshot_id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    taken_at TIMESTAMP(3) NOT NULL,
+    last_movement_id BIGINT NOT NULL
+);
+
+CREATE TABLE stock_snapshot_lines (
+    snapshot_id BIGINT NOT NULL,
+    item_code VARCHAR(20) NOT NULL,
+    shelf_qty INT NOT NULL,
+    website_qty INT NOT NULL,
+    warehouse_qty INT NOT NULL,
+    PRIMARY KEY (snapshot_id, item_code),
+    FOREIGN KEY (snapshot_id) REFERENCES stock_snapshots(snapshot_id) ON DELETE CASCADE
+);
+
+-- Transactional outbox: events written in the same transaction as the change they describe
+CREATE TABLE outbox_events (
+    event_id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    event_type VARCHAR(40) NOT NULL,
+    aggregate_id VARCHAR(64) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    -- Journaled checkout whose stock change wrote the event, for crash recovery
+    checkout_ref VARCHAR(64)
+);
+
+-- Last event each outbox consumer has handled
+CREATE TABLE outbox_offsets (
+    consumer VARCHAR(64) PRIMARY KEY,
+    last_event_id BIGINT NOT NULL,
+    updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)
+);
+
 -- Indexes for performance
 CREATE INDEX idx_bills_date ON bills(bill_date);
 CREATE INDEX idx_bills_customer ON bills(customer_id);
 CREATE INDEX idx_stock_batches_item ON stock_batches(item_code);
 CREATE INDEX idx_stock_batches_expiry ON stock_batches(expiry_date);
+CREATE INDEX idx_stock_batches_item_stock ON stock_batches(item_code, is_moved_to_shelf, quantity);
+CREATE INDEX idx_stock_movements_item ON stock_movements(item_code, movement_id);
+CREATE INDEX idx_stock_snapshots_taken ON stock_snapshots(taken_at);
+CREATE INDEX idx_outbox_events_created ON outbox_events(created_at);
+CREATE INDEX idx_outbox_events_checkout ON outbox_events(checkout_ref);
+CREATE INDEX idx_shelf_stock_updated ON shelf_stock(last_updated);
+CREATE INDEX idx_shelf_stock_slots_updated ON shelf_stock_slots(last_updated);
+CREATE INDEX idx_website_inventory_updated ON website_inventory(last_updated);
 
 -- Insert default admin user (password: admin123)
 INSERT INTO users (username, password_hash, role, email) VALUES 
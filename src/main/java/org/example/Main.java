@@ -1,17 +1,28 @@
 package org.example;
 
+import org.example.config.ConfigManager;
 import org.example.config.DatabaseConnectionFactory;
 import org.example.controller.*;
 import org.example.dao.*;
 import org.example.dao.impl.*;
+import org.example.model.Bill;
+import org.example.model.Item;
+import org.example.model.OfflineSale;
 import org.example.service.*;
+import org.example.util.Metrics;
 import org.example.view.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main application class with dependency injection pattern
@@ -52,12 +63,31 @@ public class Main {
         private ShelfStockDAO shelfStockDAO;
         private WebsiteInventoryDAO websiteInventoryDAO;
         private StockBatchDAO stockBatchDAO;
+        private IndexedStockBatchDAOImpl indexedStockBatchDAO;
+        private StockTransferDAO stockTransferDAO;
+        private StockSummaryDAO stockSummaryDAO;
+        private BillDAO readBillDAO;
 
         // Services
         private AuthenticationService authService;
         private BillingService billingService;
         private StockService stockService;
         private ReportService reportService;
+        private CatalogImportService catalogImportService;
+        private GoodsReceivedService goodsReceivedService;
+        private ExpiryScheduler expiryScheduler;
+        private ReplenishmentService replenishmentService;
+        private StockLedgerService stockLedgerService;
+        private ReservationService reservationService;
+        private ShelfSlotRebalancer shelfSlotRebalancer;
+        private InMemoryStockEngine stockEngine;
+        private AvailabilityService availabilityService;
+        private OfflineTillService offlineTill;
+        private CheckoutJournal checkoutJournal;
+        private OutboxRelay outboxRelay;
+        private MetricsEndpoint metricsEndpoint;
+        private FlightRecordingService flightRecording;
+        private DomainEventBus eventBus;
 
         // Controllers
         private AuthenticationController authController;
@@ -81,6 +111,8 @@ public class Main {
                 // Start the main application
                 mainView.start(scanner);
 
+                stopBackgroundServices();
+
             } catch (Exception e) {
                 logger.error("Error starting application", e);
                 throw new RuntimeException("Failed to start application", e);
@@ -88,18 +120,40 @@ public class Main {
         }
 
         private void initializeComponents(Scanner scanner) throws SQLException {
+            // Record from the first connection on, so startup is in the recording too
+            initializeFlightRecording();
+
             // Initialize database connection
             Connection connection = DatabaseConnectionFactory.getInstance().getConnection();
             logger.info("Database connection established");
 
+            // Reports, bill browsing and stock summaries read on their own connection, from the replica when there is one
+            Connection readConnection = DatabaseConnectionFactory.getInstance().getReadConnection();
+
             // Initialize DAOs
-            initializeDAOs(connection);
+            initializeDAOs(connection, readConnection);
             logger.debug("DAOs initialized");
 
+            // Load in-memory stock before checkout can use it
+            initializeStockEngine();
+
             // Initialize Services
-            initializeServices();
+            initializeServices(readConnection);
             logger.debug("Services initialized");
 
+            // Settle checkouts a crash cut short before the lanes sell again
+            initializeCheckoutJournal(connection);
+
+            // Initialize background workers
+            initializeBackgroundServices();
+            logger.debug("Background services initialized");
+
+            // Lanes keep selling from a local journal if the database goes away
+            initializeOfflineTill(connection);
+
+            // Handlers are registered by now
+            eventBus.start();
+
             // Initialize Controllers
             initializeControllers(scanner);
             logger.debug("Controllers initialized");
@@ -109,32 +163,355 @@ public class Main {
             logger.debug("Views initialized");
         }
 
-        private void initializeDAOs(Connection connection) {
-            userDAO = new UserDAOImpl(connection);
-            customerDAO = new CustomerDAOImpl(connection);
-            itemDAO = new ItemDAOImpl(connection);
-            billDAO = new BillDAOImpl(connection);
-            shelfStockDAO = new ShelfStockDAOImpl(connection);
-            websiteInventoryDAO = new WebsiteInventoryDAOImpl(connection);
-            stockBatchDAO = new StockBatchDAOImpl(connection);
+        /**
+         * Session-long flight recording with the checkout and SQL events, when jfr.recording.enabled is set
+         */
+        private void initializeFlightRecording() {
+            ConfigManager config = ConfigManager.getInstance();
+            if (!Boolean.parseBoolean(config.getProperty("jfr.recording.enabled", "false"))) {
+                return;
+            }
+            flightRecording = new FlightRecordingService(
+                    Paths.get(config.getProperty("jfr.recording.file", "data/syos.jfr")),
+                    Duration.ofMinutes(config.getIntProperty("jfr.recording.maxAgeMinutes", 30)));
+            try {
+                flightRecording.start();
+            } catch (IOException | ParseException e) {
+                logger.warn("Flight recording not started: {}", e.getMessage());
+                flightRecording = null;
+            }
         }
 
-        private void initializeServices() {
+        private void initializeDAOs(Connection connection, Connection readConnection) {
+            userDAO = timed(UserDAO.class, new UserDAOImpl(connection));
+            customerDAO = timed(CustomerDAO.class, new CustomerDAOImpl(connection));
+            itemDAO = timed(ItemDAO.class, new ItemDAOImpl(connection));
+            billDAO = timed(BillDAO.class, new BillDAOImpl(connection));
+            shelfStockDAO = timed(ShelfStockDAO.class, createShelfStockDAO(connection));
+            websiteInventoryDAO = timed(WebsiteInventoryDAO.class, new WebsiteInventoryDAOImpl(connection));
+            stockTransferDAO = timed(StockTransferDAO.class, new StockTransferDAOImpl(connection));
+            stockSummaryDAO = timed(StockSummaryDAO.class, new StockSummaryDAOImpl(readConnection));
+            readBillDAO = timed(BillDAO.class, new BillDAOImpl(readConnection));
+
+            // Warehouse batches are indexed in memory for FEFO picks
+            indexedStockBatchDAO = new IndexedStockBatchDAOImpl(new StockBatchDAOImpl(connection));
+            stockBatchDAO = timed(StockBatchDAO.class, indexedStockBatchDAO);
+        }
+
+        /**
+         * Time every call to a DAO under its interface and method name, unless metrics.dao.enabled is false
+         */
+        private <T> T timed(Class<T> type, T dao) {
+            if (!Boolean.parseBoolean(ConfigManager.getInstance().getProperty("metrics.dao.enabled", "true"))) {
+                return dao;
+            }
+            return Metrics.timed(type, dao);
+        }
+
+        /**
+         * Shelf stock DAO, with sharded counters when hot items are configured
+         */
+        private ShelfStockDAO createShelfStockDAO(Connection connection) {
+            ConfigManager config = ConfigManager.getInstance();
+            ShelfStockDAO shelfDAO = new ShelfStockDAOImpl(connection);
+            if (config.getHotItems().isEmpty()) {
+                return shelfDAO;
+            }
+            return new ShardedShelfStockDAOImpl(connection, shelfDAO, config.getHotItems(), config.getHotItemSlots());
+        }
+
+        /**
+         * In-memory stock for checkout, written behind to the database on its own connection
+         */
+        private void initializeStockEngine() throws SQLException {
+            ConfigManager config = ConfigManager.getInstance();
+            if (!Boolean.parseBoolean(config.getProperty("stock.engine.enabled", "false"))) {
+                return;
+            }
+            Connection engineConnection = DatabaseConnectionFactory.getInstance().getConnection();
+            StockEngineJournal journal = new StockEngineJournal(
+                    Paths.get(config.getProperty("stock.engine.journal.path", "data/stock-engine.journal")),
+                    Boolean.parseBoolean(config.getProperty("stock.engine.journal.sync", "false")));
+            stockEngine = new InMemoryStockEngine(createShelfStockDAO(engineConnection),
+                    new WebsiteInventoryDAOImpl(engineConnection), journal,
+                    config.getIntProperty("stock.engine.capacity", 65536),
+                    config.getIntProperty("stock.engine.flushMillis", 200));
+            try {
+                stockEngine.initialize();
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to recover stock engine journal", e);
+            }
+            stockEngine.start();
+        }
+
+        private void initializeServices(Connection readConnection) {
+            eventBus = new DomainEventBus();
             authService = new AuthenticationService(userDAO);
-            billingService = new BillingService(billDAO, customerDAO, shelfStockDAO,
-                    websiteInventoryDAO, itemDAO);
-            stockService = new StockService(stockBatchDAO, shelfStockDAO, websiteInventoryDAO);
-            reportService = new ReportService(billDAO, itemDAO, shelfStockDAO,
-                    websiteInventoryDAO, stockBatchDAO, customerDAO);
+            if (stockEngine != null) {
+                billingService = new BillingService(billDAO, customerDAO, stockEngine, itemDAO);
+            } else {
+                billingService = new BillingService(billDAO, customerDAO, shelfStockDAO,
+                        websiteInventoryDAO, itemDAO);
+            }
+            billingService.setEventBus(eventBus);
+            stockService = new StockService(stockBatchDAO, shelfStockDAO, websiteInventoryDAO, stockTransferDAO,
+                    stockSummaryDAO);
+            stockService.setEventBus(eventBus);
+            if (stockEngine != null) {
+                // The tables lag behind the engine, so transfers and reshelving check and apply stock there
+                stockService.setStockEngine(stockEngine);
+            }
+            reportService = new ReportService(readBillDAO, timed(ItemDAO.class, new ItemDAOImpl(readConnection)),
+                    timed(ShelfStockDAO.class, createShelfStockDAO(readConnection)),
+                    timed(WebsiteInventoryDAO.class, new WebsiteInventoryDAOImpl(readConnection)),
+                    timed(StockBatchDAO.class, indexedStockBatchDAO.withDelegate(new StockBatchDAOImpl(readConnection))),
+                    timed(CustomerDAO.class, new CustomerDAOImpl(readConnection)));
+
+            // Expiry deadlines are loaded from the same pass that builds the batch index
+            expiryScheduler = new ExpiryScheduler();
+            expiryScheduler.addListener(new ExpiryScheduler.LoggingExpiryListener());
+            indexedStockBatchDAO.addListener(expiryScheduler);
+            indexedStockBatchDAO.rebuildIndex();
+            expiryScheduler.start();
+        }
+
+        private void initializeCheckoutJournal(Connection connection) {
+            ConfigManager config = ConfigManager.getInstance();
+            if (!Boolean.parseBoolean(config.getProperty("checkout.journal.enabled", "true"))) {
+                return;
+            }
+            checkoutJournal = new CheckoutJournal(
+                    Paths.get(config.getProperty("checkout.journal.dir", "data")),
+                    config.getProperty("terminal.id", "till-1"),
+                    config.getIntProperty("checkout.journal.segmentKb", 4096) * 1024);
+            // Stock held in memory writes no outbox events to recover from
+            billingService.setCheckoutJournal(checkoutJournal, stockEngine == null ? new OutboxDAOImpl(connection) : null);
+            try {
+                List<CheckoutJournal.OpenCheckout> open = checkoutJournal.open();
+                if (!open.isEmpty()) {
+                    logger.warn("{} checkouts were cut short, recovering", open.size());
+                    billingService.recoverCheckouts(open);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to open checkout journal", e);
+            }
+        }
+
+        private void initializeBackgroundServices() throws SQLException {
+            // Background work gets its own connections so it never joins a checkout transaction
+            Connection ledgerConnection = DatabaseConnectionFactory.getInstance().getConnection();
+            stockLedgerService = new StockLedgerService(new StockLedgerDAOImpl(ledgerConnection),
+                    new OutboxDAOImpl(ledgerConnection), shelfStockDAO, websiteInventoryDAO, stockBatchDAO);
+            stockLedgerService.start();
+
+            // Online holds live in memory, journaled to disk
+            ConfigManager config = ConfigManager.getInstance();
+            ReservationJournal reservationJournal = new ReservationJournal(
+                    Paths.get(config.getProperty("reservation.journal.path", "data/reservations.journal")),
+                    Boolean.parseBoolean(config.getProperty("reservation.journal.sync", "true")));
+            reservationService = new ReservationService(websiteInventoryDAO, reservationJournal,
+                    config.getIntProperty("reservation.tickMillis", 1000));
+            try {
+                reservationService.initialize(System.currentTimeMillis());
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to open reservation journal", e);
+            }
+            reservationService.start();
+            stockService.addMovementListener(reservationService);
+
+            // Basket scans read availability from a snapshot kept current with delta reads
+            availabilityService = new AvailabilityService(
+                    new StockAvailabilityDAOImpl(DatabaseConnectionFactory.getInstance().getConnection()));
+            availabilityService.start();
+
+            // Catalog imports and delivery manifests commit in large chunks, away from the lanes' connection
+            Connection bulkConnection = DatabaseConnectionFactory.getInstance().getConnection();
+            catalogImportService = new CatalogImportService(new ItemDAOImpl(bulkConnection));
+            catalogImportService.setEventBus(eventBus);
+
+            // Received batches go through the shared FEFO index, so expiry tracking and checkout see them
+            StockService receivingStockService = new StockService(
+                    indexedStockBatchDAO.withDelegate(new StockBatchDAOImpl(bulkConnection)),
+                    createShelfStockDAO(bulkConnection),
+                    new WebsiteInventoryDAOImpl(bulkConnection),
+                    new StockTransferDAOImpl(bulkConnection),
+                    new StockSummaryDAOImpl(bulkConnection));
+            receivingStockService.setEventBus(eventBus);
+            if (stockEngine != null) {
+                receivingStockService.setStockEngine(stockEngine);
+            }
+            goodsReceivedService = new GoodsReceivedService(new ItemDAOImpl(bulkConnection), receivingStockService);
+
+            if (!config.getHotItems().isEmpty()) {
+                Connection rebalanceConnection = DatabaseConnectionFactory.getInstance().getConnection();
+                shelfSlotRebalancer = new ShelfSlotRebalancer(
+                        (ShardedShelfStockDAOImpl) createShelfStockDAO(rebalanceConnection),
+                        TimeUnit.SECONDS.toMillis(config.getIntProperty("stock.hot.rebalanceSeconds", 60)));
+                shelfSlotRebalancer.start();
+            }
+
+            if (Boolean.parseBoolean(config.getProperty("stock.replenish.enabled", "true"))) {
+                Connection backgroundConnection = DatabaseConnectionFactory.getInstance().getConnection();
+                StockService backgroundStockService = new StockService(
+                        indexedStockBatchDAO.withDelegate(new StockBatchDAOImpl(backgroundConnection)),
+                        createShelfStockDAO(backgroundConnection),
+                        new WebsiteInventoryDAOImpl(backgroundConnection),
+                        new StockTransferDAOImpl(backgroundConnection),
+                        new StockSummaryDAOImpl(backgroundConnection));
+                backgroundStockService.setEventBus(eventBus);
+                if (stockEngine != null) {
+                    backgroundStockService.setStockEngine(stockEngine);
+                }
+
+                replenishmentService = new ReplenishmentService(backgroundStockService, new ItemDAOImpl(backgroundConnection));
+                billingService.addStockDecrementListener(replenishmentService);
+                replenishmentService.start();
+            }
+
+            // Bill and stock events committed with their changes are published from the outbox
+            outboxRelay = new OutboxRelay(new OutboxDAOImpl(DatabaseConnectionFactory.getInstance().getConnection()));
+            outboxRelay.addSubscriber(stockLedgerService);
+            if (Boolean.parseBoolean(config.getProperty("outbox.export.enabled", "true"))) {
+                outboxRelay.addSubscriber(new SalesExportSubscriber(
+                        Paths.get(config.getProperty("outbox.export.dir", "exports"))));
+            }
+            outboxRelay.start();
+
+            // Latency histograms and pool metrics for a Prometheus scraper
+            if (Boolean.parseBoolean(config.getProperty("metrics.http.enabled", "true"))) {
+                metricsEndpoint = new MetricsEndpoint(config.getProperty("metrics.http.host", "127.0.0.1"),
+                        config.getIntProperty("metrics.http.port", 9404));
+                try {
+                    metricsEndpoint.start();
+                } catch (IOException e) {
+                    logger.warn("Metrics endpoint not started: {}", e.getMessage());
+                    metricsEndpoint = null;
+                }
+            }
+        }
+
+        private void initializeOfflineTill(Connection laneConnection) {
+            ConfigManager config = ConfigManager.getInstance();
+            OfflineSaleJournal journal = new OfflineSaleJournal(
+                    Paths.get(config.getProperty("offline.journal.path", "data/offline-sales.journal")));
+            offlineTill = new OfflineTillService(journal, this::openReplaySession, () -> {
+                try {
+                    return laneConnection.isValid(2);
+                } catch (SQLException e) {
+                    return false;
+                }
+            });
+            try {
+                offlineTill.initialize();
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to open offline sale journal", e);
+            }
+            eventBus.addHandler("offline-catalog", offlineTill);
+            offlineTill.start();
+        }
+
+        /**
+         * Billing for queued offline sales on a fresh pooled connection, with the same listeners as the lanes
+         */
+        private OfflineTillService.ReplaySession openReplaySession() {
+            Connection replayConnection;
+            try {
+                replayConnection = DatabaseConnectionFactory.getInstance().getConnection();
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to connect to database", e);
+            }
+            ItemDAO replayItemDAO = new ItemDAOImpl(replayConnection);
+            BillDAO replayBillDAO = new BillDAOImpl(replayConnection);
+            CustomerDAO replayCustomerDAO = new CustomerDAOImpl(replayConnection);
+            BillingService replayBilling = stockEngine != null
+                    ? new BillingService(replayBillDAO, replayCustomerDAO, stockEngine, replayItemDAO)
+                    : new BillingService(replayBillDAO, replayCustomerDAO, createShelfStockDAO(replayConnection),
+                            new WebsiteInventoryDAOImpl(replayConnection), replayItemDAO);
+            replayBilling.setEventBus(eventBus);
+            if (replenishmentService != null) {
+                replayBilling.addStockDecrementListener(replenishmentService);
+            }
+
+            return new OfflineTillService.ReplaySession() {
+                @Override
+                public List<Item> loadCatalog() {
+                    return replayItemDAO.getAllItems();
+                }
+
+                @Override
+                public BillingService.OfflineBilling bill(OfflineSale sale) {
+                    return replayBilling.billOfflineSale(sale);
+                }
+
+                @Override
+                public int getSerialNumber(int billId) {
+                    return replayBillDAO.getBillById(billId).map(Bill::getSerialNumber).orElse(0);
+                }
+
+                @Override
+                public boolean isConnected() {
+                    try {
+                        return replayConnection.isValid(2);
+                    } catch (SQLException e) {
+                        return false;
+                    }
+                }
+
+                @Override
+                public void close() {
+                    StatementCache.discard(replayConnection);
+                    try {
+                        replayConnection.close();
+                    } catch (SQLException e) {
+                        logger.warn("Error closing replay connection", e);
+                    }
+                }
+            };
+        }
+
+        private void stopBackgroundServices() {
+            if (offlineTill != null) {
+                offlineTill.stop();
+            }
+            if (replenishmentService != null) {
+                replenishmentService.stop();
+            }
+            if (shelfSlotRebalancer != null) {
+                shelfSlotRebalancer.stop();
+            }
+            if (metricsEndpoint != null) {
+                metricsEndpoint.stop();
+            }
+            outboxRelay.stop();
+            eventBus.stop();
+            expiryScheduler.stop();
+            reservationService.stop();
+            availabilityService.stop();
+            if (stockEngine != null) {
+                stockEngine.stop();
+            }
+            // Last, so movements from the other workers are written
+            stockLedgerService.stop();
+            logger.info("Stock transaction retries this session: {}", TransactionExecutor.getStats());
+            logger.info("Prepared statement reuse this session: {}", StatementCache.getStats());
+            if (checkoutJournal != null) {
+                checkoutJournal.force();
+            }
+            if (flightRecording != null) {
+                flightRecording.stop();
+            }
         }
 
         private void initializeControllers(Scanner scanner) {
             authController = new AuthenticationController(authService);
-            billingController = new BillingController(billingService);
+            billingController = new BillingController(billingService, reservationService, availabilityService,
+                    offlineTill);
             stockController = new StockController(stockService);
-            reportController = new ReportController(reportService);
-            itemController = new ItemController(itemDAO);
-            billManagementController = new BillManagementController(billingService, billDAO, scanner);
+            stockController.setGoodsReceivedService(goodsReceivedService);
+            reportController = new ReportController(reportService, stockLedgerService);
+            itemController = new ItemController(itemDAO, eventBus);
+            itemController.setCatalogImportService(catalogImportService);
+            billManagementController = new BillManagementController(billingService, billDAO, readBillDAO, scanner);
         }
 
         private void initializeViews() {
@@ -3,7 +3,11 @@ package org.example.config;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Singleton configuration manager for centralized application settings
@@ -42,6 +46,19 @@ public class ConfigManager {
         return properties.getProperty(key, defaultValue);
     }
 
+    /**
+     * All properties under a prefix, keyed by the rest of the name
+     */
+    public Map<String, String> getPropertiesWithPrefix(String prefix) {
+        Map<String, String> matching = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                matching.put(key.substring(prefix.length()), properties.getProperty(key));
+            }
+        }
+        return matching;
+    }
+
     public int getIntProperty(String key, int defaultValue) {
         String value = properties.getProperty(key);
         try {
@@ -80,4 +97,34 @@ public class ConfigManager {
     public double getDiscountRate() {
         return getDoubleProperty("business.discount.rate", 0.0);
     }
-}
\ No newline at end of file
+
+    // Stock configuration methods
+    public int getExpiryWarningDays() {
+        return getIntProperty("stock.expiry.warningDays", 7);
+    }
+
+    public int getExpiryTickMinutes() {
+        return getIntProperty("stock.expiry.tickMinutes", 60);
+    }
+
+    public int getReplenishThreshold() {
+        return getIntProperty("stock.replenish.threshold", 20);
+    }
+
+    /**
+     * Item codes whose shelf stock uses sharded counters
+     */
+    public Set<String> getHotItems() {
+        Set<String> hotItems = new LinkedHashSet<>();
+        for (String code : getProperty("stock.hot.items", "").split(",")) {
+            if (!code.isBlank()) {
+                hotItems.add(code.trim().toUpperCase());
+            }
+        }
+        return hotItems;
+    }
+
+    public int getHotItemSlots() {
+        return getIntProperty("stock.hot.slots", 8);
+    }
+}
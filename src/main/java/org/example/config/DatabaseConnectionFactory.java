@@ -6,19 +6,31 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 /**
  * Factory for database connections using HikariCP connection pool
  * Implements Singleton pattern for connection pool management
+ * Writes use the primary pool. When db.replica.url is set, read-only work can use a second pool
+ * on a read replica, as long as the replica keeps up with the primary.
  */
 public class DatabaseConnectionFactory {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseConnectionFactory.class);
     private static DatabaseConnectionFactory instance;
     private HikariDataSource dataSource;
+    private HikariDataSource replicaDataSource;
+    private boolean sqlEvents;
+    private int maxReplicaLagSeconds;
+    private long lagCheckMillis;
+    private boolean allowStandaloneReplica;
+    private volatile boolean replicaUsable;
+    private volatile long replicaCheckedAt;
 
     private DatabaseConnectionFactory() {
         initializeDataSource();
+        initializeReplicaDataSource();
     }
 
     public static synchronized DatabaseConnectionFactory getInstance() {
@@ -48,16 +60,155 @@ public class DatabaseConnectionFactory {
         hikariConfig.setPoolName("SYOSPool");
         hikariConfig.setAutoCommit(true);
         hikariConfig.setConnectionTestQuery("SELECT 1");
+        hikariConfig.setMetricsTrackerFactory(new PoolMetricsTrackerFactory());
+
+        // Driver settings, e.g. prepared statement caching and server-side prepares
+        config.getPropertiesWithPrefix("db.datasource.").forEach(hikariConfig::addDataSourceProperty);
 
         this.dataSource = new HikariDataSource(hikariConfig);
+        this.sqlEvents = Boolean.parseBoolean(config.getProperty("jfr.events.enabled", "false"));
         logger.info("Database connection pool initialized successfully");
     }
 
+    private void initializeReplicaDataSource() {
+        ConfigManager config = ConfigManager.getInstance();
+        String url = config.getProperty("db.replica.url", "").trim();
+        if (url.isEmpty()) {
+            return;
+        }
+        String username = config.getProperty("db.replica.username", "").trim();
+        String password = config.getProperty("db.replica.password", "");
+
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setJdbcUrl(url);
+        hikariConfig.setUsername(username.isEmpty() ? config.getDatabaseUsername() : username);
+        hikariConfig.setPassword(username.isEmpty() ? config.getDatabasePassword() : password);
+        hikariConfig.setDriverClassName("com.mysql.cj.jdbc.Driver");
+
+        // Small and quick to give up, so an unreachable replica sends reads to the primary fast
+        hikariConfig.setMaximumPoolSize(config.getIntProperty("db.replica.pool.maximumPoolSize", 4));
+        hikariConfig.setMinimumIdle(config.getIntProperty("db.replica.pool.minimumIdle", 1));
+        hikariConfig.setConnectionTimeout(config.getIntProperty("db.replica.pool.connectionTimeout", 2000));
+        hikariConfig.setIdleTimeout(config.getIntProperty("db.pool.idleTimeout", 600000));
+        hikariConfig.setMaxLifetime(config.getIntProperty("db.pool.maxLifetime", 1800000));
+        // Start even if the replica is down; reads use the primary until it is back
+        hikariConfig.setInitializationFailTimeout(-1);
+
+        hikariConfig.setPoolName("SYOSReplicaPool");
+        hikariConfig.setAutoCommit(true);
+        hikariConfig.setReadOnly(true);
+        hikariConfig.setConnectionTestQuery("SELECT 1");
+        hikariConfig.setMetricsTrackerFactory(new PoolMetricsTrackerFactory());
+        config.getPropertiesWithPrefix("db.datasource.").forEach(hikariConfig::addDataSourceProperty);
+
+        this.replicaDataSource = new HikariDataSource(hikariConfig);
+        this.maxReplicaLagSeconds = config.getIntProperty("db.replica.maxLagSeconds", 30);
+        this.lagCheckMillis = config.getIntProperty("db.replica.lagCheckMillis", 5000);
+        this.allowStandaloneReplica = Boolean.parseBoolean(config.getProperty("db.replica.allowStandalone", "false"));
+        logger.info("Read replica pool initialized for {}", url);
+    }
+
     public Connection getConnection() throws SQLException {
-        return dataSource.getConnection();
+        return withSqlEvents(dataSource.getConnection());
+    }
+
+    /**
+     * Connection for read-only work such as reports, bill browsing and stock summaries. It reads
+     * from the replica while the replica is within db.replica.maxLagSeconds of the primary, and
+     * from the primary otherwise. Without a replica it is a plain connection to the primary,
+     * separate from the lanes' connection. Transactions are not supported.
+     */
+    public Connection getReadConnection() throws SQLException {
+        if (replicaDataSource == null) {
+            return getConnection();
+        }
+        return ReadRoutingConnection.create(new ReadRoutingConnection.Pools() {
+            @Override
+            public Connection primary() throws SQLException {
+                return getConnection();
+            }
+
+            @Override
+            public Connection replica() throws SQLException {
+                try {
+                    return withSqlEvents(replicaDataSource.getConnection());
+                } catch (SQLException e) {
+                    setReplicaUsable(false);
+                    throw e;
+                }
+            }
+
+            @Override
+            public boolean isReplicaUsable() {
+                return DatabaseConnectionFactory.this.isReplicaUsable();
+            }
+        });
+    }
+
+    /**
+     * Flight Recorder events for every statement on the connection, when jfr.events.enabled is set
+     */
+    private Connection withSqlEvents(Connection conn) {
+        return sqlEvents ? SqlEventConnection.wrap(conn) : conn;
+    }
+
+    /**
+     * Whether reads may go to the replica, from a lag check at most db.replica.lagCheckMillis old
+     */
+    public boolean isReplicaUsable() {
+        if (replicaDataSource == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - replicaCheckedAt < lagCheckMillis) {
+            return replicaUsable;
+        }
+        synchronized (this) {
+            if (System.currentTimeMillis() - replicaCheckedAt >= lagCheckMillis) {
+                setReplicaUsable(checkReplica());
+            }
+            return replicaUsable;
+        }
+    }
+
+    private boolean checkReplica() {
+        try (Connection conn = replicaDataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SHOW REPLICA STATUS")) {
+            if (!rs.next()) {
+                // Not replicating at all: it may hold anything, unless configured as a stand-in
+                if (!allowStandaloneReplica) {
+                    logger.warn("Replica has no replication configured; set db.replica.allowStandalone for a stand-in");
+                }
+                return allowStandaloneReplica;
+            }
+            long lag = rs.getLong("Seconds_Behind_Source");
+            if (rs.wasNull()) {
+                logger.warn("Replica is not replicating: {}", rs.getString("Last_Error"));
+                return false;
+            }
+            if (lag > maxReplicaLagSeconds) {
+                logger.warn("Replica is {} s behind, over the {} s allowed", lag, maxReplicaLagSeconds);
+                return false;
+            }
+            return true;
+        } catch (SQLException e) {
+            logger.warn("Replica check failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private synchronized void setReplicaUsable(boolean usable) {
+        if (usable != replicaUsable) {
+            logger.info(usable ? "Reads routed to the replica" : "Reads routed to the primary");
+        }
+        replicaUsable = usable;
+        replicaCheckedAt = System.currentTimeMillis();
     }
 
     public void closeDataSource() {
+        if (replicaDataSource != null && !replicaDataSource.isClosed()) {
+            replicaDataSource.close();
+        }
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
             logger.info("Database connection pool closed");
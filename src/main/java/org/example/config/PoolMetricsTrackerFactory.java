@@ -0,0 +1,47 @@
+package org.example.config;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.example.util.LatencyHistogram;
+import org.example.util.Metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Feeds HikariCP pool metrics into {@link Metrics}: how long callers wait for a connection, how long
+ * they hold it, timeouts, and the pool's connection counts, all under {@code pool.<poolName>}
+ */
+class PoolMetricsTrackerFactory implements MetricsTrackerFactory {
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        String prefix = "pool." + poolName + ".";
+        Metrics.gauge(prefix + "connections_active", poolStats::getActiveConnections);
+        Metrics.gauge(prefix + "connections_idle", poolStats::getIdleConnections);
+        Metrics.gauge(prefix + "connections_total", poolStats::getTotalConnections);
+        Metrics.gauge(prefix + "threads_waiting", poolStats::getPendingThreads);
+        Metrics.gauge(prefix + "connections_max", poolStats::getMaxConnections);
+
+        LatencyHistogram acquire = Metrics.histogram(prefix + "acquire");
+        LatencyHistogram usage = Metrics.histogram(prefix + "usage");
+        LongAdder timeouts = Metrics.counter(prefix + "connection_timeouts_total");
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquire.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Connection for read-only work that runs each new statement on the replica while the replica
+ * is usable, and on the primary otherwise. The pooled connection underneath is swapped when the
+ * route changes; returning it to its pool closes the statements prepared on it, so statements a
+ * DAO has cached are prepared again on the new route. A swap only happens when the replica's
+ * verdict changes, which is rare, and a result set still open across it is closed with it.
+ * Reads only: auto-commit cannot be turned off, since a transaction could not follow a swap.
+ */
+final class ReadRoutingConnection implements InvocationHandler {
+    private static final Logger logger = LoggerFactory.getLogger(ReadRoutingConnection.class);
+
+    /**
+     * Where the read connections come from
+     */
+    interface Pools {
+        Connection primary() throws SQLException;
+        Connection replica() throws SQLException;
+        boolean isReplicaUsable();
+    }
+
+    private final Pools pools;
+    private Connection current;
+    private boolean onReplica;
+    private boolean closed;
+
+    private ReadRoutingConnection(Pools pools) {
+        this.pools = pools;
+    }
+
+    static Connection create(Pools pools) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ReadRoutingConnection(pools));
+    }
+
+    @Override
+    public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close" -> {
+                closed = true;
+                release();
+                return null;
+            }
+            case "isClosed" -> {
+                return closed;
+            }
+            case "equals" -> {
+                return proxy == args[0];
+            }
+            case "hashCode" -> {
+                return System.identityHashCode(proxy);
+            }
+            case "toString" -> {
+                return "ReadRoutingConnection[" + (current == null ? "idle" : onReplica ? "replica" : "primary") + "]";
+            }
+            case "setAutoCommit" -> {
+                if (!(Boolean) args[0]) {
+                    throw new SQLException("Read connections do not run transactions");
+                }
+                return null;
+            }
+            default -> {
+                if (closed) {
+                    throw new SQLException("Connection is closed");
+                }
+                boolean newStatement = method.getName().startsWith("prepare")
+                        || method.getName().equals("createStatement");
+                try {
+                    return method.invoke(route(newStatement), args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the connection to run on, swapped first if a new statement should go elsewhere
+     */
+    private Connection route(boolean newStatement) throws SQLException {
+        if (current != null && !newStatement) {
+            return current;
+        }
+        boolean toReplica = pools.isReplicaUsable();
+        if (current != null && toReplica == onReplica) {
+            return current;
+        }
+        release();
+        if (toReplica) {
+            try {
+                current = pools.replica();
+                onReplica = true;
+                return current;
+            } catch (SQLException e) {
+                logger.warn("Replica connection failed, reading from primary: {}", e.getMessage());
+            }
+        }
+        current = pools.primary();
+        onReplica = false;
+        return current;
+    }
+
+    private void release() {
+        if (current == null) {
+            return;
+        }
+        try {
+            current.close();
+        } catch (SQLException e) {
+            logger.warn("Error returning read connection to its pool", e);
+        }
+        current = null;
+    }
+}
@@ -0,0 +1,195 @@
+package org.example.config;
+
+import org.example.util.SqlStatementEvent;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Connection whose statements emit a {@link SqlStatementEvent} for every execution. Used only
+ * when jfr.events.enabled is set; statements run unwrapped while no recording has the event on.
+ * Proxies compare by identity, so statement caches keyed by connection keep working.
+ */
+final class SqlEventConnection implements InvocationHandler {
+    private final Connection target;
+
+    private SqlEventConnection(Connection target) {
+        this.target = target;
+    }
+
+    static Connection wrap(Connection target) {
+        return proxy(Connection.class, new SqlEventConnection(target));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        Object identity = identity(proxy, method, args);
+        if (identity != null) {
+            return identity;
+        }
+        Object result = call(target, method, args);
+        String name = method.getName();
+        if (result instanceof Statement statement
+                && (name.equals("prepareStatement") || name.equals("prepareCall") || name.equals("createStatement"))) {
+            String sql = name.equals("createStatement") ? null : (String) args[0];
+            return proxy(method.getReturnType(), new StatementEvents(statement, sql));
+        }
+        return result;
+    }
+
+    /**
+     * Inner class for the statement side: one event per execute, finished when its rows are read
+     */
+    private static class StatementEvents implements InvocationHandler {
+        private final Statement target;
+        private final String sql;
+        private RowCounter pending;
+
+        StatementEvents(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identity(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+            String name = method.getName();
+            if (name.equals("close")) {
+                finishPending();
+            }
+            if (!name.startsWith("execute")) {
+                return call(target, method, args);
+            }
+            finishPending();
+            SqlStatementEvent event = new SqlStatementEvent();
+            if (!event.isEnabled()) {
+                return call(target, method, args);
+            }
+            event.sql = sql;
+            if (sql == null && args != null && args.length > 0 && args[0] instanceof String text) {
+                // A plain statement carries its SQL in the execute call
+                event.sql = text;
+            }
+            event.sqlId = SqlStatementEvent.idOf(event.sql);
+            event.operation = name;
+            event.rows = -1;
+            event.begin();
+            Object result;
+            try {
+                result = call(target, method, args);
+            } catch (Throwable e) {
+                event.failed = true;
+                event.commit();
+                throw e;
+            }
+            event.end();
+
+            if (result instanceof ResultSet rs) {
+                event.rows = 0;
+                pending = new RowCounter(rs, event);
+                return proxy(ResultSet.class, pending);
+            }
+            if (result instanceof Integer || result instanceof Long) {
+                event.rows = ((Number) result).longValue();
+            } else if (result instanceof int[] counts) {
+                event.batchSize = counts.length;
+                event.rows = 0;
+                for (int count : counts) {
+                    event.rows += Math.max(count, 0);
+                }
+            } else if (result instanceof long[] counts) {
+                event.batchSize = counts.length;
+                event.rows = 0;
+                for (long count : counts) {
+                    event.rows += Math.max(count, 0);
+                }
+            } else if (Boolean.FALSE.equals(result)) {
+                event.rows = target.getUpdateCount();
+            }
+            event.commit();
+            return result;
+        }
+
+        private void finishPending() {
+            if (pending != null) {
+                pending.finish();
+                pending = null;
+            }
+        }
+    }
+
+    /**
+     * Inner class for a query's result set, counting rows as they are read
+     */
+    private static class RowCounter implements InvocationHandler {
+        private final ResultSet target;
+        private final SqlStatementEvent event;
+        private boolean finished;
+
+        RowCounter(ResultSet target, SqlStatementEvent event) {
+            this.target = target;
+            this.event = event;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identity(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+            Object result = call(target, method, args);
+            switch (method.getName()) {
+                case "next" -> {
+                    if ((Boolean) result) {
+                        event.rows++;
+                    } else {
+                        finish();
+                    }
+                }
+                case "close" -> finish();
+                default -> {
+                }
+            }
+            return result;
+        }
+
+        void finish() {
+            if (!finished) {
+                finished = true;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * equals and hashCode by identity of the proxy, so it can key a map; null for any other method
+     */
+    private static Object identity(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "equals" -> method.getParameterCount() == 1 ? proxy == args[0] : null;
+            case "hashCode" -> method.getParameterCount() == 0 ? System.identityHashCode(proxy) : null;
+            default -> null;
+        };
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
@@ -17,12 +17,23 @@ import java.util.Scanner;
 public class BillManagementController {
     private final BillingService billingService;
     private final BillDAO billDAO;
+    private final BillDAO listBillDAO;
     private final Scanner scanner;
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
 
     public BillManagementController(BillingService billingService, BillDAO billDAO, Scanner scanner) {
+        this(billingService, billDAO, billDAO, scanner);
+    }
+
+    /**
+     * Bills looked up by id or serial number come from billDAO on the primary, so a bill just saved
+     * is always found; the bill lists may come from a replica through listBillDAO
+     */
+    public BillManagementController(BillingService billingService, BillDAO billDAO, BillDAO listBillDAO,
+            Scanner scanner) {
         this.billingService = billingService;
         this.billDAO = billDAO;
+        this.listBillDAO = listBillDAO;
         this.scanner = scanner;
     }
 
@@ -100,7 +111,7 @@ public class BillManagementController {
 
         try {
             Date date = dateFormat.parse(dateInput);
-            List<Bill> bills = billDAO.getBillsByDate(date);
+            List<Bill> bills = listBillDAO.getBillsByDate(date);
 
             if (bills.isEmpty()) {
                 System.out.println("No bills found for date: " + dateInput);
@@ -118,7 +129,7 @@ public class BillManagementController {
 
         try {
             int customerId = Integer.parseInt(input);
-            List<Bill> bills = billDAO.getBillsByCustomer(customerId);
+            List<Bill> bills = listBillDAO.getBillsByCustomer(customerId);
 
             if (bills.isEmpty()) {
                 System.out.println("No bills found for Customer ID: " + customerId);
@@ -148,7 +159,7 @@ public class BillManagementController {
             }
         }
 
-        List<Bill> bills = billDAO.getBillsByTransactionType(transactionType);
+        List<Bill> bills = listBillDAO.getBillsByTransactionType(transactionType);
 
         if (bills.isEmpty()) {
             System.out.println("No bills found for transaction type: " + transactionType.getValue());
@@ -193,7 +204,7 @@ public class BillManagementController {
                     bill.getBillId(),
                     bill.getSerialNumber(),
                     bill.getBillDate(),
-                    "Customer " + bill.getCustomerId(), // Could enhance to show actual customer name
+                    bill.getCustomerName() != null ? bill.getCustomerName() : "Customer " + bill.getCustomerId(),
                     bill.getTotalAmount(),
                     bill.getTransactionType().getValue(),
                     bill.getStatus().toString());
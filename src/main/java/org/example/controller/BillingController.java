@@ -2,13 +2,16 @@
 package org.example.controller;
 
 import org.example.model.*;
+import org.example.config.ConfigManager;
+import org.example.service.AvailabilityService;
 import org.example.service.BillingService;
 import org.example.service.DiscountService;
+import org.example.service.OfflineTillService;
+import org.example.service.ReservationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
 import java.util.Optional;
 import java.util.Scanner;
 
@@ -19,10 +22,19 @@ public class BillingController {
     private static final Logger logger = LoggerFactory.getLogger(BillingController.class);
     private BillingService billingService;
     private DiscountService discountService;
+    private ReservationService reservationService;
+    private AvailabilityService availabilityService;
+    private OfflineTillService offlineTill;
+    private final long reservationTtlMillis;
 
-    public BillingController(BillingService billingService) {
+    public BillingController(BillingService billingService, ReservationService reservationService,
+                             AvailabilityService availabilityService, OfflineTillService offlineTill) {
         this.billingService = billingService;
         this.discountService = new DiscountService();
+        this.reservationService = reservationService;
+        this.availabilityService = availabilityService;
+        this.offlineTill = offlineTill;
+        this.reservationTtlMillis = ConfigManager.getInstance().getIntProperty("reservation.ttlMinutes", 15) * 60_000L;
     }
 
     /**
@@ -39,8 +51,8 @@ public class BillingController {
         processTransaction(scanner, TransactionType.ONLINE);
     }
 
-    private List<BillItem> collectItems(Scanner scanner, TransactionType transactionType) {
-        List<BillItem> items = new ArrayList<>();
+    private Cart collectItems(Scanner scanner, TransactionType transactionType) {
+        Cart cart = new Cart(transactionType);
 
         System.out.println("\nAdd items to bill (type 'done' to finish):");
 
@@ -57,11 +69,18 @@ public class BillingController {
                 continue;
             }
 
-            // Validate item exists
-            Optional<Item> itemOpt = billingService.getItemDetails(code);
+            // Validate item exists; repeat scans reuse the item resolved the first time
+            Optional<Item> itemOpt = cart.getItem(code);
             if (itemOpt.isEmpty()) {
-                System.out.println("✗ Item not found: " + code);
-                continue;
+                itemOpt = resolveItem(code);
+                if (itemOpt.isEmpty()) {
+                    System.out.println("✗ Item not found: " + code);
+                    continue;
+                }
+                if (!itemOpt.get().isActive()) {
+                    System.out.println("✗ Item is not available for sale: " + code);
+                    continue;
+                }
             }
 
             Item item = itemOpt.get();
@@ -75,52 +94,97 @@ public class BillingController {
                     continue;
                 }
 
-                // Check availability
-                if (!billingService.isItemAvailable(code, quantity, transactionType)) {
-                    System.out.printf("✗ Insufficient stock. Available: %s inventory%n",
-                            transactionType == TransactionType.IN_STORE ? "shelf" : "website");
+                // Check availability for everything of this item in the cart, asking again
+                // only when the snapshot from the last scan does not cover it
+                int inCart = cart.getQuantity(code);
+                int available = cart.getAvailableSnapshot(code);
+                if (available < inCart + quantity) {
+                    // Both served from memory: online stock net of other orders' holds, shelf stock
+                    // from the availability snapshot. Checkout makes the authoritative check.
+                    available = transactionType == TransactionType.ONLINE
+                            ? reservationService.getAvailable(code)
+                            : availabilityService.getAvailable(code, transactionType);
+                }
+                if (available < inCart + quantity) {
+                    System.out.printf("✗ Insufficient stock. Available: %d in %s inventory (%d already in cart)%n",
+                            available, transactionType == TransactionType.IN_STORE ? "shelf" : "website", inCart);
                     continue;
                 }
 
-                BillItem billItem = new BillItem(code, item.getName(), quantity, item.getPrice());
-                items.add(billItem);
+                cart.add(item, quantity, available);
 
-                System.out.printf("✓ Added: %d x %s%n", quantity, item.getName());
+                System.out.printf("✓ Added: %d x %s (subtotal Rs. %.2f)%n", quantity, item.getName(), cart.getSubtotal());
 
             } catch (NumberFormatException e) {
                 System.out.println("✗ Invalid quantity entered.");
             }
         }
 
-        return items;
+        return cart;
     }
 
-    private void displayBillSummary(List<BillItem> items) {
+    /**
+     * Look an item up in the database, or in the cached catalog while the till is offline
+     */
+    private Optional<Item> resolveItem(String code) {
+        if (!offlineTill.isOffline()) {
+            Optional<Item> item = billingService.getItemDetails(code);
+            if (item.isPresent()) {
+                offlineTill.remember(item.get());
+                return item;
+            }
+            if (!offlineTill.checkOffline()) {
+                return item;
+            }
+            System.out.println("! Database unreachable, switching to offline mode.");
+        }
+        return offlineTill.findCachedItem(code);
+    }
+
+    private void displayBillSummary(Cart cart) {
         System.out.println("\n" + "-".repeat(60));
         System.out.println("                    BILL SUMMARY");
         System.out.println("-".repeat(60));
         System.out.printf("%-12s %-20s %6s %10s %10s%n", "Code", "Item", "Qty", "Price", "Total");
         System.out.println("-".repeat(60));
 
-        double grandTotal = 0;
-        for (BillItem item : items) {
-            double itemTotal = item.getQuantity() * item.getUnitPrice();
-            grandTotal += itemTotal;
-
+        for (Cart.Line line : cart.getLines()) {
             System.out.printf("%-12s %-20s %6d Rs. %6.2f Rs. %6.2f%n",
-                    item.getItemCode(),
-                    truncate(item.getItemName(), 20),
-                    item.getQuantity(),
-                    item.getUnitPrice(),
-                    itemTotal);
+                    line.getItemCode(),
+                    truncate(line.getItemName(), 20),
+                    line.getQuantity(),
+                    Cart.fromCents(line.getUnitPriceCents()),
+                    Cart.fromCents(line.getTotalCents()));
         }
 
         System.out.println("-".repeat(60));
-        System.out.printf("%-49s Rs. %6.2f%n", "SUBTOTAL", grandTotal);
+        System.out.printf("%-49s Rs. %6.2f%n", "SUBTOTAL", cart.getSubtotal());
 
         System.out.println("-".repeat(60));
     }
 
+    /**
+     * Journal the sale locally; it is billed in order once the database is reachable again
+     */
+    private void recordOfflineSale(Cart cart, String phone, String name, double cashReceived, double discount,
+                                   double totalAmount) {
+        try {
+            OfflineSale sale = offlineTill.recordSale(cart, phone, name, cashReceived, discount);
+            System.out.println("\n✓ Sale recorded offline.");
+            System.out.printf("Offline receipt: %s%n", sale.getReceiptNumber());
+            System.out.printf("Change to return: Rs. %.2f%n", cashReceived - totalAmount);
+            System.out.println("The bill will be issued when the system is back online.");
+        } catch (IOException e) {
+            logger.error("Could not record offline sale", e);
+            System.out.println("✗ Could not record the sale offline. The sale has NOT been recorded.");
+        }
+    }
+
+    private boolean confirmRetry(Scanner scanner) {
+        System.out.print("✗ Checkout did not complete. Retry? (y/n): ");
+        return scanner.nextLine().trim().equalsIgnoreCase("y");
+    }
+
     private boolean isValidPhoneNumber(String phone) {
         return phone.matches("\\d{10}");
     }
@@ -161,24 +225,55 @@ public class BillingController {
         System.out.printf("           %s BILLING%n", transactionType.getValue());
         System.out.println("=".repeat(50));
 
+        if (offlineTill.isOffline()) {
+            if (transactionType == TransactionType.ONLINE) {
+                System.out.println("✗ Online orders are unavailable while the till is offline.");
+                return;
+            }
+            System.out.printf("! OFFLINE MODE: sales are billed when the database is back (%d waiting)%n",
+                    offlineTill.getPendingCount());
+        }
+
         // Collect items
-        List<BillItem> billItems = collectItems(scanner, transactionType);
-        if (billItems.isEmpty()) {
+        Cart cart = collectItems(scanner, transactionType);
+        if (cart.isEmpty()) {
             System.out.println("✗ No valid items added to bill.");
             return;
         }
 
+        // Hold online stock for this order while the customer completes checkout
+        Reservation reservation = null;
+        if (transactionType == TransactionType.ONLINE) {
+            Optional<Reservation> held = reservationService.reserve(cart.toBillItems(), reservationTtlMillis);
+            if (held.isEmpty()) {
+                System.out.println("✗ Some items are no longer available online. Please try again.");
+                return;
+            }
+            reservation = held.get();
+        }
+
+        try {
+            completeTransaction(scanner, cart, reservation);
+        } finally {
+            if (reservation != null) {
+                // No-op once confirmed; otherwise an abandoned order gives its stock back now
+                reservationService.release(reservation.getReservationId());
+            }
+        }
+    }
+
+    private void completeTransaction(Scanner scanner, Cart cart, Reservation reservation) {
+        TransactionType transactionType = cart.getTransactionType();
+
         // Display bill summary
-        displayBillSummary(billItems);
+        displayBillSummary(cart);
 
-        // Calculate subtotal
-        double subtotal = billItems.stream()
-                .mapToDouble(item -> item.getQuantity() * billingService.getItemPrice(item.getItemCode()))
-                .sum();
+        // Subtotal was kept up to date while scanning
+        double subtotal = cart.getSubtotal();
 
         // Get discount
         double discount = getDiscountInput(scanner, subtotal);
-        double totalAmount = subtotal - discount;
+        double totalAmount = Cart.fromCents(cart.getSubtotalCents() - Cart.toCents(discount));
 
         // Debug logging
         logger.debug("\nDiscount entered: {}, \nSubtotal: {}, \nTotal Amount: {}", discount, subtotal, totalAmount);
@@ -222,8 +317,27 @@ public class BillingController {
             cashReceived = totalAmount; // Online transactions are prepaid
         }
 
+        if (reservation != null && !reservationService.confirm(reservation.getReservationId())) {
+            System.out.println("✗ Stock reservation expired. Please start the order again.");
+            return;
+        }
+
         // Process billing
-        int billId = billingService.processBilling(phone, name, billItems, cashReceived, transactionType, discount);
+        int billId = offlineTill.isOffline() ? -1 : billingService.processBilling(phone, name, cart, cashReceived, discount);
+        while (billId <= 0 && transactionType == TransactionType.IN_STORE) {
+            if (offlineTill.checkOffline()) {
+                recordOfflineSale(cart, phone, name, cashReceived, discount, totalAmount);
+                return;
+            }
+            if (!confirmRetry(scanner)) {
+                break;
+            }
+            // Same cart, same request token: if the first attempt did commit, its bill comes back
+            billId = billingService.processBilling(phone, name, cart, cashReceived, discount);
+        }
+        if (billId <= 0 && reservation != null) {
+            reservationService.restore(reservation);
+        }
 
         if (billId > 0) {
             System.out.println("\n✓ Bill processed successfully!");
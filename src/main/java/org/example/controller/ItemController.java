@@ -3,9 +3,14 @@ package org.example.controller;
 
 import org.example.model.Item;
 import org.example.dao.ItemDAO;
+import org.example.service.CatalogImportService;
+import org.example.service.DomainEventBus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
@@ -16,9 +21,23 @@ import java.util.Scanner;
 public class ItemController {
     private static final Logger logger = LoggerFactory.getLogger(ItemController.class);
     private ItemDAO itemDAO;
+    private final DomainEventBus eventBus;
+    private CatalogImportService catalogImportService;
 
     public ItemController(ItemDAO itemDAO) {
+        this(itemDAO, null);
+    }
+
+    /**
+     * Item management that publishes catalog changes on the domain event bus
+     */
+    public ItemController(ItemDAO itemDAO, DomainEventBus eventBus) {
         this.itemDAO = itemDAO;
+        this.eventBus = eventBus;
+    }
+
+    public void setCatalogImportService(CatalogImportService catalogImportService) {
+        this.catalogImportService = catalogImportService;
     }
 
     /**
@@ -34,6 +53,7 @@ public class ItemController {
             System.out.println("3. Update Item");
             System.out.println("4. List All Items");
             System.out.println("5. Deactivate Item");
+            System.out.println("6. Import Catalog (CSV)");
             System.out.println("0. Back to Main Menu");
             System.out.println("=".repeat(50));
 
@@ -47,6 +67,7 @@ public class ItemController {
                     case "3" -> updateItem(scanner);
                     case "4" -> listAllItems();
                     case "5" -> deactivateItem(scanner);
+                    case "6" -> importCatalog(scanner);
                     case "0" -> {
                         System.out.println("Returning to main menu...");
                         return;
@@ -126,6 +147,7 @@ public class ItemController {
 
         Item item = new Item(code, name, price, category, description, minStockLevel);
         itemDAO.addItem(item);
+        publishItemUpdated(item);
 
         System.out.println("✓ Item added successfully!");
         System.out.printf("Code: %s, Name: %s, Price: Rs. %.2f%n", code, name, price);
@@ -194,6 +216,7 @@ public class ItemController {
         }
 
         if (itemDAO.updateItem(item)) {
+            publishItemUpdated(item);
             System.out.println("✓ Item updated successfully!");
         } else {
             System.out.println("✗ Failed to update item.");
@@ -240,6 +263,8 @@ public class ItemController {
 
         if (confirm.equals("y") || confirm.equals("yes")) {
             if (itemDAO.deactivateItem(code)) {
+                item.setActive(false);
+                publishItemUpdated(item);
                 System.out.println("✓ Item deactivated successfully!");
             } else {
                 System.out.println("✗ Failed to deactivate item.");
@@ -249,8 +274,43 @@ public class ItemController {
         }
     }
 
+    private void importCatalog(Scanner scanner) throws Exception {
+        System.out.println("\n--- Import Catalog ---");
+        if (catalogImportService == null) {
+            System.out.println("✗ Catalog import is not available.");
+            return;
+        }
+        System.out.println("Columns: item_code, name, price [, category, description, min_stock_level, is_active]");
+        System.out.print("CSV file path: ");
+        Path file = Paths.get(scanner.nextLine().trim());
+        if (!Files.isReadable(file)) {
+            System.out.println("✗ File not found: " + file);
+            return;
+        }
+
+        CatalogImportService.ImportResult result = catalogImportService.importCsv(file, progress ->
+                System.out.printf("\r  %,d rows read, %,d saved, %,d rejected",
+                        progress.getRowsRead(), progress.getUpserted(), progress.getRejected()));
+        System.out.println();
+
+        System.out.printf("✓ Imported %,d items, %,d rows rejected%n", result.getUpserted(), result.getRejected());
+        List<CatalogImportService.RowError> errors = result.getErrors();
+        for (int i = 0; i < Math.min(20, errors.size()); i++) {
+            System.out.println("  ✗ " + errors.get(i));
+        }
+        if (result.getRejected() > 20) {
+            System.out.printf("  ... and %,d more%n", result.getRejected() - 20);
+        }
+    }
+
     private String truncate(String text, int maxLength) {
         if (text == null) return "";
         return text.length() <= maxLength ? text : text.substring(0, maxLength - 3) + "...";
     }
-}
\ No newline at end of file
+
+    private void publishItemUpdated(Item item) {
+        if (eventBus != null) {
+            eventBus.publishItemUpdated(item);
+        }
+    }
+}
@@ -1,13 +1,20 @@
 // File: src/main/java/org/example/controller/ReportController.java
 package org.example.controller;
 
+import org.example.model.StockPosition;
 import org.example.service.ReportService;
+import org.example.service.StockLedgerService;
+import org.example.util.LatencyHistogram;
+import org.example.util.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
@@ -16,10 +23,13 @@ import java.util.Scanner;
 public class ReportController {
     private static final Logger logger = LoggerFactory.getLogger(ReportController.class);
     private ReportService reportService;
+    private StockLedgerService ledgerService;
     private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    private SimpleDateFormat dateTimeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
 
-    public ReportController(ReportService reportService) {
+    public ReportController(ReportService reportService, StockLedgerService ledgerService) {
         this.reportService = reportService;
+        this.ledgerService = ledgerService;
     }
 
     /**
@@ -35,6 +45,8 @@ public class ReportController {
             System.out.println("3. Stock Report");
             System.out.println("4. Bill History");
             System.out.println("5. Reshelving Report");
+            System.out.println("6. Stock As Of Date/Time");
+            System.out.println("7. Stock Ledger Drift Audit");
             System.out.println("0. Back to Main Menu");
             System.out.println("=".repeat(50));
 
@@ -48,6 +60,8 @@ public class ReportController {
                     case "3" -> reportService.printStockReport();
                     case "4" -> reportService.printBillHistory();
                     case "5" -> reportService.printReshelvingReport();
+                    case "6" -> showStockAsOf(scanner);
+                    case "7" -> showLedgerDrift();
                     case "0" -> {
                         System.out.println("Returning to main menu...");
                         return;
@@ -66,6 +80,34 @@ public class ReportController {
         }
     }
 
+    /**
+     * Show latency percentiles of every timed operation, then pool and other counters
+     */
+    public void showPerformanceMetrics() {
+        Map<String, LatencyHistogram.Snapshot> snapshots = Metrics.snapshots();
+        System.out.println("\n" + "=".repeat(100));
+        System.out.println("                              PERFORMANCE METRICS (ms, since start)");
+        System.out.println("=".repeat(100));
+        if (snapshots.isEmpty()) {
+            System.out.println("Nothing timed yet.");
+        } else {
+            System.out.printf("%-50s %9s %9s %9s %9s %9s%n", "Operation", "Count", "p50", "p99", "p99.9", "Max");
+            System.out.println("-".repeat(100));
+            snapshots.forEach((operation, snapshot) -> System.out.printf("%-50s %9d %9.3f %9.3f %9.3f %9.3f%n",
+                    operation, snapshot.getCount(),
+                    snapshot.valueAtPercentileMillis(50),
+                    snapshot.valueAtPercentileMillis(99),
+                    snapshot.valueAtPercentileMillis(99.9),
+                    snapshot.getMaxNanos() / 1_000_000.0));
+        }
+        Map<String, Long> values = Metrics.values();
+        if (!values.isEmpty()) {
+            System.out.println("-".repeat(100));
+            values.forEach((name, value) -> System.out.printf("%-50s %9d%n", name, value));
+        }
+        System.out.println("=".repeat(100));
+    }
+
     /**
      * Show daily sales report with date input
      */
@@ -89,4 +131,60 @@ public class ReportController {
 
         reportService.printDailySalesReport(date);
     }
-}
\ No newline at end of file
+
+    /**
+     * Show stock positions rebuilt from the ledger at a past time
+     */
+    private void showStockAsOf(Scanner scanner) {
+        System.out.println("\n--- Stock As Of ---");
+        System.out.print("Enter date/time (yyyy-MM-dd HH:mm): ");
+        Date asOf;
+        try {
+            asOf = dateTimeFormat.parse(scanner.nextLine().trim());
+        } catch (ParseException e) {
+            System.out.println("✗ Invalid date/time format.");
+            return;
+        }
+        System.out.print("Item code (Enter for all items): ");
+        String code = scanner.nextLine().trim().toUpperCase();
+
+        List<StockPosition> positions = new ArrayList<>();
+        if (code.isEmpty()) {
+            Map<String, StockPosition> all = ledgerService.getStockAsOf(asOf);
+            all.keySet().stream().sorted().forEach(itemCode -> positions.add(all.get(itemCode)));
+        } else {
+            positions.add(ledgerService.getStockAsOf(code, asOf));
+        }
+
+        System.out.printf("%nStock as of %s%n", dateTimeFormat.format(asOf));
+        System.out.printf("%-12s %8s %8s %10s %8s%n", "Code", "Shelf", "Website", "Warehouse", "Total");
+        System.out.println("-".repeat(50));
+        for (StockPosition position : positions) {
+            System.out.printf("%-12s %8d %8d %10d %8d%n", position.getItemCode(), position.getShelfQuantity(),
+                    position.getWebsiteQuantity(), position.getWarehouseQuantity(), position.getTotalQuantity());
+        }
+    }
+
+    /**
+     * Show items whose live stock no longer matches the ledger
+     */
+    private void showLedgerDrift() {
+        System.out.println("\n--- Stock Ledger Drift Audit ---");
+        List<StockLedgerService.StockDrift> drift = ledgerService.findDrift();
+        if (drift.isEmpty()) {
+            System.out.println("✓ Live stock matches the ledger for all items.");
+            return;
+        }
+        System.out.printf("%-12s %-10s %8s %8s %10s%n", "Code", "Source", "Shelf", "Website", "Warehouse");
+        System.out.println("-".repeat(52));
+        for (StockLedgerService.StockDrift entry : drift) {
+            StockPosition ledger = entry.getLedger();
+            StockPosition actual = entry.getActual();
+            System.out.printf("%-12s %-10s %8d %8d %10d%n", entry.getItemCode(), "ledger",
+                    ledger.getShelfQuantity(), ledger.getWebsiteQuantity(), ledger.getWarehouseQuantity());
+            System.out.printf("%-12s %-10s %8d %8d %10d%n", "", "actual",
+                    actual.getShelfQuantity(), actual.getWebsiteQuantity(), actual.getWarehouseQuantity());
+        }
+        System.out.printf("✗ %d item(s) drifted from the ledger%n", drift.size());
+    }
+}
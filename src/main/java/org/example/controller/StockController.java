@@ -1,13 +1,24 @@
 // File: src/main/java/org/example/controller/StockController.java
 package org.example.controller;
 
+import org.example.dao.StockSummaryDAO;
+import org.example.model.CatalogStockSummary;
 import org.example.model.StockBatch;
+import org.example.model.StockTransfer;
+import org.example.service.CatalogImportService;
+import org.example.service.GoodsReceivedService;
 import org.example.service.StockService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Scanner;
@@ -17,13 +28,19 @@ import java.util.Scanner;
  */
 public class StockController {
     private static final Logger logger = LoggerFactory.getLogger(StockController.class);
+    private static final int CATALOG_PAGE_SIZE = 20;
     private StockService stockService;
     private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    private GoodsReceivedService goodsReceivedService;
 
     public StockController(StockService stockService) {
         this.stockService = stockService;
     }
 
+    public void setGoodsReceivedService(GoodsReceivedService goodsReceivedService) {
+        this.goodsReceivedService = goodsReceivedService;
+    }
+
     /**
      * Receive new stock batch
      */
@@ -92,6 +109,45 @@ public class StockController {
         }
     }
 
+    /**
+     * Receive every line of a supplier's delivery manifest as a stock batch
+     */
+    public void receiveManifest(Scanner scanner) {
+        System.out.println("\n--- Receive Delivery Manifest ---");
+        if (goodsReceivedService == null) {
+            System.out.println("✗ Manifest receiving is not available.");
+            return;
+        }
+        System.out.println("Fields: item_code, quantity, expiry_date [, received_date, supplier_name, purchase_price]");
+        System.out.print("Manifest file path (.csv or .json): ");
+        Path file = Paths.get(scanner.nextLine().trim());
+        if (!Files.isReadable(file)) {
+            System.out.println("✗ File not found: " + file);
+            return;
+        }
+
+        try {
+            GoodsReceivedService.IngestResult result = goodsReceivedService.ingest(file, progress ->
+                    System.out.printf("\r  %,d lines read, %,d batches received, %,d rejected",
+                            progress.getLinesRead(), progress.getBatchesReceived(), progress.getRejected()));
+            System.out.println();
+
+            System.out.printf("✓ Received %,d batches (%,d units), %,d lines rejected%n",
+                    result.getBatchesReceived(), result.getUnitsReceived(), result.getRejected());
+            List<CatalogImportService.RowError> errors = result.getErrors();
+            for (int i = 0; i < Math.min(20, errors.size()); i++) {
+                System.out.println("  ✗ " + errors.get(i));
+            }
+            if (result.getRejected() > 20) {
+                System.out.printf("  ... and %,d more%n", result.getRejected() - 20);
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            System.out.println();
+            System.out.println("✗ Manifest not read: " + e.getMessage());
+            logger.error("Error reading delivery manifest " + file, e);
+        }
+    }
+
     /**
      * Reshelve items from warehouse to shelf
      */
@@ -112,6 +168,29 @@ public class StockController {
         }
     }
 
+    /**
+     * Write off the warehouse quantity of a batch
+     */
+    public void writeOffBatch(Scanner scanner) {
+        System.out.println("\n--- Write Off Batch ---");
+
+        try {
+            System.out.print("Batch ID: ");
+            int batchId = Integer.parseInt(scanner.nextLine().trim());
+
+            System.out.print("Reason (e.g. expired, damaged): ");
+            String reason = scanner.nextLine().trim();
+
+            if (stockService.writeOffBatch(batchId, reason.isEmpty() ? "unspecified" : reason)) {
+                System.out.printf("✓ Batch %d written off%n", batchId);
+            } else {
+                System.out.printf("✗ Batch %d has no warehouse stock to write off%n", batchId);
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("✗ Invalid batch ID.");
+        }
+    }
+
     /**
      * Transfer stock between shelf and website
      */
@@ -163,6 +242,66 @@ public class StockController {
         }
     }
 
+    /**
+     * Apply a rebalancing plan file in one transaction.
+     * Each line is: item_code,quantity,TO_WEBSITE|TO_SHELF
+     */
+    public void transferStockPlan(Scanner scanner) {
+        System.out.println("\n--- Rebalance Stock from Plan ---");
+        System.out.print("Plan file path: ");
+        String path = scanner.nextLine().trim();
+
+        if (path.isEmpty()) {
+            System.out.println("✗ File path cannot be empty.");
+            return;
+        }
+
+        List<StockTransfer> plan = new ArrayList<>();
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(path))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                if (parts.length != 3) {
+                    System.out.printf("✗ Line %d skipped: expected item_code,quantity,direction%n", lineNumber);
+                    continue;
+                }
+                String direction = parts[2].trim().toUpperCase();
+                if (!direction.equals("TO_WEBSITE") && !direction.equals("TO_SHELF")) {
+                    System.out.printf("✗ Line %d skipped: unknown direction %s%n", lineNumber, parts[2].trim());
+                    continue;
+                }
+                try {
+                    plan.add(new StockTransfer(parts[0].trim().toUpperCase(),
+                            Integer.parseInt(parts[1].trim()), direction.equals("TO_WEBSITE")));
+                } catch (NumberFormatException e) {
+                    System.out.printf("✗ Line %d skipped: invalid quantity%n", lineNumber);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("✗ Could not read plan file: " + e.getMessage());
+            logger.error("Error reading transfer plan", e);
+            return;
+        }
+
+        if (plan.isEmpty()) {
+            System.out.println("✗ No transfers found in plan.");
+            return;
+        }
+
+        StockService.TransferResult result = stockService.transferStock(plan);
+        System.out.printf("✓ Applied %d of %d transfers (%d units moved)%n",
+                result.getApplied().size(), plan.size(), result.getUnitsMoved());
+        for (StockTransfer rejected : result.getRejected()) {
+            System.out.printf("✗ Not applied: %s x %d%n", rejected.getItemCode(), rejected.getQuantity());
+        }
+    }
+
     /**
      * View stock summary for an item
      */
@@ -194,6 +333,66 @@ public class StockController {
         }
     }
 
+    /**
+     * Browse the stock summary of the whole catalog, one page at a time
+     */
+    public void viewCatalogStockSummary(Scanner scanner) {
+        System.out.println("\n--- Catalog Stock Summary ---");
+        System.out.println("Sort by: 1. Item code  2. Name  3. Shelf  4. Website  5. Warehouse  6. Total  7. Batches");
+        System.out.print("Choose sort (default 1): ");
+        StockSummaryDAO.SortField sortField;
+        switch (scanner.nextLine().trim()) {
+            case "2": sortField = StockSummaryDAO.SortField.NAME; break;
+            case "3": sortField = StockSummaryDAO.SortField.SHELF; break;
+            case "4": sortField = StockSummaryDAO.SortField.WEBSITE; break;
+            case "5": sortField = StockSummaryDAO.SortField.WAREHOUSE; break;
+            case "6": sortField = StockSummaryDAO.SortField.TOTAL; break;
+            case "7": sortField = StockSummaryDAO.SortField.BATCHES; break;
+            default: sortField = StockSummaryDAO.SortField.ITEM_CODE;
+        }
+        System.out.print("Descending? (y/N): ");
+        boolean ascending = !scanner.nextLine().trim().equalsIgnoreCase("y");
+
+        int page = 0;
+        while (true) {
+            try {
+                StockService.CatalogStockPage result =
+                        stockService.getCatalogStockSummary(sortField, ascending, page, CATALOG_PAGE_SIZE);
+
+                System.out.printf("%n%-12s %-25s %8s %8s %10s %8s %8s%n",
+                        "Code", "Name", "Shelf", "Website", "Warehouse", "Total", "Batches");
+                System.out.println("-".repeat(85));
+                for (CatalogStockSummary summary : result.getSummaries()) {
+                    String name = summary.getItemName();
+                    if (name.length() > 25) {
+                        name = name.substring(0, 22) + "...";
+                    }
+                    System.out.printf("%-12s %-25s %8d %8d %10d %8d %8d%n",
+                            summary.getItemCode(), name, summary.getShelfQuantity(),
+                            summary.getWebsiteQuantity(), summary.getWarehouseQuantity(),
+                            summary.getTotalQuantity(), summary.getBatchCount());
+                }
+                System.out.println("-".repeat(85));
+                System.out.printf("Page %d of %d (%d items)%n",
+                        page + 1, Math.max(result.getTotalPages(), 1), result.getTotalItems());
+
+                System.out.print("[n]ext, [p]revious, [q]uit: ");
+                String action = scanner.nextLine().trim().toLowerCase();
+                if (action.equals("n") && result.hasNext()) {
+                    page++;
+                } else if (action.equals("p") && page > 0) {
+                    page--;
+                } else if (action.equals("q") || action.isEmpty()) {
+                    return;
+                }
+            } catch (Exception e) {
+                System.out.println("✗ Error retrieving catalog stock summary: " + e.getMessage());
+                logger.error("Error getting catalog stock summary", e);
+                return;
+            }
+        }
+    }
+
     /**
      * View expiring stock
      */
@@ -10,8 +10,30 @@ import java.util.Optional;
 
 public interface BillDAO {
     int saveBill(Bill bill);
+
+    /**
+     * Save a bill and record the checkout request token in the same transaction
+     *
+     * @return the new bill id, or -1 if the token was already recorded (nothing is saved then)
+     */
+    int saveBill(Bill bill, String requestToken);
+
+    /**
+     * Save a bill as {@link #saveBill(Bill, String)}, also recording which checkout attempt saved it
+     */
+    int saveBill(Bill bill, String requestToken, String checkoutRef);
+
+    Optional<Integer> findBillIdByRequestToken(String requestToken);
+
+    /**
+     * Bill saved by one checkout attempt; other attempts with the same request token do not count
+     */
+    Optional<Integer> findBillIdByCheckoutRef(String checkoutRef);
     Optional<Bill> getBillById(int billId);
     Optional<Bill> getBillBySerialNumber(int serialNumber);
+
+    // List finders return header-only bills: one query for the page, and the lines of every
+    // bill on it in one more query the first time any bill's getItems() is called
     List<Bill> getBillsByDate(Date date);
     List<Bill> getBillsByDateRange(Date startDate, Date endDate);
     List<Bill> getBillsByCustomer(int customerId);
@@ -2,8 +2,10 @@
 package org.example.dao;
 
 import org.example.model.Item;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface ItemDAO {
     void addItem(Item item);
@@ -14,4 +16,16 @@ public interface ItemDAO {
     boolean updateItem(Item item);
     boolean deactivateItem(String code);
     boolean isItemCodeExists(String code);
+
+    /**
+     * Insert new items and update existing ones, in one transaction, and give every new item
+     * empty shelf and website inventory rows. Existing items only get the given columns
+     * overwritten, e.g. just price for a price revision; new items need name and price among them.
+     */
+    void upsertItems(List<Item> items, Set<String> columns);
+
+    /**
+     * Of the given codes, those that belong to active items
+     */
+    Set<String> findActiveItemCodes(Collection<String> codes);
 }
\ No newline at end of file
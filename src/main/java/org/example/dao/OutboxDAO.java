@@ -0,0 +1,20 @@
+package org.example.dao;
+
+import org.example.model.OutboxEvent;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public interface OutboxDAO {
+    List<OutboxEvent> getEventsAfter(long eventId, int limit);
+    long getOffset(String consumer);
+    void saveOffset(String consumer, long eventId);
+    int deleteEvents(long upToEventId, Date createdBefore);
+    long getLastEventId();
+
+    /**
+     * Net stock change per item of the events saved under a checkout's ref; items that netted out are left out
+     */
+    Map<String, Integer> getStockMovedBy(String checkoutRef);
+}
@@ -3,6 +3,7 @@ package org.example.dao;
 
 import org.example.model.ShelfStock;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface ShelfStockDAO {
@@ -13,4 +14,34 @@ public interface ShelfStockDAO {
     List<ShelfStock> getLowStockItems(int threshold);
     boolean reduceShelfStock(String itemCode, int quantity);
     int getTotalShelfStock(String itemCode);
+
+    /**
+     * Reduce several items in one transaction, all or nothing
+     *
+     * @param checkoutRef journaled checkout making the sale, saved with its outbox events; null if none
+     * @return false if any item is short, in which case nothing is reduced
+     */
+    boolean reduceShelfStockBatch(Map<String, Integer> quantities, String checkoutRef);
+
+    /**
+     * Take a sale whose goods have already left the shop, e.g. one rung up offline, in one transaction.
+     * Each item gives what it has up to the quantity sold and never goes below zero.
+     *
+     * @param checkoutRef journaled checkout billing the sale, saved with its outbox events; null if none
+     * @return units per item that were sold but not on the shelf; empty if the shelf covered the sale
+     */
+    Map<String, Integer> takeShelfStockBatch(Map<String, Integer> quantities, String checkoutRef);
+
+    /**
+     * Upsert many shelf quantities in one transaction
+     */
+    void saveShelfStockBatch(Map<String, Integer> quantities);
+
+    /**
+     * Add to many shelf quantities in one transaction, relative to what each row holds now,
+     * e.g. to give back the stock of a sale that was not billed
+     *
+     * @param checkoutRef journaled checkout the stock is given back for, saved with its outbox events; null if none
+     */
+    void addShelfStockBatch(Map<String, Integer> quantities, String checkoutRef);
 }
\ No newline at end of file
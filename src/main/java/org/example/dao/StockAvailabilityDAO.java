@@ -0,0 +1,21 @@
+package org.example.dao;
+
+import java.util.Date;
+import java.util.Map;
+
+public interface StockAvailabilityDAO {
+    /**
+     * Current database time, to use as the next {@code changedSince}
+     */
+    Date getDatabaseTime();
+
+    /**
+     * Shelf quantity (base row plus any slots) of items changed at or after {@code changedSince}; all items if null
+     */
+    Map<String, Integer> getShelfQuantities(Date changedSince);
+
+    /**
+     * Website quantity of items changed at or after {@code changedSince}; all items if null
+     */
+    Map<String, Integer> getWebsiteQuantities(Date changedSince);
+}
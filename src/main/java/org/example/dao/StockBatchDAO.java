@@ -4,10 +4,18 @@ package org.example.dao;
 import org.example.model.StockBatch;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface StockBatchDAO {
     void addBatch(StockBatch batch);
+
+    /**
+     * Insert batches in one transaction and set their generated ids
+     */
+    void addBatches(List<StockBatch> batches);
+
     Optional<StockBatch> getBatchById(int batchId);
     List<StockBatch> getBatchesByItemCode(String itemCode);
     List<StockBatch> getAvailableBatches(String itemCode);
@@ -15,5 +23,24 @@ public interface StockBatchDAO {
     List<StockBatch> getAllBatches();
     boolean updateBatchQuantity(int batchId, int newQuantity);
     boolean markBatchAsMovedToShelf(int batchId);
+
+    /**
+     * Move a warehouse batch's whole quantity onto the shelf in one transaction: the batch is
+     * zeroed and flagged moved, and shelf_stock gains the quantity through a relative upsert
+     *
+     * @return the quantity moved, 0 if the batch was empty or already moved
+     */
+    int moveBatchToShelf(int batchId);
+
+    /**
+     * Write off what is left of a warehouse batch in one transaction, e.g. expired or damaged stock
+     *
+     * @return the quantity written off, 0 if the batch was empty or already moved
+     */
+    int writeOffBatch(int batchId);
+
     List<StockBatch> getBatchesForReshelving(String itemCode);
+    Optional<StockBatch> getNextBatchForReshelving(String itemCode);
+    void streamAvailableBatches(Consumer<StockBatch> consumer);
+    Map<String, Integer> getAvailableQuantityByItem();
 }
\ No newline at end of file
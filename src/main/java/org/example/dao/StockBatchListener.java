@@ -0,0 +1,22 @@
+package org.example.dao;
+
+import org.example.model.StockBatch;
+
+import java.util.List;
+
+/**
+ * Callback for components that mirror warehouse batches in memory
+ */
+public interface StockBatchListener {
+    void onBatchAvailable(StockBatch batch);
+    void onBatchDepleted(int batchId);
+
+    /**
+     * Many batches at once, e.g. a delivery manifest
+     */
+    default void onBatchesAvailable(List<StockBatch> batches) {
+        for (StockBatch batch : batches) {
+            onBatchAvailable(batch);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.dao;
+
+import org.example.model.StockLedgerSnapshot;
+import org.example.model.StockMovement;
+import org.example.model.StockPosition;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public interface StockLedgerDAO {
+    /**
+     * Append movements in one transaction; one whose event id is already in the ledger is skipped
+     */
+    void appendMovements(List<StockMovement> movements);
+    long getLastMovementId();
+    long saveSnapshot(Date takenAt, long lastMovementId, Collection<StockPosition> positions);
+    Optional<StockLedgerSnapshot> getLatestSnapshot(Date asOf);
+    void streamSnapshotPositions(long snapshotId, Consumer<StockPosition> consumer);
+    Optional<StockPosition> getSnapshotPosition(long snapshotId, String itemCode);
+    void streamMovements(long afterMovementId, Date upTo, Consumer<StockMovement> consumer);
+    List<StockMovement> getMovements(String itemCode, long afterMovementId, Date upTo);
+}
@@ -0,0 +1,12 @@
+package org.example.dao;
+
+import org.example.model.CatalogStockSummary;
+
+import java.util.List;
+
+public interface StockSummaryDAO {
+    enum SortField { ITEM_CODE, NAME, SHELF, WEBSITE, WAREHOUSE, TOTAL, BATCHES }
+
+    List<CatalogStockSummary> getStockSummaries(SortField sortField, boolean ascending, int offset, int limit);
+    int countItems();
+}
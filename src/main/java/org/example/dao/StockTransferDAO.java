@@ -0,0 +1,10 @@
+package org.example.dao;
+
+import org.example.model.StockTransfer;
+
+import java.util.List;
+
+public interface StockTransferDAO {
+    boolean transferStock(StockTransfer transfer);
+    List<StockTransfer> transferStock(List<StockTransfer> plan);
+}
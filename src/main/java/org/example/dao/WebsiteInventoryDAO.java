@@ -3,6 +3,7 @@ package org.example.dao;
 
 import org.example.model.WebsiteInventory;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface WebsiteInventoryDAO {
@@ -12,4 +13,25 @@ public interface WebsiteInventoryDAO {
     List<WebsiteInventory> getAllWebsiteInventory();
     List<WebsiteInventory> getAvailableItems();
     boolean reduceWebsiteInventory(String itemCode, int quantity);
+
+    /**
+     * Reduce several items in one transaction, all or nothing
+     *
+     * @param checkoutRef journaled checkout making the sale, saved with its outbox events; null if none
+     * @return false if any item is short, in which case nothing is reduced
+     */
+    boolean reduceWebsiteInventoryBatch(Map<String, Integer> quantities, String checkoutRef);
+
+    /**
+     * Upsert many website quantities in one transaction
+     */
+    void saveWebsiteInventoryBatch(Map<String, Integer> quantities);
+
+    /**
+     * Add to many website quantities in one transaction, relative to what each row holds now,
+     * e.g. to give back the stock of a sale that was not billed
+     *
+     * @param checkoutRef journaled checkout the stock is given back for, saved with its outbox events; null if none
+     */
+    void addWebsiteInventoryBatch(Map<String, Integer> quantities, String checkoutRef);
 }
\ No newline at end of file
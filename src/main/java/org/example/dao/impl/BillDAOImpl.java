@@ -12,33 +12,64 @@ import org.slf4j.LoggerFactory;
 import java.sql.*;
 import java.util.*;
 import java.util.Date;
+import java.util.function.Supplier;
 
 public class BillDAOImpl implements BillDAO {
     private static final Logger logger = LoggerFactory.getLogger(BillDAOImpl.class);
+    private static final String INSERT_BILL_SQL = """
+            INSERT INTO bills (bill_serial_number, bill_date, customer_id, total_amount, discount,
+                             cash_received, change_amount, transaction_type, bill_status)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final String INSERT_BILL_ITEM_SQL = """
+            INSERT INTO bill_items (bill_id, item_code, item_name, quantity, unit_price, total_price)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+    private static final String INSERT_REQUEST_SQL =
+            "INSERT INTO checkout_requests (request_token, bill_id, checkout_ref) VALUES (?, ?, ?)";
+    private static final String BILL_BY_REQUEST_SQL = "SELECT bill_id FROM checkout_requests WHERE request_token = ?";
+    private static final String BILL_BY_CHECKOUT_SQL = "SELECT bill_id FROM checkout_requests WHERE checkout_ref = ?";
+    private static final Projection<BillHeader> BILL = Projection.of((rs, at) -> new BillHeader(
+            rs.getInt(at + 1), rs.getInt(at + 2), rs.getDate(at + 3), rs.getInt(at + 4), rs.getDouble(at + 5),
+            rs.getDouble(at + 6), rs.getDouble(at + 7), rs.getDouble(at + 8),
+            TransactionType.fromString(rs.getString(at + 9)), rs.getString(at + 10)),
+            "bill_id", "bill_serial_number", "bill_date", "customer_id", "total_amount", "discount",
+            "cash_received", "change_amount", "transaction_type", "bill_status");
+    private static final Projection<BillItem> BILL_ITEM = Projection.of((rs, at) -> new BillItem(
+            rs.getString(at + 1), rs.getString(at + 2), rs.getInt(at + 3), rs.getDouble(at + 4)),
+            "item_code", "item_name", "quantity", "unit_price");
+    private static final String SELECT_BILLS = "SELECT " + BILL.columns("b")
+            + ", c.name FROM bills b INNER JOIN customers c ON b.customer_id = c.customer_id ";
+    private static final int LINES_PER_QUERY = 500;
+
     private Connection conn;
+    private final StatementCache statements;
 
     public BillDAOImpl(Connection conn) {
         this.conn = conn;
+        this.statements = StatementCache.of(conn);
     }
 
     @Override
     public int saveBill(Bill bill) {
-        String billSql = """
-                INSERT INTO bills (bill_serial_number, bill_date, customer_id, total_amount, discount,
-                                 cash_received, change_amount, transaction_type, bill_status)
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
-                """;
-        String itemSql = """
-                INSERT INTO bill_items (bill_id, item_code, item_name, quantity, unit_price, total_price)
-                VALUES (?, ?, ?, ?, ?, ?)
-                """;
+        return saveBill(bill, null);
+    }
+
+    @Override
+    public int saveBill(Bill bill, String requestToken) {
+        return saveBill(bill, requestToken, null);
+    }
+
+    @Override
+    public int saveBill(Bill bill, String requestToken, String checkoutRef) {
         int billId = -1;
 
         try {
             conn.setAutoCommit(false);
 
             // Insert bill
-            try (PreparedStatement billStmt = conn.prepareStatement(billSql, Statement.RETURN_GENERATED_KEYS)) {
+            try (StatementCache.Lease lease = statements.prepareReturningKeys(INSERT_BILL_SQL)) {
+                PreparedStatement billStmt = lease.statement();
                 billStmt.setInt(1, bill.getSerialNumber());
                 billStmt.setDate(2, new java.sql.Date(bill.getBillDate().getTime()));
                 billStmt.setInt(3, bill.getCustomerId());
@@ -51,16 +82,18 @@ public class BillDAOImpl implements BillDAO {
 
                 int rowsAffected = billStmt.executeUpdate();
                 if (rowsAffected > 0) {
-                    ResultSet keys = billStmt.getGeneratedKeys();
-                    if (keys.next()) {
-                        billId = keys.getInt(1);
+                    try (ResultSet keys = billStmt.getGeneratedKeys()) {
+                        if (keys.next()) {
+                            billId = keys.getInt(1);
+                        }
                     }
                 }
             }
 
             // Insert bill items
             if (billId > 0) {
-                try (PreparedStatement itemStmt = conn.prepareStatement(itemSql)) {
+                try (StatementCache.Lease lease = statements.prepare(INSERT_BILL_ITEM_SQL)) {
+                    PreparedStatement itemStmt = lease.statement();
                     for (BillItem item : bill.getItems()) {
                         itemStmt.setInt(1, billId);
                         itemStmt.setString(2, item.getItemCode());
@@ -74,9 +107,35 @@ public class BillDAOImpl implements BillDAO {
                 }
             }
 
+            // The token's primary key makes a retried checkout fail here instead of saving a second bill
+            if (billId > 0 && requestToken != null) {
+                try (StatementCache.Lease lease = statements.prepare(INSERT_REQUEST_SQL)) {
+                    PreparedStatement tokenStmt = lease.statement();
+                    tokenStmt.setString(1, requestToken);
+                    tokenStmt.setInt(2, billId);
+                    tokenStmt.setString(3, checkoutRef);
+                    tokenStmt.executeUpdate();
+                }
+            }
+
+            if (billId > 0) {
+                OutboxDAOImpl.insert(conn, List.of(OutboxDAOImpl.billCreated(billId, bill)));
+            }
+
             conn.commit();
             logger.info("Bill saved successfully with ID: {}", billId);
 
+        } catch (SQLIntegrityConstraintViolationException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+                logger.error("Error during rollback", ex);
+            }
+            if (requestToken == null) {
+                throw new RuntimeException("Failed to save bill", e);
+            }
+            logger.warn("Checkout request {} was already recorded, bill not saved again", requestToken);
+            return -1;
         } catch (SQLException e) {
             try {
                 conn.rollback();
@@ -96,19 +155,50 @@ public class BillDAOImpl implements BillDAO {
         return billId;
     }
 
+    @Override
+    public Optional<Integer> findBillIdByRequestToken(String requestToken) {
+        try (StatementCache.Lease lease = statements.prepare(BILL_BY_REQUEST_SQL)) {
+            PreparedStatement ps = lease.statement();
+            ps.setString(1, requestToken);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error fetching checkout request: " + requestToken, e);
+            throw new RuntimeException("Failed to fetch checkout request", e);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Integer> findBillIdByCheckoutRef(String checkoutRef) {
+        try (StatementCache.Lease lease = statements.prepare(BILL_BY_CHECKOUT_SQL)) {
+            PreparedStatement ps = lease.statement();
+            ps.setString(1, checkoutRef);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error fetching checkout attempt: " + checkoutRef, e);
+            throw new RuntimeException("Failed to fetch checkout attempt", e);
+        }
+        return Optional.empty();
+    }
+
     @Override
     public Optional<Bill> getBillById(int billId) {
-        String sql = """
-                SELECT b.*, c.name as customer_name FROM bills b
-                INNER JOIN customers c ON b.customer_id = c.customer_id
+        String sql = SELECT_BILLS + """
                 WHERE b.bill_id = ?
                 """;
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, billId);
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
-                List<BillItem> items = getBillItems(billId);
-                return Optional.of(createBillFromResultSet(rs, items));
+                return Optional.of(readBill(rs));
             }
         } catch (SQLException e) {
             logger.error("Error fetching bill by ID: " + billId, e);
@@ -118,18 +208,14 @@ public class BillDAOImpl implements BillDAO {
 
     @Override
     public Optional<Bill> getBillBySerialNumber(int serialNumber) {
-        String sql = """
-                SELECT b.*, c.name as customer_name FROM bills b
-                INNER JOIN customers c ON b.customer_id = c.customer_id
+        String sql = SELECT_BILLS + """
                 WHERE b.bill_serial_number = ?
                 """;
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, serialNumber);
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
-                int billId = rs.getInt("bill_id");
-                List<BillItem> items = getBillItems(billId);
-                return Optional.of(createBillFromResultSet(rs, items));
+                return Optional.of(readBill(rs));
             }
         } catch (SQLException e) {
             logger.error("Error fetching bill by serial number: " + serialNumber, e);
@@ -140,19 +226,16 @@ public class BillDAOImpl implements BillDAO {
     @Override
     public List<Bill> getBillsByDate(Date date) {
         List<Bill> bills = new ArrayList<>();
-        String sql = """
-                SELECT b.*, c.name as customer_name FROM bills b
-                INNER JOIN customers c ON b.customer_id = c.customer_id
+        String sql = SELECT_BILLS + """
                 WHERE DATE(b.bill_date) = ?
                 ORDER BY b.bill_id DESC
                 """;
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setDate(1, new java.sql.Date(date.getTime()));
             ResultSet rs = ps.executeQuery();
+            PageLines page = new PageLines();
             while (rs.next()) {
-                int billId = rs.getInt("bill_id");
-                List<BillItem> items = getBillItems(billId);
-                bills.add(createBillFromResultSet(rs, items));
+                bills.add(readHeader(rs, page));
             }
         } catch (SQLException e) {
             logger.error("Error fetching bills by date: " + date, e);
@@ -163,9 +246,7 @@ public class BillDAOImpl implements BillDAO {
     @Override
     public List<Bill> getBillsByDateRange(Date startDate, Date endDate) {
         List<Bill> bills = new ArrayList<>();
-        String sql = """
-                SELECT b.*, c.name as customer_name FROM bills b
-                INNER JOIN customers c ON b.customer_id = c.customer_id
+        String sql = SELECT_BILLS + """
                 WHERE DATE(b.bill_date) BETWEEN ? AND ?
                 ORDER BY b.bill_date DESC, b.bill_id DESC
                 """;
@@ -173,10 +254,9 @@ public class BillDAOImpl implements BillDAO {
             ps.setDate(1, new java.sql.Date(startDate.getTime()));
             ps.setDate(2, new java.sql.Date(endDate.getTime()));
             ResultSet rs = ps.executeQuery();
+            PageLines page = new PageLines();
             while (rs.next()) {
-                int billId = rs.getInt("bill_id");
-                List<BillItem> items = getBillItems(billId);
-                bills.add(createBillFromResultSet(rs, items));
+                bills.add(readHeader(rs, page));
             }
         } catch (SQLException e) {
             logger.error("Error fetching bills by date range", e);
@@ -187,19 +267,16 @@ public class BillDAOImpl implements BillDAO {
     @Override
     public List<Bill> getBillsByCustomer(int customerId) {
         List<Bill> bills = new ArrayList<>();
-        String sql = """
-                SELECT b.*, c.name as customer_name FROM bills b
-                INNER JOIN customers c ON b.customer_id = c.customer_id
+        String sql = SELECT_BILLS + """
                 WHERE b.customer_id = ?
                 ORDER BY b.bill_date DESC
                 """;
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, customerId);
             ResultSet rs = ps.executeQuery();
+            PageLines page = new PageLines();
             while (rs.next()) {
-                int billId = rs.getInt("bill_id");
-                List<BillItem> items = getBillItems(billId);
-                bills.add(createBillFromResultSet(rs, items));
+                bills.add(readHeader(rs, page));
             }
         } catch (SQLException e) {
             logger.error("Error fetching bills by customer: " + customerId, e);
@@ -210,19 +287,16 @@ public class BillDAOImpl implements BillDAO {
     @Override
     public List<Bill> getBillsByTransactionType(TransactionType transactionType) {
         List<Bill> bills = new ArrayList<>();
-        String sql = """
-                SELECT b.*, c.name as customer_name FROM bills b
-                INNER JOIN customers c ON b.customer_id = c.customer_id
+        String sql = SELECT_BILLS + """
                 WHERE b.transaction_type = ?
                 ORDER BY b.bill_date DESC
                 """;
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, transactionType.getValue());
             ResultSet rs = ps.executeQuery();
+            PageLines page = new PageLines();
             while (rs.next()) {
-                int billId = rs.getInt("bill_id");
-                List<BillItem> items = getBillItems(billId);
-                bills.add(createBillFromResultSet(rs, items));
+                bills.add(readHeader(rs, page));
             }
         } catch (SQLException e) {
             logger.error("Error fetching bills by transaction type: " + transactionType, e);
@@ -233,18 +307,15 @@ public class BillDAOImpl implements BillDAO {
     @Override
     public List<Bill> getAllBills() {
         List<Bill> bills = new ArrayList<>();
-        String sql = """
-                SELECT b.*, c.name as customer_name FROM bills b
-                INNER JOIN customers c ON b.customer_id = c.customer_id
+        String sql = SELECT_BILLS + """
                 ORDER BY b.bill_date DESC, b.bill_id DESC
                 LIMIT 1000
                 """;
         try (Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
+            PageLines page = new PageLines();
             while (rs.next()) {
-                int billId = rs.getInt("bill_id");
-                List<BillItem> items = getBillItems(billId);
-                bills.add(createBillFromResultSet(rs, items));
+                bills.add(readHeader(rs, page));
             }
         } catch (SQLException e) {
             logger.error("Error fetching all bills", e);
@@ -258,45 +329,119 @@ public class BillDAOImpl implements BillDAO {
     }
 
     private List<BillItem> getBillItems(int billId) {
-        List<BillItem> items = new ArrayList<>();
-        String sql = "SELECT * FROM bill_items WHERE bill_id = ?";
+        String sql = "SELECT " + BILL_ITEM.columns() + " FROM bill_items WHERE bill_id = ?";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, billId);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                BillItem item = new BillItem(
-                        rs.getString("item_code"),
-                        rs.getString("item_name"),
-                        rs.getInt("quantity"),
-                        rs.getDouble("unit_price"));
-                items.add(item);
+            try (ResultSet rs = ps.executeQuery()) {
+                return BILL_ITEM.mapAll(rs);
             }
         } catch (SQLException e) {
             logger.error("Error fetching bill items for bill: " + billId, e);
         }
-        return items;
+        return new ArrayList<>();
     }
 
-    private Bill createBillFromResultSet(ResultSet rs, List<BillItem> items) throws SQLException {
-        TransactionType transactionType = TransactionType.fromString(rs.getString("transaction_type"));
-
-        Bill bill = new Bill(
-                rs.getInt("bill_id"),
-                rs.getInt("bill_serial_number"),
-                rs.getDate("bill_date"),
-                rs.getInt("customer_id"),
-                items,
-                rs.getDouble("cash_received"),
-                transactionType,
-                rs.getDouble("discount") // Load discount from database
-        );
-
-        // Set status if needed
-        String status = rs.getString("bill_status");
-        if (status != null) {
-            bill.setStatus(Bill.BillStatus.valueOf(status));
+    /**
+     * Lines of many bills in a few queries, keyed by bill id
+     */
+    private Map<Integer, List<BillItem>> getBillItems(List<Integer> billIds) {
+        Map<Integer, List<BillItem>> lines = new HashMap<>();
+        for (int from = 0; from < billIds.size(); from += LINES_PER_QUERY) {
+            List<Integer> chunk = billIds.subList(from, Math.min(from + LINES_PER_QUERY, billIds.size()));
+            String sql = "SELECT " + BILL_ITEM.columns() + ", bill_id FROM bill_items WHERE bill_id IN ("
+                    + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ") ORDER BY bill_item_id";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setInt(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        lines.computeIfAbsent(rs.getInt(BILL_ITEM.size() + 1), id -> new ArrayList<>())
+                                .add(BILL_ITEM.map(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                logger.error("Error fetching bill items for " + chunk.size() + " bills", e);
+                throw new RuntimeException("Failed to fetch bill items", e);
+            }
         }
+        return lines;
+    }
+
+    private Bill readBill(ResultSet rs) throws SQLException {
+        BillHeader header = BILL.map(rs);
+        Bill bill = header.toBill(getBillItems(header.billId));
+        bill.setCustomerName(rs.getString(BILL.size() + 1));
+        return bill;
+    }
 
+    private Bill readHeader(ResultSet rs, PageLines page) throws SQLException {
+        BillHeader header = BILL.map(rs);
+        page.billIds.add(header.billId);
+        Bill bill = header.toHeaderBill(() -> page.linesOf(header.billId));
+        bill.setCustomerName(rs.getString(BILL.size() + 1));
         return bill;
     }
+
+    /**
+     * Inner class for the lines of one page of header-only bills, all loaded the first time any is needed
+     */
+    private class PageLines {
+        private final List<Integer> billIds = new ArrayList<>();
+        private Map<Integer, List<BillItem>> lines;
+
+        synchronized List<BillItem> linesOf(int billId) {
+            if (lines == null) {
+                lines = getBillItems(billIds);
+            }
+            return lines.getOrDefault(billId, new ArrayList<>());
+        }
+    }
+
+    /**
+     * Inner class for a bills row, made into a full bill or a header-only one
+     */
+    private static class BillHeader {
+        private final int billId;
+        private final int serialNumber;
+        private final Date billDate;
+        private final int customerId;
+        private final double totalAmount;
+        private final double discount;
+        private final double cashReceived;
+        private final double changeAmount;
+        private final TransactionType transactionType;
+        private final String status;
+
+        BillHeader(int billId, int serialNumber, Date billDate, int customerId, double totalAmount, double discount,
+                   double cashReceived, double changeAmount, TransactionType transactionType, String status) {
+            this.billId = billId;
+            this.serialNumber = serialNumber;
+            this.billDate = billDate;
+            this.customerId = customerId;
+            this.totalAmount = totalAmount;
+            this.discount = discount;
+            this.cashReceived = cashReceived;
+            this.changeAmount = changeAmount;
+            this.transactionType = transactionType;
+            this.status = status;
+        }
+
+        Bill toBill(List<BillItem> items) {
+            return withStatus(new Bill(billId, serialNumber, billDate, customerId, items, cashReceived,
+                    transactionType, discount));
+        }
+
+        Bill toHeaderBill(Supplier<List<BillItem>> lineLoader) {
+            return withStatus(new Bill(billId, serialNumber, billDate, customerId, totalAmount, discount,
+                    cashReceived, changeAmount, transactionType, lineLoader));
+        }
+
+        private Bill withStatus(Bill bill) {
+            if (status != null) {
+                bill.setStatus(Bill.BillStatus.valueOf(status));
+            }
+            return bill;
+        }
+    }
 }
\ No newline at end of file
@@ -13,28 +13,32 @@ import java.util.Optional;
 
 public class CustomerDAOImpl implements CustomerDAO {
     private static final Logger logger = LoggerFactory.getLogger(CustomerDAOImpl.class);
+    static final Projection<Customer> CUSTOMER = Projection.of((rs, at) -> new Customer(
+            rs.getInt(at + 1), rs.getString(at + 2), rs.getString(at + 3), rs.getString(at + 4),
+            rs.getString(at + 5), Projection.getNullableInt(rs, at + 6)),
+            "customer_id", "phone", "name", "email", "address", "user_id");
+    private static final String CUSTOMER_BY_PHONE_SQL = "SELECT " + CUSTOMER.columns() + " FROM customers WHERE phone = ?";
+    private static final String ADD_CUSTOMER_SQL =
+            "INSERT INTO customers (phone, name, email, address, user_id) VALUES (?, ?, ?, ?, ?)";
+
     private Connection conn;
+    private final StatementCache statements;
 
     public CustomerDAOImpl(Connection conn) {
         this.conn = conn;
+        this.statements = StatementCache.of(conn);
     }
 
     @Override
     public Optional<Customer> getCustomerByPhone(String phone) {
-        String sql = "SELECT * FROM customers WHERE phone = ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (StatementCache.Lease lease = statements.prepare(CUSTOMER_BY_PHONE_SQL)) {
+            PreparedStatement ps = lease.statement();
             ps.setString(1, phone);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                Customer customer = new Customer(
-                        rs.getInt("customer_id"),
-                        rs.getString("phone"),
-                        rs.getString("name"),
-                        rs.getString("email"),
-                        rs.getString("address"),
-                        rs.getObject("user_id", Integer.class)
-                );
-                return Optional.of(customer);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    Customer customer = CUSTOMER.map(rs);
+                    return Optional.of(customer);
+                }
             }
         } catch (SQLException e) {
             logger.error("Error fetching customer by phone: " + phone, e);
@@ -44,19 +48,12 @@ public class CustomerDAOImpl implements CustomerDAO {
 
     @Override
     public Optional<Customer> getCustomerById(int customerId) {
-        String sql = "SELECT * FROM customers WHERE customer_id = ?";
+        String sql = "SELECT " + CUSTOMER.columns() + " FROM customers WHERE customer_id = ?";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, customerId);
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
-                Customer customer = new Customer(
-                        rs.getInt("customer_id"),
-                        rs.getString("phone"),
-                        rs.getString("name"),
-                        rs.getString("email"),
-                        rs.getString("address"),
-                        rs.getObject("user_id", Integer.class)
-                );
+                Customer customer = CUSTOMER.map(rs);
                 return Optional.of(customer);
             }
         } catch (SQLException e) {
@@ -68,18 +65,11 @@ public class CustomerDAOImpl implements CustomerDAO {
     @Override
     public List<Customer> getAllCustomers() {
         List<Customer> customers = new ArrayList<>();
-        String sql = "SELECT * FROM customers ORDER BY name";
+        String sql = "SELECT " + CUSTOMER.columns() + " FROM customers ORDER BY name";
         try (Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
-                Customer customer = new Customer(
-                        rs.getInt("customer_id"),
-                        rs.getString("phone"),
-                        rs.getString("name"),
-                        rs.getString("email"),
-                        rs.getString("address"),
-                        rs.getObject("user_id", Integer.class)
-                );
+                Customer customer = CUSTOMER.map(rs);
                 customers.add(customer);
             }
         } catch (SQLException e) {
@@ -90,8 +80,8 @@ public class CustomerDAOImpl implements CustomerDAO {
 
     @Override
     public int addCustomer(Customer customer) {
-        String sql = "INSERT INTO customers (phone, name, email, address, user_id) VALUES (?, ?, ?, ?, ?)";
-        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (StatementCache.Lease lease = statements.prepareReturningKeys(ADD_CUSTOMER_SQL)) {
+            PreparedStatement ps = lease.statement();
             ps.setString(1, customer.getPhone());
             ps.setString(2, customer.getName());
             ps.setString(3, customer.getEmail());
@@ -100,11 +90,12 @@ public class CustomerDAOImpl implements CustomerDAO {
 
             int rowsAffected = ps.executeUpdate();
             if (rowsAffected > 0) {
-                ResultSet rs = ps.getGeneratedKeys();
-                if (rs.next()) {
-                    int customerId = rs.getInt(1);
-                    logger.info("Customer created successfully: {}", customer.getName());
-                    return customerId;
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        int customerId = rs.getInt(1);
+                        logger.info("Customer created successfully: {}", customer.getName());
+                        return customerId;
+                    }
                 }
             }
         } catch (SQLException e) {
@@ -136,24 +127,14 @@ public class CustomerDAOImpl implements CustomerDAO {
     @Override
     public List<Customer> getCustomersByTransactionType(String transactionType) {
         List<Customer> customers = new ArrayList<>();
-        String sql = """
-            SELECT DISTINCT c.* FROM customers c 
-            INNER JOIN bills b ON c.customer_id = b.customer_id 
-            WHERE b.transaction_type = ?
-            ORDER BY c.name
-            """;
+        String sql = "SELECT DISTINCT " + CUSTOMER.columns("c") + " FROM customers c"
+                + " INNER JOIN bills b ON c.customer_id = b.customer_id"
+                + " WHERE b.transaction_type = ? ORDER BY c.name";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, transactionType);
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
-                Customer customer = new Customer(
-                        rs.getInt("customer_id"),
-                        rs.getString("phone"),
-                        rs.getString("name"),
-                        rs.getString("email"),
-                        rs.getString("address"),
-                        rs.getObject("user_id", Integer.class)
-                );
+                Customer customer = CUSTOMER.map(rs);
                 customers.add(customer);
             }
         } catch (SQLException e) {
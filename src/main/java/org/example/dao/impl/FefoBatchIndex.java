@@ -0,0 +1,255 @@
+package org.example.dao.impl;
+
+import org.example.model.StockBatch;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory FEFO index of warehouse batches with quantity left.
+ * Batches are kept per item, ordered by expiry date, then received date, then batch ID,
+ * so the next batch to shelve is always the first element of a sorted set.
+ */
+public class FefoBatchIndex {
+    static final Comparator<StockBatch> FEFO_ORDER = Comparator
+            .comparing(StockBatch::getExpiryDate)
+            .thenComparing(StockBatch::getReceivedDate)
+            .thenComparingInt(StockBatch::getBatchId);
+
+    private final Map<String, ItemBatches> batchesByItem = new HashMap<>();
+    private final Map<Integer, StockBatch> batchesById = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Add or replace a batch. Batches without quantity are not indexed.
+     */
+    public void put(StockBatch batch) {
+        lock.writeLock().lock();
+        try {
+            remove(batch.getBatchId());
+            if (batch.getQuantity() <= 0) {
+                return;
+            }
+            StockBatch indexed = copyOf(batch);
+            batchesById.put(indexed.getBatchId(), indexed);
+            ItemBatches item = batchesByItem.computeIfAbsent(indexed.getItemCode(), k -> new ItemBatches());
+            item.available.add(indexed);
+            if (!indexed.isMovedToShelf()) {
+                item.reshelvable.add(indexed);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add or replace many batches under one write lock
+     */
+    public void putAll(Collection<StockBatch> batches) {
+        lock.writeLock().lock();
+        try {
+            for (StockBatch batch : batches) {
+                put(batch);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Apply a quantity change; a batch that drops to zero leaves the index
+     *
+     * @return false if the batch is not indexed, e.g. it was dropped at zero and needs a put to return
+     */
+    public boolean updateQuantity(int batchId, int newQuantity) {
+        lock.writeLock().lock();
+        try {
+            StockBatch indexed = batchesById.get(batchId);
+            if (indexed == null) {
+                return false;
+            }
+            if (newQuantity <= 0) {
+                remove(batchId);
+            } else {
+                // Quantity is not part of the ordering, so the batch can be updated in place
+                indexed.setQuantity(newQuantity);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void markMovedToShelf(int batchId) {
+        lock.writeLock().lock();
+        try {
+            StockBatch indexed = batchesById.get(batchId);
+            if (indexed == null) {
+                return;
+            }
+            batchesByItem.get(indexed.getItemCode()).reshelvable.remove(indexed);
+            indexed.setMovedToShelf(true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace everything held for one item, used when the consistency check finds drift
+     */
+    public void replaceItem(String itemCode, Collection<StockBatch> batches) {
+        lock.writeLock().lock();
+        try {
+            ItemBatches item = batchesByItem.remove(itemCode);
+            if (item != null) {
+                for (StockBatch batch : item.available) {
+                    batchesById.remove(batch.getBatchId());
+                }
+            }
+            for (StockBatch batch : batches) {
+                put(batch);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            batchesByItem.clear();
+            batchesById.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Earliest-expiring batch that is still in the warehouse
+     */
+    public Optional<StockBatch> peekNextForReshelving(String itemCode) {
+        lock.readLock().lock();
+        try {
+            ItemBatches item = batchesByItem.get(itemCode);
+            if (item == null || item.reshelvable.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(copyOf(item.reshelvable.first()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<StockBatch> getBatch(int batchId) {
+        lock.readLock().lock();
+        try {
+            StockBatch indexed = batchesById.get(batchId);
+            return indexed == null ? Optional.empty() : Optional.of(copyOf(indexed));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<StockBatch> getAvailableBatches(String itemCode) {
+        lock.readLock().lock();
+        try {
+            ItemBatches item = batchesByItem.get(itemCode);
+            return item == null ? new ArrayList<>() : copyAll(item.available);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<StockBatch> getBatchesForReshelving(String itemCode) {
+        lock.readLock().lock();
+        try {
+            ItemBatches item = batchesByItem.get(itemCode);
+            return item == null ? new ArrayList<>() : copyAll(item.reshelvable);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Batches with quantity left that expire on or before the date, earliest first.
+     * Each item's batches are in expiry order, so only the matching head of each is visited.
+     */
+    public List<StockBatch> getBatchesExpiringBefore(Date date) {
+        lock.readLock().lock();
+        try {
+            List<StockBatch> expiring = new ArrayList<>();
+            for (ItemBatches item : batchesByItem.values()) {
+                for (StockBatch batch : item.available) {
+                    if (batch.getExpiryDate().after(date)) {
+                        break;
+                    }
+                    expiring.add(copyOf(batch));
+                }
+            }
+            expiring.sort(FEFO_ORDER);
+            return expiring;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Integer> getAvailableQuantityByItem() {
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> totals = new HashMap<>();
+            for (Map.Entry<String, ItemBatches> entry : batchesByItem.entrySet()) {
+                int quantity = entry.getValue().available.stream().mapToInt(StockBatch::getQuantity).sum();
+                if (quantity > 0) {
+                    totals.put(entry.getKey(), quantity);
+                }
+            }
+            return totals;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return batchesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void remove(int batchId) {
+        StockBatch indexed = batchesById.remove(batchId);
+        if (indexed == null) {
+            return;
+        }
+        ItemBatches item = batchesByItem.get(indexed.getItemCode());
+        item.available.remove(indexed);
+        item.reshelvable.remove(indexed);
+        if (item.available.isEmpty()) {
+            batchesByItem.remove(indexed.getItemCode());
+        }
+    }
+
+    private static List<StockBatch> copyAll(Collection<StockBatch> batches) {
+        List<StockBatch> copies = new ArrayList<>(batches.size());
+        for (StockBatch batch : batches) {
+            copies.add(copyOf(batch));
+        }
+        return copies;
+    }
+
+    // Callers get their own instances so they can never reorder the index by mutating a batch
+    private static StockBatch copyOf(StockBatch batch) {
+        StockBatch copy = new StockBatch(batch.getBatchId(), batch.getItemCode(), batch.getQuantity(),
+                batch.getReceivedDate(), batch.getExpiryDate(), batch.getSupplierName(), batch.getPurchasePrice());
+        copy.setMovedToShelf(batch.isMovedToShelf());
+        return copy;
+    }
+
+    private static class ItemBatches {
+        private final TreeSet<StockBatch> available = new TreeSet<>(FEFO_ORDER);
+        private final TreeSet<StockBatch> reshelvable = new TreeSet<>(FEFO_ORDER);
+    }
+}
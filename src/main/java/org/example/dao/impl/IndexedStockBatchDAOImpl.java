@@ -0,0 +1,257 @@
+package org.example.dao.impl;
+
+import org.example.dao.StockBatchDAO;
+import org.example.dao.StockBatchListener;
+import org.example.model.StockBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Stock batch DAO that serves FEFO lookups from an in-memory index.
+ * Writes go to the database first and are then applied to the index;
+ * everything else is delegated unchanged.
+ */
+public class IndexedStockBatchDAOImpl implements StockBatchDAO {
+    private static final Logger logger = LoggerFactory.getLogger(IndexedStockBatchDAOImpl.class);
+
+    private final StockBatchDAO delegate;
+    private final FefoBatchIndex index;
+    private final List<StockBatchListener> listeners;
+
+    public IndexedStockBatchDAOImpl(StockBatchDAO delegate) {
+        this(delegate, new FefoBatchIndex(), new CopyOnWriteArrayList<>());
+    }
+
+    private IndexedStockBatchDAOImpl(StockBatchDAO delegate, FefoBatchIndex index,
+                                     List<StockBatchListener> listeners) {
+        this.delegate = delegate;
+        this.index = index;
+        this.listeners = listeners;
+    }
+
+    /**
+     * View over the same index and listeners that writes through another DAO,
+     * e.g. one bound to a background thread's own connection
+     */
+    public IndexedStockBatchDAOImpl withDelegate(StockBatchDAO otherDelegate) {
+        return new IndexedStockBatchDAOImpl(otherDelegate, index, listeners);
+    }
+
+    /**
+     * Register a listener that is told whenever an indexed batch changes
+     */
+    public void addListener(StockBatchListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Load the index from one streaming pass over stock_batches, then verify it.
+     * Listeners registered beforehand see every loaded batch from the same pass.
+     */
+    public void rebuildIndex() {
+        long start = System.currentTimeMillis();
+        index.clear();
+        delegate.streamAvailableBatches(batch -> {
+            index.put(batch);
+            fireAvailable(batch);
+        });
+        logger.info("FEFO index rebuilt: {} batches in {} ms", index.size(), System.currentTimeMillis() - start);
+        verifyConsistency();
+    }
+
+    /**
+     * Compare per-item warehouse totals with the table and reload any item that drifted
+     *
+     * @return the item codes that had to be reloaded
+     */
+    public Set<String> verifyConsistency() {
+        Map<String, Integer> expected = delegate.getAvailableQuantityByItem();
+        Map<String, Integer> actual = index.getAvailableQuantityByItem();
+
+        Set<String> drifted = new TreeSet<>();
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            if (!entry.getValue().equals(actual.get(entry.getKey()))) {
+                drifted.add(entry.getKey());
+            }
+        }
+        for (String itemCode : actual.keySet()) {
+            if (!expected.containsKey(itemCode)) {
+                drifted.add(itemCode);
+            }
+        }
+
+        for (String itemCode : drifted) {
+            reloadItem(itemCode);
+        }
+        if (drifted.isEmpty()) {
+            logger.debug("FEFO index consistent with stock_batches ({} items)", expected.size());
+        } else {
+            logger.warn("FEFO index drift detected and reloaded for items: {}", drifted);
+        }
+        return drifted;
+    }
+
+    @Override
+    public void addBatch(StockBatch batch) {
+        delegate.addBatch(batch);
+        if (batch.getBatchId() > 0) {
+            index.put(batch);
+            index.getBatch(batch.getBatchId()).ifPresent(this::fireAvailable);
+        } else {
+            // Without a generated ID the batch cannot be tracked, so reload the item instead
+            reloadItem(batch.getItemCode());
+        }
+    }
+
+    @Override
+    public void addBatches(List<StockBatch> batches) {
+        delegate.addBatches(batches);
+        index.putAll(batches);
+        List<StockBatch> indexed = new ArrayList<>(batches.size());
+        for (StockBatch batch : batches) {
+            index.getBatch(batch.getBatchId()).ifPresent(indexed::add);
+        }
+        for (StockBatchListener listener : listeners) {
+            try {
+                listener.onBatchesAvailable(indexed);
+            } catch (Exception e) {
+                logger.error("Stock batch listener failed for " + indexed.size() + " new batches", e);
+            }
+        }
+    }
+
+    @Override
+    public Optional<StockBatch> getBatchById(int batchId) {
+        return delegate.getBatchById(batchId);
+    }
+
+    @Override
+    public List<StockBatch> getBatchesByItemCode(String itemCode) {
+        return delegate.getBatchesByItemCode(itemCode);
+    }
+
+    @Override
+    public List<StockBatch> getAvailableBatches(String itemCode) {
+        return index.getAvailableBatches(itemCode);
+    }
+
+    @Override
+    public List<StockBatch> getBatchesExpiringBefore(Date date) {
+        return index.getBatchesExpiringBefore(date);
+    }
+
+    @Override
+    public List<StockBatch> getAllBatches() {
+        return delegate.getAllBatches();
+    }
+
+    @Override
+    public boolean updateBatchQuantity(int batchId, int newQuantity) {
+        boolean updated = delegate.updateBatchQuantity(batchId, newQuantity);
+        if (updated) {
+            if (!index.updateQuantity(batchId, newQuantity) && newQuantity > 0) {
+                // A batch dropped at zero is back in stock, e.g. a corrected write-off
+                delegate.getBatchById(batchId).ifPresent(index::put);
+            }
+            if (newQuantity > 0) {
+                index.getBatch(batchId).ifPresent(this::fireAvailable);
+            } else {
+                fireDepleted(batchId);
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean markBatchAsMovedToShelf(int batchId) {
+        boolean marked = delegate.markBatchAsMovedToShelf(batchId);
+        if (marked) {
+            index.markMovedToShelf(batchId);
+        }
+        return marked;
+    }
+
+    @Override
+    public int moveBatchToShelf(int batchId) {
+        int moved = delegate.moveBatchToShelf(batchId);
+        if (moved > 0) {
+            index.updateQuantity(batchId, 0);
+            fireDepleted(batchId);
+        } else {
+            // Already moved or emptied elsewhere, so what the index holds for the item is stale
+            index.getBatch(batchId).map(StockBatch::getItemCode).ifPresent(this::reloadItem);
+        }
+        return moved;
+    }
+
+    @Override
+    public int writeOffBatch(int batchId) {
+        int writtenOff = delegate.writeOffBatch(batchId);
+        if (writtenOff > 0) {
+            index.updateQuantity(batchId, 0);
+            fireDepleted(batchId);
+        }
+        return writtenOff;
+    }
+
+    @Override
+    public List<StockBatch> getBatchesForReshelving(String itemCode) {
+        return index.getBatchesForReshelving(itemCode);
+    }
+
+    @Override
+    public Optional<StockBatch> getNextBatchForReshelving(String itemCode) {
+        return index.peekNextForReshelving(itemCode);
+    }
+
+    @Override
+    public void streamAvailableBatches(Consumer<StockBatch> consumer) {
+        delegate.streamAvailableBatches(consumer);
+    }
+
+    @Override
+    public Map<String, Integer> getAvailableQuantityByItem() {
+        return index.getAvailableQuantityByItem();
+    }
+
+    private void reloadItem(String itemCode) {
+        Set<Integer> previous = new HashSet<>();
+        for (StockBatch batch : index.getAvailableBatches(itemCode)) {
+            previous.add(batch.getBatchId());
+        }
+        List<StockBatch> current = delegate.getAvailableBatches(itemCode);
+        index.replaceItem(itemCode, current);
+
+        for (StockBatch batch : current) {
+            previous.remove(batch.getBatchId());
+            fireAvailable(batch);
+        }
+        for (int batchId : previous) {
+            fireDepleted(batchId);
+        }
+    }
+
+    private void fireAvailable(StockBatch batch) {
+        for (StockBatchListener listener : listeners) {
+            try {
+                listener.onBatchAvailable(batch);
+            } catch (Exception e) {
+                logger.error("Stock batch listener failed for batch: " + batch.getBatchId(), e);
+            }
+        }
+    }
+
+    private void fireDepleted(int batchId) {
+        for (StockBatchListener listener : listeners) {
+            try {
+                listener.onBatchDepleted(batchId);
+            } catch (Exception e) {
+                logger.error("Stock batch listener failed for batch: " + batchId, e);
+            }
+        }
+    }
+}
@@ -11,10 +11,28 @@ import java.util.*;
 
 public class ItemDAOImpl implements ItemDAO {
     private static final Logger logger = LoggerFactory.getLogger(ItemDAOImpl.class);
+    private static final int CODES_PER_QUERY = 500;
+    static final Projection<Item> ITEM = Projection.of((rs, at) -> {
+        Item item = new Item(rs.getString(at + 1), rs.getString(at + 2), rs.getDouble(at + 3),
+                rs.getString(at + 4), rs.getString(at + 5), rs.getInt(at + 6));
+        item.setActive(rs.getBoolean(at + 7));
+        return item;
+    }, "item_code", "name", "price", "category", "description", "min_stock_level", "is_active");
+    private static final String ITEM_BY_CODE_SQL = "SELECT " + ITEM.columns() + " FROM items WHERE item_code = ?";
+    // Columns an upsert may overwrite, in ITEM order after item_code
+    private static final List<String> UPSERT_COLUMNS =
+            List.of("name", "price", "category", "description", "min_stock_level", "is_active");
+    private static final String INIT_SHELF_SQL =
+            "INSERT INTO shelf_stock (item_code, quantity) VALUES (?, 0) ON DUPLICATE KEY UPDATE quantity = quantity";
+    private static final String INIT_WEBSITE_SQL =
+            "INSERT INTO website_inventory (item_code, quantity) VALUES (?, 0) ON DUPLICATE KEY UPDATE quantity = quantity";
+
     private Connection conn;
+    private final StatementCache statements;
 
     public ItemDAOImpl(Connection conn) {
         this.conn = conn;
+        this.statements = StatementCache.of(conn);
     }
 
     @Override
@@ -41,21 +59,13 @@ public class ItemDAOImpl implements ItemDAO {
 
     @Override
     public Optional<Item> getItemByCode(String code) {
-        String sql = "SELECT * FROM items WHERE item_code = ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (StatementCache.Lease lease = statements.prepare(ITEM_BY_CODE_SQL)) {
+            PreparedStatement ps = lease.statement();
             ps.setString(1, code);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                Item item = new Item(
-                        rs.getString("item_code"),
-                        rs.getString("name"),
-                        rs.getDouble("price"),
-                        rs.getString("category"),
-                        rs.getString("description"),
-                        rs.getInt("min_stock_level")
-                );
-                item.setActive(rs.getBoolean("is_active"));
-                return Optional.of(item);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(ITEM.map(rs));
+                }
             }
         } catch (SQLException e) {
             logger.error("Error fetching item by code: " + code, e);
@@ -65,73 +75,40 @@ public class ItemDAOImpl implements ItemDAO {
 
     @Override
     public List<Item> getAllItems() {
-        List<Item> items = new ArrayList<>();
-        String sql = "SELECT * FROM items ORDER BY name";
+        String sql = "SELECT " + ITEM.columns() + " FROM items ORDER BY name";
         try (Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                Item item = new Item(
-                        rs.getString("item_code"),
-                        rs.getString("name"),
-                        rs.getDouble("price"),
-                        rs.getString("category"),
-                        rs.getString("description"),
-                        rs.getInt("min_stock_level")
-                );
-                item.setActive(rs.getBoolean("is_active"));
-                items.add(item);
-            }
+            return ITEM.mapAll(rs);
         } catch (SQLException e) {
             logger.error("Error fetching all items", e);
         }
-        return items;
+        return new ArrayList<>();
     }
 
     @Override
     public List<Item> getItemsByCategory(String category) {
-        List<Item> items = new ArrayList<>();
-        String sql = "SELECT * FROM items WHERE category = ? AND is_active = TRUE ORDER BY name";
+        String sql = "SELECT " + ITEM.columns() + " FROM items WHERE category = ? AND is_active = TRUE ORDER BY name";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, category);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                Item item = new Item(
-                        rs.getString("item_code"),
-                        rs.getString("name"),
-                        rs.getDouble("price"),
-                        rs.getString("category"),
-                        rs.getString("description"),
-                        rs.getInt("min_stock_level")
-                );
-                items.add(item);
+            try (ResultSet rs = ps.executeQuery()) {
+                return ITEM.mapAll(rs);
             }
         } catch (SQLException e) {
             logger.error("Error fetching items by category: " + category, e);
         }
-        return items;
+        return new ArrayList<>();
     }
 
     @Override
     public List<Item> getActiveItems() {
-        List<Item> items = new ArrayList<>();
-        String sql = "SELECT * FROM items WHERE is_active = TRUE ORDER BY name";
+        String sql = "SELECT " + ITEM.columns() + " FROM items WHERE is_active = TRUE ORDER BY name";
         try (Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                Item item = new Item(
-                        rs.getString("item_code"),
-                        rs.getString("name"),
-                        rs.getDouble("price"),
-                        rs.getString("category"),
-                        rs.getString("description"),
-                        rs.getInt("min_stock_level")
-                );
-                items.add(item);
-            }
+            return ITEM.mapAll(rs);
         } catch (SQLException e) {
             logger.error("Error fetching active items", e);
         }
-        return items;
+        return new ArrayList<>();
     }
 
     @Override
@@ -187,4 +164,110 @@ public class ItemDAOImpl implements ItemDAO {
         }
         return false;
     }
+
+    @Override
+    public void upsertItems(List<Item> items, Set<String> columns) {
+        if (items.isEmpty()) {
+            return;
+        }
+        try {
+            conn.setAutoCommit(false);
+            // With rewriteBatchedStatements each batch goes to the server as a few multi-row statements
+            try (StatementCache.Lease lease = statements.prepare(upsertSql(columns))) {
+                PreparedStatement ps = lease.statement();
+                for (Item item : items) {
+                    ps.setString(1, item.getItemCode());
+                    // Without a value a new item fails on the NOT NULL column, rather than being made up
+                    if (columns.contains("name")) {
+                        ps.setString(2, item.getName());
+                    } else {
+                        ps.setNull(2, Types.VARCHAR);
+                    }
+                    if (columns.contains("price")) {
+                        ps.setDouble(3, item.getPrice());
+                    } else {
+                        ps.setNull(3, Types.DECIMAL);
+                    }
+                    ps.setString(4, item.getCategory());
+                    ps.setString(5, item.getDescription());
+                    ps.setInt(6, item.getMinStockLevel());
+                    ps.setBoolean(7, item.isActive());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            for (String sql : new String[]{INIT_SHELF_SQL, INIT_WEBSITE_SQL}) {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (Item item : items) {
+                        ps.setString(1, item.getItemCode());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+            conn.commit();
+            logger.debug("Upserted {} items", items.size());
+        } catch (SQLException e) {
+            rollback();
+            logger.error("Error upserting " + items.size() + " items", e);
+            throw new RuntimeException("Failed to upsert items", e);
+        } finally {
+            resetAutoCommit();
+        }
+    }
+
+    @Override
+    public Set<String> findActiveItemCodes(Collection<String> codes) {
+        Set<String> found = new HashSet<>();
+        List<String> pending = new ArrayList<>(codes);
+        for (int from = 0; from < pending.size(); from += CODES_PER_QUERY) {
+            List<String> chunk = pending.subList(from, Math.min(from + CODES_PER_QUERY, pending.size()));
+            String sql = "SELECT item_code FROM items WHERE is_active = TRUE AND item_code IN ("
+                    + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setString(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        found.add(rs.getString(1));
+                    }
+                }
+            } catch (SQLException e) {
+                logger.error("Error looking up " + chunk.size() + " item codes", e);
+                throw new RuntimeException("Failed to look up item codes", e);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Insert every column; on a duplicate code update only the given ones
+     */
+    static String upsertSql(Set<String> columns) {
+        StringJoiner updates = new StringJoiner(", ");
+        for (String column : UPSERT_COLUMNS) {
+            if (columns.contains(column)) {
+                updates.add(column + " = VALUES(" + column + ")");
+            }
+        }
+        return "INSERT INTO items (" + ITEM.columns() + ") VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+                + (updates.length() == 0 ? "item_code = item_code" : updates.toString());
+    }
+
+    private void rollback() {
+        try {
+            conn.rollback();
+        } catch (SQLException ex) {
+            logger.error("Error during rollback", ex);
+        }
+    }
+
+    private void resetAutoCommit() {
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            logger.error("Error resetting auto-commit", e);
+        }
+    }
 }
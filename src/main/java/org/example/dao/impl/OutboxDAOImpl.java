@@ -0,0 +1,240 @@
+package org.example.dao.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dao.OutboxDAO;
+import org.example.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.*;
+import java.util.Date;
+
+/**
+ * JDBC access to the transactional outbox.
+ * The other DAOs add events with {@link #insert} inside their own transactions, so an event is
+ * committed exactly when the change it describes is; the relay reads them back here in id order.
+ */
+public class OutboxDAOImpl implements OutboxDAO {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDAOImpl.class);
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final int DELETE_CHUNK_SIZE = 5000;
+    private static final String INSERT_SQL =
+            "INSERT INTO outbox_events (event_type, aggregate_id, payload, created_at, checkout_ref) VALUES (?, ?, ?, ?, ?)";
+
+    private Connection conn;
+
+    public OutboxDAOImpl(Connection conn) {
+        this.conn = conn;
+    }
+
+    @Override
+    public List<OutboxEvent> getEventsAfter(long eventId, int limit) {
+        String sql = """
+                SELECT event_id, event_type, aggregate_id, payload, created_at
+                FROM outbox_events WHERE event_id > ? ORDER BY event_id LIMIT ?
+                """;
+        List<OutboxEvent> events = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, eventId);
+            ps.setInt(2, limit);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                events.add(new OutboxEvent(rs.getLong("event_id"), rs.getString("event_type"),
+                        rs.getString("aggregate_id"), rs.getString("payload"), rs.getTimestamp("created_at")));
+            }
+        } catch (SQLException e) {
+            logger.error("Error reading outbox events after id: " + eventId, e);
+            throw new RuntimeException("Failed to read outbox events", e);
+        }
+        return events;
+    }
+
+    @Override
+    public long getOffset(String consumer) {
+        String sql = "SELECT last_event_id FROM outbox_offsets WHERE consumer = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, consumer);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            logger.error("Error reading outbox offset for consumer: " + consumer, e);
+            throw new RuntimeException("Failed to read outbox offset", e);
+        }
+        return 0;
+    }
+
+    @Override
+    public void saveOffset(String consumer, long eventId) {
+        String sql = """
+                INSERT INTO outbox_offsets (consumer, last_event_id) VALUES (?, ?)
+                ON DUPLICATE KEY UPDATE last_event_id = GREATEST(last_event_id, VALUES(last_event_id))
+                """;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, consumer);
+            ps.setLong(2, eventId);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error saving outbox offset for consumer: " + consumer, e);
+            throw new RuntimeException("Failed to save outbox offset", e);
+        }
+    }
+
+    @Override
+    public long getLastEventId() {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT COALESCE(MAX(event_id), 0) FROM outbox_events")) {
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            logger.error("Error reading last outbox event id", e);
+            throw new RuntimeException("Failed to read last outbox event id", e);
+        }
+        return 0;
+    }
+
+    @Override
+    public Map<String, Integer> getStockMovedBy(String checkoutRef) {
+        String sql = "SELECT aggregate_id, payload FROM outbox_events WHERE checkout_ref = ? AND event_type = ?";
+        Map<String, Integer> moved = new TreeMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, checkoutRef);
+            ps.setString(2, OutboxEvent.STOCK_MOVED);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                int delta = JSON.readTree(rs.getString("payload")).path("quantityDelta").asInt();
+                moved.merge(rs.getString("aggregate_id"), delta, Integer::sum);
+            }
+        } catch (SQLException | JsonProcessingException e) {
+            logger.error("Error reading stock moved by checkout: " + checkoutRef, e);
+            throw new RuntimeException("Failed to read stock moved by checkout", e);
+        }
+        moved.values().removeIf(delta -> delta == 0);
+        return moved;
+    }
+
+    /**
+     * Delete delivered events in chunks, so pruning never holds many row locks at once
+     */
+    @Override
+    public int deleteEvents(long upToEventId, Date createdBefore) {
+        String sql = "DELETE FROM outbox_events WHERE event_id <= ? AND created_at < ? ORDER BY event_id LIMIT ?";
+        int deleted = 0;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, upToEventId);
+            ps.setTimestamp(2, new Timestamp(createdBefore.getTime()));
+            ps.setInt(3, DELETE_CHUNK_SIZE);
+            int rows;
+            do {
+                rows = ps.executeUpdate();
+                deleted += rows;
+            } while (rows == DELETE_CHUNK_SIZE);
+        } catch (SQLException e) {
+            logger.error("Error pruning outbox events", e);
+        }
+        return deleted;
+    }
+
+    /**
+     * Add events on a connection whose transaction the caller owns
+     */
+    static void insert(Connection conn, List<OutboxEvent> events) throws SQLException {
+        insert(conn, events, null);
+    }
+
+    /**
+     * Add events for a stock change made by a journaled checkout, saved under its ref so
+     * recovery can tell whether that checkout's change committed
+     */
+    static void insert(Connection conn, List<OutboxEvent> events, String checkoutRef) throws SQLException {
+        if (events.isEmpty()) {
+            return;
+        }
+        try (StatementCache.Lease lease = StatementCache.of(conn).prepare(INSERT_SQL)) {
+            PreparedStatement ps = lease.statement();
+            for (OutboxEvent event : events) {
+                ps.setString(1, event.getEventType());
+                ps.setString(2, event.getAggregateId());
+                ps.setString(3, event.getPayload());
+                ps.setTimestamp(4, new Timestamp(event.getCreatedAt().getTime()));
+                ps.setString(5, checkoutRef);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    static OutboxEvent billCreated(int billId, Bill bill) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("billId", billId);
+        payload.put("serialNumber", bill.getSerialNumber());
+        payload.put("billDate", bill.getBillDate().getTime());
+        payload.put("customerId", bill.getCustomerId());
+        payload.put("transactionType", bill.getTransactionTypeString());
+        payload.put("totalAmount", bill.getTotalAmount());
+        payload.put("discount", bill.getDiscount());
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (BillItem item : bill.getItems()) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("itemCode", item.getItemCode());
+            line.put("quantity", item.getQuantity());
+            line.put("unitPrice", item.getUnitPrice());
+            items.add(line);
+        }
+        payload.put("items", items);
+        return new OutboxEvent(OutboxEvent.BILL_CREATED, String.valueOf(billId), toJson(payload));
+    }
+
+    static OutboxEvent stockMoved(String itemCode, StockLocation location, MovementType movementType,
+                                  int quantityDelta) {
+        return stockMoved(itemCode, location, movementType, quantityDelta, null);
+    }
+
+    /**
+     * @param reference what the movement came from, e.g. "batch:42"; null if nothing in particular
+     */
+    static OutboxEvent stockMoved(String itemCode, StockLocation location, MovementType movementType,
+                                  int quantityDelta, String reference) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("itemCode", itemCode);
+        payload.put("location", location.name());
+        payload.put("movementType", movementType.name());
+        payload.put("quantityDelta", quantityDelta);
+        if (reference != null) {
+            payload.put("reference", reference);
+        }
+        return new OutboxEvent(OutboxEvent.STOCK_MOVED, itemCode, toJson(payload));
+    }
+
+    /**
+     * Events for a sale taken from one location, one per item
+     */
+    static List<OutboxEvent> stockSold(Map<String, Integer> quantities, StockLocation location) {
+        List<OutboxEvent> events = new ArrayList<>(quantities.size());
+        quantities.forEach((itemCode, quantity) ->
+                events.add(stockMoved(itemCode, location, MovementType.SALE, -quantity)));
+        return events;
+    }
+
+    /**
+     * Events for stock of an unbilled sale put back at one location, one per item
+     */
+    static List<OutboxEvent> saleReversed(Map<String, Integer> quantities, StockLocation location) {
+        List<OutboxEvent> events = new ArrayList<>(quantities.size());
+        quantities.forEach((itemCode, quantity) ->
+                events.add(stockMoved(itemCode, location, MovementType.SALE, quantity)));
+        return events;
+    }
+
+    private static String toJson(Map<String, Object> payload) {
+        try {
+            return JSON.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Outbox payload not serializable", e);
+        }
+    }
+}
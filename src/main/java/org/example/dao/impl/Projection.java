@@ -0,0 +1,76 @@
+package org.example.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The columns a query selects and how one row of them becomes an object.
+ * Queries splice {@link #columns()} into their SELECT instead of using {@code SELECT *}, so
+ * column i of the projection is always at index offset + i of the row. Mappers read by index:
+ * no column name is looked up per row, and a query that selects more after the projection
+ * reads those columns from {@link #size()} + 1 on.
+ */
+final class Projection<T> {
+    private final String[] columns;
+    private final RowMapper<T> mapper;
+
+    /**
+     * Reads one row; {@code at} is the index before the projection's first column
+     */
+    interface RowMapper<T> {
+        T map(ResultSet rs, int at) throws SQLException;
+    }
+
+    private Projection(RowMapper<T> mapper, String... columns) {
+        this.columns = columns;
+        this.mapper = mapper;
+    }
+
+    static <T> Projection<T> of(RowMapper<T> mapper, String... columns) {
+        return new Projection<>(mapper, columns);
+    }
+
+    String columns() {
+        return String.join(", ", columns);
+    }
+
+    /**
+     * The columns qualified with a table alias, for joins
+     */
+    String columns(String alias) {
+        StringBuilder sql = new StringBuilder();
+        for (String column : columns) {
+            if (sql.length() > 0) {
+                sql.append(", ");
+            }
+            sql.append(alias).append('.').append(column);
+        }
+        return sql.toString();
+    }
+
+    int size() {
+        return columns.length;
+    }
+
+    T map(ResultSet rs) throws SQLException {
+        return mapper.map(rs, 0);
+    }
+
+    List<T> mapAll(ResultSet rs) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        while (rs.next()) {
+            rows.add(mapper.map(rs, 0));
+        }
+        return rows;
+    }
+
+    /**
+     * A nullable INT column without boxing through getObject
+     */
+    static Integer getNullableInt(ResultSet rs, int index) throws SQLException {
+        int value = rs.getInt(index);
+        return rs.wasNull() ? null : value;
+    }
+}
@@ -0,0 +1,490 @@
+package org.example.dao.impl;
+
+import org.example.dao.ShelfStockDAO;
+import org.example.model.ShelfStock;
+import org.example.model.StockLocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shelf stock with sharded counters for designated hot items.
+ * A hot item's quantity is split over N slots: slot 0 is its normal shelf_stock row and
+ * slots 1..N-1 live in shelf_stock_slots. A single-item sale decrements one randomly chosen slot,
+ * moving on to the next if it is short, so concurrent lanes rarely wait on the same row lock.
+ * Inside a basket transaction each thread starts at a slot of its own and locks the first slot
+ * that covers the sale with SKIP LOCKED, so it never queues behind another lane's slot. Only when
+ * no single slot covers it are the rows locked in slot order (base row first), the same canonical
+ * order as everything else that locks them, including rewrites.
+ * Reads sum the slots; {@link #rebalance(String)} evens them out again.
+ * Other items are passed straight to the delegate.
+ */
+public class ShardedShelfStockDAOImpl implements ShelfStockDAO {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedShelfStockDAOImpl.class);
+
+    private static final String REDUCE_SLOT_SQL =
+            "UPDATE shelf_stock_slots SET quantity = quantity - ? WHERE item_code = ? AND slot = ? AND quantity >= ?";
+    private static final String REDUCE_BASE_SQL =
+            "UPDATE shelf_stock SET quantity = quantity - ? WHERE item_code = ? AND quantity >= ?";
+    // Slots from the start slot up, then wrapping round; rows another transaction holds are passed over
+    private static final String PICK_SLOT_SQL =
+            "SELECT slot FROM shelf_stock_slots WHERE item_code = ? AND slot BETWEEN 1 AND ? AND quantity >= ? "
+                    + "ORDER BY slot < ?, slot LIMIT 1 FOR UPDATE SKIP LOCKED";
+
+    private final Connection conn;
+    private final ShelfStockDAO delegate;
+    private final Set<String> hotItems;
+    private final int slotCount;
+    private final TransactionExecutor transactions;
+    private final StatementCache statements;
+    private final AtomicInteger nextLane = new AtomicInteger();
+    // Each thread is a lane with its own start slot, handed out round-robin over slots 1..N-1
+    private final ThreadLocal<Integer> laneSlot;
+
+    public ShardedShelfStockDAOImpl(Connection conn, ShelfStockDAO delegate, Set<String> hotItems, int slotCount) {
+        if (slotCount < 2) {
+            throw new IllegalArgumentException("Sharded shelf stock needs at least 2 slots");
+        }
+        this.conn = conn;
+        this.delegate = delegate;
+        this.hotItems = Set.copyOf(hotItems);
+        this.slotCount = slotCount;
+        this.transactions = new TransactionExecutor(conn);
+        this.statements = StatementCache.of(conn);
+        this.laneSlot = ThreadLocal.withInitial(() -> 1 + Math.floorMod(nextLane.getAndIncrement(), slotCount - 1));
+    }
+
+    public boolean isHot(String itemCode) {
+        return hotItems.contains(itemCode);
+    }
+
+    public Set<String> getHotItems() {
+        return hotItems;
+    }
+
+    @Override
+    public Optional<ShelfStock> getShelfStock(String itemCode) {
+        Optional<ShelfStock> base = delegate.getShelfStock(itemCode);
+        if (!isHot(itemCode)) {
+            return base;
+        }
+        int slotted = getSlottedQuantity(itemCode);
+        if (base.isEmpty() && slotted == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new ShelfStock(itemCode, base.map(ShelfStock::getQuantity).orElse(0) + slotted));
+    }
+
+    @Override
+    public int getTotalShelfStock(String itemCode) {
+        if (!isHot(itemCode)) {
+            return delegate.getTotalShelfStock(itemCode);
+        }
+        return delegate.getTotalShelfStock(itemCode) + getSlottedQuantity(itemCode);
+    }
+
+    @Override
+    public void updateShelfStock(String itemCode, int quantity) {
+        if (!isHot(itemCode)) {
+            delegate.updateShelfStock(itemCode, quantity);
+            return;
+        }
+        setSpread(itemCode, quantity, false);
+    }
+
+    @Override
+    public void addShelfStock(ShelfStock stock) {
+        if (!isHot(stock.getItemCode())) {
+            delegate.addShelfStock(stock);
+            return;
+        }
+        setSpread(stock.getItemCode(), stock.getQuantity(), true);
+    }
+
+    @Override
+    public void saveShelfStockBatch(Map<String, Integer> quantities) {
+        Map<String, Integer> plain = new HashMap<>();
+        quantities.forEach((itemCode, quantity) -> {
+            if (isHot(itemCode)) {
+                setSpread(itemCode, quantity, true);
+            } else {
+                plain.put(itemCode, quantity);
+            }
+        });
+        delegate.saveShelfStockBatch(plain);
+    }
+
+    @Override
+    public void addShelfStockBatch(Map<String, Integer> quantities, String checkoutRef) {
+        // A hot item's base row counts toward its total, so stock given back can go there like any other
+        delegate.addShelfStockBatch(quantities, checkoutRef);
+    }
+
+    @Override
+    public List<ShelfStock> getAllShelfStock() {
+        Map<String, Integer> slotted = getSlottedQuantities();
+        List<ShelfStock> stockList = new ArrayList<>();
+        for (ShelfStock stock : delegate.getAllShelfStock()) {
+            Integer extra = slotted.get(stock.getItemCode());
+            stockList.add(extra == null ? stock : new ShelfStock(stock.getItemCode(), stock.getQuantity() + extra));
+        }
+        return stockList;
+    }
+
+    @Override
+    public List<ShelfStock> getLowStockItems(int threshold) {
+        List<ShelfStock> lowStockItems = new ArrayList<>();
+        for (ShelfStock stock : delegate.getLowStockItems(threshold)) {
+            if (!isHot(stock.getItemCode())) {
+                lowStockItems.add(stock);
+            }
+        }
+        // A hot item's base row alone says little; judge it on the slot total
+        for (String itemCode : hotItems) {
+            int total = getTotalShelfStock(itemCode);
+            if (total < threshold) {
+                lowStockItems.add(new ShelfStock(itemCode, total));
+            }
+        }
+        lowStockItems.sort(Comparator.comparingInt(ShelfStock::getQuantity));
+        return lowStockItems;
+    }
+
+    @Override
+    public boolean reduceShelfStock(String itemCode, int quantity) {
+        if (!isHot(itemCode)) {
+            return delegate.reduceShelfStock(itemCode, quantity);
+        }
+        try {
+            // Autocommit, so a probe holds its row lock only for its own statement and can start anywhere;
+            // if no single slot covers the sale, take it across slots under lock
+            int start = ThreadLocalRandom.current().nextInt(slotCount);
+            return reduceAnySlot(itemCode, quantity, start) || reduceAcrossSlots(itemCode, quantity);
+        } catch (SQLException e) {
+            logger.error("Error reducing sharded shelf stock for item: " + itemCode, e);
+            throw new RuntimeException("Failed to reduce shelf stock", e);
+        }
+    }
+
+    @Override
+    public boolean reduceShelfStockBatch(Map<String, Integer> quantities, String checkoutRef) {
+        // Item code order across the whole basket; a hot item's slots are then taken as below
+        SortedMap<String, Integer> ordered = new TreeMap<>(quantities);
+        return transactions.execute("reduce shelf stock", () -> {
+            for (Map.Entry<String, Integer> entry : ordered.entrySet()) {
+                String itemCode = entry.getKey();
+                int quantity = entry.getValue();
+                boolean taken = isHot(itemCode)
+                        ? takeFromOneSlot(itemCode, quantity) || takeAcrossSlots(itemCode, quantity)
+                        : reduceSlot(itemCode, 0, quantity);
+                if (!taken) {
+                    logger.warn("Insufficient shelf stock for item: {}. Requested: {}", itemCode, quantity);
+                    return false;
+                }
+            }
+            OutboxDAOImpl.insert(conn, OutboxDAOImpl.stockSold(ordered, StockLocation.SHELF), checkoutRef);
+            return true;
+        });
+    }
+
+    @Override
+    public Map<String, Integer> takeShelfStockBatch(Map<String, Integer> quantities, String checkoutRef) {
+        SortedMap<String, Integer> ordered = new TreeMap<>(quantities);
+        Map<String, Integer> taken = new TreeMap<>();
+        Map<String, Integer> shortfall = new TreeMap<>();
+        transactions.execute("take shelf stock", () -> {
+            taken.clear();
+            shortfall.clear();
+            for (Map.Entry<String, Integer> entry : ordered.entrySet()) {
+                String itemCode = entry.getKey();
+                int quantity = entry.getValue();
+                int take;
+                if (isHot(itemCode)) {
+                    take = takeInSlotOrder(itemCode, lockSlots(itemCode), quantity);
+                } else {
+                    take = Math.min(Math.max(0, lockBase(itemCode)), quantity);
+                    if (take > 0) {
+                        reduceSlot(itemCode, 0, take);
+                    }
+                }
+                if (take > 0) {
+                    taken.put(itemCode, take);
+                }
+                if (take < quantity) {
+                    shortfall.put(itemCode, quantity - take);
+                }
+            }
+            OutboxDAOImpl.insert(conn, OutboxDAOImpl.stockSold(taken, StockLocation.SHELF), checkoutRef);
+            return true;
+        });
+        if (!shortfall.isEmpty()) {
+            logger.warn("Shelf stock short for a sale already made: {}", shortfall);
+        }
+        return shortfall;
+    }
+
+    /**
+     * Spread a hot item's total evenly over its slots again
+     */
+    public void rebalance(String itemCode) {
+        if (!isHot(itemCode)) {
+            return;
+        }
+        transactions.execute("rebalance shelf slots", () -> {
+            int[] slots = lockSlots(itemCode);
+            int total = Arrays.stream(slots).sum();
+            writeSlots(itemCode, spread(total));
+            logger.debug("Rebalanced shelf slots for {}: {} units over {} slots", itemCode, total, slotCount);
+            return true;
+        });
+    }
+
+    public void rebalanceAll() {
+        for (String itemCode : new TreeSet<>(hotItems)) {
+            rebalance(itemCode);
+        }
+    }
+
+    private boolean reduceSlot(String itemCode, int slot, int quantity) throws SQLException {
+        String sql = slot == 0 ? REDUCE_BASE_SQL : REDUCE_SLOT_SQL;
+        try (StatementCache.Lease lease = statements.prepare(sql)) {
+            PreparedStatement ps = lease.statement();
+            ps.setInt(1, quantity);
+            ps.setString(2, itemCode);
+            if (slot == 0) {
+                ps.setInt(3, quantity);
+            } else {
+                ps.setInt(3, slot);
+                ps.setInt(4, quantity);
+            }
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Take the whole quantity from the first slot that covers it, probing from the start slot on
+     */
+    private boolean reduceAnySlot(String itemCode, int quantity, int start) throws SQLException {
+        for (int i = 0; i < slotCount; i++) {
+            if (reduceSlot(itemCode, (start + i) % slotCount, quantity)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Take the whole quantity from one slot inside the caller's transaction: lock the first free slot
+     * from this lane's start slot that covers it, skipping slots other transactions hold
+     */
+    private boolean takeFromOneSlot(String itemCode, int quantity) throws SQLException {
+        int slot;
+        try (StatementCache.Lease lease = statements.prepare(PICK_SLOT_SQL)) {
+            PreparedStatement ps = lease.statement();
+            ps.setString(1, itemCode);
+            ps.setInt(2, slotCount - 1);
+            ps.setInt(3, quantity);
+            ps.setInt(4, laneSlot.get());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                slot = rs.getInt(1);
+            }
+        }
+        // The row is ours until commit and covers the sale
+        return reduceSlot(itemCode, slot, quantity);
+    }
+
+    private boolean reduceAcrossSlots(String itemCode, int quantity) throws SQLException {
+        try {
+            conn.setAutoCommit(false);
+            if (!takeAcrossSlots(itemCode, quantity)) {
+                conn.rollback();
+                logger.warn("Insufficient shelf stock for item: {}. Requested: {}", itemCode, quantity);
+                return false;
+            }
+            conn.commit();
+            return true;
+        } catch (SQLException e) {
+            rollback();
+            throw e;
+        } finally {
+            resetAutoCommit();
+        }
+    }
+
+    /**
+     * Take a sale spread over several slots; the caller owns the transaction
+     */
+    private boolean takeAcrossSlots(String itemCode, int quantity) throws SQLException {
+        int[] slots = lockSlots(itemCode);
+        if (Arrays.stream(slots).sum() < quantity) {
+            return false;
+        }
+        takeInSlotOrder(itemCode, slots, quantity);
+        return true;
+    }
+
+    /**
+     * Take up to the quantity from locked slots, base row first, and write them back
+     *
+     * @return units taken
+     */
+    private int takeInSlotOrder(String itemCode, int[] slots, int quantity) throws SQLException {
+        int remaining = quantity;
+        for (int slot = 0; slot < slotCount && remaining > 0; slot++) {
+            int taken = Math.min(Math.max(0, slots[slot]), remaining);
+            slots[slot] -= taken;
+            remaining -= taken;
+        }
+        if (remaining < quantity) {
+            writeSlots(itemCode, slots);
+        }
+        return quantity - remaining;
+    }
+
+    /**
+     * Set a hot item's total, spread evenly. The base row and every slot are locked first,
+     * so a concurrent slot decrement either commits before the rewrite or waits for it.
+     */
+    private void setSpread(String itemCode, int quantity, boolean createBase) {
+        transactions.execute("update shelf stock", () -> {
+            boolean baseExists = lockBase(itemCode) >= 0;
+            if (!baseExists && createBase) {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO shelf_stock (item_code, quantity) VALUES (?, 0)")) {
+                    ps.setString(1, itemCode);
+                    ps.executeUpdate();
+                }
+            }
+            lockSlots(itemCode);
+            writeSlots(itemCode, spread(quantity));
+            logger.debug("Shelf stock set for hot item {}: quantity = {}", itemCode, quantity);
+            return true;
+        });
+    }
+
+    /**
+     * Lock the base row on its own, e.g. to learn whether it exists before the slots are locked
+     *
+     * @return the base row's quantity, or -1 if the item has none
+     */
+    private int lockBase(String itemCode) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT quantity FROM shelf_stock WHERE item_code = ? FOR UPDATE")) {
+            ps.setString(1, itemCode);
+            ResultSet rs = ps.executeQuery();
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+
+    /**
+     * Lock the base row then the slot rows (always in that order) and return their quantities
+     */
+    private int[] lockSlots(String itemCode) throws SQLException {
+        int[] slots = new int[slotCount];
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT quantity FROM shelf_stock WHERE item_code = ? FOR UPDATE")) {
+            ps.setString(1, itemCode);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                slots[0] = rs.getInt(1);
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT slot, quantity FROM shelf_stock_slots WHERE item_code = ? ORDER BY slot FOR UPDATE")) {
+            ps.setString(1, itemCode);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                int slot = rs.getInt(1);
+                if (slot > 0 && slot < slotCount) {
+                    slots[slot] = rs.getInt(2);
+                } else if (slot >= slotCount) {
+                    // Slot count was lowered: fold the old slot into slot 0
+                    slots[0] += rs.getInt(2);
+                }
+            }
+        }
+        return slots;
+    }
+
+    private void writeSlots(String itemCode, int[] slots) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE shelf_stock SET quantity = ? WHERE item_code = ?")) {
+            ps.setInt(1, slots[0]);
+            ps.setString(2, itemCode);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "DELETE FROM shelf_stock_slots WHERE item_code = ? AND slot >= ?")) {
+            ps.setString(1, itemCode);
+            ps.setInt(2, slotCount);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO shelf_stock_slots (item_code, slot, quantity) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE quantity = VALUES(quantity)")) {
+            for (int slot = 1; slot < slotCount; slot++) {
+                ps.setString(1, itemCode);
+                ps.setInt(2, slot);
+                ps.setInt(3, slots[slot]);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private int[] spread(int total) {
+        int[] slots = new int[slotCount];
+        Arrays.fill(slots, total / slotCount);
+        slots[0] += total % slotCount;
+        return slots;
+    }
+
+    private int getSlottedQuantity(String itemCode) {
+        String sql = "SELECT COALESCE(SUM(quantity), 0) FROM shelf_stock_slots WHERE item_code = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, itemCode);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            logger.error("Error getting slotted shelf stock for item: " + itemCode, e);
+        }
+        return 0;
+    }
+
+    private Map<String, Integer> getSlottedQuantities() {
+        Map<String, Integer> totals = new HashMap<>();
+        String sql = "SELECT item_code, SUM(quantity) FROM shelf_stock_slots GROUP BY item_code";
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                totals.put(rs.getString(1), rs.getInt(2));
+            }
+        } catch (SQLException e) {
+            logger.error("Error fetching slotted shelf stock", e);
+        }
+        return totals;
+    }
+
+    private void rollback() {
+        try {
+            conn.rollback();
+        } catch (SQLException ex) {
+            logger.error("Error during rollback", ex);
+        }
+    }
+
+    private void resetAutoCommit() {
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            logger.error("Error resetting auto-commit", e);
+        }
+    }
+}
@@ -4,6 +4,7 @@ package org.example.dao.impl;
 
 import org.example.dao.ShelfStockDAO;
 import org.example.model.ShelfStock;
+import org.example.model.StockLocation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,10 +13,20 @@ import java.util.*;
 
 public class ShelfStockDAOImpl implements ShelfStockDAO {
     private static final Logger logger = LoggerFactory.getLogger(ShelfStockDAOImpl.class);
+    private static final String REDUCE_BATCH_SQL =
+            "UPDATE shelf_stock SET quantity = quantity - ? WHERE item_code = ? AND quantity >= ?";
+    private static final String LOCK_SQL = "SELECT quantity FROM shelf_stock WHERE item_code = ? FOR UPDATE";
+    private static final String ADD_BATCH_SQL =
+            "INSERT INTO shelf_stock (item_code, quantity) VALUES (?, ?) ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)";
+
     private Connection conn;
+    private final TransactionExecutor transactions;
+    private final StatementCache statements;
 
     public ShelfStockDAOImpl(Connection conn) {
         this.conn = conn;
+        this.transactions = new TransactionExecutor(conn);
+        this.statements = StatementCache.of(conn);
     }
 
     @Override
@@ -115,6 +126,71 @@ public class ShelfStockDAOImpl implements ShelfStockDAO {
         }
     }
 
+    @Override
+    public boolean reduceShelfStockBatch(Map<String, Integer> quantities, String checkoutRef) {
+        // Rows are always locked in item code order, so overlapping baskets cannot deadlock each other
+        SortedMap<String, Integer> ordered = new TreeMap<>(quantities);
+        return transactions.execute("reduce shelf stock", () -> {
+            try (StatementCache.Lease lease = statements.prepare(REDUCE_BATCH_SQL)) {
+                PreparedStatement ps = lease.statement();
+                for (Map.Entry<String, Integer> entry : ordered.entrySet()) {
+                    ps.setInt(1, entry.getValue());
+                    ps.setString(2, entry.getKey());
+                    ps.setInt(3, entry.getValue());
+                    if (ps.executeUpdate() == 0) {
+                        logger.warn("Insufficient shelf stock for item: {}. Requested: {}", entry.getKey(), entry.getValue());
+                        return false;
+                    }
+                }
+            }
+            OutboxDAOImpl.insert(conn, OutboxDAOImpl.stockSold(ordered, StockLocation.SHELF), checkoutRef);
+            logger.debug("Shelf stock reduced for {} items", ordered.size());
+            return true;
+        });
+    }
+
+    @Override
+    public Map<String, Integer> takeShelfStockBatch(Map<String, Integer> quantities, String checkoutRef) {
+        SortedMap<String, Integer> ordered = new TreeMap<>(quantities);
+        Map<String, Integer> taken = new TreeMap<>();
+        Map<String, Integer> shortfall = new TreeMap<>();
+        transactions.execute("take shelf stock", () -> {
+            // A retried attempt starts over from freshly locked rows
+            taken.clear();
+            shortfall.clear();
+            try (StatementCache.Lease lock = statements.prepare(LOCK_SQL);
+                 StatementCache.Lease reduce = statements.prepare(REDUCE_BATCH_SQL)) {
+                for (Map.Entry<String, Integer> entry : ordered.entrySet()) {
+                    lock.statement().setString(1, entry.getKey());
+                    int available = 0;
+                    try (ResultSet rs = lock.statement().executeQuery()) {
+                        if (rs.next()) {
+                            available = Math.max(0, rs.getInt(1));
+                        }
+                    }
+                    int take = Math.min(available, entry.getValue());
+                    if (take > 0) {
+                        PreparedStatement ps = reduce.statement();
+                        ps.setInt(1, take);
+                        ps.setString(2, entry.getKey());
+                        ps.setInt(3, take);
+                        ps.executeUpdate();
+                        taken.put(entry.getKey(), take);
+                    }
+                    if (take < entry.getValue()) {
+                        shortfall.put(entry.getKey(), entry.getValue() - take);
+                    }
+                }
+            }
+            OutboxDAOImpl.insert(conn, OutboxDAOImpl.stockSold(taken, StockLocation.SHELF), checkoutRef);
+            return true;
+        });
+        if (!shortfall.isEmpty()) {
+            logger.warn("Shelf stock short for a sale already made: {}", shortfall);
+        }
+        return shortfall;
+    }
+
     @Override
     public int getTotalShelfStock(String itemCode) {
         String sql = "SELECT COALESCE(quantity, 0) FROM shelf_stock WHERE item_code = ?";
@@ -129,4 +205,69 @@ public class ShelfStockDAOImpl implements ShelfStockDAO {
         }
         return 0;
     }
+
+    @Override
+    public void saveShelfStockBatch(Map<String, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO shelf_stock (item_code, quantity) VALUES (?, ?) ON DUPLICATE KEY UPDATE quantity = VALUES(quantity)";
+        try {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+                    ps.setString(1, entry.getKey());
+                    ps.setInt(2, entry.getValue());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+            logger.debug("Saved shelf stock for {} items", quantities.size());
+        } catch (SQLException e) {
+            rollback();
+            logger.error("Error saving shelf stock batch", e);
+            throw new RuntimeException("Failed to save shelf stock", e);
+        } finally {
+            resetAutoCommit();
+        }
+    }
+
+    @Override
+    public void addShelfStockBatch(Map<String, Integer> quantities, String checkoutRef) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        // Same item code lock order as a reduction
+        SortedMap<String, Integer> ordered = new TreeMap<>(quantities);
+        transactions.execute("add shelf stock", () -> {
+            try (StatementCache.Lease lease = statements.prepare(ADD_BATCH_SQL)) {
+                PreparedStatement ps = lease.statement();
+                for (Map.Entry<String, Integer> entry : ordered.entrySet()) {
+                    ps.setString(1, entry.getKey());
+                    ps.setInt(2, entry.getValue());
+                    ps.executeUpdate();
+                }
+            }
+            OutboxDAOImpl.insert(conn, OutboxDAOImpl.saleReversed(ordered, StockLocation.SHELF), checkoutRef);
+            logger.debug("Shelf stock added for {} items", ordered.size());
+            return true;
+        });
+    }
+
+    private void rollback() {
+        try {
+            conn.rollback();
+        } catch (SQLException ex) {
+            logger.error("Error during rollback", ex);
+        }
+    }
+
+    private void resetAutoCommit() {
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            logger.error("Error resetting auto-commit", e);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,159 @@
+package org.example.dao.impl;
+
+import org.example.config.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prepared statements of one connection, prepared on first use and reused after.
+ * DAOs keep their SQL in constants and lease the statement for it; closing the lease clears
+ * the parameters and hands the statement back. A statement is lent to one caller at a time,
+ * so a second caller with the same SQL gets a statement of its own. All DAOs on a connection
+ * share its cache.
+ * Hikari closes a connection's open statements when the connection is closed or evicted; a
+ * cached statement found closed is simply prepared again.
+ */
+public final class StatementCache {
+    private static final Logger logger = LoggerFactory.getLogger(StatementCache.class);
+    private static final Map<Connection, StatementCache> caches = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder prepares = new LongAdder();
+
+    private final Connection conn;
+    private final int maxStatements;
+    private final Map<String, PreparedStatement> idle = new HashMap<>();
+
+    StatementCache(Connection conn, int maxStatements) {
+        this.conn = conn;
+        this.maxStatements = maxStatements;
+    }
+
+    /**
+     * The cache of a connection, created on first use
+     */
+    public static StatementCache of(Connection conn) {
+        return caches.computeIfAbsent(conn, c ->
+                new StatementCache(c, ConfigManager.getInstance().getIntProperty("db.statementCache.size", 64)));
+    }
+
+    /**
+     * Close a connection's cached statements, e.g. before closing a connection that is not pooled
+     */
+    public static void discard(Connection conn) {
+        StatementCache cache = caches.remove(conn);
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    public static Stats getStats() {
+        return new Stats(hits.sum(), prepares.sum());
+    }
+
+    public Lease prepare(String sql) throws SQLException {
+        return lease(sql, false);
+    }
+
+    public Lease prepareReturningKeys(String sql) throws SQLException {
+        return lease(sql, true);
+    }
+
+    private Lease lease(String sql, boolean returnKeys) throws SQLException {
+        String key = returnKeys ? "keys:" + sql : sql;
+        PreparedStatement statement;
+        synchronized (this) {
+            statement = idle.remove(key);
+        }
+        if (statement != null && !statement.isClosed()) {
+            hits.increment();
+            return new Lease(key, statement);
+        }
+        prepares.increment();
+        statement = returnKeys
+                ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : conn.prepareStatement(sql);
+        return new Lease(key, statement);
+    }
+
+    private void giveBack(String key, PreparedStatement statement) {
+        try {
+            if (!statement.isClosed()) {
+                statement.clearParameters();
+                statement.clearBatch();
+                synchronized (this) {
+                    if (idle.size() < maxStatements && !idle.containsKey(key)) {
+                        idle.put(key, statement);
+                        return;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.debug("Dropping cached statement: {}", e.getMessage());
+        }
+        closeQuietly(statement);
+    }
+
+    private synchronized void close() {
+        idle.values().forEach(StatementCache::closeQuietly);
+        idle.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.debug("Error closing statement: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Inner class for a statement lent to one caller until closed
+     */
+    public final class Lease implements AutoCloseable {
+        private final String key;
+        private final PreparedStatement statement;
+
+        private Lease(String key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+
+        public PreparedStatement statement() {
+            return statement;
+        }
+
+        @Override
+        public void close() {
+            giveBack(key, statement);
+        }
+    }
+
+    /**
+     * Inner class for cache counters
+     */
+    public static class Stats {
+        private final long hits;
+        private final long prepares;
+
+        public Stats(long hits, long prepares) {
+            this.hits = hits;
+            this.prepares = prepares;
+        }
+
+        // Getters
+        public long getHits() { return hits; }
+        public long getPrepares() { return prepares; }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, prepares=%d", hits, prepares);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.dao.impl;
+
+import org.example.dao.StockAvailabilityDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shelf and website quantities in bulk, optionally only rows whose last_updated
+ * is recent, so a cached snapshot can be kept current with small delta reads.
+ */
+public class StockAvailabilityDAOImpl implements StockAvailabilityDAO {
+    private static final Logger logger = LoggerFactory.getLogger(StockAvailabilityDAOImpl.class);
+
+    private static final String SHELF_SQL = """
+            SELECT s.item_code, s.quantity + COALESCE(ss.quantity, 0) AS quantity
+            FROM shelf_stock s
+            LEFT JOIN (SELECT item_code, SUM(quantity) AS quantity
+                       FROM shelf_stock_slots GROUP BY item_code) ss ON ss.item_code = s.item_code
+            """;
+    // A sharded item can change in its slots alone
+    private static final String SHELF_CHANGED_SQL = SHELF_SQL + """
+            WHERE s.last_updated >= ?
+               OR s.item_code IN (SELECT item_code FROM shelf_stock_slots WHERE last_updated >= ?)
+            """;
+    private static final String WEBSITE_SQL = "SELECT item_code, quantity FROM website_inventory";
+    private static final String WEBSITE_CHANGED_SQL = WEBSITE_SQL + " WHERE last_updated >= ?";
+
+    private final Connection conn;
+
+    public StockAvailabilityDAOImpl(Connection conn) {
+        this.conn = conn;
+    }
+
+    @Override
+    public Date getDatabaseTime() {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT CURRENT_TIMESTAMP")) {
+            rs.next();
+            return new Date(rs.getTimestamp(1).getTime());
+        } catch (SQLException e) {
+            logger.error("Error reading database time", e);
+            throw new RuntimeException("Failed to read database time", e);
+        }
+    }
+
+    @Override
+    public Map<String, Integer> getShelfQuantities(Date changedSince) {
+        return query(changedSince == null ? SHELF_SQL : SHELF_CHANGED_SQL, changedSince, 2, "shelf");
+    }
+
+    @Override
+    public Map<String, Integer> getWebsiteQuantities(Date changedSince) {
+        return query(changedSince == null ? WEBSITE_SQL : WEBSITE_CHANGED_SQL, changedSince, 1, "website");
+    }
+
+    private Map<String, Integer> query(String sql, Date changedSince, int sinceParameters, String location) {
+        Map<String, Integer> quantities = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (changedSince != null) {
+                for (int i = 1; i <= sinceParameters; i++) {
+                    ps.setTimestamp(i, new Timestamp(changedSince.getTime()));
+                }
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    quantities.put(rs.getString(1), rs.getInt(2));
+                }
+            }
+        } catch (SQLException e) {
+            // Thrown rather than returning an empty map, which would read as "nothing in stock"
+            logger.error("Error fetching " + location + " quantities", e);
+            throw new RuntimeException("Failed to fetch " + location + " quantities", e);
+        }
+        return quantities;
+    }
+}
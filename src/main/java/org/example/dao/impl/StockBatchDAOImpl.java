@@ -2,52 +2,128 @@
 package org.example.dao.impl;
 
 import org.example.dao.StockBatchDAO;
+import org.example.model.MovementType;
+import org.example.model.OutboxEvent;
 import org.example.model.StockBatch;
+import org.example.model.StockLocation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.*;
 import java.util.Date;
+import java.util.function.Consumer;
 
 public class StockBatchDAOImpl implements StockBatchDAO {
     private static final Logger logger = LoggerFactory.getLogger(StockBatchDAOImpl.class);
+    static final Projection<StockBatch> BATCH = Projection.of((rs, at) -> {
+        StockBatch batch = new StockBatch(rs.getInt(at + 1), rs.getString(at + 2), rs.getInt(at + 3),
+                rs.getDate(at + 4), rs.getDate(at + 5), rs.getString(at + 6), rs.getDouble(at + 7));
+        batch.setMovedToShelf(rs.getBoolean(at + 8));
+        return batch;
+    }, "batch_id", "item_code", "quantity", "received_date", "expiry_date", "supplier_name", "purchase_price",
+            "is_moved_to_shelf");
+    private static final String SELECT_BATCHES = "SELECT " + BATCH.columns() + " FROM stock_batches ";
+    private static final String INSERT_BATCH_SQL = """
+            INSERT INTO stock_batches (item_code, quantity, received_date, expiry_date, supplier_name,
+                                       purchase_price, is_moved_to_shelf)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final String ADD_SHELF_SQL =
+            "INSERT INTO shelf_stock (item_code, quantity) VALUES (?, ?) ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)";
     private Connection conn;
+    private final TransactionExecutor transactions;
 
     public StockBatchDAOImpl(Connection conn) {
         this.conn = conn;
+        this.transactions = new TransactionExecutor(conn);
     }
 
     @Override
     public void addBatch(StockBatch batch) {
-        String sql = "INSERT INTO stock_batches (item_code, quantity, received_date, expiry_date, supplier_name, purchase_price, is_moved_to_shelf) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, batch.getItemCode());
-            ps.setInt(2, batch.getQuantity());
-            ps.setDate(3, new java.sql.Date(batch.getReceivedDate().getTime()));
-            ps.setDate(4, new java.sql.Date(batch.getExpiryDate().getTime()));
-            ps.setString(5, batch.getSupplierName());
-            ps.setDouble(6, batch.getPurchasePrice());
-            ps.setBoolean(7, batch.isMovedToShelf());
+        int[] batchId = new int[1];
+        boolean added = transactions.execute("add stock batch", () -> {
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_BATCH_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, batch.getItemCode());
+                ps.setInt(2, batch.getQuantity());
+                ps.setDate(3, new java.sql.Date(batch.getReceivedDate().getTime()));
+                ps.setDate(4, new java.sql.Date(batch.getExpiryDate().getTime()));
+                ps.setString(5, batch.getSupplierName());
+                ps.setDouble(6, batch.getPurchasePrice());
+                ps.setBoolean(7, batch.isMovedToShelf());
+                if (ps.executeUpdate() == 0) {
+                    return false;
+                }
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    batchId[0] = keys.next() ? keys.getInt(1) : 0;
+                }
+            }
+            OutboxDAOImpl.insert(conn, List.of(received(batch, batchId[0])));
+            return true;
+        });
+        if (added) {
+            batch.setBatchId(batchId[0]);
+            logger.info("Stock batch added for item: {}", batch.getItemCode());
+        }
+    }
 
-            int rowsAffected = ps.executeUpdate();
-            if (rowsAffected > 0) {
-                logger.info("Stock batch added for item: {}", batch.getItemCode());
+    @Override
+    public void addBatches(List<StockBatch> batches) {
+        if (batches.isEmpty()) {
+            return;
+        }
+        int[] batchIds = new int[batches.size()];
+        try {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_BATCH_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (StockBatch batch : batches) {
+                    ps.setString(1, batch.getItemCode());
+                    ps.setInt(2, batch.getQuantity());
+                    ps.setDate(3, new java.sql.Date(batch.getReceivedDate().getTime()));
+                    ps.setDate(4, new java.sql.Date(batch.getExpiryDate().getTime()));
+                    ps.setString(5, batch.getSupplierName());
+                    ps.setDouble(6, batch.getPurchasePrice());
+                    ps.setBoolean(7, batch.isMovedToShelf());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                // One key per row, in batch order, also when the driver rewrote the batch into multi-row inserts
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (int i = 0; i < batchIds.length; i++) {
+                        if (!keys.next()) {
+                            throw new SQLException("Missing generated id for stock batch " + i + " of " + batchIds.length);
+                        }
+                        batchIds[i] = keys.getInt(1);
+                    }
+                }
             }
+            List<OutboxEvent> events = new ArrayList<>(batches.size());
+            for (int i = 0; i < batchIds.length; i++) {
+                events.add(received(batches.get(i), batchIds[i]));
+            }
+            OutboxDAOImpl.insert(conn, events);
+            conn.commit();
         } catch (SQLException e) {
-            logger.error("Error adding stock batch for item: " + batch.getItemCode(), e);
-            throw new RuntimeException("Failed to add stock batch", e);
+            rollback();
+            logger.error("Error adding " + batches.size() + " stock batches", e);
+            throw new RuntimeException("Failed to add stock batches", e);
+        } finally {
+            resetAutoCommit();
+        }
+        for (int i = 0; i < batchIds.length; i++) {
+            batches.get(i).setBatchId(batchIds[i]);
         }
+        logger.info("Added {} stock batches", batches.size());
     }
 
     @Override
     public Optional<StockBatch> getBatchById(int batchId) {
-        String sql = "SELECT * FROM stock_batches WHERE batch_id = ?";
+        String sql = SELECT_BATCHES + "WHERE batch_id = ?";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, batchId);
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
-                return Optional.of(createStockBatchFromResultSet(rs));
+                return Optional.of(BATCH.map(rs));
             }
         } catch (SQLException e) {
             logger.error("Error fetching batch by ID: " + batchId, e);
@@ -58,12 +134,12 @@ public class StockBatchDAOImpl implements StockBatchDAO {
     @Override
     public List<StockBatch> getBatchesByItemCode(String itemCode) {
         List<StockBatch> batches = new ArrayList<>();
-        String sql = "SELECT * FROM stock_batches WHERE item_code = ? ORDER BY expiry_date ASC, received_date ASC";
+        String sql = SELECT_BATCHES + "WHERE item_code = ? ORDER BY expiry_date ASC, received_date ASC";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, itemCode);
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
-                batches.add(createStockBatchFromResultSet(rs));
+                batches.add(BATCH.map(rs));
             }
         } catch (SQLException e) {
             logger.error("Error fetching batches for item: " + itemCode, e);
@@ -74,12 +150,12 @@ public class StockBatchDAOImpl implements StockBatchDAO {
     @Override
     public List<StockBatch> getAvailableBatches(String itemCode) {
         List<StockBatch> batches = new ArrayList<>();
-        String sql = "SELECT * FROM stock_batches WHERE item_code = ? AND quantity > 0 ORDER BY expiry_date ASC, received_date ASC";
+        String sql = SELECT_BATCHES + "WHERE item_code = ? AND quantity > 0 ORDER BY expiry_date ASC, received_date ASC";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, itemCode);
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
-                batches.add(createStockBatchFromResultSet(rs));
+                batches.add(BATCH.map(rs));
             }
         } catch (SQLException e) {
             logger.error("Error fetching available batches for item: " + itemCode, e);
@@ -90,12 +166,12 @@ public class StockBatchDAOImpl implements StockBatchDAO {
     @Override
     public List<StockBatch> getBatchesExpiringBefore(Date date) {
         List<StockBatch> batches = new ArrayList<>();
-        String sql = "SELECT * FROM stock_batches WHERE expiry_date <= ? AND quantity > 0 ORDER BY expiry_date ASC";
+        String sql = SELECT_BATCHES + "WHERE expiry_date <= ? AND quantity > 0 ORDER BY expiry_date ASC";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setDate(1, new java.sql.Date(date.getTime()));
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
-                batches.add(createStockBatchFromResultSet(rs));
+                batches.add(BATCH.map(rs));
             }
         } catch (SQLException e) {
             logger.error("Error fetching expiring batches", e);
@@ -106,11 +182,11 @@ public class StockBatchDAOImpl implements StockBatchDAO {
     @Override
     public List<StockBatch> getAllBatches() {
         List<StockBatch> batches = new ArrayList<>();
-        String sql = "SELECT * FROM stock_batches ORDER BY item_code, expiry_date ASC";
+        String sql = SELECT_BATCHES + "ORDER BY item_code, expiry_date ASC";
         try (Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
-                batches.add(createStockBatchFromResultSet(rs));
+                batches.add(BATCH.map(rs));
             }
         } catch (SQLException e) {
             logger.error("Error fetching all batches", e);
@@ -151,11 +227,89 @@ public class StockBatchDAOImpl implements StockBatchDAO {
         return false;
     }
 
+    @Override
+    public int moveBatchToShelf(int batchId) {
+        int[] moved = new int[1];
+        boolean committed = transactions.execute("move batch to shelf", () -> {
+            moved[0] = 0;
+            String itemCode;
+            int quantity;
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT item_code, quantity FROM stock_batches WHERE batch_id = ? AND is_moved_to_shelf = FALSE FOR UPDATE")) {
+                ps.setInt(1, batchId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next() || rs.getInt(2) <= 0) {
+                        return false;
+                    }
+                    itemCode = rs.getString(1);
+                    quantity = rs.getInt(2);
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE stock_batches SET quantity = 0, is_moved_to_shelf = TRUE WHERE batch_id = ? AND is_moved_to_shelf = FALSE")) {
+                ps.setInt(1, batchId);
+                if (ps.executeUpdate() == 0) {
+                    return false;
+                }
+            }
+            // Relative, so a sale committed on the shelf meanwhile is never overwritten
+            try (PreparedStatement ps = conn.prepareStatement(ADD_SHELF_SQL)) {
+                ps.setString(1, itemCode);
+                ps.setInt(2, quantity);
+                ps.executeUpdate();
+            }
+            String reference = "batch:" + batchId;
+            OutboxDAOImpl.insert(conn, List.of(
+                    OutboxDAOImpl.stockMoved(itemCode, StockLocation.WAREHOUSE, MovementType.RESHELVE, -quantity, reference),
+                    OutboxDAOImpl.stockMoved(itemCode, StockLocation.SHELF, MovementType.RESHELVE, quantity, reference)));
+            moved[0] = quantity;
+            return true;
+        });
+        if (committed) {
+            logger.debug("Batch moved to shelf: batchId={}, quantity={}", batchId, moved[0]);
+            return moved[0];
+        }
+        return 0;
+    }
+
+    @Override
+    public int writeOffBatch(int batchId) {
+        int[] writtenOff = new int[1];
+        boolean committed = transactions.execute("write off batch", () -> {
+            writtenOff[0] = 0;
+            String itemCode;
+            int quantity;
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT item_code, quantity FROM stock_batches WHERE batch_id = ? AND is_moved_to_shelf = FALSE FOR UPDATE")) {
+                ps.setInt(1, batchId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next() || rs.getInt(2) <= 0) {
+                        return false;
+                    }
+                    itemCode = rs.getString(1);
+                    quantity = rs.getInt(2);
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE stock_batches SET quantity = 0 WHERE batch_id = ?")) {
+                ps.setInt(1, batchId);
+                ps.executeUpdate();
+            }
+            OutboxDAOImpl.insert(conn, List.of(OutboxDAOImpl.stockMoved(itemCode, StockLocation.WAREHOUSE,
+                    MovementType.WRITE_OFF, -quantity, "batch:" + batchId)));
+            writtenOff[0] = quantity;
+            return true;
+        });
+        if (committed) {
+            logger.debug("Batch written off: batchId={}, quantity={}", batchId, writtenOff[0]);
+            return writtenOff[0];
+        }
+        return 0;
+    }
+
     @Override
     public List<StockBatch> getBatchesForReshelving(String itemCode) {
         List<StockBatch> batches = new ArrayList<>();
-        String sql = """
-            SELECT * FROM stock_batches 
+        String sql = SELECT_BATCHES + """
             WHERE item_code = ? AND quantity > 0 AND is_moved_to_shelf = FALSE
             ORDER BY expiry_date ASC, received_date ASC
             """;
@@ -163,7 +317,7 @@ public class StockBatchDAOImpl implements StockBatchDAO {
             ps.setString(1, itemCode);
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
-                batches.add(createStockBatchFromResultSet(rs));
+                batches.add(BATCH.map(rs));
             }
         } catch (SQLException e) {
             logger.error("Error fetching batches for reshelving: " + itemCode, e);
@@ -171,17 +325,76 @@ public class StockBatchDAOImpl implements StockBatchDAO {
         return batches;
     }
 
-    private StockBatch createStockBatchFromResultSet(ResultSet rs) throws SQLException {
-        StockBatch batch = new StockBatch(
-                rs.getInt("batch_id"),
-                rs.getString("item_code"),
-                rs.getInt("quantity"),
-                rs.getDate("received_date"),
-                rs.getDate("expiry_date"),
-                rs.getString("supplier_name"),
-                rs.getDouble("purchase_price")
-        );
-        batch.setMovedToShelf(rs.getBoolean("is_moved_to_shelf"));
-        return batch;
+    @Override
+    public Optional<StockBatch> getNextBatchForReshelving(String itemCode) {
+        String sql = SELECT_BATCHES + """
+            WHERE item_code = ? AND quantity > 0 AND is_moved_to_shelf = FALSE
+            ORDER BY expiry_date ASC, received_date ASC, batch_id ASC
+            LIMIT 1
+            """;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, itemCode);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                return Optional.of(BATCH.map(rs));
+            }
+        } catch (SQLException e) {
+            logger.error("Error fetching next batch for reshelving: " + itemCode, e);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void streamAvailableBatches(Consumer<StockBatch> consumer) {
+        String sql = SELECT_BATCHES + "WHERE quantity > 0";
+        try (PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Row-by-row streaming so the whole table is never buffered in the driver
+            ps.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(BATCH.map(rs));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error streaming available batches", e);
+            throw new RuntimeException("Failed to stream available batches", e);
+        }
+    }
+
+    @Override
+    public Map<String, Integer> getAvailableQuantityByItem() {
+        Map<String, Integer> totals = new HashMap<>();
+        String sql = "SELECT item_code, SUM(quantity) FROM stock_batches WHERE quantity > 0 GROUP BY item_code";
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                totals.put(rs.getString(1), rs.getInt(2));
+            }
+        } catch (SQLException e) {
+            logger.error("Error fetching available quantity by item", e);
+            throw new RuntimeException("Failed to fetch available quantity by item", e);
+        }
+        return totals;
+    }
+
+    private static OutboxEvent received(StockBatch batch, int batchId) {
+        return OutboxDAOImpl.stockMoved(batch.getItemCode(), StockLocation.WAREHOUSE, MovementType.RECEIVE,
+                batch.getQuantity(), "batch:" + batchId);
+    }
+
+    private void rollback() {
+        try {
+            conn.rollback();
+        } catch (SQLException ex) {
+            logger.error("Error during rollback", ex);
+        }
+    }
+
+    private void resetAutoCommit() {
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            logger.error("Error resetting auto-commit", e);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,253 @@
+package org.example.dao.impl;
+
+import org.example.dao.StockLedgerDAO;
+import org.example.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.*;
+import java.util.Date;
+import java.util.function.Consumer;
+
+/**
+ * JDBC access to the append-only stock ledger (stock_movements) and its snapshots.
+ * Movements are never updated or deleted; snapshots store per-item positions after
+ * a given movement id so replays only read the tail of the ledger.
+ */
+public class StockLedgerDAOImpl implements StockLedgerDAO {
+    private static final Logger logger = LoggerFactory.getLogger(StockLedgerDAOImpl.class);
+    private static final int SNAPSHOT_BATCH_SIZE = 1000;
+    static final Projection<StockMovement> MOVEMENT = Projection.of((rs, at) -> new StockMovement(
+            rs.getLong(at + 1), rs.getString(at + 2), StockLocation.valueOf(rs.getString(at + 3)),
+            MovementType.valueOf(rs.getString(at + 4)), rs.getInt(at + 5), rs.getString(at + 6), rs.getTimestamp(at + 7)),
+            "movement_id", "item_code", "location", "movement_type", "quantity_delta", "reference", "moved_at");
+    static final Projection<StockPosition> POSITION = Projection.of((rs, at) -> new StockPosition(
+            rs.getString(at + 1), rs.getInt(at + 2), rs.getInt(at + 3), rs.getInt(at + 4)),
+            "item_code", "shelf_qty", "website_qty", "warehouse_qty");
+
+    private Connection conn;
+
+    public StockLedgerDAOImpl(Connection conn) {
+        this.conn = conn;
+    }
+
+    @Override
+    public void appendMovements(List<StockMovement> movements) {
+        if (movements.isEmpty()) {
+            return;
+        }
+        // A redelivered outbox event hits the unique event id and changes nothing
+        String sql = """
+                INSERT INTO stock_movements (item_code, location, movement_type, quantity_delta, reference, moved_at, event_id)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                ON DUPLICATE KEY UPDATE event_id = event_id
+                """;
+        try {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (StockMovement movement : movements) {
+                    ps.setString(1, movement.getItemCode());
+                    ps.setString(2, movement.getLocation().name());
+                    ps.setString(3, movement.getMovementType().name());
+                    ps.setInt(4, movement.getQuantityDelta());
+                    ps.setString(5, movement.getReference());
+                    ps.setTimestamp(6, new Timestamp(movement.getMovedAt().getTime()));
+                    if (movement.getEventId() > 0) {
+                        ps.setLong(7, movement.getEventId());
+                    } else {
+                        ps.setNull(7, Types.BIGINT);
+                    }
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+            logger.debug("Appended {} stock movements", movements.size());
+        } catch (SQLException e) {
+            rollback();
+            logger.error("Error appending stock movements", e);
+            throw new RuntimeException("Failed to append stock movements", e);
+        } finally {
+            resetAutoCommit();
+        }
+    }
+
+    @Override
+    public long getLastMovementId() {
+        String sql = "SELECT COALESCE(MAX(movement_id), 0) FROM stock_movements";
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            logger.error("Error fetching last movement id", e);
+            throw new RuntimeException("Failed to fetch last movement id", e);
+        }
+        return 0;
+    }
+
+    @Override
+    public long saveSnapshot(Date takenAt, long lastMovementId, Collection<StockPosition> positions) {
+        String headerSql = "INSERT INTO stock_snapshots (taken_at, last_movement_id) VALUES (?, ?)";
+        String lineSql = """
+                INSERT INTO stock_snapshot_lines (snapshot_id, item_code, shelf_qty, website_qty, warehouse_qty)
+                VALUES (?, ?, ?, ?, ?)
+                """;
+        long snapshotId = -1;
+        try {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement header = conn.prepareStatement(headerSql, Statement.RETURN_GENERATED_KEYS)) {
+                header.setTimestamp(1, new Timestamp(takenAt.getTime()));
+                header.setLong(2, lastMovementId);
+                header.executeUpdate();
+                ResultSet keys = header.getGeneratedKeys();
+                if (keys.next()) {
+                    snapshotId = keys.getLong(1);
+                }
+            }
+
+            try (PreparedStatement lines = conn.prepareStatement(lineSql)) {
+                int pending = 0;
+                for (StockPosition position : positions) {
+                    lines.setLong(1, snapshotId);
+                    lines.setString(2, position.getItemCode());
+                    lines.setInt(3, position.getShelfQuantity());
+                    lines.setInt(4, position.getWebsiteQuantity());
+                    lines.setInt(5, position.getWarehouseQuantity());
+                    lines.addBatch();
+                    if (++pending == SNAPSHOT_BATCH_SIZE) {
+                        lines.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    lines.executeBatch();
+                }
+            }
+
+            conn.commit();
+            logger.info("Stock snapshot {} saved: {} items up to movement {}",
+                    snapshotId, positions.size(), lastMovementId);
+            return snapshotId;
+
+        } catch (SQLException e) {
+            rollback();
+            logger.error("Error saving stock snapshot", e);
+            throw new RuntimeException("Failed to save stock snapshot", e);
+        } finally {
+            resetAutoCommit();
+        }
+    }
+
+    @Override
+    public Optional<StockLedgerSnapshot> getLatestSnapshot(Date asOf) {
+        String sql = "SELECT snapshot_id, taken_at, last_movement_id FROM stock_snapshots WHERE taken_at <= ? ORDER BY taken_at DESC, snapshot_id DESC LIMIT 1";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setTimestamp(1, new Timestamp(asOf.getTime()));
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                return Optional.of(new StockLedgerSnapshot(
+                        rs.getLong(1),
+                        rs.getTimestamp(2),
+                        rs.getLong(3)
+                ));
+            }
+        } catch (SQLException e) {
+            logger.error("Error fetching stock snapshot as of: " + asOf, e);
+            throw new RuntimeException("Failed to fetch stock snapshot", e);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void streamSnapshotPositions(long snapshotId, Consumer<StockPosition> consumer) {
+        String sql = "SELECT " + POSITION.columns() + " FROM stock_snapshot_lines WHERE snapshot_id = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(Integer.MIN_VALUE);
+            ps.setLong(1, snapshotId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(POSITION.map(rs));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error streaming stock snapshot: " + snapshotId, e);
+            throw new RuntimeException("Failed to stream stock snapshot", e);
+        }
+    }
+
+    @Override
+    public Optional<StockPosition> getSnapshotPosition(long snapshotId, String itemCode) {
+        String sql = "SELECT " + POSITION.columns() + " FROM stock_snapshot_lines WHERE snapshot_id = ? AND item_code = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, snapshotId);
+            ps.setString(2, itemCode);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                return Optional.of(POSITION.map(rs));
+            }
+        } catch (SQLException e) {
+            logger.error("Error fetching snapshot position for: " + itemCode, e);
+            throw new RuntimeException("Failed to fetch snapshot position", e);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void streamMovements(long afterMovementId, Date upTo, Consumer<StockMovement> consumer) {
+        String sql = "SELECT " + MOVEMENT.columns() + " FROM stock_movements WHERE movement_id > ? AND moved_at <= ? ORDER BY movement_id";
+        try (PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // The ledger tail can be large; stream it rather than buffering in the driver
+            ps.setFetchSize(Integer.MIN_VALUE);
+            ps.setLong(1, afterMovementId);
+            ps.setTimestamp(2, new Timestamp(upTo.getTime()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(MOVEMENT.map(rs));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error streaming stock movements", e);
+            throw new RuntimeException("Failed to stream stock movements", e);
+        }
+    }
+
+    @Override
+    public List<StockMovement> getMovements(String itemCode, long afterMovementId, Date upTo) {
+        List<StockMovement> movements = new ArrayList<>();
+        String sql = "SELECT " + MOVEMENT.columns() + " FROM stock_movements"
+                + " WHERE item_code = ? AND movement_id > ? AND moved_at <= ? ORDER BY movement_id";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, itemCode);
+            ps.setLong(2, afterMovementId);
+            ps.setTimestamp(3, new Timestamp(upTo.getTime()));
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                movements.add(MOVEMENT.map(rs));
+            }
+        } catch (SQLException e) {
+            logger.error("Error fetching stock movements for: " + itemCode, e);
+            throw new RuntimeException("Failed to fetch stock movements", e);
+        }
+        return movements;
+    }
+
+    private void rollback() {
+        try {
+            conn.rollback();
+        } catch (SQLException ex) {
+            logger.error("Error during rollback", ex);
+        }
+    }
+
+    private void resetAutoCommit() {
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            logger.error("Error resetting auto-commit", e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.dao.impl;
+
+import org.example.dao.StockSummaryDAO;
+import org.example.model.CatalogStockSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Catalog-wide stock summary built with one aggregate query.
+ * Batches are grouped once per item in a derived table (served by the
+ * item/shelf-flag/quantity index) and joined to shelf and website rows,
+ * so a page costs one round trip regardless of catalog size.
+ */
+public class StockSummaryDAOImpl implements StockSummaryDAO {
+    private static final Logger logger = LoggerFactory.getLogger(StockSummaryDAOImpl.class);
+
+    private static final String SUMMARY_SQL = """
+            SELECT i.item_code, i.name,
+                   COALESCE(s.quantity, 0) + COALESCE(ss.quantity, 0) AS shelf_qty,
+                   COALESCE(w.quantity, 0) AS website_qty,
+                   COALESCE(b.warehouse_qty, 0) AS warehouse_qty,
+                   COALESCE(b.batch_count, 0) AS batch_count,
+                   COALESCE(b.warehouse_batch_count, 0) AS warehouse_batch_count,
+                   COALESCE(s.quantity, 0) + COALESCE(ss.quantity, 0) + COALESCE(w.quantity, 0)
+                       + COALESCE(b.warehouse_qty, 0) AS total_qty
+            FROM items i
+            LEFT JOIN shelf_stock s ON s.item_code = i.item_code
+            LEFT JOIN (
+                SELECT item_code, SUM(quantity) AS quantity FROM shelf_stock_slots GROUP BY item_code
+            ) ss ON ss.item_code = i.item_code
+            LEFT JOIN website_inventory w ON w.item_code = i.item_code
+            LEFT JOIN (
+                SELECT item_code,
+                       SUM(CASE WHEN is_moved_to_shelf = FALSE AND quantity > 0 THEN quantity ELSE 0 END) AS warehouse_qty,
+                       COUNT(*) AS batch_count,
+                       SUM(CASE WHEN is_moved_to_shelf = FALSE AND quantity > 0 THEN 1 ELSE 0 END) AS warehouse_batch_count
+                FROM stock_batches
+                GROUP BY item_code
+            ) b ON b.item_code = i.item_code
+            WHERE i.is_active = TRUE
+            """;
+
+    private Connection conn;
+
+    public StockSummaryDAOImpl(Connection conn) {
+        this.conn = conn;
+    }
+
+    @Override
+    public List<CatalogStockSummary> getStockSummaries(SortField sortField, boolean ascending, int offset, int limit) {
+        List<CatalogStockSummary> summaries = new ArrayList<>();
+        // Sort column comes from the enum only; item code breaks ties so pages are stable
+        String sql = SUMMARY_SQL + "ORDER BY " + sortColumn(sortField) + (ascending ? " ASC" : " DESC")
+                + ", i.item_code LIMIT ? OFFSET ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, limit);
+            ps.setInt(2, offset);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                summaries.add(new CatalogStockSummary(
+                        rs.getString("item_code"),
+                        rs.getString("name"),
+                        rs.getInt("shelf_qty"),
+                        rs.getInt("website_qty"),
+                        rs.getInt("warehouse_qty"),
+                        rs.getInt("batch_count"),
+                        rs.getInt("warehouse_batch_count")
+                ));
+            }
+        } catch (SQLException e) {
+            logger.error("Error fetching catalog stock summary", e);
+            throw new RuntimeException("Failed to fetch catalog stock summary", e);
+        }
+        return summaries;
+    }
+
+    @Override
+    public int countItems() {
+        String sql = "SELECT COUNT(*) FROM items WHERE is_active = TRUE";
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            // A page must not be shown as "0 items" because the count failed
+            logger.error("Error counting catalog items", e);
+            throw new RuntimeException("Failed to count catalog items", e);
+        }
+    }
+
+    private static String sortColumn(SortField sortField) {
+        switch (sortField) {
+            case NAME:
+                return "i.name";
+            case SHELF:
+                return "shelf_qty";
+            case WEBSITE:
+                return "website_qty";
+            case WAREHOUSE:
+                return "warehouse_qty";
+            case TOTAL:
+                return "total_qty";
+            case BATCHES:
+                return "batch_count";
+            case ITEM_CODE:
+            default:
+                return "i.item_code";
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package org.example.dao.impl;
+
+import org.example.dao.StockTransferDAO;
+import org.example.model.MovementType;
+import org.example.model.OutboxEvent;
+import org.example.model.StockLocation;
+import org.example.model.StockTransfer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Moves stock between shelf_stock and website_inventory with relative updates.
+ * Both sides change in one transaction, so a concurrent sale can never be overwritten,
+ * and a missing destination row is created on the fly.
+ */
+public class StockTransferDAOImpl implements StockTransferDAO {
+    private static final Logger logger = LoggerFactory.getLogger(StockTransferDAOImpl.class);
+    private static final int LOCK_CHUNK_SIZE = 500;
+
+    private static final String REDUCE_SHELF_SQL =
+            "UPDATE shelf_stock SET quantity = quantity - ? WHERE item_code = ? AND quantity >= ?";
+    private static final String REDUCE_WEBSITE_SQL =
+            "UPDATE website_inventory SET quantity = quantity - ? WHERE item_code = ? AND quantity >= ?";
+    private static final String ADD_SHELF_SQL =
+            "INSERT INTO shelf_stock (item_code, quantity) VALUES (?, ?) ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)";
+    private static final String ADD_WEBSITE_SQL =
+            "INSERT INTO website_inventory (item_code, quantity) VALUES (?, ?) ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)";
+
+    private Connection conn;
+    private final TransactionExecutor transactions;
+
+    public StockTransferDAOImpl(Connection conn) {
+        this.conn = conn;
+        this.transactions = new TransactionExecutor(conn);
+    }
+
+    @Override
+    public boolean transferStock(StockTransfer transfer) {
+        if (transfer.getQuantity() <= 0) {
+            return false;
+        }
+        String reduceSql = transfer.isFromShelfToWebsite() ? REDUCE_SHELF_SQL : REDUCE_WEBSITE_SQL;
+        String addSql = transfer.isFromShelfToWebsite() ? ADD_WEBSITE_SQL : ADD_SHELF_SQL;
+        Set<String> itemCode = Set.of(transfer.getItemCode());
+
+        return transactions.execute("transfer stock", () -> {
+            // Same lock order as a plan, shelf row then website row, whichever way the stock moves
+            Map<String, Integer> shelf = lockQuantities("shelf_stock", itemCode);
+            Map<String, Integer> website = lockQuantities("website_inventory", itemCode);
+            Map<String, Integer> source = transfer.isFromShelfToWebsite() ? shelf : website;
+            if (source.getOrDefault(transfer.getItemCode(), 0) < transfer.getQuantity()) {
+                logger.warn("Insufficient stock for transfer: {}", transfer);
+                return false;
+            }
+
+            try (PreparedStatement reduce = conn.prepareStatement(reduceSql)) {
+                reduce.setInt(1, transfer.getQuantity());
+                reduce.setString(2, transfer.getItemCode());
+                reduce.setInt(3, transfer.getQuantity());
+                if (reduce.executeUpdate() == 0) {
+                    logger.warn("Insufficient stock for transfer: {}", transfer);
+                    return false;
+                }
+            }
+
+            try (PreparedStatement add = conn.prepareStatement(addSql)) {
+                add.setString(1, transfer.getItemCode());
+                add.setInt(2, transfer.getQuantity());
+                add.executeUpdate();
+            }
+
+            OutboxDAOImpl.insert(conn, transferEvents(List.of(transfer)));
+            logger.debug("Stock transferred: {}", transfer);
+            return true;
+        });
+    }
+
+    /**
+     * Apply a whole rebalancing plan in one transaction.
+     * Source rows are locked in item code order and lines are checked in plan order, so a line
+     * may move stock an earlier line brought in; lines that cannot be covered are skipped.
+     * The applied moves are netted per item and location and sent as JDBC batches. If any batched statement changes
+     * no row the whole plan is rolled back, so a missed reduction can never leave its add behind.
+     *
+     * @return the lines that were applied, none if the plan was rolled back
+     */
+    @Override
+    public List<StockTransfer> transferStock(List<StockTransfer> plan) {
+        List<StockTransfer> applied = new ArrayList<>();
+        Set<String> itemCodes = new TreeSet<>();
+        for (StockTransfer transfer : plan) {
+            if (transfer.getQuantity() > 0) {
+                itemCodes.add(transfer.getItemCode());
+            }
+        }
+        if (itemCodes.isEmpty()) {
+            return applied;
+        }
+
+        boolean committed = transactions.execute("apply stock transfer plan", () -> {
+            // A retried attempt starts over from freshly locked quantities
+            applied.clear();
+
+            // Canonical lock order (shelf then website, each by item code) keeps concurrent plans deadlock-free
+            Map<String, Integer> shelf = lockQuantities("shelf_stock", itemCodes);
+            Map<String, Integer> website = lockQuantities("website_inventory", itemCodes);
+
+            // Lines are checked in plan order, so a line may use stock an earlier line moved;
+            // the tables then get one net change per item and location
+            Map<String, Integer> shelfNet = new TreeMap<>();
+            Map<String, Integer> websiteNet = new TreeMap<>();
+            for (StockTransfer transfer : plan) {
+                int quantity = transfer.getQuantity();
+                if (quantity <= 0) {
+                    continue;
+                }
+                Map<String, Integer> source = transfer.isFromShelfToWebsite() ? shelf : website;
+                Map<String, Integer> target = transfer.isFromShelfToWebsite() ? website : shelf;
+                int available = source.getOrDefault(transfer.getItemCode(), 0);
+                if (available < quantity) {
+                    logger.warn("Skipping transfer, insufficient stock: {} (available {})", transfer, available);
+                    continue;
+                }
+                source.put(transfer.getItemCode(), available - quantity);
+                target.merge(transfer.getItemCode(), quantity, Integer::sum);
+
+                int shelfDelta = transfer.isFromShelfToWebsite() ? -quantity : quantity;
+                shelfNet.merge(transfer.getItemCode(), shelfDelta, Integer::sum);
+                websiteNet.merge(transfer.getItemCode(), -shelfDelta, Integer::sum);
+                applied.add(transfer);
+            }
+
+            try (PreparedStatement reduceShelf = conn.prepareStatement(REDUCE_SHELF_SQL);
+                 PreparedStatement reduceWebsite = conn.prepareStatement(REDUCE_WEBSITE_SQL);
+                 PreparedStatement addShelf = conn.prepareStatement(ADD_SHELF_SQL);
+                 PreparedStatement addWebsite = conn.prepareStatement(ADD_WEBSITE_SQL)) {
+
+                addNetChanges(shelfNet, reduceShelf, addShelf);
+                addNetChanges(websiteNet, reduceWebsite, addWebsite);
+
+                if (!allRowsChanged(reduceShelf.executeBatch(), "shelf reduction")
+                        || !allRowsChanged(reduceWebsite.executeBatch(), "website reduction")
+                        || !allRowsChanged(addShelf.executeBatch(), "shelf addition")
+                        || !allRowsChanged(addWebsite.executeBatch(), "website addition")) {
+                    return false;
+                }
+            }
+
+            OutboxDAOImpl.insert(conn, transferEvents(applied));
+            return true;
+        });
+
+        if (!committed) {
+            logger.warn("Stock transfer plan rolled back: {} lines", plan.size());
+            return new ArrayList<>();
+        }
+        logger.info("Stock transfer plan applied: {} of {} lines", applied.size(), plan.size());
+        return applied;
+    }
+
+    /**
+     * Batch each item's net change to one location: a reduction where it loses stock, an addition where it gains
+     */
+    private static void addNetChanges(Map<String, Integer> net, PreparedStatement reduce, PreparedStatement add)
+            throws SQLException {
+        for (Map.Entry<String, Integer> change : net.entrySet()) {
+            int delta = change.getValue();
+            if (delta < 0) {
+                reduce.setInt(1, -delta);
+                reduce.setString(2, change.getKey());
+                reduce.setInt(3, -delta);
+                reduce.addBatch();
+            } else if (delta > 0) {
+                add.setString(1, change.getKey());
+                add.setInt(2, delta);
+                add.addBatch();
+            }
+        }
+    }
+
+    /**
+     * Whether every statement of a batch changed a row. Each line was checked against its locked row,
+     * so a zero here means the table disagrees with the plan and nothing of it may commit.
+     */
+    static boolean allRowsChanged(int[] counts, String step) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0 || counts[i] == Statement.EXECUTE_FAILED) {
+                logger.warn("Stock transfer plan {} {} of {} changed no row", step, i + 1, counts.length);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<String, Integer> lockQuantities(String table, Set<String> itemCodes) throws SQLException {
+        Map<String, Integer> quantities = new HashMap<>();
+        List<String> codes = new ArrayList<>(itemCodes);
+        for (int from = 0; from < codes.size(); from += LOCK_CHUNK_SIZE) {
+            List<String> chunk = codes.subList(from, Math.min(from + LOCK_CHUNK_SIZE, codes.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            String sql = "SELECT item_code, quantity FROM " + table
+                    + " WHERE item_code IN (" + placeholders + ") ORDER BY item_code FOR UPDATE";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setString(i + 1, chunk.get(i));
+                }
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    quantities.put(rs.getString("item_code"), rs.getInt("quantity"));
+                }
+            }
+        }
+        return quantities;
+    }
+
+    private static List<OutboxEvent> transferEvents(List<StockTransfer> transfers) {
+        List<OutboxEvent> events = new ArrayList<>(transfers.size() * 2);
+        for (StockTransfer transfer : transfers) {
+            StockLocation from = transfer.isFromShelfToWebsite() ? StockLocation.SHELF : StockLocation.WEBSITE;
+            StockLocation to = transfer.isFromShelfToWebsite() ? StockLocation.WEBSITE : StockLocation.SHELF;
+            events.add(OutboxDAOImpl.stockMoved(transfer.getItemCode(), from, MovementType.TRANSFER, -transfer.getQuantity()));
+            events.add(OutboxDAOImpl.stockMoved(transfer.getItemCode(), to, MovementType.TRANSFER, transfer.getQuantity()));
+        }
+        return events;
+    }
+}
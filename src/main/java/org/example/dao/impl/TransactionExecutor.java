@@ -0,0 +1,196 @@
+package org.example.dao.impl;
+
+import org.example.config.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs JDBC work in a transaction on one connection and retries it when MySQL picks it as
+ * a deadlock victim or it times out waiting for a row lock. Both leave nothing committed,
+ * so the whole unit of work is simply run again after a short jittered backoff.
+ * Callers still lock rows in a fixed order; the retry covers what ordering cannot,
+ * e.g. gap locks or statements outside our control.
+ */
+public class TransactionExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionExecutor.class);
+
+    // MySQL error codes
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    private static final String SQLSTATE_SERIALIZATION_FAILURE = "40001";
+
+    private static final Stats stats = new Stats();
+
+    private final Connection conn;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public TransactionExecutor(Connection conn) {
+        this(conn,
+                ConfigManager.getInstance().getIntProperty("db.retry.maxAttempts", 5),
+                ConfigManager.getInstance().getIntProperty("db.retry.baseBackoffMillis", 10),
+                ConfigManager.getInstance().getIntProperty("db.retry.maxBackoffMillis", 200));
+    }
+
+    public TransactionExecutor(Connection conn, int maxAttempts, long baseBackoffMillis, long maxBackoffMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.conn = conn;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * Work run inside the transaction. Return false to roll it back, e.g. when stock is short.
+     */
+    @FunctionalInterface
+    public interface TransactionWork {
+        boolean run() throws SQLException;
+    }
+
+    /**
+     * Run the work, committing if it returns true
+     *
+     * @param operation what the work does, used in log and error messages ("reduce shelf stock")
+     * @return whether the work was committed
+     */
+    public boolean execute(String operation, TransactionWork work) {
+        for (int attempt = 1; ; attempt++) {
+            stats.attempts.increment();
+            try {
+                conn.setAutoCommit(false);
+                boolean commit = work.run();
+                if (commit) {
+                    conn.commit();
+                } else {
+                    conn.rollback();
+                }
+                return commit;
+            } catch (SQLException e) {
+                rollback();
+                Conflict conflict = classify(e);
+                if (conflict == null) {
+                    logger.error("Error trying to " + operation, e);
+                    throw new RuntimeException("Failed to " + operation, e);
+                }
+                stats.record(conflict);
+                if (attempt >= maxAttempts) {
+                    stats.exhausted.increment();
+                    logger.error("Gave up trying to " + operation + " after " + attempt + " attempts", e);
+                    throw new RuntimeException("Failed to " + operation + " after " + attempt + " attempts", e);
+                }
+                stats.retries.increment();
+                long backoff = backoff(attempt);
+                logger.warn("{} while trying to {} (attempt {}), retrying in {} ms", conflict, operation, attempt, backoff);
+                sleep(backoff, operation, e);
+            } finally {
+                resetAutoCommit();
+            }
+        }
+    }
+
+    /**
+     * Tell lock conflicts that are safe to retry from other errors
+     *
+     * @return the conflict, or null if the error is not one
+     */
+    public static Conflict classify(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (!(t instanceof SQLException)) {
+                continue;
+            }
+            for (SQLException sql = (SQLException) t; sql != null; sql = sql.getNextException()) {
+                if (sql.getErrorCode() == ER_LOCK_DEADLOCK || SQLSTATE_SERIALIZATION_FAILURE.equals(sql.getSQLState())) {
+                    return Conflict.DEADLOCK;
+                }
+                if (sql.getErrorCode() == ER_LOCK_WAIT_TIMEOUT) {
+                    return Conflict.LOCK_WAIT_TIMEOUT;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retry counters shared by all executors
+     */
+    public static Stats getStats() {
+        return stats;
+    }
+
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 20));
+        // Equal jitter: lanes that collided do not come back at the same moment
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private void sleep(long millis, String operation, SQLException cause) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying to " + operation, cause);
+        }
+    }
+
+    private void rollback() {
+        try {
+            conn.rollback();
+        } catch (SQLException ex) {
+            logger.error("Error during rollback", ex);
+        }
+    }
+
+    private void resetAutoCommit() {
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            logger.error("Error resetting auto-commit", e);
+        }
+    }
+
+    public enum Conflict {
+        DEADLOCK,
+        LOCK_WAIT_TIMEOUT
+    }
+
+    /**
+     * Inner class for retry counters
+     */
+    public static class Stats {
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder deadlocks = new LongAdder();
+        private final LongAdder lockWaitTimeouts = new LongAdder();
+        private final LongAdder exhausted = new LongAdder();
+
+        private void record(Conflict conflict) {
+            if (conflict == Conflict.DEADLOCK) {
+                deadlocks.increment();
+            } else {
+                lockWaitTimeouts.increment();
+            }
+        }
+
+        // Getters
+        public long getAttempts() { return attempts.sum(); }
+        public long getRetries() { return retries.sum(); }
+        public long getDeadlocks() { return deadlocks.sum(); }
+        public long getLockWaitTimeouts() { return lockWaitTimeouts.sum(); }
+        public long getExhausted() { return exhausted.sum(); }
+
+        @Override
+        public String toString() {
+            return String.format("TransactionStats{attempts=%d, retries=%d, deadlocks=%d, lockWaitTimeouts=%d, exhausted=%d}",
+                    getAttempts(), getRetries(), getDeadlocks(), getLockWaitTimeouts(), getExhausted());
+        }
+    }
+}
@@ -2,6 +2,7 @@
 package org.example.dao.impl;
 
 import org.example.dao.WebsiteInventoryDAO;
+import org.example.model.StockLocation;
 import org.example.model.WebsiteInventory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,10 +12,19 @@ import java.util.*;
 
 public class WebsiteInventoryDAOImpl implements WebsiteInventoryDAO {
     private static final Logger logger = LoggerFactory.getLogger(WebsiteInventoryDAOImpl.class);
+    private static final String REDUCE_BATCH_SQL =
+            "UPDATE website_inventory SET quantity = quantity - ? WHERE item_code = ? AND quantity >= ?";
+    private static final String ADD_BATCH_SQL =
+            "INSERT INTO website_inventory (item_code, quantity) VALUES (?, ?) ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)";
+
     private Connection conn;
+    private final TransactionExecutor transactions;
+    private final StatementCache statements;
 
     public WebsiteInventoryDAOImpl(Connection conn) {
         this.conn = conn;
+        this.transactions = new TransactionExecutor(conn);
+        this.statements = StatementCache.of(conn);
     }
 
     @Override
@@ -112,4 +122,92 @@ public class WebsiteInventoryDAOImpl implements WebsiteInventoryDAO {
             throw new RuntimeException("Failed to reduce website inventory", e);
         }
     }
-}
+
+    @Override
+    public boolean reduceWebsiteInventoryBatch(Map<String, Integer> quantities, String checkoutRef) {
+        // Rows are always locked in item code order, so overlapping baskets cannot deadlock each other
+        SortedMap<String, Integer> ordered = new TreeMap<>(quantities);
+        return transactions.execute("reduce website inventory", () -> {
+            try (StatementCache.Lease lease = statements.prepare(REDUCE_BATCH_SQL)) {
+                PreparedStatement ps = lease.statement();
+                for (Map.Entry<String, Integer> entry : ordered.entrySet()) {
+                    ps.setInt(1, entry.getValue());
+                    ps.setString(2, entry.getKey());
+                    ps.setInt(3, entry.getValue());
+                    if (ps.executeUpdate() == 0) {
+                        logger.warn("Insufficient website inventory for item: {}. Requested: {}", entry.getKey(), entry.getValue());
+                        return false;
+                    }
+                }
+            }
+            OutboxDAOImpl.insert(conn, OutboxDAOImpl.stockSold(ordered, StockLocation.WEBSITE), checkoutRef);
+            logger.debug("Website inventory reduced for {} items", ordered.size());
+            return true;
+        });
+    }
+
+    @Override
+    public void saveWebsiteInventoryBatch(Map<String, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO website_inventory (item_code, quantity) VALUES (?, ?) ON DUPLICATE KEY UPDATE quantity = VALUES(quantity)";
+        try {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+                    ps.setString(1, entry.getKey());
+                    ps.setInt(2, entry.getValue());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+            logger.debug("Saved website inventory for {} items", quantities.size());
+        } catch (SQLException e) {
+            rollback();
+            logger.error("Error saving website inventory batch", e);
+            throw new RuntimeException("Failed to save website inventory", e);
+        } finally {
+            resetAutoCommit();
+        }
+    }
+
+    @Override
+    public void addWebsiteInventoryBatch(Map<String, Integer> quantities, String checkoutRef) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        // Same item code lock order as a reduction
+        SortedMap<String, Integer> ordered = new TreeMap<>(quantities);
+        transactions.execute("add website inventory", () -> {
+            try (StatementCache.Lease lease = statements.prepare(ADD_BATCH_SQL)) {
+                PreparedStatement ps = lease.statement();
+                for (Map.Entry<String, Integer> entry : ordered.entrySet()) {
+                    ps.setString(1, entry.getKey());
+                    ps.setInt(2, entry.getValue());
+                    ps.executeUpdate();
+                }
+            }
+            OutboxDAOImpl.insert(conn, OutboxDAOImpl.saleReversed(ordered, StockLocation.WEBSITE), checkoutRef);
+            logger.debug("Website inventory added for {} items", ordered.size());
+            return true;
+        });
+    }
+
+    private void rollback() {
+        try {
+            conn.rollback();
+        } catch (SQLException ex) {
+            logger.error("Error during rollback", ex);
+        }
+    }
+
+    private void resetAutoCommit() {
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            logger.error("Error resetting auto-commit", e);
+        }
+    }
+}
\ No newline at end of file
@@ -6,6 +6,7 @@ import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Supplier;
 
 public class Bill {
     private int billId;
@@ -19,6 +20,8 @@ public class Bill {
     private TransactionType transactionType;
     private BillStatus status;
     private List<BillItem> items;
+    private Supplier<List<BillItem>> lineLoader;
+    private String customerName;
     private LocalDateTime createdAt;
 
     public enum BillStatus {
@@ -57,8 +60,29 @@ public class Bill {
         calculateTotals();
     }
 
+    /**
+     * Header-only bill for list screens: the totals are the stored ones and the lines are
+     * loaded by lineLoader the first time getItems() is called
+     */
+    public Bill(int billId, int serialNumber, Date billDate, int customerId, double totalAmount, double discount,
+            double cashReceived, double changeAmount, TransactionType transactionType,
+            Supplier<List<BillItem>> lineLoader) {
+        this.billId = billId;
+        this.serialNumber = serialNumber;
+        this.billDate = billDate;
+        this.customerId = customerId;
+        this.totalAmount = totalAmount;
+        this.discount = discount;
+        this.cashReceived = cashReceived;
+        this.changeAmount = changeAmount;
+        this.transactionType = transactionType;
+        this.lineLoader = lineLoader;
+        this.status = BillStatus.COMPLETED;
+        this.createdAt = LocalDateTime.now();
+    }
+
     private void calculateTotals() {
-        double subtotal = items.stream()
+        double subtotal = getItems().stream()
                 .mapToDouble(item -> item.getTotalPrice())
                 .sum();
 
@@ -121,13 +145,32 @@ public class Bill {
     }
 
     public List<BillItem> getItems() {
+        if (items == null) {
+            items = lineLoader.get();
+            lineLoader = null;
+        }
         return items;
     }
 
+    public boolean isItemsLoaded() {
+        return items != null;
+    }
+
+    /**
+     * @return the customer's name when the bill was read with it, otherwise null
+     */
+    public String getCustomerName() {
+        return customerName;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
 
+    public void setCustomerName(String customerName) {
+        this.customerName = customerName;
+    }
+
     public void setStatus(BillStatus status) {
         this.status = status;
     }
@@ -0,0 +1,110 @@
+package org.example.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * Items scanned for one checkout, resolved once at scan time.
+ * Money is kept in cents so the running subtotal is exact; scanning a code that is
+ * already in the cart merges into its line and adjusts the subtotal by the difference.
+ * Each line keeps the stock that was available when it was last checked.
+ */
+public class Cart {
+    private final TransactionType transactionType;
+    // Sent with every checkout attempt of this cart, so a retry is not billed twice
+    private final String requestToken = UUID.randomUUID().toString();
+    private final Map<String, Line> lines = new LinkedHashMap<>();
+    private long subtotalCents;
+
+    public Cart(TransactionType transactionType) {
+        this.transactionType = transactionType;
+    }
+
+    /**
+     * Add a resolved item, merging with an existing line for the same code
+     *
+     * @param available stock available for the item when it was checked
+     */
+    public void add(Item item, int quantity, int available) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + item.getItemCode());
+        }
+        Line line = lines.computeIfAbsent(item.getItemCode(), code -> new Line(item));
+        subtotalCents -= line.getTotalCents();
+        line.quantity += quantity;
+        line.available = available;
+        subtotalCents += line.getTotalCents();
+    }
+
+    public int getQuantity(String itemCode) {
+        Line line = lines.get(itemCode);
+        return line == null ? 0 : line.quantity;
+    }
+
+    /**
+     * Stock available for the item when it was last checked, or -1 if it is not in the cart
+     */
+    public int getAvailableSnapshot(String itemCode) {
+        Line line = lines.get(itemCode);
+        return line == null ? -1 : line.available;
+    }
+
+    public Optional<Item> getItem(String itemCode) {
+        return Optional.ofNullable(lines.get(itemCode)).map(line -> line.item);
+    }
+
+    /**
+     * Bill lines with the names and prices resolved at scan time
+     */
+    public List<BillItem> toBillItems() {
+        List<BillItem> items = new ArrayList<>(lines.size());
+        for (Line line : lines.values()) {
+            items.add(new BillItem(line.item.getItemCode(), line.item.getName(), line.quantity, line.item.getPrice()));
+        }
+        return items;
+    }
+
+    public static long toCents(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    public static double fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2).doubleValue();
+    }
+
+    // Getters
+    public TransactionType getTransactionType() { return transactionType; }
+    public String getRequestToken() { return requestToken; }
+    public Collection<Line> getLines() { return Collections.unmodifiableCollection(lines.values()); }
+    public long getSubtotalCents() { return subtotalCents; }
+    public double getSubtotal() { return fromCents(subtotalCents); }
+    public boolean isEmpty() { return lines.isEmpty(); }
+
+    @Override
+    public String toString() {
+        return String.format("Cart{type=%s, lines=%d, subtotal=%.2f}", transactionType, lines.size(), getSubtotal());
+    }
+
+    /**
+     * Inner class for one cart line
+     */
+    public static class Line {
+        private final Item item;
+        private final long unitPriceCents;
+        private int quantity;
+        private int available;
+
+        private Line(Item item) {
+            this.item = item;
+            this.unitPriceCents = toCents(item.getPrice());
+        }
+
+        // Getters
+        public String getItemCode() { return item.getItemCode(); }
+        public String getItemName() { return item.getName(); }
+        public int getQuantity() { return quantity; }
+        public long getUnitPriceCents() { return unitPriceCents; }
+        public long getTotalCents() { return unitPriceCents * quantity; }
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.model;
+
+/**
+ * Stock position of one catalog item across shelf, website and warehouse
+ */
+public class CatalogStockSummary {
+    private final String itemCode;
+    private final String itemName;
+    private final int shelfQuantity;
+    private final int websiteQuantity;
+    private final int warehouseQuantity;
+    private final int batchCount;
+    private final int warehouseBatchCount;
+
+    public CatalogStockSummary(String itemCode, String itemName, int shelfQuantity, int websiteQuantity,
+                               int warehouseQuantity, int batchCount, int warehouseBatchCount) {
+        this.itemCode = itemCode;
+        this.itemName = itemName;
+        this.shelfQuantity = shelfQuantity;
+        this.websiteQuantity = websiteQuantity;
+        this.warehouseQuantity = warehouseQuantity;
+        this.batchCount = batchCount;
+        this.warehouseBatchCount = warehouseBatchCount;
+    }
+
+    // Getters
+    public String getItemCode() { return itemCode; }
+    public String getItemName() { return itemName; }
+    public int getShelfQuantity() { return shelfQuantity; }
+    public int getWebsiteQuantity() { return websiteQuantity; }
+    public int getWarehouseQuantity() { return warehouseQuantity; }
+    public int getTotalQuantity() { return shelfQuantity + websiteQuantity + warehouseQuantity; }
+    public int getBatchCount() { return batchCount; }
+    public int getWarehouseBatchCount() { return warehouseBatchCount; }
+
+    @Override
+    public String toString() {
+        return String.format("CatalogStockSummary{item='%s', shelf=%d, website=%d, warehouse=%d, batches=%d}",
+                itemCode, shelfQuantity, websiteQuantity, warehouseQuantity, batchCount);
+    }
+}
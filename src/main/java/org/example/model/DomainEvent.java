@@ -0,0 +1,87 @@
+package org.example.model;
+
+/**
+ * One slot of the domain event ring buffer.
+ * Slots are allocated once and refilled for every event, so a handler must copy what it needs
+ * and not keep the event after it returns. Only the fields of the event's type are set.
+ */
+public class DomainEvent {
+
+    public enum Type {
+        BILL_COMMITTED,
+        STOCK_CHANGED,
+        ITEM_UPDATED
+    }
+
+    private Type type;
+    private long timestamp;
+    private int billId;
+    private int serialNumber;
+    private TransactionType transactionType;
+    private double totalAmount;
+    private String itemCode;
+    private StockLocation location;
+    private MovementType movementType;
+    private int quantityDelta;
+    private Item item;
+
+    public void setBillCommitted(int billId, int serialNumber, TransactionType transactionType, double totalAmount) {
+        reset(Type.BILL_COMMITTED);
+        this.billId = billId;
+        this.serialNumber = serialNumber;
+        this.transactionType = transactionType;
+        this.totalAmount = totalAmount;
+    }
+
+    public void setStockChanged(String itemCode, StockLocation location, MovementType movementType, int quantityDelta) {
+        reset(Type.STOCK_CHANGED);
+        this.itemCode = itemCode;
+        this.location = location;
+        this.movementType = movementType;
+        this.quantityDelta = quantityDelta;
+    }
+
+    public void setItemUpdated(Item item) {
+        reset(Type.ITEM_UPDATED);
+        this.itemCode = item.getItemCode();
+        this.item = item;
+    }
+
+    private void reset(Type type) {
+        this.type = type;
+        this.timestamp = System.currentTimeMillis();
+        this.billId = 0;
+        this.serialNumber = 0;
+        this.transactionType = null;
+        this.totalAmount = 0;
+        this.itemCode = null;
+        this.location = null;
+        this.movementType = null;
+        this.quantityDelta = 0;
+        this.item = null;
+    }
+
+    // Getters
+    public Type getType() { return type; }
+    public long getTimestamp() { return timestamp; }
+    public int getBillId() { return billId; }
+    public int getSerialNumber() { return serialNumber; }
+    public TransactionType getTransactionType() { return transactionType; }
+    public double getTotalAmount() { return totalAmount; }
+    public String getItemCode() { return itemCode; }
+    public StockLocation getLocation() { return location; }
+    public MovementType getMovementType() { return movementType; }
+    public int getQuantityDelta() { return quantityDelta; }
+    public Item getItem() { return item; }
+
+    @Override
+    public String toString() {
+        return switch (type) {
+            case BILL_COMMITTED -> String.format("BillCommitted{bill=%d, serial=%d, %s, %.2f}",
+                    billId, serialNumber, transactionType, totalAmount);
+            case STOCK_CHANGED -> String.format("StockChanged{item='%s', %s %s %+d}",
+                    itemCode, movementType, location, quantityDelta);
+            case ITEM_UPDATED -> String.format("ItemUpdated{item='%s'}", itemCode);
+        };
+    }
+}
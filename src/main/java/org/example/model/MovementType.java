@@ -0,0 +1,12 @@
+package org.example.model;
+
+/**
+ * Reason for a stock movement recorded in the ledger
+ */
+public enum MovementType {
+    RECEIVE,
+    RESHELVE,
+    TRANSFER,
+    SALE,
+    WRITE_OFF
+}
@@ -0,0 +1,51 @@
+package org.example.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An in-store sale taken while the database was unreachable, waiting to be billed.
+ * Lines carry the cached prices the customer paid. The bill and its serial number are
+ * created when the sale is replayed; until then the offline receipt number identifies it.
+ */
+public class OfflineSale {
+    private final String requestToken;
+    private final long offlineNumber;
+    private final long soldAt;
+    private final String customerPhone;
+    private final String customerName;
+    private final long cashReceivedCents;
+    private final long discountCents;
+    private final List<BillItem> items;
+
+    public OfflineSale(String requestToken, long offlineNumber, long soldAt, String customerPhone,
+                       String customerName, long cashReceivedCents, long discountCents, List<BillItem> items) {
+        this.requestToken = requestToken;
+        this.offlineNumber = offlineNumber;
+        this.soldAt = soldAt;
+        this.customerPhone = customerPhone;
+        this.customerName = customerName;
+        this.cashReceivedCents = cashReceivedCents;
+        this.discountCents = discountCents;
+        this.items = List.copyOf(items);
+    }
+
+    public String getReceiptNumber() {
+        return String.format("OFF-%06d", offlineNumber);
+    }
+
+    // Getters
+    public String getRequestToken() { return requestToken; }
+    public long getOfflineNumber() { return offlineNumber; }
+    public long getSoldAt() { return soldAt; }
+    public String getCustomerPhone() { return customerPhone; }
+    public String getCustomerName() { return customerName; }
+    public long getCashReceivedCents() { return cashReceivedCents; }
+    public long getDiscountCents() { return discountCents; }
+    public List<BillItem> getItems() { return Collections.unmodifiableList(items); }
+
+    @Override
+    public String toString() {
+        return String.format("OfflineSale{receipt=%s, token=%s, items=%d}", getReceiptNumber(), requestToken, items.size());
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.model;
+
+import java.util.Date;
+
+/**
+ * An event written to the outbox in the same transaction as the change it describes
+ */
+public class OutboxEvent {
+    public static final String BILL_CREATED = "BILL_CREATED";
+    public static final String STOCK_MOVED = "STOCK_MOVED";
+
+    private final long eventId;
+    private final String eventType;
+    private final String aggregateId;
+    private final String payload;
+    private final Date createdAt;
+
+    public OutboxEvent(String eventType, String aggregateId, String payload) {
+        this(0, eventType, aggregateId, payload, new Date());
+    }
+
+    public OutboxEvent(long eventId, String eventType, String aggregateId, String payload, Date createdAt) {
+        this.eventId = eventId;
+        this.eventType = eventType;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    // Getters
+    public long getEventId() { return eventId; }
+    public String getEventType() { return eventType; }
+    public String getAggregateId() { return aggregateId; }
+    public String getPayload() { return payload; }
+    public Date getCreatedAt() { return createdAt; }
+
+    @Override
+    public String toString() {
+        return String.format("OutboxEvent{id=%d, type=%s, aggregate='%s'}", eventId, eventType, aggregateId);
+    }
+}
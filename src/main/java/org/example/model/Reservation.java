@@ -0,0 +1,31 @@
+package org.example.model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Quantities held against website inventory for one online order until it expires
+ */
+public class Reservation {
+    private final long reservationId;
+    private final Map<String, Integer> quantities;
+    private final long expiresAt;
+
+    public Reservation(long reservationId, Map<String, Integer> quantities, long expiresAt) {
+        this.reservationId = reservationId;
+        // Sorted by item code, which is also the order item holds are locked in
+        this.quantities = Collections.unmodifiableMap(new TreeMap<>(quantities));
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters
+    public long getReservationId() { return reservationId; }
+    public Map<String, Integer> getQuantities() { return quantities; }
+    public long getExpiresAt() { return expiresAt; }
+
+    @Override
+    public String toString() {
+        return String.format("Reservation{id=%d, items=%s, expiresAt=%d}", reservationId, quantities, expiresAt);
+    }
+}
@@ -50,6 +50,7 @@ public class StockBatch {
     public LocalDateTime getCreatedAt() { return createdAt; }
 
     // Setters
+    public void setBatchId(int batchId) { this.batchId = batchId; }
     public void setQuantity(int quantity) { this.quantity = quantity; }
     public void setSupplierName(String supplierName) { this.supplierName = supplierName; }
     public void setPurchasePrice(double purchasePrice) { this.purchasePrice = purchasePrice; }
@@ -0,0 +1,23 @@
+package org.example.model;
+
+import java.util.Date;
+
+/**
+ * Header of a ledger snapshot: positions of every item after a given movement
+ */
+public class StockLedgerSnapshot {
+    private final long snapshotId;
+    private final Date takenAt;
+    private final long lastMovementId;
+
+    public StockLedgerSnapshot(long snapshotId, Date takenAt, long lastMovementId) {
+        this.snapshotId = snapshotId;
+        this.takenAt = takenAt;
+        this.lastMovementId = lastMovementId;
+    }
+
+    // Getters
+    public long getSnapshotId() { return snapshotId; }
+    public Date getTakenAt() { return takenAt; }
+    public long getLastMovementId() { return lastMovementId; }
+}
@@ -0,0 +1,10 @@
+package org.example.model;
+
+/**
+ * Where a quantity of stock is held
+ */
+public enum StockLocation {
+    SHELF,
+    WEBSITE,
+    WAREHOUSE
+}
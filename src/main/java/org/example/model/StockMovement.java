@@ -0,0 +1,58 @@
+package org.example.model;
+
+import java.util.Date;
+
+/**
+ * One append-only ledger entry: a signed quantity change at one location
+ */
+public class StockMovement {
+    private final long movementId;
+    private final long eventId;
+    private final String itemCode;
+    private final StockLocation location;
+    private final MovementType movementType;
+    private final int quantityDelta;
+    private final String reference;
+    private final Date movedAt;
+
+    public StockMovement(String itemCode, StockLocation location, MovementType movementType,
+                         int quantityDelta, String reference) {
+        this(0, itemCode, location, movementType, quantityDelta, reference, new Date());
+    }
+
+    public StockMovement(long movementId, String itemCode, StockLocation location, MovementType movementType,
+                         int quantityDelta, String reference, Date movedAt) {
+        this(movementId, 0, itemCode, location, movementType, quantityDelta, reference, movedAt);
+    }
+
+    /**
+     * @param eventId outbox event the movement is recorded from, so a redelivered event is recorded once
+     */
+    public StockMovement(long movementId, long eventId, String itemCode, StockLocation location,
+                         MovementType movementType, int quantityDelta, String reference, Date movedAt) {
+        this.movementId = movementId;
+        this.eventId = eventId;
+        this.itemCode = itemCode;
+        this.location = location;
+        this.movementType = movementType;
+        this.quantityDelta = quantityDelta;
+        this.reference = reference;
+        this.movedAt = movedAt;
+    }
+
+    // Getters
+    public long getMovementId() { return movementId; }
+    public long getEventId() { return eventId; }
+    public String getItemCode() { return itemCode; }
+    public StockLocation getLocation() { return location; }
+    public MovementType getMovementType() { return movementType; }
+    public int getQuantityDelta() { return quantityDelta; }
+    public String getReference() { return reference; }
+    public Date getMovedAt() { return movedAt; }
+
+    @Override
+    public String toString() {
+        return String.format("StockMovement{id=%d, item='%s', %s %s %+d, ref='%s'}",
+                movementId, itemCode, movementType, location, quantityDelta, reference);
+    }
+}
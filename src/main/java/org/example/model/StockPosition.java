@@ -0,0 +1,58 @@
+package org.example.model;
+
+/**
+ * Quantities of one item at each location, as rebuilt from the ledger
+ */
+public class StockPosition {
+    private final String itemCode;
+    private int shelfQuantity;
+    private int websiteQuantity;
+    private int warehouseQuantity;
+
+    public StockPosition(String itemCode) {
+        this(itemCode, 0, 0, 0);
+    }
+
+    public StockPosition(String itemCode, int shelfQuantity, int websiteQuantity, int warehouseQuantity) {
+        this.itemCode = itemCode;
+        this.shelfQuantity = shelfQuantity;
+        this.websiteQuantity = websiteQuantity;
+        this.warehouseQuantity = warehouseQuantity;
+    }
+
+    /**
+     * Apply a signed change at one location
+     */
+    public void apply(StockLocation location, int delta) {
+        switch (location) {
+            case SHELF:
+                shelfQuantity += delta;
+                break;
+            case WEBSITE:
+                websiteQuantity += delta;
+                break;
+            case WAREHOUSE:
+                warehouseQuantity += delta;
+                break;
+        }
+    }
+
+    public boolean sameQuantities(StockPosition other) {
+        return shelfQuantity == other.shelfQuantity
+                && websiteQuantity == other.websiteQuantity
+                && warehouseQuantity == other.warehouseQuantity;
+    }
+
+    // Getters
+    public String getItemCode() { return itemCode; }
+    public int getShelfQuantity() { return shelfQuantity; }
+    public int getWebsiteQuantity() { return websiteQuantity; }
+    public int getWarehouseQuantity() { return warehouseQuantity; }
+    public int getTotalQuantity() { return shelfQuantity + websiteQuantity + warehouseQuantity; }
+
+    @Override
+    public String toString() {
+        return String.format("StockPosition{item='%s', shelf=%d, website=%d, warehouse=%d}",
+                itemCode, shelfQuantity, websiteQuantity, warehouseQuantity);
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.model;
+
+/**
+ * One line of a stock movement between shelf and website inventory
+ */
+public class StockTransfer {
+    private final String itemCode;
+    private final int quantity;
+    private final boolean fromShelfToWebsite;
+
+    public StockTransfer(String itemCode, int quantity, boolean fromShelfToWebsite) {
+        this.itemCode = itemCode;
+        this.quantity = quantity;
+        this.fromShelfToWebsite = fromShelfToWebsite;
+    }
+
+    // Getters
+    public String getItemCode() { return itemCode; }
+    public int getQuantity() { return quantity; }
+    public boolean isFromShelfToWebsite() { return fromShelfToWebsite; }
+
+    @Override
+    public String toString() {
+        return String.format("StockTransfer{item='%s', qty=%d, direction=%s}",
+                itemCode, quantity, fromShelfToWebsite ? "shelf->website" : "website->shelf");
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.service;
+
+import org.example.config.ConfigManager;
+import org.example.dao.StockAvailabilityDAO;
+import org.example.model.TransactionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Short-lived snapshot of shelf and website quantities for basket scanning.
+ * Lookups only read memory. A background thread refreshes the snapshot with the rows
+ * changed since the previous refresh, and reloads everything now and then to drop
+ * deleted rows. Quantities can be a refresh behind, so checkout still checks atomically.
+ */
+public class AvailabilityService {
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityService.class);
+    // last_updated has one-second resolution and rows commit a little after they are stamped
+    private static final long OVERLAP_MILLIS = 2000;
+
+    private final StockAvailabilityDAO availabilityDAO;
+    private final long refreshMillis;
+    private final long fullRefreshMillis;
+    private final ConcurrentMap<String, Integer> shelf = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> website = new ConcurrentHashMap<>();
+    private volatile Date refreshedAt;
+    private volatile long refreshedAtMillis;
+    private long fullRefreshAtMillis;
+    private ScheduledExecutorService refresher;
+
+    public AvailabilityService(StockAvailabilityDAO availabilityDAO) {
+        this(availabilityDAO,
+                ConfigManager.getInstance().getIntProperty("availability.refreshMillis", 1000),
+                TimeUnit.SECONDS.toMillis(ConfigManager.getInstance().getIntProperty("availability.fullRefreshSeconds", 300)));
+    }
+
+    public AvailabilityService(StockAvailabilityDAO availabilityDAO, long refreshMillis, long fullRefreshMillis) {
+        this.availabilityDAO = availabilityDAO;
+        this.refreshMillis = refreshMillis;
+        this.fullRefreshMillis = fullRefreshMillis;
+    }
+
+    /**
+     * Load the snapshot, then keep refreshing it in the background
+     */
+    public synchronized void start() {
+        if (refresher != null) {
+            return;
+        }
+        refresh();
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "availability-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (Exception e) {
+                logger.error("Error refreshing availability snapshot", e);
+            }
+        }, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+    }
+
+    /**
+     * Read rows changed since the last refresh, or all rows when a full reload is due
+     *
+     * @return number of quantities read
+     */
+    public synchronized int refresh() {
+        long now = System.currentTimeMillis();
+        Date databaseTime = availabilityDAO.getDatabaseTime();
+        boolean full = refreshedAt == null || now - fullRefreshAtMillis >= fullRefreshMillis;
+        Date since = full ? null : new Date(refreshedAt.getTime() - OVERLAP_MILLIS);
+
+        Map<String, Integer> shelfChanges = availabilityDAO.getShelfQuantities(since);
+        Map<String, Integer> websiteChanges = availabilityDAO.getWebsiteQuantities(since);
+        if (full) {
+            shelf.keySet().retainAll(shelfChanges.keySet());
+            website.keySet().retainAll(websiteChanges.keySet());
+            fullRefreshAtMillis = now;
+        }
+        shelf.putAll(shelfChanges);
+        website.putAll(websiteChanges);
+        refreshedAt = databaseTime;
+        refreshedAtMillis = now;
+        return shelfChanges.size() + websiteChanges.size();
+    }
+
+    public int getAvailable(String itemCode, TransactionType transactionType) {
+        return snapshot(transactionType).getOrDefault(itemCode, 0);
+    }
+
+    /**
+     * Quantities of many items at once, e.g. a whole basket
+     */
+    public Map<String, Integer> getAvailable(Collection<String> itemCodes, TransactionType transactionType) {
+        Map<String, Integer> quantities = snapshot(transactionType);
+        Map<String, Integer> available = new LinkedHashMap<>();
+        for (String itemCode : itemCodes) {
+            available.put(itemCode, quantities.getOrDefault(itemCode, 0));
+        }
+        return available;
+    }
+
+    /**
+     * How old the snapshot is, or -1 before the first refresh
+     */
+    public long getSnapshotAgeMillis() {
+        return refreshedAt == null ? -1 : System.currentTimeMillis() - refreshedAtMillis;
+    }
+
+    private Map<String, Integer> snapshot(TransactionType transactionType) {
+        return transactionType == TransactionType.IN_STORE ? shelf : website;
+    }
+}
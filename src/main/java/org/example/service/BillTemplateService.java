@@ -5,6 +5,8 @@ import org.example.dao.CustomerDAO;
 import org.example.model.Bill;
 import org.example.model.BillItem;
 import org.example.model.Customer;
+import org.example.util.LatencyHistogram;
+import org.example.util.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,6 +25,7 @@ import java.util.Optional;
  */
 public class BillTemplateService {
     private static final Logger logger = LoggerFactory.getLogger(BillTemplateService.class);
+    private static final LatencyHistogram GENERATE_BILL_TEMPLATE = Metrics.histogram("billing.generateBillTemplate");
 
     private final BillDAO billDAO;
     private final CustomerDAO customerDAO;
@@ -69,6 +72,15 @@ public class BillTemplateService {
      * Generate bill template content
      */
     public String generateBillTemplate(Bill bill) {
+        long start = System.nanoTime();
+        try {
+            return buildBillTemplate(bill);
+        } finally {
+            GENERATE_BILL_TEMPLATE.recordSince(start);
+        }
+    }
+
+    private String buildBillTemplate(Bill bill) {
         Optional<Customer> customerOpt = customerDAO.getCustomerById(bill.getCustomerId());
         String customerName = customerOpt.map(Customer::getName).orElse("Unknown Customer");
         String customerPhone = customerOpt.map(Customer::getPhone).orElse("N/A");
@@ -3,16 +3,22 @@ package org.example.service;
 
 import org.example.dao.*;
 import org.example.model.*;
+import org.example.util.CheckoutPhaseEvent;
+import org.example.util.LatencyHistogram;
+import org.example.util.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntSupplier;
 
 /**
  * Enhanced billing service with comprehensive business logic
  */
 public class BillingService {
     private static final Logger logger = LoggerFactory.getLogger(BillingService.class);
+    private static final LatencyHistogram PROCESS_BILLING = Metrics.histogram("billing.processBilling");
 
     private final BillDAO billDAO;
     private final CustomerDAO customerDAO;
@@ -20,6 +26,11 @@ public class BillingService {
     private final WebsiteInventoryDAO websiteInventoryDAO;
     private final ItemDAO itemDAO;
     private final BillTemplateService billTemplateService;
+    private final CheckoutDeduplicator deduplicator = new CheckoutDeduplicator();
+    private CheckoutJournal checkoutJournal;
+    private OutboxDAO outboxDAO;
+    private DomainEventBus eventBus;
+    private final List<StockDecrementListener> stockListeners = new CopyOnWriteArrayList<>();
 
     public BillingService(BillDAO billDAO, CustomerDAO customerDAO, ShelfStockDAO shelfStockDAO,
             WebsiteInventoryDAO websiteInventoryDAO, ItemDAO itemDAO) {
@@ -31,6 +42,92 @@ public class BillingService {
         this.billTemplateService = new BillTemplateService(billDAO, customerDAO);
     }
 
+    /**
+     * Billing that checks and takes shelf and website stock in memory
+     */
+    public BillingService(BillDAO billDAO, CustomerDAO customerDAO, InMemoryStockEngine stockEngine, ItemDAO itemDAO) {
+        this(billDAO, customerDAO, stockEngine.shelfStockDAO(), stockEngine.websiteInventoryDAO(), itemDAO);
+    }
+
+    /**
+     * Journal checkouts, so one cut short between taking stock and saving its bill can be recovered
+     *
+     * @param outboxDAO reads back the stock a checkout moved under its ref; null when stock is held
+     *                  in memory, which writes no outbox events, and the journal's TAKEN record is used
+     */
+    public void setCheckoutJournal(CheckoutJournal checkoutJournal, OutboxDAO outboxDAO) {
+        this.checkoutJournal = checkoutJournal;
+        this.outboxDAO = outboxDAO;
+    }
+
+    /**
+     * Publish committed bills and the stock they took on the domain event bus
+     */
+    public void setEventBus(DomainEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    /**
+     * Finish checkouts a crash left open. One whose bill was saved under its ref is marked done; one
+     * that took stock without saving a bill gets its stock back. A checkout that cannot be settled
+     * stays open for the next start. Call at startup, before the lanes sell and the outbox is pruned.
+     *
+     * @return number of checkouts resolved
+     */
+    public int recoverCheckouts(List<CheckoutJournal.OpenCheckout> open) {
+        int resolved = 0;
+        for (CheckoutJournal.OpenCheckout checkout : open) {
+            try {
+                // A bill under the same request token may belong to another attempt, so only this one's ref counts
+                Optional<Integer> billId = billDAO.findBillIdByCheckoutRef(checkout.getCheckoutRef());
+                if (billId.isPresent()) {
+                    checkoutJournal.complete(checkout.getId());
+                    logger.info("Recovered checkout {}: bill {} was saved", checkout.getId(), billId.get());
+                } else {
+                    Map<String, Integer> held = stockHeldBy(checkout);
+                    if (!held.isEmpty()) {
+                        restoreInventory(held, checkout.getTransactionType(), checkout.getCheckoutRef());
+                        logger.warn("Recovered checkout {}: no bill was saved, stock restored for {}",
+                                checkout.getId(), held);
+                    } else {
+                        logger.info("Recovered checkout {}: stopped before taking stock", checkout.getId());
+                    }
+                    checkoutJournal.abort(checkout.getId());
+                }
+                resolved++;
+            } catch (RuntimeException e) {
+                // Stays open and is tried again at the next start
+                logger.error("Could not recover checkout " + checkout.getId(), e);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Stock an unbilled checkout still holds. TAKEN is journaled only after the reduction commits, so
+     * the database is asked instead: the outbox events written under the checkout's ref net its
+     * reduction against any stock already given back for it.
+     */
+    private Map<String, Integer> stockHeldBy(CheckoutJournal.OpenCheckout checkout) {
+        if (outboxDAO == null) {
+            return checkout.isStockTaken() ? checkout.getQuantities() : Map.of();
+        }
+        Map<String, Integer> held = new TreeMap<>();
+        outboxDAO.getStockMovedBy(checkout.getCheckoutRef()).forEach((itemCode, delta) -> {
+            if (delta < 0) {
+                held.put(itemCode, -delta);
+            }
+        });
+        return held;
+    }
+
+    /**
+     * Register a listener for stock reduced by committed bills
+     */
+    public void addStockDecrementListener(StockDecrementListener listener) {
+        stockListeners.add(listener);
+    }
+
     /**
      * Process billing transaction
      */
@@ -44,58 +141,236 @@ public class BillingService {
      */
     public int processBilling(String phone, String name, List<BillItem> items,
             double cashReceived, TransactionType transactionType, double discount) {
-        try {
-            // Get or create customer
-            Customer customer = getOrCreateCustomer(phone, name);
-            if (customer == null) {
-                logger.error("Failed to get or create customer: {}", phone);
+        return timed(() -> validateAndBill(phone, name, items, cashReceived, transactionType, discount, null));
+    }
+
+    /**
+     * Process billing idempotently: a retry with the same request token returns the
+     * bill committed by the first attempt instead of taking stock and billing again
+     */
+    public int processBilling(String requestToken, String phone, String name, List<BillItem> items,
+            double cashReceived, TransactionType transactionType, double discount) {
+        return timed(() -> deduplicator.runExclusive(requestToken, () -> {
+            Optional<Integer> committed = findCommitted(requestToken);
+            if (committed.isPresent()) {
+                return committed.get();
+            }
+            return validateAndBill(phone, name, items, cashReceived, transactionType, discount, requestToken);
+        }));
+    }
+
+    /**
+     * Process a checkout cart; its items were resolved when scanned, so they are not looked up again.
+     * The cart's request token makes a retry of the same cart safe.
+     */
+    public int processBilling(String phone, String name, Cart cart, double cashReceived, double discount) {
+        if (cart.isEmpty()) {
+            logger.error("No valid items found for billing");
+            return -1;
+        }
+        return timed(() -> deduplicator.runExclusive(cart.getRequestToken(), () -> {
+            Optional<Integer> committed = findCommitted(cart.getRequestToken());
+            if (committed.isPresent()) {
+                return committed.get();
+            }
+            try {
+                return processValidatedBilling(phone, name, cart.toBillItems(), cashReceived,
+                        cart.getTransactionType(), discount, cart.getRequestToken(), new Date(), null);
+            } catch (Exception e) {
+                logger.error("Error processing billing", e);
                 return -1;
             }
+        }));
+    }
+
+    /**
+     * Bill an in-store sale taken while the database was unreachable, dated when it was made.
+     * It keeps the request token of its cart, so a sale whose online attempt did commit is not billed twice.
+     * The goods have already left the shop, so a shelf that is short does not stop the bill: stock is
+     * taken as far as it goes and the units missing are returned with the bill id.
+     * Database errors are thrown rather than answered with -1, so the caller can tell an outage from a sale
+     * that cannot be billed.
+     */
+    public OfflineBilling billOfflineSale(OfflineSale sale) {
+        Map<String, Integer> shortfall = new TreeMap<>();
+        int billId = deduplicator.runExclusive(sale.getRequestToken(), () -> {
+            Optional<Integer> committed = findCommitted(sale.getRequestToken());
+            if (committed.isPresent()) {
+                return committed.get();
+            }
+            return processValidatedBilling(sale.getCustomerPhone(), sale.getCustomerName(), sale.getItems(),
+                    Cart.fromCents(sale.getCashReceivedCents()), TransactionType.IN_STORE,
+                    Cart.fromCents(sale.getDiscountCents()), sale.getRequestToken(), new Date(sale.getSoldAt()),
+                    shortfall);
+        });
+        return new OfflineBilling(billId, billId > 0 ? shortfall : Map.of());
+    }
+
+    private static int timed(IntSupplier billing) {
+        long start = System.nanoTime();
+        try {
+            return billing.getAsInt();
+        } finally {
+            PROCESS_BILLING.recordSince(start);
+        }
+    }
 
+    private int validateAndBill(String phone, String name, List<BillItem> items, double cashReceived,
+            TransactionType transactionType, double discount, String requestToken) {
+        try {
             // Validate and populate item names
+            CheckoutPhaseEvent validation = CheckoutPhaseEvent.start(CheckoutPhaseEvent.VALIDATION,
+                    requestToken, items.size());
             List<BillItem> validatedItems = validateAndPopulateItems(items);
+            CheckoutPhaseEvent.finish(validation);
             if (validatedItems.isEmpty()) {
                 logger.error("No valid items found for billing");
                 return -1;
             }
+            return processValidatedBilling(phone, name, validatedItems, cashReceived, transactionType, discount,
+                    requestToken, new Date(), null);
+        } catch (Exception e) {
+            logger.error("Error processing billing", e);
+            return -1;
+        }
+    }
 
-            // Check stock availability and reduce inventory
-            if (!processInventoryReduction(validatedItems, transactionType)) {
-                logger.error("Insufficient stock for transaction");
-                return -1;
+    /**
+     * Bill of an earlier attempt with this token, from the recent window or the database
+     */
+    private Optional<Integer> findCommitted(String requestToken) {
+        Optional<Integer> billId = deduplicator.find(requestToken);
+        if (billId.isEmpty()) {
+            billId = billDAO.findBillIdByRequestToken(requestToken);
+            billId.ifPresent(id -> deduplicator.record(requestToken, id));
+        }
+        billId.ifPresent(id -> logger.info("Checkout request {} already billed as bill {}, not repeated",
+                requestToken, id));
+        return billId;
+    }
+
+    /**
+     * @param shortfall null for a sale that needs its stock; for a sale already made, takes the units
+     *                  the shelf was short of, as stock is then taken as far as it goes
+     */
+    private int processValidatedBilling(String phone, String name, List<BillItem> validatedItems,
+            double cashReceived, TransactionType transactionType, double discount, String requestToken, Date billDate,
+            Map<String, Integer> shortfall) {
+        // Get or create customer
+        CheckoutPhaseEvent customerResolve = CheckoutPhaseEvent.start(CheckoutPhaseEvent.CUSTOMER_RESOLVE,
+                requestToken, validatedItems.size());
+        Customer customer = getOrCreateCustomer(phone, name);
+        CheckoutPhaseEvent.finish(customerResolve);
+        if (customer == null) {
+            logger.error("Failed to get or create customer: {}", phone);
+            return -1;
+        }
+
+        // Journal the checkout before touching stock; its stock changes and bill are saved under this
+        // attempt's ref, so recovery finds exactly what this attempt committed
+        long checkoutId = 0;
+        String checkoutRef = null;
+        if (checkoutJournal != null) {
+            if (requestToken == null) {
+                requestToken = UUID.randomUUID().toString();
             }
+            checkoutRef = UUID.randomUUID().toString();
+            checkoutId = checkoutJournal.begin(requestToken, checkoutRef, transactionType, validatedItems);
+        }
 
-            // Generate bill
-            int serialNumber = SerialNumberGenerator.getInstance().getNextSerial();
-            Bill bill = new Bill(0, serialNumber, new Date(), customer.getCustomerId(),
-                    validatedItems, cashReceived, transactionType, discount);
+        // Check stock availability and reduce inventory
+        boolean stockTaken;
+        Map<String, Integer> taken = totalQuantities(validatedItems);
+        CheckoutPhaseEvent stockReduction = CheckoutPhaseEvent.start(CheckoutPhaseEvent.STOCK_REDUCTION,
+                requestToken, validatedItems.size());
+        try {
+            if (shortfall == null) {
+                stockTaken = processInventoryReduction(taken, transactionType, checkoutRef);
+            } else {
+                shortfall.putAll(shelfStockDAO.takeShelfStockBatch(taken, checkoutRef));
+                shortfall.forEach((itemCode, missing) -> taken.computeIfPresent(itemCode, (code, q) -> q - missing));
+                taken.values().removeIf(q -> q == 0);
+                stockTaken = true;
+            }
+            CheckoutPhaseEvent.finish(stockReduction);
+        } catch (RuntimeException e) {
+            // The reduction rolled back, nothing was taken
+            abortCheckout(checkoutId);
+            throw e;
+        }
+        if (!stockTaken) {
+            abortCheckout(checkoutId);
+            logger.error("Insufficient stock for transaction");
+            return -1;
+        }
+        if (checkoutJournal != null) {
+            // If anything below throws, the checkout stays open and is recovered at the next start;
+            // a crash before this record is written is recovered from the outbox all the same
+            checkoutJournal.stockTaken(checkoutId);
+        }
 
-            logger.info("Bill created with discount: {}, total amount: {}", discount, bill.getTotalAmount());
+        // Generate bill
+        int serialNumber = SerialNumberGenerator.getInstance().getNextSerial();
+        Bill bill = new Bill(0, serialNumber, billDate, customer.getCustomerId(),
+                validatedItems, cashReceived, transactionType, discount);
 
-            // Save bill
-            int billId = billDAO.saveBill(bill);
-            if (billId > 0) {
-                logger.info("Bill processed successfully: billId={}, serial={}, customer={}",
-                        billId, serialNumber, customer.getName());
+        logger.info("Bill created with discount: {}, total amount: {}", discount, bill.getTotalAmount());
 
-                // Generate and save bill template
-                boolean templateSaved = billTemplateService.generateAndSaveBill(billId);
-                if (templateSaved) {
-                    logger.info("Bill template saved successfully for bill ID: {}", billId);
-                } else {
-                    logger.warn("Failed to save bill template for bill ID: {}", billId);
-                }
+        // Save bill
+        CheckoutPhaseEvent billSave = CheckoutPhaseEvent.start(CheckoutPhaseEvent.BILL_SAVE, requestToken,
+                validatedItems.size());
+        int billId;
+        try {
+            billId = requestToken == null
+                    ? billDAO.saveBill(bill) : billDAO.saveBill(bill, requestToken, checkoutRef);
+            CheckoutPhaseEvent.finish(billSave);
+        } catch (RuntimeException e) {
+            // The bill transaction rolled back: give the stock back now, or a retry of the cart takes it twice
+            try {
+                restoreInventory(taken, transactionType, checkoutRef);
+                abortCheckout(checkoutId);
+            } catch (RuntimeException restoreError) {
+                // The checkout stays open and recovery gives the stock back at the next start
+                e.addSuppressed(restoreError);
+            }
+            throw e;
+        }
+        if (billId > 0) {
+            if (checkoutJournal != null) {
+                checkoutJournal.complete(checkoutId);
+            }
+            if (requestToken != null) {
+                deduplicator.record(requestToken, billId);
+            }
+            logger.info("Bill processed successfully: billId={}, serial={}, customer={}",
+                    billId, serialNumber, customer.getName());
+            notifyStockDecremented(validatedItems, transactionType);
+            publishCommitted(bill, billId, validatedItems);
 
-                return billId;
+            // Generate and save bill template
+            CheckoutPhaseEvent receiptRender = CheckoutPhaseEvent.start(CheckoutPhaseEvent.RECEIPT_RENDER,
+                    requestToken, validatedItems.size());
+            boolean templateSaved = billTemplateService.generateAndSaveBill(billId);
+            CheckoutPhaseEvent.finish(receiptRender);
+            if (templateSaved) {
+                logger.info("Bill template saved successfully for bill ID: {}", billId);
             } else {
-                // If bill save failed, restore inventory
-                restoreInventory(validatedItems, transactionType);
-                logger.error("Failed to save bill, inventory restored");
-                return -1;
+                logger.warn("Failed to save bill template for bill ID: {}", billId);
             }
 
-        } catch (Exception e) {
-            logger.error("Error processing billing", e);
+            return billId;
+        } else {
+            // If bill save failed, restore inventory; if that throws, the checkout stays open for recovery
+            restoreInventory(taken, transactionType, checkoutRef);
+            abortCheckout(checkoutId);
+            if (requestToken != null) {
+                // Lost a race with another attempt carrying the same token: answer with its bill
+                Optional<Integer> committed = findCommitted(requestToken);
+                if (committed.isPresent()) {
+                    return committed.get();
+                }
+            }
+            logger.error("Failed to save bill, inventory restored");
             return -1;
         }
     }
@@ -192,43 +467,80 @@ public class BillingService {
         return validatedItems;
     }
 
-    private boolean processInventoryReduction(List<BillItem> items, TransactionType transactionType) {
-        List<BillItem> processedItems = new ArrayList<>();
+    private boolean processInventoryReduction(Map<String, Integer> quantities, TransactionType transactionType,
+            String checkoutRef) {
+        // One all-or-nothing update; the DAO locks rows in item code order and retries deadlocks
+        if (transactionType == TransactionType.IN_STORE) {
+            return shelfStockDAO.reduceShelfStockBatch(quantities, checkoutRef);
+        }
+        return websiteInventoryDAO.reduceWebsiteInventoryBatch(quantities, checkoutRef);
+    }
 
-        for (BillItem item : items) {
-            boolean success;
-            if (transactionType == TransactionType.IN_STORE) {
-                success = shelfStockDAO.reduceShelfStock(item.getItemCode(), item.getQuantity());
-            } else {
-                success = websiteInventoryDAO.reduceWebsiteInventory(item.getItemCode(), item.getQuantity());
-            }
+    private void abortCheckout(long checkoutId) {
+        if (checkoutJournal != null) {
+            checkoutJournal.abort(checkoutId);
+        }
+    }
 
-            if (success) {
-                processedItems.add(item);
-            } else {
-                // Rollback previous reductions
-                restoreInventory(processedItems, transactionType);
-                return false;
+    private void notifyStockDecremented(List<BillItem> items, TransactionType transactionType) {
+        for (StockDecrementListener listener : stockListeners) {
+            for (BillItem item : items) {
+                try {
+                    listener.onStockDecremented(item.getItemCode(), item.getQuantity(), transactionType);
+                } catch (Exception e) {
+                    logger.error("Stock listener failed for item: " + item.getItemCode(), e);
+                }
             }
         }
-        return true;
     }
 
-    private void restoreInventory(List<BillItem> items, TransactionType transactionType) {
+    private void publishCommitted(Bill bill, int billId, List<BillItem> items) {
+        if (eventBus == null) {
+            return;
+        }
+        eventBus.publishBillCommitted(billId, bill.getSerialNumber(), bill.getTransactionType(), bill.getTotalAmount());
+        StockLocation location = bill.getTransactionType() == TransactionType.IN_STORE
+                ? StockLocation.SHELF : StockLocation.WEBSITE;
         for (BillItem item : items) {
-            try {
-                if (transactionType == TransactionType.IN_STORE) {
-                    Optional<ShelfStock> stockOpt = shelfStockDAO.getShelfStock(item.getItemCode());
-                    int currentQty = stockOpt.map(ShelfStock::getQuantity).orElse(0);
-                    shelfStockDAO.updateShelfStock(item.getItemCode(), currentQty + item.getQuantity());
-                } else {
-                    Optional<WebsiteInventory> invOpt = websiteInventoryDAO.getWebsiteInventory(item.getItemCode());
-                    int currentQty = invOpt.map(WebsiteInventory::getQuantity).orElse(0);
-                    websiteInventoryDAO.updateWebsiteInventory(item.getItemCode(), currentQty + item.getQuantity());
-                }
-            } catch (Exception e) {
-                logger.error("Error restoring inventory for item: " + item.getItemCode(), e);
-            }
+            eventBus.publishStockChanged(item.getItemCode(), location, MovementType.SALE, -item.getQuantity());
+        }
+    }
+
+    /**
+     * Give back the stock of a checkout that was not billed, as relative adds in one transaction,
+     * so a sale of the same items in between is never overwritten
+     */
+    private void restoreInventory(Map<String, Integer> quantities, TransactionType transactionType,
+            String checkoutRef) {
+        if (transactionType == TransactionType.IN_STORE) {
+            shelfStockDAO.addShelfStockBatch(quantities, checkoutRef);
+        } else {
+            websiteInventoryDAO.addWebsiteInventoryBatch(quantities, checkoutRef);
+        }
+    }
+
+    private static Map<String, Integer> totalQuantities(List<BillItem> items) {
+        Map<String, Integer> quantities = new HashMap<>();
+        for (BillItem item : items) {
+            quantities.merge(item.getItemCode(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    /**
+     * Inner class for the outcome of billing an offline sale
+     */
+    public static class OfflineBilling {
+        private final int billId;
+        private final Map<String, Integer> shortfall;
+
+        public OfflineBilling(int billId, Map<String, Integer> shortfall) {
+            this.billId = billId;
+            this.shortfall = shortfall;
         }
+
+        // Getters
+        public int getBillId() { return billId; }
+        public Map<String, Integer> getShortfall() { return shortfall; }
     }
-}
\ No newline at end of file
+}
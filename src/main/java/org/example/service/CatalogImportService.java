@@ -0,0 +1,234 @@
+package org.example.service;
+
+import org.example.config.ConfigManager;
+import org.example.dao.ItemDAO;
+import org.example.model.Item;
+import org.example.util.CsvReader;
+import org.example.util.ValidationUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Loads a supplier catalog or price revision from CSV into items, creating or updating each
+ * item by code. The file is streamed and rows are upserted in chunks, one transaction per chunk,
+ * so a catalog of any size runs in constant memory. Rows that fail validation are reported with
+ * their line number and skipped; the rest of the file still loads.
+ * Columns, by header name in any order: item_code and at least one of name, price, category,
+ * description, min_stock_level and is_active. An existing item only has the columns in the file
+ * updated, so a price revision can be just item_code and price; a new item needs name and price.
+ */
+public class CatalogImportService {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImportService.class);
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final double MAX_PRICE = 99_999_999.99;
+    private static final Set<String> ITEM_COLUMNS =
+            Set.of("name", "price", "category", "description", "min_stock_level", "is_active");
+
+    private final ItemDAO itemDAO;
+    private final int chunkSize;
+    private DomainEventBus eventBus;
+
+    public CatalogImportService(ItemDAO itemDAO) {
+        this(itemDAO, ConfigManager.getInstance().getIntProperty("catalog.import.chunkSize", 1000));
+    }
+
+    public CatalogImportService(ItemDAO itemDAO, int chunkSize) {
+        this.itemDAO = itemDAO;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Publish every imported item on the domain event bus, so caches of the catalog catch up
+     */
+    public void setEventBus(DomainEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    /**
+     * @param progress called after every chunk with the running totals
+     */
+    public ImportResult importCsv(Path file, Consumer<ImportResult> progress) throws IOException {
+        ImportResult result = new ImportResult();
+        try (CsvReader csv = CsvReader.open(file)) {
+            List<String> header = csv.readRecord();
+            if (header == null) {
+                return result;
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(), i);
+            }
+            if (!columns.containsKey("item_code")) {
+                throw new IllegalArgumentException("Catalog file has no item_code column");
+            }
+            Set<String> updated = new HashSet<>(columns.keySet());
+            updated.retainAll(ITEM_COLUMNS);
+            if (updated.isEmpty()) {
+                throw new IllegalArgumentException("Catalog file has no item column besides item_code");
+            }
+
+            List<Item> chunk = new ArrayList<>(chunkSize);
+            List<Long> lines = new ArrayList<>(chunkSize);
+            List<String> record;
+            while ((record = csv.readRecord()) != null) {
+                result.rowsRead++;
+                try {
+                    chunk.add(parseItem(record, columns));
+                    lines.add(csv.getRecordLine());
+                } catch (IllegalArgumentException e) {
+                    result.reject(csv.getRecordLine(), e.getMessage());
+                }
+                if (chunk.size() == chunkSize) {
+                    save(chunk, lines, updated, result);
+                    progress.accept(result);
+                }
+            }
+            save(chunk, lines, updated, result);
+            progress.accept(result);
+        }
+        logger.info("Catalog import of {}: {}", file, result);
+        return result;
+    }
+
+    private Item parseItem(List<String> record, Map<String, Integer> columns) {
+        String code = field(record, columns, "item_code").toUpperCase();
+        if (!ValidationUtils.isValidItemCode(code)) {
+            throw new IllegalArgumentException("Invalid item code: '" + code + "'");
+        }
+        // Absent columns are left alone on existing items, so only those in the file are checked
+        String name = field(record, columns, "name");
+        if (columns.containsKey("name") && (!ValidationUtils.isNotEmpty(name) || name.length() > 100)) {
+            throw new IllegalArgumentException("Name must be 1 to 100 characters");
+        }
+        String price = field(record, columns, "price");
+        if (columns.containsKey("price")
+                && (!ValidationUtils.isPositiveNumber(price) || Double.parseDouble(price) > MAX_PRICE)) {
+            throw new IllegalArgumentException("Invalid price: '" + price + "'");
+        }
+        String category = field(record, columns, "category");
+        if (category.isEmpty()) {
+            category = "GENERAL";
+        } else if (category.length() > 50) {
+            throw new IllegalArgumentException("Category longer than 50 characters");
+        }
+        String description = field(record, columns, "description");
+        String minStock = field(record, columns, "min_stock_level");
+        if (!minStock.isEmpty() && !ValidationUtils.isNonNegativeInteger(minStock)) {
+            throw new IllegalArgumentException("Invalid min_stock_level: '" + minStock + "'");
+        }
+
+        Item item = new Item(code, name.isEmpty() ? null : name, price.isEmpty() ? 0 : Double.parseDouble(price),
+                category, description.isEmpty() ? null : description,
+                minStock.isEmpty() ? 50 : Integer.parseInt(minStock));
+        item.setActive(parseActive(field(record, columns, "is_active")));
+        return item;
+    }
+
+    private static boolean parseActive(String value) {
+        return switch (value.toLowerCase()) {
+            case "", "true", "yes", "y", "1" -> true;
+            case "false", "no", "n", "0" -> false;
+            default -> throw new IllegalArgumentException("Invalid is_active: '" + value + "'");
+        };
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        return index == null || index >= record.size() ? "" : record.get(index).trim();
+    }
+
+    private void save(List<Item> chunk, List<Long> lines, Set<String> updated, ImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            itemDAO.upsertItems(chunk, updated);
+            result.upserted += chunk.size();
+            publish(chunk, updated);
+        } catch (RuntimeException e) {
+            // The database refused one row and the chunk rolled back; redo it a row at a time to find it
+            logger.warn("Catalog chunk of {} rows failed, retrying row by row: {}", chunk.size(), e.getMessage());
+            for (int i = 0; i < chunk.size(); i++) {
+                try {
+                    itemDAO.upsertItems(List.of(chunk.get(i)), updated);
+                    result.upserted++;
+                    publish(List.of(chunk.get(i)), updated);
+                } catch (RuntimeException rowError) {
+                    Throwable cause = rowError.getCause() != null ? rowError.getCause() : rowError;
+                    result.reject(lines.get(i), cause.getMessage());
+                }
+            }
+        }
+        chunk.clear();
+        lines.clear();
+    }
+
+    private void publish(List<Item> items, Set<String> updated) {
+        if (eventBus == null) {
+            return;
+        }
+        for (Item item : items) {
+            if (updated.containsAll(ITEM_COLUMNS)) {
+                eventBus.publishItemUpdated(item);
+            } else {
+                // Only the stored row has the columns this file left alone
+                itemDAO.getItemByCode(item.getItemCode()).ifPresent(eventBus::publishItemUpdated);
+            }
+        }
+    }
+
+    /**
+     * Inner class for the running totals of an import
+     */
+    public static class ImportResult {
+        private long rowsRead;
+        private long upserted;
+        private long rejected;
+        private final List<RowError> errors = new ArrayList<>();
+
+        private void reject(long line, String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(line, message));
+            }
+        }
+
+        // Getters
+        public long getRowsRead() { return rowsRead; }
+        public long getUpserted() { return upserted; }
+        public long getRejected() { return rejected; }
+        public List<RowError> getErrors() { return Collections.unmodifiableList(errors); }
+
+        @Override
+        public String toString() {
+            return String.format("rows=%d, upserted=%d, rejected=%d", rowsRead, upserted, rejected);
+        }
+    }
+
+    /**
+     * Inner class for a row that was not imported
+     */
+    public static class RowError {
+        private final long line;
+        private final String message;
+
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        // Getters
+        public long getLine() { return line; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return "line " + line + ": " + message;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.service;
+
+import org.example.config.ConfigManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+
+/**
+ * Recently committed checkout request tokens and their bill ids.
+ * A retry inside the window is answered from memory; older ones fall back to the
+ * checkout_requests table. Attempts with the same token run one at a time.
+ */
+public class CheckoutDeduplicator {
+    private final int capacity;
+    private final long windowMillis;
+    private final Map<String, Committed> committed;
+    private final ConcurrentMap<String, ReentrantLock> inFlight = new ConcurrentHashMap<>();
+
+    public CheckoutDeduplicator() {
+        this(ConfigManager.getInstance().getIntProperty("checkout.dedup.windowSize", 10000),
+                TimeUnit.MINUTES.toMillis(ConfigManager.getInstance().getIntProperty("checkout.dedup.windowMinutes", 60)));
+    }
+
+    public CheckoutDeduplicator(int capacity, long windowMillis) {
+        this.capacity = capacity;
+        this.windowMillis = windowMillis;
+        // Insertion order, so the eldest entry is also the oldest commit
+        this.committed = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Committed> eldest) {
+                return size() > CheckoutDeduplicator.this.capacity
+                        || eldest.getValue().committedAt < System.currentTimeMillis() - CheckoutDeduplicator.this.windowMillis;
+            }
+        };
+    }
+
+    /**
+     * Run a checkout attempt while no other attempt with the same token is running
+     */
+    public int runExclusive(String requestToken, IntSupplier attempt) {
+        ReentrantLock lock = inFlight.computeIfAbsent(requestToken, token -> new ReentrantLock());
+        lock.lock();
+        try {
+            return attempt.getAsInt();
+        } finally {
+            lock.unlock();
+            if (!lock.hasQueuedThreads()) {
+                // A racing attempt that misses this lock still finds the committed bill
+                inFlight.remove(requestToken, lock);
+            }
+        }
+    }
+
+    public synchronized Optional<Integer> find(String requestToken) {
+        Committed entry = committed.get(requestToken);
+        if (entry == null || entry.committedAt < System.currentTimeMillis() - windowMillis) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.billId);
+    }
+
+    public synchronized void record(String requestToken, int billId) {
+        committed.put(requestToken, new Committed(billId, System.currentTimeMillis()));
+    }
+
+    private static class Committed {
+        private final int billId;
+        private final long committedAt;
+
+        private Committed(int billId, long committedAt) {
+            this.billId = billId;
+            this.committedAt = committedAt;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package org.example.service;
+
+import org.example.model.BillItem;
+import org.example.model.TransactionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal of checkouts for one terminal, in a memory-mapped segment file.
+ * A checkout writes BEGIN (what it is about to take) before touching stock, TAKEN once the stock
+ * is reduced and DONE or ABORTED when it ends. A record is a store into mapped memory, so it costs
+ * microseconds and survives a JVM crash; the operating system writes the pages back.
+ * Records are {@code [length][crc32c][type][payload]} and the length is written last, so a torn
+ * record reads as the end of the segment. When a segment fills up, the checkouts still open are
+ * copied to a fresh segment and the old one is deleted.
+ */
+public class CheckoutJournal {
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutJournal.class);
+
+    private static final byte BEGIN = 1;
+    private static final byte TAKEN = 2;
+    private static final byte DONE = 3;
+    private static final byte ABORTED = 4;
+    private static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final String terminalId;
+    private final int segmentBytes;
+    private final Map<Long, OpenCheckout> open = new LinkedHashMap<>();
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer scratch = ByteBuffer.allocate(4096);
+    private MappedByteBuffer segment;
+    private Path segmentPath;
+    private long segmentNumber;
+    private long lastId;
+
+    public CheckoutJournal(Path directory, String terminalId, int segmentBytes) {
+        this.directory = directory;
+        this.terminalId = terminalId;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Read the terminal's segments and start a fresh one
+     *
+     * @return checkouts that never finished, oldest first
+     */
+    public synchronized List<OpenCheckout> open() throws IOException {
+        Files.createDirectories(directory);
+        open.clear();
+        List<Path> segments = listSegments();
+        for (Path path : segments) {
+            read(path);
+            segmentNumber = Math.max(segmentNumber, segmentNumber(path));
+        }
+        roll(segments);
+        return new ArrayList<>(open.values());
+    }
+
+    /**
+     * Record a checkout that is about to take stock
+     *
+     * @param checkoutRef unique name of this attempt, saved with its stock changes and bill so recovery
+     *                    can find exactly what it committed
+     * @return the checkout's journal id
+     */
+    public synchronized long begin(String requestToken, String checkoutRef, TransactionType transactionType,
+                                   List<BillItem> items) {
+        Objects.requireNonNull(requestToken, "requestToken");
+        Objects.requireNonNull(checkoutRef, "checkoutRef");
+        Map<String, Integer> quantities = new TreeMap<>();
+        for (BillItem item : items) {
+            quantities.merge(item.getItemCode(), item.getQuantity(), Integer::sum);
+        }
+        OpenCheckout checkout = new OpenCheckout(++lastId, requestToken, checkoutRef, transactionType, quantities);
+        append(BEGIN, checkout);
+        open.put(checkout.id, checkout);
+        return checkout.id;
+    }
+
+    public synchronized void stockTaken(long id) {
+        OpenCheckout checkout = open.get(id);
+        if (checkout != null) {
+            append(TAKEN, checkout);
+            checkout.stockTaken = true;
+        }
+    }
+
+    public synchronized void complete(long id) {
+        end(id, DONE);
+    }
+
+    public synchronized void abort(long id) {
+        end(id, ABORTED);
+    }
+
+    public synchronized int getOpenCount() {
+        return open.size();
+    }
+
+    /**
+     * Write the mapped pages back to disk, e.g. on shutdown
+     */
+    public synchronized void force() {
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    private void end(long id, byte type) {
+        OpenCheckout checkout = open.remove(id);
+        if (checkout != null) {
+            append(type, checkout);
+        }
+    }
+
+    private void append(byte type, OpenCheckout checkout) {
+        encode(type, checkout);
+        int length = scratch.position();
+        if (segment.remaining() < HEADER_BYTES + length + 4) {
+            // Leave room for the zero length that marks the end of the segment
+            try {
+                roll(List.of(segmentPath));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to roll checkout journal segment", e);
+            }
+            encode(type, checkout);
+            if (segment.remaining() < HEADER_BYTES + length + 4) {
+                throw new IllegalStateException("Checkout journal record larger than a segment: " + length + " bytes");
+            }
+        }
+        crc.reset();
+        crc.update(scratch.array(), 0, length);
+        int position = segment.position();
+        segment.putInt(position + 4, (int) crc.getValue());
+        segment.put(position + HEADER_BYTES, scratch.array(), 0, length);
+        // Length last: until it is there the record does not exist
+        segment.putInt(position, length);
+        segment.position(position + HEADER_BYTES + length);
+    }
+
+    private void encode(byte type, OpenCheckout checkout) {
+        while (true) {
+            scratch.clear();
+            try {
+                scratch.put(type).putLong(checkout.id);
+                if (type == BEGIN) {
+                    putString(checkout.requestToken);
+                    scratch.put((byte) checkout.transactionType.ordinal());
+                    scratch.putInt(checkout.quantities.size());
+                    for (Map.Entry<String, Integer> entry : checkout.quantities.entrySet()) {
+                        putString(entry.getKey());
+                        scratch.putInt(entry.getValue());
+                    }
+                    putString(checkout.checkoutRef);
+                }
+                return;
+            } catch (BufferOverflowException e) {
+                scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+            }
+        }
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        scratch.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Start the next segment with the checkouts still open, then drop the old segments
+     */
+    private void roll(List<Path> oldSegments) throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+        segmentPath = directory.resolve(String.format("checkout-%s.%06d.wal", terminalId, ++segmentNumber));
+        try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        for (OpenCheckout checkout : open.values()) {
+            append(BEGIN, checkout);
+            if (checkout.stockTaken) {
+                append(TAKEN, checkout);
+            }
+        }
+        segment.force();
+        for (Path old : oldSegments) {
+            try {
+                Files.deleteIfExists(old);
+            } catch (IOException e) {
+                // Harmless: its checkouts were copied over and replay merges them by id
+                logger.warn("Could not delete checkout journal segment {}: {}", old, e.getMessage());
+            }
+        }
+    }
+
+    private void read(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int position = buffer.position();
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining() - 4) {
+                break;
+            }
+            int checksum = buffer.getInt();
+            crc.reset();
+            crc.update(buffer.array(), position + HEADER_BYTES, length);
+            if ((int) crc.getValue() != checksum) {
+                logger.warn("Checkout journal {} has a damaged record at offset {}, ignoring the rest", path, position);
+                break;
+            }
+            ByteBuffer record = ByteBuffer.wrap(buffer.array(), position + HEADER_BYTES, length);
+            byte type = record.get();
+            long id = record.getLong();
+            lastId = Math.max(lastId, id);
+            switch (type) {
+                case BEGIN -> {
+                    String token = getString(record);
+                    TransactionType transactionType = TransactionType.values()[record.get()];
+                    Map<String, Integer> quantities = new TreeMap<>();
+                    int lines = record.getInt();
+                    for (int i = 0; i < lines; i++) {
+                        quantities.put(getString(record), record.getInt());
+                    }
+                    open.putIfAbsent(id, new OpenCheckout(id, token, getString(record), transactionType, quantities));
+                }
+                case TAKEN -> Optional.ofNullable(open.get(id)).ifPresent(checkout -> checkout.stockTaken = true);
+                case DONE, ABORTED -> open.remove(id);
+                default -> logger.warn("Unknown checkout journal record type {} in {}", type, path);
+            }
+            buffer.position(position + HEADER_BYTES + length);
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        String prefix = "checkout-" + terminalId + ".";
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix)
+                            && path.getFileName().toString().endsWith(".wal"))
+                    .sorted(Comparator.comparingLong(CheckoutJournal::segmentNumber))
+                    .toList();
+        }
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(name.lastIndexOf('.', name.length() - 5) + 1, name.length() - 4));
+    }
+
+    /**
+     * Inner class for a checkout that has begun but not ended
+     */
+    public static class OpenCheckout {
+        private final long id;
+        private final String requestToken;
+        private final String checkoutRef;
+        private final TransactionType transactionType;
+        private final Map<String, Integer> quantities;
+        private boolean stockTaken;
+
+        private OpenCheckout(long id, String requestToken, String checkoutRef, TransactionType transactionType,
+                             Map<String, Integer> quantities) {
+            this.id = id;
+            this.requestToken = requestToken;
+            this.checkoutRef = checkoutRef;
+            this.transactionType = transactionType;
+            this.quantities = quantities;
+        }
+
+        // Getters
+        public long getId() { return id; }
+        public String getRequestToken() { return requestToken; }
+        public String getCheckoutRef() { return checkoutRef; }
+        public TransactionType getTransactionType() { return transactionType; }
+        public Map<String, Integer> getQuantities() { return Collections.unmodifiableMap(quantities); }
+        public boolean isStockTaken() { return stockTaken; }
+    }
+}
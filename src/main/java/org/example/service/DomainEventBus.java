@@ -0,0 +1,306 @@
+package org.example.service;
+
+import org.example.config.ConfigManager;
+import org.example.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process bus for checkout, stock and catalog events, on a ring of preallocated slots.
+ * A publisher claims the next sequence with one compare-and-set, fills the slot in place and
+ * marks it published; nothing is allocated and no lock is taken. Lanes and background workers
+ * publish at the same time, so claiming is multi-producer.
+ * Every consumer reads the whole ring on its own thread, in order, in batches, and moves its
+ * own sequence forward. A publisher may not lap the slowest consumer: when the ring is full it
+ * waits up to the publish wait and then drops the event and counts it, so a stalled consumer
+ * can cost events but never holds a lane up for longer than that.
+ */
+public class DomainEventBus {
+    private static final Logger logger = LoggerFactory.getLogger(DomainEventBus.class);
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long PUBLISH_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+
+    private final DomainEvent[] slots;
+    private final AtomicIntegerArray published;
+    private final int mask;
+    private final int indexShift;
+    private final long publishWaitNanos;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final List<Consumer> consumers = new ArrayList<>();
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private volatile Consumer[] gating = new Consumer[0];
+    private volatile long gatingCache = -1;
+    private volatile boolean started;
+
+    public DomainEventBus() {
+        this(ConfigManager.getInstance().getIntProperty("events.bufferSize", 8192),
+                TimeUnit.MICROSECONDS.toNanos(ConfigManager.getInstance().getIntProperty("events.publishWaitMicros", 1000)));
+    }
+
+    /**
+     * @param bufferSize slots in the ring, a power of two
+     * @param publishWaitNanos how long a publisher waits for room before dropping the event
+     */
+    public DomainEventBus(int bufferSize, long publishWaitNanos) {
+        if (bufferSize < 2 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Event buffer size must be a power of two: " + bufferSize);
+        }
+        this.slots = new DomainEvent[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            slots[i] = new DomainEvent();
+        }
+        this.published = new AtomicIntegerArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            published.set(i, -1);
+        }
+        this.mask = bufferSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+        this.publishWaitNanos = publishWaitNanos;
+    }
+
+    /**
+     * Register a consumer; it sees the events published after start()
+     */
+    public synchronized void addHandler(String name, DomainEventHandler handler) {
+        if (started) {
+            throw new IllegalStateException("Handlers must be added before the event bus starts");
+        }
+        consumers.add(new Consumer(name, handler));
+    }
+
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        long start = cursor.get();
+        for (Consumer consumer : consumers) {
+            consumer.sequence.set(start);
+        }
+        gating = consumers.toArray(new Consumer[0]);
+        started = true;
+        for (Consumer consumer : consumers) {
+            consumer.thread.start();
+        }
+        logger.info("Domain event bus started: {} slots, {} consumers", slots.length, consumers.size());
+    }
+
+    /**
+     * Stop the consumers after they have handled what was already published
+     */
+    public synchronized void stop() {
+        if (!started) {
+            return;
+        }
+        for (Consumer consumer : consumers) {
+            consumer.running = false;
+            LockSupport.unpark(consumer.thread);
+        }
+        for (Consumer consumer : consumers) {
+            try {
+                consumer.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        started = false;
+        logger.info("Domain event bus stopped: {}", getStats());
+    }
+
+    /**
+     * @return false if the event was dropped because the ring stayed full
+     */
+    public boolean publishBillCommitted(int billId, int serialNumber, TransactionType transactionType, double totalAmount) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return false;
+        }
+        slots[(int) sequence & mask].setBillCommitted(billId, serialNumber, transactionType, totalAmount);
+        publish(sequence);
+        return true;
+    }
+
+    public boolean publishStockChanged(String itemCode, StockLocation location, MovementType movementType, int quantityDelta) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return false;
+        }
+        slots[(int) sequence & mask].setStockChanged(itemCode, location, movementType, quantityDelta);
+        publish(sequence);
+        return true;
+    }
+
+    public boolean publishItemUpdated(Item item) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return false;
+        }
+        slots[(int) sequence & mask].setItemUpdated(item);
+        publish(sequence);
+        return true;
+    }
+
+    public Stats getStats() {
+        long head = cursor.get();
+        long maxLag = 0;
+        for (Consumer consumer : gating) {
+            maxLag = Math.max(maxLag, head - consumer.sequence.get());
+        }
+        return new Stats(publishedCount.sum(), droppedCount.sum(), maxLag);
+    }
+
+    /**
+     * @return the claimed sequence, or -1 if the ring stayed full for the publish wait
+     */
+    private long claim() {
+        long waitingSince = 0;
+        int waits = 0;
+        while (true) {
+            long current = cursor.get();
+            long next = current + 1;
+            long wrapPoint = next - slots.length;
+            if (wrapPoint > gatingCache) {
+                long slowest = slowestConsumer(current);
+                gatingCache = slowest;
+                if (wrapPoint > slowest) {
+                    long now = System.nanoTime();
+                    if (waits == 0) {
+                        waitingSince = now;
+                    } else if (now - waitingSince >= publishWaitNanos) {
+                        droppedCount.increment();
+                        return -1;
+                    }
+                    waits = backOff(waits);
+                    continue;
+                }
+            }
+            if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Spin, then yield, then sleep briefly, so waiting threads leave the CPU to the ones they wait for
+     */
+    private static int backOff(int tries) {
+        if (tries < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (tries < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PUBLISH_PARK_NANOS);
+            return tries;
+        }
+        return tries + 1;
+    }
+
+    private void publish(long sequence) {
+        // Ordered store: the slot's fields are visible before the slot reads as published
+        published.lazySet((int) sequence & mask, (int) (sequence >>> indexShift));
+        publishedCount.increment();
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    private long slowestConsumer(long defaultSequence) {
+        long slowest = defaultSequence;
+        for (Consumer consumer : gating) {
+            slowest = Math.min(slowest, consumer.sequence.get());
+        }
+        return slowest;
+    }
+
+    /**
+     * Inner class for one consumer thread and its position in the ring
+     */
+    private class Consumer implements Runnable {
+        private final String name;
+        private final DomainEventHandler handler;
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        Consumer(String name, DomainEventHandler handler) {
+            this.name = name;
+            this.handler = handler;
+            this.thread = new Thread(this, "events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (true) {
+                long next = sequence.get() + 1;
+                if (isPublished(next)) {
+                    handleAvailable(next);
+                    idle = 0;
+                } else if (!running) {
+                    break;
+                } else {
+                    idle = idle < SPIN_TRIES + YIELD_TRIES ? backOff(idle) : parkIdle(idle);
+                }
+            }
+        }
+
+        private void handleAvailable(long next) {
+            long last = next;
+            long head = cursor.get();
+            while (last < head && isPublished(last + 1)) {
+                last++;
+            }
+            for (long s = next; s <= last; s++) {
+                try {
+                    handler.onEvent(slots[(int) s & mask], s, s == last);
+                } catch (Exception e) {
+                    logger.error("Event handler " + name + " failed on " + slots[(int) s & mask], e);
+                }
+            }
+            // Ordered store: publishers may reuse the slots only after the handler is done with them
+            sequence.lazySet(last);
+        }
+
+        private int parkIdle(int idle) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+            return idle;
+        }
+    }
+
+    /**
+     * Inner class for bus counters
+     */
+    public static class Stats {
+        private final long published;
+        private final long dropped;
+        private final long maxConsumerLag;
+
+        public Stats(long published, long dropped, long maxConsumerLag) {
+            this.published = published;
+            this.dropped = dropped;
+            this.maxConsumerLag = maxConsumerLag;
+        }
+
+        // Getters
+        public long getPublished() { return published; }
+        public long getDropped() { return dropped; }
+        public long getMaxConsumerLag() { return maxConsumerLag; }
+
+        @Override
+        public String toString() {
+            return String.format("published=%d, dropped=%d, maxConsumerLag=%d", published, dropped, maxConsumerLag);
+        }
+    }
+}
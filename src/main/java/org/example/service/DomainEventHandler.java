@@ -0,0 +1,13 @@
+package org.example.service;
+
+import org.example.model.DomainEvent;
+
+/**
+ * Consumer of the domain event bus, called on the consumer's own thread in publish order
+ */
+public interface DomainEventHandler {
+    /**
+     * @param endOfBatch whether this is the last event available for now, e.g. to flush
+     */
+    void onEvent(DomainEvent event, long sequence, boolean endOfBatch);
+}
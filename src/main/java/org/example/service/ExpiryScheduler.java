@@ -0,0 +1,198 @@
+package org.example.service;
+
+import org.example.config.ConfigManager;
+import org.example.dao.StockBatchListener;
+import org.example.model.StockBatch;
+import org.example.util.TimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Expiry alerting for warehouse batches.
+ * Each batch holds two deadlines in a timing wheel: the start of its warning window
+ * and the end of its expiry day. Deadlines are loaded once from the batch index and
+ * kept current as batches arrive or are depleted, so a tick never scans stock_batches.
+ */
+public class ExpiryScheduler implements StockBatchListener {
+    private static final Logger logger = LoggerFactory.getLogger(ExpiryScheduler.class);
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 4;
+
+    /**
+     * Receiver of expiry events, e.g. console alerts, a write-off job or markdown pricing
+     */
+    public interface ExpiryListener {
+        void onNearExpiry(StockBatch batch);
+        void onExpired(StockBatch batch);
+    }
+
+    private final int warningDays;
+    private final long tickMillis;
+    private final TimingWheel<String, StockBatch> wheel;
+    private final Set<Integer> trackedBatches = ConcurrentHashMap.newKeySet();
+    private final List<ExpiryListener> listeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService executor;
+
+    public ExpiryScheduler() {
+        this(ConfigManager.getInstance().getExpiryWarningDays(),
+                TimeUnit.MINUTES.toMillis(ConfigManager.getInstance().getExpiryTickMinutes()),
+                System.currentTimeMillis());
+    }
+
+    public ExpiryScheduler(int warningDays, long tickMillis, long startMillis) {
+        this.warningDays = warningDays;
+        this.tickMillis = tickMillis;
+        this.wheel = new TimingWheel<>(tickMillis, WHEEL_SIZE, WHEEL_LEVELS, startMillis);
+    }
+
+    public void addListener(ExpiryListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Start ticking on a background thread
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "expiry-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        logger.info("Expiry scheduler started: {} batches tracked, warning window {} days",
+                trackedBatches.size(), warningDays);
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public void tick() {
+        tick(System.currentTimeMillis());
+    }
+
+    /**
+     * Advance to the given time and fire every deadline that has passed
+     */
+    public void tick(long nowMillis) {
+        try {
+            wheel.advanceTo(nowMillis, this::fire);
+        } catch (Exception e) {
+            logger.error("Error advancing expiry scheduler", e);
+        }
+    }
+
+    public int getTrackedBatchCount() {
+        return trackedBatches.size();
+    }
+
+    @Override
+    public void onBatchAvailable(StockBatch batch) {
+        onBatchAvailable(batch, System.currentTimeMillis());
+    }
+
+    void onBatchAvailable(StockBatch batch, long nowMillis) {
+        int batchId = batch.getBatchId();
+        if (!trackedBatches.add(batchId)) {
+            // Already scheduled; only refresh the snapshot handed to listeners
+            wheel.update(nearKey(batchId), batch);
+            wheel.update(expiredKey(batchId), batch);
+            return;
+        }
+
+        long expiredAt = endOfExpiryDay(batch);
+        long nearAt = expiredAt - (warningDays + 1L) * DAY_MILLIS;
+        if (expiredAt <= nowMillis) {
+            notifyExpired(batch);
+            return;
+        }
+        if (nearAt <= nowMillis) {
+            notifyNearExpiry(batch);
+        } else {
+            wheel.schedule(nearKey(batchId), nearAt, batch);
+        }
+        wheel.schedule(expiredKey(batchId), expiredAt, batch);
+    }
+
+    @Override
+    public void onBatchDepleted(int batchId) {
+        trackedBatches.remove(batchId);
+        wheel.cancel(nearKey(batchId));
+        wheel.cancel(expiredKey(batchId));
+    }
+
+    private void fire(String key, StockBatch batch) {
+        if (key.startsWith("N")) {
+            notifyNearExpiry(batch);
+        } else {
+            notifyExpired(batch);
+        }
+    }
+
+    private void notifyNearExpiry(StockBatch batch) {
+        for (ExpiryListener listener : listeners) {
+            try {
+                listener.onNearExpiry(batch);
+            } catch (Exception e) {
+                logger.error("Expiry listener failed for batch: " + batch.getBatchId(), e);
+            }
+        }
+    }
+
+    private void notifyExpired(StockBatch batch) {
+        for (ExpiryListener listener : listeners) {
+            try {
+                listener.onExpired(batch);
+            } catch (Exception e) {
+                logger.error("Expiry listener failed for batch: " + batch.getBatchId(), e);
+            }
+        }
+    }
+
+    // A batch is sellable through its expiry date and expires at the following midnight
+    private long endOfExpiryDay(StockBatch batch) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(batch.getExpiryDate().getTime());
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        cal.add(Calendar.DAY_OF_MONTH, 1);
+        return cal.getTimeInMillis();
+    }
+
+    private static String nearKey(int batchId) {
+        return "N" + batchId;
+    }
+
+    private static String expiredKey(int batchId) {
+        return "E" + batchId;
+    }
+
+    /**
+     * Listener that reports expiry events through the application log
+     */
+    public static class LoggingExpiryListener implements ExpiryListener {
+        @Override
+        public void onNearExpiry(StockBatch batch) {
+            logger.warn("Batch {} of {} expires on {}: {} units left",
+                    batch.getBatchId(), batch.getItemCode(), batch.getExpiryDate(), batch.getQuantity());
+        }
+
+        @Override
+        public void onExpired(StockBatch batch) {
+            logger.warn("Batch {} of {} has expired ({}): {} units to write off",
+                    batch.getBatchId(), batch.getItemCode(), batch.getExpiryDate(), batch.getQuantity());
+        }
+    }
+}
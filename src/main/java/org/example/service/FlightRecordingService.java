@@ -0,0 +1,83 @@
+package org.example.service;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Flight recording of the whole session: the JDK's default profile with the bundled
+ * jfr/syos.jfc settings on top, which turn on the checkout phase and SQL statement events.
+ * The recording keeps a bounded age on disk and is written to its file on stop, for JDK Mission Control.
+ */
+public class FlightRecordingService {
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecordingService.class);
+    static final String SETTINGS_RESOURCE = "jfr/syos.jfc";
+
+    private final Path destination;
+    private final Duration maxAge;
+    private Recording recording;
+
+    public FlightRecordingService(Path destination, Duration maxAge) {
+        this.destination = destination;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * The default profile overlaid with the bundled settings
+     */
+    static Map<String, String> settings() throws IOException, ParseException {
+        Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+        InputStream input = FlightRecordingService.class.getClassLoader().getResourceAsStream(SETTINGS_RESOURCE);
+        if (input == null) {
+            throw new IOException("Missing JFR settings " + SETTINGS_RESOURCE);
+        }
+        try (Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+            settings.putAll(Configuration.create(reader).getSettings());
+        }
+        return settings;
+    }
+
+    public synchronized void start() throws IOException, ParseException {
+        if (recording != null) {
+            return;
+        }
+        if (destination.getParent() != null) {
+            Files.createDirectories(destination.getParent());
+        }
+        recording = new Recording(settings());
+        recording.setName("SYOS");
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setDestination(destination);
+        recording.start();
+        logger.info("Flight recording started, written to {} on exit", destination);
+    }
+
+    public synchronized void stop() {
+        if (recording == null) {
+            return;
+        }
+        try {
+            recording.stop();
+            logger.info("Flight recording written to {}", destination);
+        } catch (RuntimeException e) {
+            logger.error("Error writing flight recording", e);
+        } finally {
+            recording.close();
+            recording = null;
+        }
+    }
+}
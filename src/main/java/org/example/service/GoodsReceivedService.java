@@ -0,0 +1,361 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.ConfigManager;
+import org.example.dao.ItemDAO;
+import org.example.model.StockBatch;
+import org.example.service.CatalogImportService.RowError;
+import org.example.util.CsvReader;
+import org.example.util.ValidationUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Receives a supplier's delivery manifest into the warehouse, one stock batch per manifest line.
+ * The manifest, CSV or a JSON array of objects by file extension, is streamed and saved in chunks:
+ * the item codes of a chunk are checked against the catalog in one query and its batches are
+ * inserted in one transaction, so a delivery of any size runs in constant memory. Lines that fail
+ * validation or name an unknown or inactive item are reported with their line number and skipped.
+ * Fields: item_code, quantity and expiry_date are required; received_date (default today),
+ * supplier_name and purchase_price are optional. Dates are yyyy-MM-dd.
+ */
+public class GoodsReceivedService {
+    private static final Logger logger = LoggerFactory.getLogger(GoodsReceivedService.class);
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final double MAX_PRICE = 99_999_999.99;
+
+    private final ItemDAO itemDAO;
+    private final StockService stockService;
+    private final int chunkSize;
+
+    public GoodsReceivedService(ItemDAO itemDAO, StockService stockService) {
+        this(itemDAO, stockService, ConfigManager.getInstance().getIntProperty("stock.manifest.chunkSize", 1000));
+    }
+
+    public GoodsReceivedService(ItemDAO itemDAO, StockService stockService, int chunkSize) {
+        this.itemDAO = itemDAO;
+        this.stockService = stockService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param progress called after every chunk with the running totals
+     * @throws IOException if the manifest cannot be read or is malformed; chunks saved before that stay received
+     */
+    public IngestResult ingest(Path manifest, Consumer<IngestResult> progress) throws IOException {
+        IngestResult result = new IngestResult();
+        CatalogCheck catalog = new CatalogCheck();
+        try (ManifestReader reader = open(manifest)) {
+            List<StockBatch> chunk = new ArrayList<>(chunkSize);
+            List<Long> lines = new ArrayList<>(chunkSize);
+            Map<String, String> fields;
+            while ((fields = reader.next()) != null) {
+                result.linesRead++;
+                try {
+                    chunk.add(parseBatch(fields));
+                    lines.add(reader.line());
+                } catch (IllegalArgumentException e) {
+                    result.reject(reader.line(), e.getMessage());
+                }
+                if (chunk.size() == chunkSize) {
+                    save(chunk, lines, catalog, result);
+                    progress.accept(result);
+                }
+            }
+            save(chunk, lines, catalog, result);
+            progress.accept(result);
+        }
+        logger.info("Delivery manifest {}: {}", manifest, result);
+        return result;
+    }
+
+    private static ManifestReader open(Path manifest) throws IOException {
+        return manifest.getFileName().toString().toLowerCase().endsWith(".json")
+                ? new JsonManifest(manifest)
+                : CsvManifest.open(manifest);
+    }
+
+    private StockBatch parseBatch(Map<String, String> fields) {
+        String code = field(fields, "item_code").toUpperCase();
+        if (!ValidationUtils.isValidItemCode(code)) {
+            throw new IllegalArgumentException("Invalid item code: '" + code + "'");
+        }
+        String quantity = field(fields, "quantity");
+        if (!ValidationUtils.isNonNegativeInteger(quantity) || Integer.parseInt(quantity) == 0) {
+            throw new IllegalArgumentException("Invalid quantity: '" + quantity + "'");
+        }
+        LocalDate received = date(fields, "received_date", LocalDate.now());
+        LocalDate expiry = date(fields, "expiry_date", null);
+        if (expiry.isBefore(received)) {
+            throw new IllegalArgumentException("Expiry date " + expiry + " is before received date " + received);
+        }
+        String supplier = field(fields, "supplier_name");
+        if (supplier.length() > 100) {
+            throw new IllegalArgumentException("Supplier name longer than 100 characters");
+        }
+        String price = field(fields, "purchase_price");
+        double purchasePrice = 0.0;
+        if (!price.isEmpty()) {
+            try {
+                purchasePrice = Double.parseDouble(price);
+            } catch (NumberFormatException e) {
+                purchasePrice = Double.NaN;
+            }
+            if (!(purchasePrice >= 0 && purchasePrice <= MAX_PRICE)) {
+                throw new IllegalArgumentException("Invalid purchase_price: '" + price + "'");
+            }
+        }
+
+        return new StockBatch(0, code, Integer.parseInt(quantity), java.sql.Date.valueOf(received),
+                java.sql.Date.valueOf(expiry), supplier.isEmpty() ? null : supplier, purchasePrice);
+    }
+
+    private static LocalDate date(Map<String, String> fields, String name, LocalDate defaultValue) {
+        String value = field(fields, name);
+        if (value.isEmpty()) {
+            if (defaultValue == null) {
+                throw new IllegalArgumentException("Missing " + name);
+            }
+            return defaultValue;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": '" + value + "', use yyyy-MM-dd");
+        }
+    }
+
+    private static String field(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        return value == null ? "" : value.trim();
+    }
+
+    private void save(List<StockBatch> chunk, List<Long> lines, CatalogCheck catalog, IngestResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            catalog.lookUp(chunk);
+            List<StockBatch> accepted = new ArrayList<>(chunk.size());
+            List<Long> acceptedLines = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                StockBatch batch = chunk.get(i);
+                if (catalog.activeCodes.contains(batch.getItemCode())) {
+                    accepted.add(batch);
+                    acceptedLines.add(lines.get(i));
+                } else {
+                    result.reject(lines.get(i), "Unknown or inactive item: " + batch.getItemCode());
+                }
+            }
+            try {
+                stockService.receiveBatches(accepted);
+                result.batchesReceived += accepted.size();
+                for (StockBatch batch : accepted) {
+                    result.unitsReceived += batch.getQuantity();
+                }
+            } catch (RuntimeException e) {
+                rejectAll(acceptedLines, e, result);
+            }
+        } catch (RuntimeException e) {
+            rejectAll(lines, e, result);
+        }
+        chunk.clear();
+        lines.clear();
+    }
+
+    private static void rejectAll(List<Long> lines, RuntimeException e, IngestResult result) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        logger.warn("Manifest chunk of {} lines not received: {}", lines.size(), cause.getMessage());
+        for (long line : lines) {
+            result.reject(line, "Not received, its chunk failed: " + cause.getMessage());
+        }
+    }
+
+    /**
+     * Inner class for the item codes the catalog has confirmed or refused during one manifest,
+     * so each code is looked up once however many lines name it
+     */
+    private class CatalogCheck {
+        private final Set<String> activeCodes = new HashSet<>();
+        private final Set<String> refusedCodes = new HashSet<>();
+
+        private void lookUp(List<StockBatch> chunk) {
+            Set<String> unchecked = new HashSet<>();
+            for (StockBatch batch : chunk) {
+                String code = batch.getItemCode();
+                if (!activeCodes.contains(code) && !refusedCodes.contains(code)) {
+                    unchecked.add(code);
+                }
+            }
+            if (unchecked.isEmpty()) {
+                return;
+            }
+            Set<String> found = itemDAO.findActiveItemCodes(unchecked);
+            activeCodes.addAll(found);
+            unchecked.removeAll(found);
+            refusedCodes.addAll(unchecked);
+        }
+    }
+
+    /**
+     * Source of manifest lines, each as field name to value
+     */
+    private interface ManifestReader extends Closeable {
+        /**
+         * @return the fields of the next line, or null at the end of the manifest
+         */
+        Map<String, String> next() throws IOException;
+
+        /**
+         * Line of the file on which the last manifest line read started
+         */
+        long line();
+    }
+
+    /**
+     * Inner class for a CSV manifest, fields named by its header
+     */
+    private static class CsvManifest implements ManifestReader {
+        private final CsvReader csv;
+        private final List<String> header;
+
+        private CsvManifest(CsvReader csv, List<String> header) {
+            this.csv = csv;
+            this.header = header;
+        }
+
+        static CsvManifest open(Path file) throws IOException {
+            CsvReader csv = CsvReader.open(file);
+            try {
+                List<String> header = csv.readRecord();
+                if (header == null) {
+                    return new CsvManifest(csv, null);
+                }
+                header.replaceAll(name -> name.trim().toLowerCase());
+                for (String required : new String[]{"item_code", "quantity", "expiry_date"}) {
+                    if (!header.contains(required)) {
+                        throw new IllegalArgumentException("Manifest has no " + required + " column");
+                    }
+                }
+                return new CsvManifest(csv, header);
+            } catch (IOException | RuntimeException e) {
+                csv.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            List<String> record = header == null ? null : csv.readRecord();
+            if (record == null) {
+                return null;
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < header.size() && i < record.size(); i++) {
+                fields.put(header.get(i), record.get(i));
+            }
+            return fields;
+        }
+
+        @Override
+        public long line() {
+            return csv.getRecordLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            csv.close();
+        }
+    }
+
+    /**
+     * Inner class for a JSON manifest, an array of flat objects read one object at a time
+     */
+    private static class JsonManifest implements ManifestReader {
+        private final JsonParser parser;
+        private long line;
+
+        JsonManifest(Path file) throws IOException {
+            parser = JSON.getFactory().createParser(file.toFile());
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                parser.close();
+                throw new IOException("Manifest must be a JSON array of lines");
+            }
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            line = parser.getTokenLocation().getLineNr();
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a manifest line object on line " + line);
+            }
+            Map<String, String> fields = new HashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName().toLowerCase();
+                JsonToken value = parser.nextToken();
+                if (value.isStructStart()) {
+                    parser.skipChildren();
+                } else if (value != JsonToken.VALUE_NULL) {
+                    fields.put(name, parser.getText());
+                }
+            }
+            return fields;
+        }
+
+        @Override
+        public long line() {
+            return line;
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+
+    /**
+     * Inner class for the running totals of a manifest
+     */
+    public static class IngestResult {
+        private long linesRead;
+        private long batchesReceived;
+        private long unitsReceived;
+        private long rejected;
+        private final List<RowError> errors = new ArrayList<>();
+
+        private void reject(long line, String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(line, message));
+            }
+        }
+
+        // Getters
+        public long getLinesRead() { return linesRead; }
+        public long getBatchesReceived() { return batchesReceived; }
+        public long getUnitsReceived() { return unitsReceived; }
+        public long getRejected() { return rejected; }
+        public List<RowError> getErrors() { return Collections.unmodifiableList(errors); }
+
+        @Override
+        public String toString() {
+            return String.format("lines=%d, batches=%d, units=%d, rejected=%d",
+                    linesRead, batchesReceived, unitsReceived, rejected);
+        }
+    }
+}
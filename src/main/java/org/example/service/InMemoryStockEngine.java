@@ -0,0 +1,551 @@
+package org.example.service;
+
+import org.example.dao.ShelfStockDAO;
+import org.example.dao.WebsiteInventoryDAO;
+import org.example.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * In-memory authoritative shelf and website stock for high-volume selling.
+ * Each item gets a slot index into a lock-free table whose cells pack a version and a quantity;
+ * sales check and take stock with compare-and-set, never waiting on the database.
+ * A change is marked dirty and appended to the journal before it is acknowledged. A background
+ * thread writes dirty quantities back through the DAOs in batches and then trims the journal
+ * to the changes the database does not have yet.
+ * Recovery is {@link #initialize()}: load both tables, then replay the journal on top, so
+ * after a crash the unwritten changes are restored and written back before selling resumes.
+ * While the engine runs, stock operations that move shelf or website stock go through it too,
+ * since the tables lag behind by up to one write-behind interval.
+ */
+public class InMemoryStockEngine {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryStockEngine.class);
+    private static final StockLocation[] LOCATIONS = {StockLocation.SHELF, StockLocation.WEBSITE};
+    // Version 0, quantity -1: the item has no row in this location
+    private static final long ABSENT = 0xFFFFFFFFL;
+
+    private final ShelfStockDAO shelfDAO;
+    private final WebsiteInventoryDAO websiteDAO;
+    private final StockEngineJournal journal;
+    private final int capacity;
+    private final long flushMillis;
+    private final ConcurrentMap<String, Integer> slots = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> itemCodes;
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final AtomicLongArray cells;
+    private final AtomicIntegerArray dirty;
+    private final Queue<Integer> dirtyCells = new ConcurrentLinkedQueue<>();
+    private final ShelfStockDAO shelfView = new ShelfView();
+    private final WebsiteInventoryDAO websiteView = new WebsiteView();
+    private ScheduledExecutorService flusher;
+
+    public InMemoryStockEngine(ShelfStockDAO shelfDAO, WebsiteInventoryDAO websiteDAO, StockEngineJournal journal,
+                               int capacity, long flushMillis) {
+        this.shelfDAO = shelfDAO;
+        this.websiteDAO = websiteDAO;
+        this.journal = journal;
+        this.capacity = capacity;
+        this.flushMillis = flushMillis;
+        this.itemCodes = new AtomicReferenceArray<>(capacity);
+        this.cells = new AtomicLongArray(capacity * LOCATIONS.length);
+        this.dirty = new AtomicIntegerArray(capacity * LOCATIONS.length);
+        for (int cell = 0; cell < cells.length(); cell++) {
+            cells.set(cell, ABSENT);
+        }
+    }
+
+    /**
+     * Load stock from the database and recover changes journaled before a crash
+     */
+    public synchronized void initialize() throws IOException {
+        for (ShelfStock stock : shelfDAO.getAllShelfStock()) {
+            cells.set(cell(slotFor(stock.getItemCode()), StockLocation.SHELF), pack(0, stock.getQuantity()));
+        }
+        for (WebsiteInventory inventory : websiteDAO.getAllWebsiteInventory()) {
+            cells.set(cell(slotFor(inventory.getItemCode()), StockLocation.WEBSITE), pack(0, inventory.getQuantity()));
+        }
+
+        List<StockEngineJournal.Entry> recovered = journal.replay();
+        for (StockEngineJournal.Entry entry : recovered) {
+            int cell = cell(slotFor(entry.getItemCode()), entry.getLocation());
+            cells.set(cell, pack(entry.getVersion(), entry.getQuantity()));
+            markDirty(cell);
+        }
+        // Writes recovered changes to the database, then opens a fresh journal
+        flush();
+        logger.info("Stock engine loaded {} items, {} journaled change(s) recovered", nextSlot.get(), recovered.size());
+    }
+
+    /**
+     * Start writing changes behind on a background thread
+     */
+    public synchronized void start() {
+        if (flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stock-engine-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        logger.info("Stock engine started (write-behind every {} ms)", flushMillis);
+    }
+
+    /**
+     * Stop the background thread and write everything; a clean stop leaves the journal empty
+     */
+    public void stop() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = flusher;
+            flusher = null;
+        }
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushQuietly();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.error("Error closing stock engine journal", e);
+        }
+    }
+
+    /**
+     * Shelf stock served from memory, for checkout
+     */
+    public ShelfStockDAO shelfStockDAO() {
+        return shelfView;
+    }
+
+    /**
+     * Website inventory served from memory, for checkout
+     */
+    public WebsiteInventoryDAO websiteInventoryDAO() {
+        return websiteView;
+    }
+
+    public int getQuantity(String itemCode, StockLocation location) {
+        Integer slot = slots.get(itemCode);
+        return slot == null ? 0 : Math.max(0, quantity(cells.get(cell(slot, location))));
+    }
+
+    /**
+     * Take stock if enough is left
+     *
+     * @return false if the location holds less than {@code quantity}
+     */
+    public boolean tryTake(String itemCode, StockLocation location, int quantity) {
+        Integer slot = slots.get(itemCode);
+        if (slot == null) {
+            return false;
+        }
+        int cell = cell(slot, location);
+        long current;
+        long next;
+        do {
+            current = cells.get(cell);
+            if (quantity(current) < quantity) {
+                return false;
+            }
+            next = pack(version(current) + 1, quantity(current) - quantity);
+        } while (!cells.compareAndSet(cell, current, next));
+
+        markDirty(cell);
+        try {
+            journal.record(location, itemCode, version(next), quantity(next));
+        } catch (IOException e) {
+            // Not journaled means not acknowledged: put the stock back and fail the sale
+            update(cell, q -> q + quantity);
+            logger.error("Could not journal stock change for item: " + itemCode, e);
+            throw new RuntimeException("Failed to reduce stock", e);
+        }
+        return true;
+    }
+
+    /**
+     * Take stock for several items, all or nothing
+     *
+     * @return false if any item is short, in which case what was taken is put back
+     */
+    public boolean tryTakeAll(Map<String, Integer> quantities, StockLocation location) {
+        // Item code order, the same order the database DAOs lock rows in
+        Map<String, Integer> taken = new TreeMap<>();
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(quantities).entrySet()) {
+            boolean ok;
+            try {
+                ok = tryTake(entry.getKey(), location, entry.getValue());
+            } catch (RuntimeException e) {
+                taken.forEach((itemCode, quantity) -> adjust(itemCode, location, quantity));
+                throw e;
+            }
+            if (!ok) {
+                logger.warn("Insufficient stock for item {} at {}. Requested: {}", entry.getKey(), location, entry.getValue());
+                taken.forEach((itemCode, quantity) -> adjust(itemCode, location, quantity));
+                return false;
+            }
+            taken.put(entry.getKey(), entry.getValue());
+        }
+        return true;
+    }
+
+    /**
+     * Take stock for a sale that has already been made: what the location holds, up to the quantity
+     *
+     * @return units taken, less than {@code quantity} if the location was short
+     */
+    public int takeAvailable(String itemCode, StockLocation location, int quantity) {
+        int[] taken = new int[1];
+        change(itemCode, location, q -> {
+            taken[0] = Math.min(q, quantity);
+            return q - taken[0];
+        });
+        return taken[0];
+    }
+
+    /**
+     * Add (or with a negative delta remove) stock, e.g. to restore a failed sale
+     *
+     * @throws IllegalStateException if the quantity would go negative, in which case nothing changes
+     */
+    public void adjust(String itemCode, StockLocation location, int delta) {
+        change(itemCode, location, q -> {
+            if (q + delta < 0) {
+                throw new IllegalStateException("Stock for item " + itemCode + " at " + location
+                        + " would go negative (" + q + " " + delta + ")");
+            }
+            return q + delta;
+        });
+    }
+
+    /**
+     * Add stock, e.g. a batch moved onto the shelf
+     */
+    public void put(String itemCode, StockLocation location, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity to put must not be negative: " + quantity);
+        }
+        change(itemCode, location, q -> q + quantity);
+    }
+
+    /**
+     * Move stock between shelf and website, checked against the in-memory quantity
+     *
+     * @return false if the source holds less than {@code quantity}, in which case nothing moves
+     */
+    public boolean transfer(String itemCode, StockLocation from, StockLocation to, int quantity) {
+        if (quantity <= 0 || !tryTake(itemCode, from, quantity)) {
+            return false;
+        }
+        put(itemCode, to, quantity);
+        return true;
+    }
+
+    public void setQuantity(String itemCode, StockLocation location, int quantity) {
+        change(itemCode, location, q -> quantity);
+    }
+
+    /**
+     * Write dirty quantities to the database in one batch per table, then trim the journal
+     *
+     * @return number of quantities written
+     */
+    public synchronized int flush() {
+        Map<String, Integer> shelf = new HashMap<>();
+        Map<String, Integer> website = new HashMap<>();
+        List<Integer> written = new ArrayList<>();
+        Integer cell;
+        while ((cell = dirtyCells.poll()) != null) {
+            // Clear before reading, so a change after the read marks the cell again
+            dirty.set(cell, 0);
+            written.add(cell);
+            String itemCode = itemCodes.get(cell / LOCATIONS.length);
+            int quantity = quantity(cells.get(cell));
+            (location(cell) == StockLocation.SHELF ? shelf : website).put(itemCode, quantity);
+        }
+        try {
+            shelfDAO.saveShelfStockBatch(shelf);
+            websiteDAO.saveWebsiteInventoryBatch(website);
+        } catch (RuntimeException e) {
+            written.forEach(this::markDirty);
+            throw e;
+        }
+        try {
+            journal.compact(this::pendingEntries);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to compact stock engine journal", e);
+        }
+        if (!written.isEmpty()) {
+            logger.debug("Stock engine wrote {} shelf and {} website quantities", shelf.size(), website.size());
+        }
+        return written.size();
+    }
+
+    private void change(String itemCode, StockLocation location, IntUnaryOperator operation) {
+        int cell = cell(slotFor(itemCode), location);
+        long next = update(cell, operation);
+        try {
+            journal.record(location, itemCode, version(next), quantity(next));
+        } catch (IOException e) {
+            // Still marked dirty, so the next flush makes it durable in the database
+            logger.error("Could not journal stock change for item: " + itemCode, e);
+        }
+    }
+
+    private long update(int cell, IntUnaryOperator operation) {
+        long current;
+        long next;
+        do {
+            current = cells.get(cell);
+            next = pack(version(current) + 1, operation.applyAsInt(Math.max(0, quantity(current))));
+        } while (!cells.compareAndSet(cell, current, next));
+        markDirty(cell);
+        return next;
+    }
+
+    private void markDirty(int cell) {
+        if (dirty.compareAndSet(cell, 0, 1)) {
+            dirtyCells.add(cell);
+        }
+    }
+
+    /**
+     * Current value of every cell the database is behind on; called with journal appends blocked
+     */
+    private Collection<StockEngineJournal.Entry> pendingEntries() {
+        Map<Integer, StockEngineJournal.Entry> entries = new TreeMap<>();
+        for (int cell : dirtyCells) {
+            long value = cells.get(cell);
+            entries.put(cell, new StockEngineJournal.Entry(location(cell), itemCodes.get(cell / LOCATIONS.length),
+                    version(value), quantity(value)));
+        }
+        return entries.values();
+    }
+
+    private int slotFor(String itemCode) {
+        Integer slot = slots.get(itemCode);
+        if (slot != null) {
+            return slot;
+        }
+        return slots.computeIfAbsent(itemCode, code -> {
+            int next = nextSlot.getAndIncrement();
+            if (next >= capacity) {
+                throw new IllegalStateException("Stock engine is full (" + capacity + " items), raise stock.engine.capacity");
+            }
+            itemCodes.set(next, code);
+            return next;
+        });
+    }
+
+    private List<String> knownItems() {
+        List<String> known = new ArrayList<>();
+        int count = Math.min(nextSlot.get(), capacity);
+        for (int slot = 0; slot < count; slot++) {
+            String itemCode = itemCodes.get(slot);
+            if (itemCode != null) {
+                known.add(itemCode);
+            }
+        }
+        Collections.sort(known);
+        return known;
+    }
+
+    private Optional<Integer> find(String itemCode, StockLocation location) {
+        Integer slot = slots.get(itemCode);
+        if (slot == null) {
+            return Optional.empty();
+        }
+        int quantity = quantity(cells.get(cell(slot, location)));
+        return quantity < 0 ? Optional.empty() : Optional.of(quantity);
+    }
+
+    private static int cell(int slot, StockLocation location) {
+        return slot * LOCATIONS.length + (location == StockLocation.SHELF ? 0 : 1);
+    }
+
+    private static StockLocation location(int cell) {
+        return LOCATIONS[cell % LOCATIONS.length];
+    }
+
+    private static long pack(int version, int quantity) {
+        return ((long) version << 32) | (quantity & 0xFFFFFFFFL);
+    }
+
+    private static int version(long value) {
+        return (int) (value >>> 32);
+    }
+
+    private static int quantity(long value) {
+        return (int) value;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Error writing stock engine changes, {} pending", dirtyCells.size(), e);
+        }
+    }
+
+    /**
+     * Shelf stock DAO backed by the engine
+     */
+    private class ShelfView implements ShelfStockDAO {
+        @Override
+        public Optional<ShelfStock> getShelfStock(String itemCode) {
+            return find(itemCode, StockLocation.SHELF).map(quantity -> new ShelfStock(itemCode, quantity));
+        }
+
+        @Override
+        public void updateShelfStock(String itemCode, int quantity) {
+            setQuantity(itemCode, StockLocation.SHELF, quantity);
+        }
+
+        @Override
+        public void addShelfStock(ShelfStock stock) {
+            setQuantity(stock.getItemCode(), StockLocation.SHELF, stock.getQuantity());
+        }
+
+        @Override
+        public List<ShelfStock> getAllShelfStock() {
+            List<ShelfStock> stockList = new ArrayList<>();
+            for (String itemCode : knownItems()) {
+                getShelfStock(itemCode).ifPresent(stockList::add);
+            }
+            return stockList;
+        }
+
+        @Override
+        public List<ShelfStock> getLowStockItems(int threshold) {
+            List<ShelfStock> lowStockItems = new ArrayList<>();
+            for (ShelfStock stock : getAllShelfStock()) {
+                if (stock.getQuantity() < threshold) {
+                    lowStockItems.add(stock);
+                }
+            }
+            lowStockItems.sort(Comparator.comparingInt(ShelfStock::getQuantity));
+            return lowStockItems;
+        }
+
+        @Override
+        public boolean reduceShelfStock(String itemCode, int quantity) {
+            if (tryTake(itemCode, StockLocation.SHELF, quantity)) {
+                return true;
+            }
+            logger.warn("Insufficient shelf stock for item: {}. Requested: {}", itemCode, quantity);
+            return false;
+        }
+
+        @Override
+        public int getTotalShelfStock(String itemCode) {
+            return getQuantity(itemCode, StockLocation.SHELF);
+        }
+
+        @Override
+        public boolean reduceShelfStockBatch(Map<String, Integer> quantities, String checkoutRef) {
+            // The engine writes no outbox events, so there is nothing to save the checkout ref with
+            return tryTakeAll(quantities, StockLocation.SHELF);
+        }
+
+        @Override
+        public Map<String, Integer> takeShelfStockBatch(Map<String, Integer> quantities, String checkoutRef) {
+            Map<String, Integer> shortfall = new TreeMap<>();
+            new TreeMap<>(quantities).forEach((itemCode, quantity) -> {
+                int taken = takeAvailable(itemCode, StockLocation.SHELF, quantity);
+                if (taken < quantity) {
+                    shortfall.put(itemCode, quantity - taken);
+                }
+            });
+            return shortfall;
+        }
+
+        @Override
+        public void saveShelfStockBatch(Map<String, Integer> quantities) {
+            quantities.forEach(this::updateShelfStock);
+        }
+
+        @Override
+        public void addShelfStockBatch(Map<String, Integer> quantities, String checkoutRef) {
+            quantities.forEach((itemCode, quantity) -> put(itemCode, StockLocation.SHELF, quantity));
+        }
+    }
+
+    /**
+     * Website inventory DAO backed by the engine
+     */
+    private class WebsiteView implements WebsiteInventoryDAO {
+        @Override
+        public Optional<WebsiteInventory> getWebsiteInventory(String itemCode) {
+            return find(itemCode, StockLocation.WEBSITE).map(quantity -> new WebsiteInventory(itemCode, quantity));
+        }
+
+        @Override
+        public void updateWebsiteInventory(String itemCode, int quantity) {
+            setQuantity(itemCode, StockLocation.WEBSITE, quantity);
+        }
+
+        @Override
+        public void addWebsiteInventory(WebsiteInventory inventory) {
+            setQuantity(inventory.getItemCode(), StockLocation.WEBSITE, inventory.getQuantity());
+        }
+
+        @Override
+        public List<WebsiteInventory> getAllWebsiteInventory() {
+            List<WebsiteInventory> inventoryList = new ArrayList<>();
+            for (String itemCode : knownItems()) {
+                getWebsiteInventory(itemCode).ifPresent(inventoryList::add);
+            }
+            return inventoryList;
+        }
+
+        @Override
+        public List<WebsiteInventory> getAvailableItems() {
+            List<WebsiteInventory> availableItems = new ArrayList<>();
+            for (WebsiteInventory inventory : getAllWebsiteInventory()) {
+                if (inventory.getQuantity() > 0) {
+                    availableItems.add(inventory);
+                }
+            }
+            return availableItems;
+        }
+
+        @Override
+        public boolean reduceWebsiteInventory(String itemCode, int quantity) {
+            if (tryTake(itemCode, StockLocation.WEBSITE, quantity)) {
+                return true;
+            }
+            logger.warn("Insufficient website inventory for item: {}. Requested: {}", itemCode, quantity);
+            return false;
+        }
+
+        @Override
+        public boolean reduceWebsiteInventoryBatch(Map<String, Integer> quantities, String checkoutRef) {
+            return tryTakeAll(quantities, StockLocation.WEBSITE);
+        }
+
+        @Override
+        public void saveWebsiteInventoryBatch(Map<String, Integer> quantities) {
+            quantities.forEach(this::updateWebsiteInventory);
+        }
+
+        @Override
+        public void addWebsiteInventoryBatch(Map<String, Integer> quantities, String checkoutRef) {
+            quantities.forEach((itemCode, quantity) -> put(itemCode, StockLocation.WEBSITE, quantity));
+        }
+    }
+}
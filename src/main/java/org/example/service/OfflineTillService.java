@@ -0,0 +1,358 @@
+package org.example.service;
+
+import org.example.config.ConfigManager;
+import org.example.model.BillItem;
+import org.example.model.Cart;
+import org.example.model.DomainEvent;
+import org.example.model.Item;
+import org.example.model.OfflineSale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Keeps in-store lanes selling while the database is unreachable.
+ * Items are looked up in a cached copy of the catalog and sales are written to a local journal.
+ * A background probe notices when the database answers again. It then bills the queued sales
+ * in the order they were made, dated when they were made. Each bill gets the next real serial
+ * number, which is logged against the offline receipt number. The goods of a queued sale are
+ * already gone, so a short shelf does not stop its bill; the shortfall is reported instead.
+ * Sales the database refuses are kept, reported and tried again on every pass.
+ */
+public class OfflineTillService implements DomainEventHandler {
+    private static final Logger logger = LoggerFactory.getLogger(OfflineTillService.class);
+
+    private final OfflineSaleJournal journal;
+    private final Supplier<ReplaySession> sessions;
+    private final BooleanSupplier laneDatabaseCheck;
+    private final long probeMillis;
+    private final long catalogRefreshMillis;
+    private final ConcurrentMap<String, Item> catalog = new ConcurrentHashMap<>();
+    private final Deque<OfflineSale> pending = new ArrayDeque<>();
+    // Sales the database refused, with the reason; journaled as conflicts and retried after the queue
+    private final Map<OfflineSale, String> refused = new LinkedHashMap<>();
+    private final List<String> report = new CopyOnWriteArrayList<>();
+    private final AtomicLong lastNumber = new AtomicLong();
+    private volatile boolean offline;
+    private long catalogLoadedAt;
+    private boolean journalGrown;
+    private ScheduledExecutorService prober;
+
+    public OfflineTillService(OfflineSaleJournal journal, Supplier<ReplaySession> sessions,
+                              BooleanSupplier laneDatabaseCheck) {
+        this(journal, sessions, laneDatabaseCheck,
+                ConfigManager.getInstance().getIntProperty("offline.probeMillis", 2000),
+                TimeUnit.SECONDS.toMillis(ConfigManager.getInstance().getIntProperty("offline.catalogRefreshSeconds", 300)));
+    }
+
+    /**
+     * @param sessions opens a database session for replay; throws if the database is unreachable
+     * @param laneDatabaseCheck quick check of the connection the lanes bill on
+     */
+    public OfflineTillService(OfflineSaleJournal journal, Supplier<ReplaySession> sessions,
+                              BooleanSupplier laneDatabaseCheck, long probeMillis, long catalogRefreshMillis) {
+        this.journal = journal;
+        this.sessions = sessions;
+        this.laneDatabaseCheck = laneDatabaseCheck;
+        this.probeMillis = probeMillis;
+        this.catalogRefreshMillis = catalogRefreshMillis;
+    }
+
+    /**
+     * Bills a queued sale on its own database connection
+     */
+    public interface ReplaySession extends AutoCloseable {
+        List<Item> loadCatalog();
+
+        /**
+         * @return the bill id, -1 if the sale could not be billed, and the units the shelf was short of
+         */
+        BillingService.OfflineBilling bill(OfflineSale sale);
+
+        int getSerialNumber(int billId);
+
+        boolean isConnected();
+
+        @Override
+        void close();
+    }
+
+    /**
+     * Recover sales that were queued before a restart
+     */
+    public synchronized void initialize() throws IOException {
+        OfflineSaleJournal.Contents contents = journal.replay();
+        pending.addAll(contents.getPending());
+        refused.putAll(contents.getConflicts());
+        lastNumber.set(contents.getLastNumber());
+        journal.compact();
+        if (!pending.isEmpty()) {
+            logger.info("{} offline sales waiting to be billed", pending.size());
+        }
+    }
+
+    public synchronized void start() {
+        if (prober != null) {
+            return;
+        }
+        prober = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "offline-till");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleWithFixedDelay(() -> {
+            try {
+                probe();
+            } catch (Exception e) {
+                logger.error("Error replaying offline sales", e);
+            }
+        }, 0, probeMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (prober != null) {
+            prober.shutdownNow();
+            prober = null;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.error("Error closing offline sale journal", e);
+        }
+    }
+
+    public boolean isOffline() {
+        return offline;
+    }
+
+    /**
+     * Called by a lane after a database call failed: goes offline if the lane's connection is down
+     *
+     * @return whether the till is now offline
+     */
+    public boolean checkOffline() {
+        if (!offline && !laneDatabaseCheck.getAsBoolean()) {
+            offline = true;
+            logger.warn("Database unreachable from the lanes, switching to offline mode");
+        }
+        return offline;
+    }
+
+    public Optional<Item> findCachedItem(String itemCode) {
+        return Optional.ofNullable(catalog.get(itemCode));
+    }
+
+    /**
+     * Keep an item looked up online, so the cache has the price the lane just used
+     */
+    public void remember(Item item) {
+        catalog.put(item.getItemCode(), item);
+    }
+
+    /**
+     * Keep the cached catalog in step with item changes made on this terminal, between full refreshes
+     */
+    @Override
+    public void onEvent(DomainEvent event, long sequence, boolean endOfBatch) {
+        if (event.getType() != DomainEvent.Type.ITEM_UPDATED) {
+            return;
+        }
+        Item item = event.getItem();
+        if (item.isActive()) {
+            remember(item);
+        } else {
+            catalog.remove(item.getItemCode());
+        }
+    }
+
+    /**
+     * Queue an in-store sale; it is on disk when this returns.
+     * The cart's request token is kept, so if the online attempt did commit after all, replay
+     * finds that bill instead of billing twice.
+     */
+    public OfflineSale recordSale(Cart cart, String phone, String name, double cashReceived, double discount)
+            throws IOException {
+        OfflineSale sale = new OfflineSale(cart.getRequestToken(), lastNumber.incrementAndGet(),
+                System.currentTimeMillis(), phone, name, Cart.toCents(cashReceived), Cart.toCents(discount),
+                cart.toBillItems());
+        journal.recordSale(sale);
+        synchronized (this) {
+            pending.addLast(sale);
+            journalGrown = true;
+        }
+        logger.info("Sale recorded offline as {}", sale.getReceiptNumber());
+        return sale;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Sales that could not be billed, then billed sales whose prices have changed since or whose
+     * stock was short
+     */
+    public synchronized List<String> getConflicts() {
+        List<String> conflicts = new ArrayList<>();
+        refused.forEach((sale, reason) -> conflicts.add(describe(sale) + ": " + reason));
+        conflicts.addAll(report);
+        return conflicts;
+    }
+
+    /**
+     * Check the database once; if it answers, refresh the catalog when due and bill queued sales
+     */
+    public void probe() {
+        try (ReplaySession session = sessions.get()) {
+            long now = System.currentTimeMillis();
+            if (catalogLoadedAt == 0 || offline || now - catalogLoadedAt >= catalogRefreshMillis) {
+                // Empty when the query failed; keep the old copy then
+                session.loadCatalog().forEach(this::remember);
+                catalogLoadedAt = now;
+            }
+            replay(session);
+            if (offline && laneDatabaseCheck.getAsBoolean()) {
+                offline = false;
+                logger.info("Database reachable again, lanes back online");
+            }
+        } catch (RuntimeException e) {
+            if (!offline) {
+                logger.warn("Database unreachable, switching to offline mode: {}", e.getMessage());
+                offline = true;
+            }
+        }
+    }
+
+    private void replay(ReplaySession session) {
+        List<OfflineSale> retries;
+        synchronized (this) {
+            retries = new ArrayList<>(refused.keySet());
+        }
+        while (true) {
+            OfflineSale sale;
+            synchronized (this) {
+                sale = pending.peekFirst();
+            }
+            if (sale == null) {
+                break;
+            }
+            if (!settle(session, sale)) {
+                // Stays queued and is tried again, rather than being reported but forgotten on restart
+                return;
+            }
+            synchronized (this) {
+                pending.pollFirst();
+                journalGrown = true;
+            }
+        }
+        // Refused before this pass: the cause may have been fixed since
+        for (OfflineSale sale : retries) {
+            settle(session, sale);
+        }
+        compactIfIdle();
+    }
+
+    /**
+     * Bill one sale, or record it as refused so it is kept and tried again
+     *
+     * @return false if the refusal could not be journaled
+     */
+    private boolean settle(ReplaySession session, OfflineSale sale) {
+        BillingService.OfflineBilling billing;
+        try {
+            billing = session.bill(sale);
+        } catch (RuntimeException e) {
+            if (!session.isConnected()) {
+                throw e;
+            }
+            return refuse(sale, "not billed: " + e.getMessage());
+        }
+        int billId = billing.getBillId();
+        if (billId <= 0) {
+            if (!session.isConnected()) {
+                throw new IllegalStateException("Lost the database while billing " + sale.getReceiptNumber());
+            }
+            return refuse(sale, "not billed, the database refused the bill");
+        }
+
+        int serialNumber = session.getSerialNumber(billId);
+        try {
+            journal.recordBilled(sale.getRequestToken(), billId, serialNumber);
+        } catch (IOException e) {
+            logger.error("Could not mark offline sale billed: " + sale.getReceiptNumber(), e);
+        }
+        synchronized (this) {
+            refused.remove(sale);
+            journalGrown = true;
+        }
+        logger.info("Offline sale {} billed as bill {} with serial {}", sale.getReceiptNumber(), billId, serialNumber);
+        reportPriceChanges(sale, billId);
+        reportShortfall(sale, billId, billing.getShortfall());
+        return true;
+    }
+
+    private boolean refuse(OfflineSale sale, String reason) {
+        synchronized (this) {
+            if (refused.containsKey(sale)) {
+                // Journaled when first refused
+                refused.put(sale, reason);
+                return true;
+            }
+        }
+        try {
+            journal.recordConflict(sale.getRequestToken(), reason);
+        } catch (IOException e) {
+            logger.error("Could not record offline sale conflict: " + sale.getReceiptNumber(), e);
+            return false;
+        }
+        logger.warn("Offline sale {} {}", sale.getReceiptNumber(), reason);
+        synchronized (this) {
+            refused.put(sale, reason);
+        }
+        return true;
+    }
+
+    private void reportPriceChanges(OfflineSale sale, int billId) {
+        for (BillItem item : sale.getItems()) {
+            Item current = catalog.get(item.getItemCode());
+            if (current != null && Cart.toCents(current.getPrice()) != Cart.toCents(item.getUnitPrice())) {
+                String note = String.format("billed as bill %d at the offline price of %s, Rs. %.2f (now Rs. %.2f)",
+                        billId, item.getItemCode(), item.getUnitPrice(), current.getPrice());
+                logger.warn("Offline sale {} {}", sale.getReceiptNumber(), note);
+                report.add(describe(sale) + ": " + note);
+            }
+        }
+    }
+
+    private void reportShortfall(OfflineSale sale, int billId, Map<String, Integer> shortfall) {
+        shortfall.forEach((itemCode, missing) -> {
+            String note = String.format("billed as bill %d with %d unit(s) of %s more than the shelf held",
+                    billId, missing, itemCode);
+            logger.warn("Offline sale {} {}", sale.getReceiptNumber(), note);
+            report.add(describe(sale) + ": " + note);
+        });
+    }
+
+    private synchronized void compactIfIdle() {
+        // The journal keeps whatever is still open; waiting for an empty queue just avoids rewriting it every pass
+        if (!pending.isEmpty() || !journalGrown) {
+            return;
+        }
+        try {
+            journal.compact();
+            journalGrown = false;
+        } catch (IOException e) {
+            logger.error("Error compacting offline sale journal", e);
+        }
+    }
+
+    private static String describe(OfflineSale sale) {
+        return String.format("%s (%tF %<tR)", sale.getReceiptNumber(), new Date(sale.getSoldAt()));
+    }
+}
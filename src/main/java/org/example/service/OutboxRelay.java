@@ -0,0 +1,229 @@
+package org.example.service;
+
+import org.example.config.ConfigManager;
+import org.example.dao.OutboxDAO;
+import org.example.model.OutboxEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes outbox events to in-process subscribers.
+ * A daemon thread reads new events in batches from the lowest subscriber offset and hands each
+ * subscriber the part it has not handled yet. A subscriber's offset is saved only after it took
+ * a batch, so delivery is at least once; a failing subscriber is retried on the next poll
+ * without holding the others back.
+ * Event ids are allocated at insert but become visible at commit, so a lower id can appear
+ * after a higher one. Delivery therefore stops short of a gap in the ids until the gap has
+ * stayed open for the gap timeout, after which its ids are taken to be rolled back. The timeout is
+ * never shorter than a retried transaction can take, every attempt waiting out the lock wait timeout.
+ * Events every subscriber has handled are deleted once they are older than the retention period.
+ */
+public class OutboxRelay {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+    private static final long PRUNE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final OutboxDAO outboxDAO;
+    private final int batchSize;
+    private final long pollMillis;
+    private final long gapTimeoutMillis;
+    private final long retentionMillis;
+    private final List<OutboxSubscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Map<String, Long> offsets = new HashMap<>();
+    private final Map<Long, Long> gapsSeenAt = new HashMap<>();
+    private long lastPrunedAt;
+    private ScheduledExecutorService poller;
+
+    public OutboxRelay(OutboxDAO outboxDAO) {
+        this(outboxDAO,
+                ConfigManager.getInstance().getIntProperty("outbox.batchSize", 500),
+                ConfigManager.getInstance().getIntProperty("outbox.pollMillis", 500),
+                gapTimeoutMillis(ConfigManager.getInstance().getIntProperty("outbox.gapTimeoutMillis", 0),
+                        ConfigManager.getInstance().getIntProperty("db.retry.maxAttempts", 5),
+                        TimeUnit.SECONDS.toMillis(ConfigManager.getInstance().getIntProperty("db.lockWaitTimeoutSeconds", 50)),
+                        ConfigManager.getInstance().getIntProperty("db.retry.maxBackoffMillis", 200)),
+                TimeUnit.HOURS.toMillis(ConfigManager.getInstance().getIntProperty("outbox.retentionHours", 24)));
+    }
+
+    public OutboxRelay(OutboxDAO outboxDAO, int batchSize, long pollMillis, long gapTimeoutMillis,
+                       long retentionMillis) {
+        this.outboxDAO = outboxDAO;
+        this.batchSize = batchSize;
+        this.pollMillis = pollMillis;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.retentionMillis = retentionMillis;
+    }
+
+    /**
+     * The configured gap timeout, raised to just over the longest a retried transaction can hold an
+     * event id it has not committed yet: each attempt may wait out the lock wait timeout and back off
+     */
+    static long gapTimeoutMillis(long configuredMillis, int maxAttempts, long lockWaitMillis, long maxBackoffMillis) {
+        long worstCaseMillis = maxAttempts * (lockWaitMillis + maxBackoffMillis);
+        long minimumMillis = worstCaseMillis + worstCaseMillis / 10;
+        if (configuredMillis > 0 && configuredMillis < minimumMillis) {
+            logger.warn("outbox.gapTimeoutMillis {} is shorter than a retried transaction can take, using {}",
+                    configuredMillis, minimumMillis);
+        }
+        return Math.max(configuredMillis, minimumMillis);
+    }
+
+    /**
+     * A subscriber seen for the first time starts with the oldest event still retained
+     */
+    public void addSubscriber(OutboxSubscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public synchronized void start() {
+        if (poller != null) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                relay();
+                pruneIfDue();
+            } catch (Exception e) {
+                logger.error("Error relaying outbox events", e);
+            }
+        }, 0, pollMillis, TimeUnit.MILLISECONDS);
+        logger.info("Outbox relay started with {} subscribers", subscribers.size());
+    }
+
+    public synchronized void stop() {
+        if (poller != null) {
+            poller.shutdown();
+            try {
+                poller.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            poller = null;
+        }
+    }
+
+    /**
+     * Deliver everything committed so far
+     *
+     * @return number of events delivered, counted once per subscriber
+     */
+    public synchronized int relay() {
+        int delivered = 0;
+        Set<String> failed = new HashSet<>();
+        while (true) {
+            long from = Long.MAX_VALUE;
+            for (OutboxSubscriber subscriber : subscribers) {
+                if (!failed.contains(subscriber.getName())) {
+                    from = Math.min(from, offset(subscriber));
+                }
+            }
+            if (from == Long.MAX_VALUE) {
+                break;
+            }
+            List<OutboxEvent> fetched = outboxDAO.getEventsAfter(from, batchSize);
+            List<OutboxEvent> events = settled(from, fetched);
+            if (events.isEmpty()) {
+                break;
+            }
+            for (OutboxSubscriber subscriber : subscribers) {
+                if (!failed.contains(subscriber.getName())) {
+                    int count = deliver(subscriber, events);
+                    if (count < 0) {
+                        failed.add(subscriber.getName());
+                    } else {
+                        delivered += count;
+                    }
+                }
+            }
+            if (events.size() < batchSize) {
+                break;
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Offset of a subscriber, loaded from the database the first time
+     */
+    public synchronized long getOffset(String name) {
+        return offsets.computeIfAbsent(name, outboxDAO::getOffset);
+    }
+
+    /**
+     * @return the subscriber's events handled, or -1 if it failed
+     */
+    private int deliver(OutboxSubscriber subscriber, List<OutboxEvent> events) {
+        long offset = offset(subscriber);
+        int skip = 0;
+        while (skip < events.size() && events.get(skip).getEventId() <= offset) {
+            skip++;
+        }
+        if (skip == events.size()) {
+            return 0;
+        }
+        List<OutboxEvent> pending = events.subList(skip, events.size());
+        long last = pending.get(pending.size() - 1).getEventId();
+        try {
+            subscriber.onEvents(Collections.unmodifiableList(pending));
+            outboxDAO.saveOffset(subscriber.getName(), last);
+        } catch (Exception e) {
+            logger.error("Outbox subscriber {} failed on events {}..{}, will retry",
+                    subscriber.getName(), pending.get(0).getEventId(), last, e);
+            return -1;
+        }
+        offsets.put(subscriber.getName(), last);
+        return pending.size();
+    }
+
+    private long offset(OutboxSubscriber subscriber) {
+        return getOffset(subscriber.getName());
+    }
+
+    /**
+     * The events up to the first gap in ids that may still be filled by a transaction in flight
+     */
+    private List<OutboxEvent> settled(long after, List<OutboxEvent> events) {
+        long now = System.currentTimeMillis();
+        long expected = after + 1;
+        for (int i = 0; i < events.size(); i++) {
+            long id = events.get(i).getEventId();
+            if (id != expected) {
+                long seenAt = gapsSeenAt.computeIfAbsent(expected, k -> now);
+                if (now - seenAt < gapTimeoutMillis) {
+                    return events.subList(0, i);
+                }
+                logger.warn("Outbox ids {}..{} never committed within {} ms, skipping them",
+                        expected, id - 1, gapTimeoutMillis);
+            }
+            expected = id + 1;
+        }
+        gapsSeenAt.keySet().removeIf(missing -> missing <= after);
+        return events;
+    }
+
+    private synchronized void pruneIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastPrunedAt < PRUNE_INTERVAL_MILLIS) {
+            return;
+        }
+        lastPrunedAt = now;
+        long handledByAll = Long.MAX_VALUE;
+        for (OutboxSubscriber subscriber : subscribers) {
+            handledByAll = Math.min(handledByAll, offset(subscriber));
+        }
+        int deleted = outboxDAO.deleteEvents(handledByAll, new Date(now - retentionMillis));
+        if (deleted > 0) {
+            logger.info("Pruned {} delivered outbox events", deleted);
+        }
+    }
+}
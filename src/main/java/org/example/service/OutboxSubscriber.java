@@ -0,0 +1,22 @@
+package org.example.service;
+
+import org.example.model.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Consumer of outbox events, fed by the OutboxRelay in event id order.
+ * Delivery is at least once: after a crash or a failed batch the same events come again,
+ * so handling them must be idempotent (the event id is there to recognise repeats).
+ */
+public interface OutboxSubscriber {
+    /**
+     * Name the consumer's offset is stored under; must stay the same across restarts
+     */
+    String getName();
+
+    /**
+     * Handle a batch; throwing leaves the offset where it was, so the batch is delivered again
+     */
+    void onEvents(List<OutboxEvent> events) throws Exception;
+}
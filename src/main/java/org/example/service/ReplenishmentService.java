@@ -0,0 +1,156 @@
+package org.example.service;
+
+import org.example.config.ConfigManager;
+import org.example.dao.ItemDAO;
+import org.example.model.Item;
+import org.example.model.TransactionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Background shelf replenishment driven by checkout stock decrements.
+ * Events are coalesced per item for a debounce window, then one check per item runs
+ * on a bounded worker that reshelves FEFO batches until the shelf is back above
+ * the item's minimum stock level (or the configured threshold).
+ */
+public class ReplenishmentService implements StockDecrementListener {
+    private static final Logger logger = LoggerFactory.getLogger(ReplenishmentService.class);
+
+    private final StockService stockService;
+    private final ItemDAO itemDAO;
+    private final int fallbackThreshold;
+    private final long debounceMillis;
+    private final int queueCapacity;
+    private final Set<String> pendingItems = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService debouncer;
+    private ThreadPoolExecutor worker;
+
+    public ReplenishmentService(StockService stockService, ItemDAO itemDAO) {
+        this(stockService, itemDAO,
+                ConfigManager.getInstance().getReplenishThreshold(),
+                ConfigManager.getInstance().getIntProperty("stock.replenish.debounceMillis", 2000),
+                ConfigManager.getInstance().getIntProperty("stock.replenish.queueCapacity", 100));
+    }
+
+    public ReplenishmentService(StockService stockService, ItemDAO itemDAO, int fallbackThreshold,
+                                long debounceMillis, int queueCapacity) {
+        this.stockService = stockService;
+        this.itemDAO = itemDAO;
+        this.fallbackThreshold = fallbackThreshold;
+        this.debounceMillis = debounceMillis;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        debouncer = Executors.newSingleThreadScheduledExecutor(daemonThreads("replenish-debounce"));
+        // One worker: stock moves for the shelf are serialized and the queue is bounded
+        worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreads("replenish-worker"),
+                (task, executor) -> {
+                    ReplenishTask rejected = (ReplenishTask) task;
+                    pendingItems.remove(rejected.itemCode);
+                    logger.warn("Replenishment queue full, dropped check for: {}", rejected.itemCode);
+                });
+        logger.info("Replenishment worker started (debounce {} ms, queue {})", debounceMillis, queueCapacity);
+    }
+
+    public synchronized void stop() {
+        if (debouncer != null) {
+            debouncer.shutdownNow();
+            worker.shutdown();
+            debouncer = null;
+            worker = null;
+        }
+    }
+
+    @Override
+    public void onStockDecremented(String itemCode, int quantity, TransactionType transactionType) {
+        if (transactionType != TransactionType.IN_STORE) {
+            return;
+        }
+        ScheduledExecutorService scheduler = debouncer;
+        if (scheduler == null) {
+            return;
+        }
+        // The first decrement opens the window; later ones for the same item ride along
+        if (pendingItems.add(itemCode)) {
+            try {
+                scheduler.schedule(() -> submit(itemCode), debounceMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                pendingItems.remove(itemCode);
+            }
+        }
+    }
+
+    /**
+     * Check one item now and reshelve if it is below its threshold
+     *
+     * @return number of batches moved to the shelf
+     */
+    public int replenish(String itemCode) {
+        try {
+            int threshold = getThreshold(itemCode);
+            int shelfQuantity = stockService.getShelfQuantity(itemCode);
+            if (shelfQuantity >= threshold) {
+                return 0;
+            }
+            int moved = stockService.replenishShelf(itemCode, threshold);
+            if (moved > 0) {
+                logger.info("Auto-replenished {}: {} batch(es) moved, shelf was {} (threshold {})",
+                        itemCode, moved, shelfQuantity, threshold);
+            } else {
+                logger.warn("Shelf low for {} ({} < {}) but no warehouse stock to move",
+                        itemCode, shelfQuantity, threshold);
+            }
+            return moved;
+        } catch (Exception e) {
+            logger.error("Error replenishing shelf for: " + itemCode, e);
+            return 0;
+        }
+    }
+
+    private void submit(String itemCode) {
+        ThreadPoolExecutor executor = worker;
+        if (executor == null) {
+            pendingItems.remove(itemCode);
+            return;
+        }
+        executor.execute(new ReplenishTask(itemCode));
+    }
+
+    private int getThreshold(String itemCode) {
+        Optional<Item> item = itemDAO.getItemByCode(itemCode);
+        int minStockLevel = item.map(Item::getMinStockLevel).orElse(0);
+        return minStockLevel > 0 ? minStockLevel : fallbackThreshold;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private class ReplenishTask implements Runnable {
+        private final String itemCode;
+
+        private ReplenishTask(String itemCode) {
+            this.itemCode = itemCode;
+        }
+
+        @Override
+        public void run() {
+            // Clear first so decrements arriving during the check open a new window
+            pendingItems.remove(itemCode);
+            replenish(itemCode);
+        }
+    }
+}
@@ -4,10 +4,13 @@ package org.example.service;
 import org.example.config.ConfigManager;
 import org.example.dao.*;
 import org.example.model.*;
+import org.example.util.LatencyHistogram;
+import org.example.util.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -15,6 +18,12 @@ import java.util.stream.Collectors;
  */
 public class ReportService {
     private static final Logger logger = LoggerFactory.getLogger(ReportService.class);
+    private static final LatencyHistogram DAILY_SALES_REPORT = Metrics.histogram("report.generateDailySalesReport");
+    private static final LatencyHistogram PRINT_DAILY_SALES_REPORT = Metrics.histogram("report.printDailySalesReport");
+    private static final LatencyHistogram REORDER_REPORT = Metrics.histogram("report.printReorderReport");
+    private static final LatencyHistogram STOCK_REPORT = Metrics.histogram("report.printStockReport");
+    private static final LatencyHistogram BILL_HISTORY = Metrics.histogram("report.printBillHistory");
+    private static final LatencyHistogram RESHELVING_REPORT = Metrics.histogram("report.printReshelvingReport");
 
     private final BillDAO billDAO;
     private final ItemDAO itemDAO;
@@ -40,6 +49,10 @@ public class ReportService {
      * Generate comprehensive daily sales report
      */
     public DailySalesReport generateDailySalesReport(Date date) {
+        return timed(DAILY_SALES_REPORT, () -> buildDailySalesReport(date));
+    }
+
+    private DailySalesReport buildDailySalesReport(Date date) {
         List<Bill> bills = billDAO.getBillsByDate(date);
 
         Map<String, ItemSalesData> itemSalesMap = new HashMap<>();
@@ -72,6 +85,10 @@ public class ReportService {
      * Print daily sales report to console
      */
     public void printDailySalesReport(Date date) {
+        timed(PRINT_DAILY_SALES_REPORT, () -> writeDailySalesReport(date));
+    }
+
+    private void writeDailySalesReport(Date date) {
         DailySalesReport report = generateDailySalesReport(date);
 
         System.out.println("\n" + "=".repeat(80));
@@ -108,6 +125,10 @@ public class ReportService {
      * Generate and print reorder report
      */
     public void printReorderReport() {
+        timed(REORDER_REPORT, this::writeReorderReport);
+    }
+
+    private void writeReorderReport() {
         int threshold = config.getReorderThreshold();
         List<ShelfStock> lowShelfStock = shelfStockDAO.getLowStockItems(threshold);
         List<WebsiteInventory> lowWebsiteStock = websiteInventoryDAO.getAllWebsiteInventory()
@@ -159,6 +180,10 @@ public class ReportService {
      * Generate and print comprehensive stock report
      */
     public void printStockReport() {
+        timed(STOCK_REPORT, this::writeStockReport);
+    }
+
+    private void writeStockReport() {
         List<StockBatch> batches = stockBatchDAO.getAllBatches();
         Map<String, List<StockBatch>> batchesByItem = batches.stream()
                 .collect(Collectors.groupingBy(StockBatch::getItemCode));
@@ -207,6 +232,10 @@ public class ReportService {
      * Generate and print bill history report
      */
     public void printBillHistory() {
+        timed(BILL_HISTORY, this::writeBillHistory);
+    }
+
+    private void writeBillHistory() {
         List<Bill> bills = billDAO.getAllBills();
 
         System.out.println("\n" + "=".repeat(100));
@@ -223,8 +252,8 @@ public class ReportService {
         System.out.println("-".repeat(100));
 
         for (Bill bill : bills) {
-            Optional<Customer> customerOpt = customerDAO.getCustomerById(bill.getCustomerId());
-            String customerName = customerOpt.map(Customer::getName).orElse("Unknown");
+            String customerName = bill.getCustomerName() != null ? bill.getCustomerName()
+                    : customerDAO.getCustomerById(bill.getCustomerId()).map(Customer::getName).orElse("Unknown");
 
             System.out.printf("%-8d %-8d %tF %-20s Rs. %6.2f %-10s %12s%n",
                     bill.getBillId(),
@@ -243,6 +272,10 @@ public class ReportService {
      * Generate items to be reshelved report
      */
     public void printReshelvingReport() {
+        timed(RESHELVING_REPORT, this::writeReshelvingReport);
+    }
+
+    private void writeReshelvingReport() {
         List<Item> allItems = itemDAO.getActiveItems();
         List<ReshelvingData> reshelvingData = new ArrayList<>();
 
@@ -286,6 +319,22 @@ public class ReportService {
         System.out.println("=".repeat(80));
     }
 
+    private static <T> T timed(LatencyHistogram histogram, Supplier<T> report) {
+        long start = System.nanoTime();
+        try {
+            return report.get();
+        } finally {
+            histogram.recordSince(start);
+        }
+    }
+
+    private static void timed(LatencyHistogram histogram, Runnable report) {
+        timed(histogram, () -> {
+            report.run();
+            return null;
+        });
+    }
+
     private String truncate(String text, int maxLength) {
         if (text == null) return "";
         return text.length() <= maxLength ? text : text.substring(0, maxLength - 3) + "...";
@@ -0,0 +1,329 @@
+package org.example.service;
+
+import org.example.dao.WebsiteInventoryDAO;
+import org.example.model.*;
+import org.example.util.TimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory holds on website inventory for online orders.
+ * Each item keeps its on-hand quantity (mirrored from website_inventory) and the quantity
+ * held by open reservations; a hold is only granted while held never exceeds on hand.
+ * Multi-item holds lock items in item code order, so they are all-or-nothing and cannot
+ * deadlock. Holds are journaled before they are granted and expire through a timing wheel
+ * that is reaped in batches. Confirming a hold moves its quantity out of on hand in the
+ * same step, so confirmed stock can never be promised to another order.
+ */
+public class ReservationService implements StockMovementListener {
+    private static final Logger logger = LoggerFactory.getLogger(ReservationService.class);
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 4;
+
+    private final WebsiteInventoryDAO websiteDAO;
+    private final ReservationJournal journal;
+    private final long tickMillis;
+    private final ConcurrentMap<String, ItemHold> holds = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Reservation> active = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final TimingWheel<Long, Reservation> expiries;
+    private ScheduledExecutorService reaper;
+
+    public ReservationService(WebsiteInventoryDAO websiteDAO, ReservationJournal journal, long tickMillis) {
+        this(websiteDAO, journal, tickMillis, System.currentTimeMillis());
+    }
+
+    public ReservationService(WebsiteInventoryDAO websiteDAO, ReservationJournal journal, long tickMillis,
+                              long startMillis) {
+        this.websiteDAO = websiteDAO;
+        this.journal = journal;
+        this.tickMillis = tickMillis;
+        this.expiries = new TimingWheel<>(tickMillis, WHEEL_SIZE, WHEEL_LEVELS, startMillis);
+    }
+
+    /**
+     * Load website stock and restore open holds from the journal
+     *
+     * @param nowMillis holds that expired before this time are released instead of restored
+     */
+    public void initialize(long nowMillis) throws IOException {
+        for (WebsiteInventory inventory : websiteDAO.getAllWebsiteInventory()) {
+            holdFor(inventory.getItemCode()).onHand = inventory.getQuantity();
+        }
+
+        List<Reservation> restored = new ArrayList<>();
+        for (Reservation reservation : journal.replay()) {
+            nextId.accumulateAndGet(reservation.getReservationId() + 1, Math::max);
+            if (reservation.getExpiresAt() > nowMillis) {
+                // Restored holds bypass the availability check: the stock was promised before the restart
+                for (Map.Entry<String, Integer> line : reservation.getQuantities().entrySet()) {
+                    holdFor(line.getKey()).held += line.getValue();
+                }
+                active.put(reservation.getReservationId(), reservation);
+                expiries.schedule(reservation.getReservationId(), reservation.getExpiresAt(), reservation);
+                restored.add(reservation);
+            }
+        }
+        // Confirmed, released and expired entries are dropped from the file
+        journal.compact(restored);
+        logger.info("Reservations initialized: {} items, {} open holds restored", holds.size(), restored.size());
+    }
+
+    /**
+     * Start reaping expired holds on a background thread
+     */
+    public synchronized void start() {
+        if (reaper != null) {
+            return;
+        }
+        reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "reservation-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reaper.scheduleAtFixedRate(() -> {
+            try {
+                reapExpired(System.currentTimeMillis());
+            } catch (Exception e) {
+                logger.error("Error reaping expired reservations", e);
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (reaper != null) {
+            reaper.shutdownNow();
+            reaper = null;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.error("Error closing reservation journal", e);
+        }
+    }
+
+    /**
+     * Hold the given quantities until {@code ttlMillis} from now.
+     *
+     * @return the reservation, or empty if any item lacks available stock (nothing is held then)
+     */
+    public Optional<Reservation> reserve(List<BillItem> items, long ttlMillis) {
+        Map<String, Integer> quantities = new TreeMap<>();
+        for (BillItem item : items) {
+            if (item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Reserved quantity must be positive: " + item.getItemCode());
+            }
+            quantities.merge(item.getItemCode(), item.getQuantity(), Integer::sum);
+        }
+        if (quantities.isEmpty()) {
+            return Optional.empty();
+        }
+        if (ttlMillis < tickMillis) {
+            throw new IllegalArgumentException("Reservation TTL must be at least one reaper tick: " + tickMillis + " ms");
+        }
+
+        Reservation reservation = new Reservation(nextId.getAndIncrement(), quantities,
+                System.currentTimeMillis() + ttlMillis);
+        if (!applyHolds(quantities)) {
+            return Optional.empty();
+        }
+        try {
+            journal.recordReserved(reservation);
+        } catch (IOException e) {
+            releaseHolds(quantities);
+            logger.error("Could not journal reservation, hold not granted: " + reservation, e);
+            return Optional.empty();
+        }
+        active.put(reservation.getReservationId(), reservation);
+        if (!expiries.schedule(reservation.getReservationId(), reservation.getExpiresAt(), reservation)) {
+            release(reservation.getReservationId());
+            return Optional.empty();
+        }
+        return Optional.of(reservation);
+    }
+
+    /**
+     * Turn a hold into a sale just before checkout takes the stock from website_inventory
+     *
+     * @return false if the hold already expired or was released
+     */
+    public boolean confirm(long reservationId) {
+        Reservation reservation = active.remove(reservationId);
+        if (reservation == null) {
+            return false;
+        }
+        expiries.cancel(reservationId);
+        for (Map.Entry<String, Integer> line : reservation.getQuantities().entrySet()) {
+            ItemHold hold = holdFor(line.getKey());
+            hold.lock.lock();
+            try {
+                hold.held -= line.getValue();
+                hold.onHand -= line.getValue();
+            } finally {
+                hold.lock.unlock();
+            }
+        }
+        try {
+            journal.recordConfirmed(reservationId);
+        } catch (IOException e) {
+            logger.error("Could not journal confirmation of reservation " + reservationId, e);
+        }
+        return true;
+    }
+
+    /**
+     * Put back the stock of a confirmed reservation whose checkout then failed
+     */
+    public void restore(Reservation reservation) {
+        reservation.getQuantities().forEach(this::adjustOnHand);
+    }
+
+    /**
+     * Give the held stock back, e.g. for an abandoned or failed order
+     */
+    public boolean release(long reservationId) {
+        Reservation reservation = active.remove(reservationId);
+        if (reservation == null) {
+            return false;
+        }
+        expiries.cancel(reservationId);
+        releaseHolds(reservation.getQuantities());
+        journalReleased(Collections.singletonList(reservationId));
+        return true;
+    }
+
+    /**
+     * Release every hold whose TTL has passed
+     *
+     * @return number of reservations released
+     */
+    public int reapExpired(long nowMillis) {
+        List<Long> released = new ArrayList<>();
+        expiries.advanceTo(nowMillis, (reservationId, reservation) -> {
+            if (active.remove(reservationId, reservation)) {
+                releaseHolds(reservation.getQuantities());
+                released.add(reservationId);
+            }
+        });
+        journalReleased(released);
+        if (!released.isEmpty()) {
+            logger.info("Released {} expired reservation(s)", released.size());
+        }
+        return released.size();
+    }
+
+    /**
+     * Website stock not held by any open reservation
+     */
+    public int getAvailable(String itemCode) {
+        ItemHold hold = holds.get(itemCode);
+        if (hold == null) {
+            return 0;
+        }
+        hold.lock.lock();
+        try {
+            return hold.onHand - hold.held;
+        } finally {
+            hold.lock.unlock();
+        }
+    }
+
+    public int getHeld(String itemCode) {
+        ItemHold hold = holds.get(itemCode);
+        if (hold == null) {
+            return 0;
+        }
+        hold.lock.lock();
+        try {
+            return hold.held;
+        } finally {
+            hold.lock.unlock();
+        }
+    }
+
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    @Override
+    public void onStockMoved(StockMovement movement) {
+        if (movement.getLocation() == StockLocation.WEBSITE) {
+            adjustOnHand(movement.getItemCode(), movement.getQuantityDelta());
+        }
+    }
+
+    private void adjustOnHand(String itemCode, int delta) {
+        ItemHold hold = holdFor(itemCode);
+        hold.lock.lock();
+        try {
+            hold.onHand += delta;
+        } finally {
+            hold.lock.unlock();
+        }
+    }
+
+    private boolean applyHolds(Map<String, Integer> quantities) {
+        List<ItemHold> locked = new ArrayList<>(quantities.size());
+        try {
+            // Item code order (the map is sorted) so overlapping orders never deadlock
+            for (String itemCode : quantities.keySet()) {
+                ItemHold hold = holdFor(itemCode);
+                hold.lock.lock();
+                locked.add(hold);
+            }
+            int index = 0;
+            for (int quantity : quantities.values()) {
+                ItemHold hold = locked.get(index++);
+                if (hold.onHand - hold.held < quantity) {
+                    return false;
+                }
+            }
+            index = 0;
+            for (int quantity : quantities.values()) {
+                locked.get(index++).held += quantity;
+            }
+            return true;
+        } finally {
+            for (ItemHold hold : locked) {
+                hold.lock.unlock();
+            }
+        }
+    }
+
+    private void releaseHolds(Map<String, Integer> quantities) {
+        for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+            ItemHold hold = holdFor(line.getKey());
+            hold.lock.lock();
+            try {
+                hold.held -= line.getValue();
+            } finally {
+                hold.lock.unlock();
+            }
+        }
+    }
+
+    private void journalReleased(List<Long> reservationIds) {
+        try {
+            journal.recordReleased(reservationIds);
+        } catch (IOException e) {
+            // Worst case a restart restores these holds until their TTL runs out again
+            logger.error("Could not journal release of reservations " + reservationIds, e);
+        }
+    }
+
+    private ItemHold holdFor(String itemCode) {
+        return holds.computeIfAbsent(itemCode, code -> new ItemHold());
+    }
+
+    private static class ItemHold {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int onHand;
+        private int held;
+    }
+}
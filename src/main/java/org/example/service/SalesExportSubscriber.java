@@ -0,0 +1,75 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.model.OutboxEvent;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Appends every new bill to a daily CSV file (sales-yyyy-mm-dd.csv) for the accounts export.
+ * The first column is the outbox event id; a bill delivered twice after a crash shows up
+ * with the same id, so the importer can drop the repeat.
+ */
+public class SalesExportSubscriber implements OutboxSubscriber {
+    private static final String HEADER = "event_id,bill_id,serial_number,bill_date,transaction_type,total_amount,discount,items";
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final Path directory;
+
+    public SalesExportSubscriber(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public String getName() {
+        return "sales-export";
+    }
+
+    @Override
+    public void onEvents(List<OutboxEvent> events) throws IOException {
+        Map<LocalDate, StringBuilder> days = new TreeMap<>();
+        for (OutboxEvent event : events) {
+            if (!OutboxEvent.BILL_CREATED.equals(event.getEventType())) {
+                continue;
+            }
+            JsonNode bill = JSON.readTree(event.getPayload());
+            LocalDate day = Instant.ofEpochMilli(bill.get("billDate").asLong()).atZone(ZoneId.systemDefault()).toLocalDate();
+            int items = 0;
+            for (JsonNode line : bill.get("items")) {
+                items += line.get("quantity").asInt();
+            }
+            days.computeIfAbsent(day, d -> new StringBuilder())
+                    .append(event.getEventId()).append(',')
+                    .append(bill.get("billId").asInt()).append(',')
+                    .append(bill.get("serialNumber").asInt()).append(',')
+                    .append(day).append(',')
+                    .append(bill.get("transactionType").asText()).append(',')
+                    .append(String.format("%.2f", bill.get("totalAmount").asDouble())).append(',')
+                    .append(String.format("%.2f", bill.get("discount").asDouble())).append(',')
+                    .append(items).append('\n');
+        }
+        if (days.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(directory);
+        for (Map.Entry<LocalDate, StringBuilder> day : days.entrySet()) {
+            Path file = directory.resolve("sales-" + day.getKey() + ".csv");
+            if (Files.notExists(file)) {
+                day.getValue().insert(0, HEADER + "\n");
+            }
+            Files.writeString(file, day.getValue(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.service;
+
+import org.example.dao.impl.ShardedShelfStockDAOImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically evens out the shelf slots of hot items, so random-slot decrements
+ * keep finding a slot that can cover a sale on its own
+ */
+public class ShelfSlotRebalancer {
+    private static final Logger logger = LoggerFactory.getLogger(ShelfSlotRebalancer.class);
+
+    private final ShardedShelfStockDAOImpl shelfDAO;
+    private final long intervalMillis;
+    private ScheduledExecutorService executor;
+
+    public ShelfSlotRebalancer(ShardedShelfStockDAOImpl shelfDAO, long intervalMillis) {
+        this.shelfDAO = shelfDAO;
+        this.intervalMillis = intervalMillis;
+    }
+
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "shelf-slot-rebalancer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Run once straight away so newly designated hot items get their slots
+        executor.scheduleWithFixedDelay(this::rebalance, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Shelf slot rebalancer started for {} hot item(s)", shelfDAO.getHotItems().size());
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void rebalance() {
+        try {
+            shelfDAO.rebalanceAll();
+        } catch (Exception e) {
+            logger.error("Error rebalancing shelf slots", e);
+        }
+    }
+}
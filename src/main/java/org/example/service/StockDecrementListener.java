@@ -0,0 +1,10 @@
+package org.example.service;
+
+import org.example.model.TransactionType;
+
+/**
+ * Callback fired after checkout has reduced stock for an item
+ */
+public interface StockDecrementListener {
+    void onStockDecremented(String itemCode, int quantity, TransactionType transactionType);
+}
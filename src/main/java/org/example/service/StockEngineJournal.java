@@ -0,0 +1,151 @@
+package org.example.service;
+
+import org.example.model.StockLocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Append-only file journal for the in-memory stock engine.
+ * One line per change: {@code S|W itemCode version quantity}, where S is shelf and W is website.
+ * Lines carry the quantity after the change, so replay keeps the highest version per item
+ * and location regardless of the order concurrent changes were appended in.
+ */
+public class StockEngineJournal {
+    private static final Logger logger = LoggerFactory.getLogger(StockEngineJournal.class);
+
+    private final Path path;
+    private final boolean sync;
+    private FileChannel channel;
+    private boolean appendedSinceCompact = true;
+
+    public StockEngineJournal(Path path, boolean sync) {
+        this.path = path;
+        this.sync = sync;
+    }
+
+    /**
+     * Read the journal and return the latest quantity of every item and location in it
+     */
+    public synchronized List<Entry> replay() throws IOException {
+        Map<String, Entry> latest = new LinkedHashMap<>();
+        if (!Files.exists(path)) {
+            return new ArrayList<>();
+        }
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                try {
+                    String[] parts = line.split(" ");
+                    Entry entry = new Entry(parseLocation(parts[0]), parts[1],
+                            Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+                    latest.merge(parts[0] + parts[1], entry, (kept, next) ->
+                            next.getVersion() - kept.getVersion() > 0 ? next : kept);
+                } catch (RuntimeException e) {
+                    // A torn final line from a crash mid-write is expected; anything else is worth a look
+                    logger.warn("Skipping unreadable stock engine journal line {}: {}", lineNumber, line);
+                }
+            }
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    /**
+     * Rewrite the journal so it holds only the entries from {@code pending}, then open it for appends.
+     * The supplier runs while appends are blocked, so a change is either in its result or appended
+     * to the new file.
+     */
+    public synchronized void compact(Supplier<Collection<Entry>> pending) throws IOException {
+        if (channel != null && !appendedSinceCompact) {
+            return;
+        }
+        close();
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        StringBuilder content = new StringBuilder();
+        for (Entry entry : pending.get()) {
+            content.append(line(entry.getLocation(), entry.getItemCode(), entry.getVersion(), entry.getQuantity()));
+        }
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(out, content.toString());
+            out.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        appendedSinceCompact = false;
+    }
+
+    public synchronized void record(StockLocation location, String itemCode, int version, int quantity)
+            throws IOException {
+        if (channel == null) {
+            throw new IOException("Stock engine journal is not open: " + path);
+        }
+        write(channel, line(location, itemCode, version, quantity));
+        if (sync) {
+            channel.force(false);
+        }
+        appendedSinceCompact = true;
+    }
+
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private static void write(FileChannel target, String records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(records.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    private static String line(StockLocation location, String itemCode, int version, int quantity) {
+        return (location == StockLocation.SHELF ? "S " : "W ") + itemCode + " " + version + " " + quantity + "\n";
+    }
+
+    private static StockLocation parseLocation(String code) {
+        return switch (code) {
+            case "S" -> StockLocation.SHELF;
+            case "W" -> StockLocation.WEBSITE;
+            default -> throw new IllegalArgumentException("unknown location " + code);
+        };
+    }
+
+    /**
+     * Inner class for one journaled quantity
+     */
+    public static class Entry {
+        private final StockLocation location;
+        private final String itemCode;
+        private final int version;
+        private final int quantity;
+
+        public Entry(StockLocation location, String itemCode, int version, int quantity) {
+            this.location = location;
+            this.itemCode = itemCode;
+            this.version = version;
+            this.quantity = quantity;
+        }
+
+        // Getters
+        public StockLocation getLocation() { return location; }
+        public String getItemCode() { return itemCode; }
+        public int getVersion() { return version; }
+        public int getQuantity() { return quantity; }
+    }
+}
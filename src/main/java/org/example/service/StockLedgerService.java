@@ -0,0 +1,243 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.ConfigManager;
+import org.example.dao.OutboxDAO;
+import org.example.dao.ShelfStockDAO;
+import org.example.dao.StockBatchDAO;
+import org.example.dao.StockLedgerDAO;
+import org.example.dao.WebsiteInventoryDAO;
+import org.example.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Append-only stock movement ledger, fed from the outbox.
+ * Every stock change writes a STOCK_MOVED event in its own transaction and the relay delivers
+ * them here; each becomes one movement keyed by its event id, so a crash loses nothing and a
+ * batch delivered again is not recorded twice. Periodic snapshots store every item's position so
+ * that rebuilding stock "as of" any time only replays movements since the nearest snapshot.
+ * The ledger starts from an opening snapshot of the live tables, with its outbox offset moved to
+ * the newest event so changes already in the tables are not counted again.
+ * Stock held in the in-memory engine reaches the tables by write-behind without outbox events,
+ * so with the engine on its sales and transfers show up as drift.
+ */
+public class StockLedgerService implements OutboxSubscriber {
+    private static final Logger logger = LoggerFactory.getLogger(StockLedgerService.class);
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final StockLedgerDAO ledgerDAO;
+    private final OutboxDAO outboxDAO;
+    private final ShelfStockDAO shelfDAO;
+    private final WebsiteInventoryDAO websiteDAO;
+    private final StockBatchDAO batchDAO;
+    private final long snapshotIntervalMillis;
+    private ScheduledExecutorService executor;
+
+    public StockLedgerService(StockLedgerDAO ledgerDAO, OutboxDAO outboxDAO, ShelfStockDAO shelfDAO,
+                              WebsiteInventoryDAO websiteDAO, StockBatchDAO batchDAO) {
+        this(ledgerDAO, outboxDAO, shelfDAO, websiteDAO, batchDAO,
+                TimeUnit.HOURS.toMillis(ConfigManager.getInstance().getIntProperty("ledger.snapshotIntervalHours", 24)));
+    }
+
+    public StockLedgerService(StockLedgerDAO ledgerDAO, OutboxDAO outboxDAO, ShelfStockDAO shelfDAO,
+                              WebsiteInventoryDAO websiteDAO, StockBatchDAO batchDAO, long snapshotIntervalMillis) {
+        this.ledgerDAO = ledgerDAO;
+        this.outboxDAO = outboxDAO;
+        this.shelfDAO = shelfDAO;
+        this.websiteDAO = websiteDAO;
+        this.batchDAO = batchDAO;
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    /**
+     * Take the opening snapshot if the ledger is new, then start snapshotting.
+     * Call before the outbox relay starts.
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        if (ledgerDAO.getLatestSnapshot(new Date()).isEmpty()) {
+            // Read the outbox end first: a change committed after it is delivered, even if the tables already show it
+            long lastEventId = outboxDAO.getLastEventId();
+            ledgerDAO.saveSnapshot(new Date(), ledgerDAO.getLastMovementId(), getLivePositions().values());
+            outboxDAO.saveOffset(getName(), lastEventId);
+            logger.info("Stock ledger opened from current stock levels at outbox event {}", lastEventId);
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stock-ledger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::snapshotQuietly, snapshotIntervalMillis, snapshotIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        logger.info("Stock ledger started (snapshot every {} h)", TimeUnit.MILLISECONDS.toHours(snapshotIntervalMillis));
+    }
+
+    /**
+     * Stop taking snapshots
+     */
+    public void stop() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = executor;
+            executor = null;
+        }
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "stock-ledger";
+    }
+
+    /**
+     * Record the batch's stock movements in one transaction
+     */
+    @Override
+    public synchronized void onEvents(List<OutboxEvent> events) throws IOException {
+        List<StockMovement> movements = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            if (!OutboxEvent.STOCK_MOVED.equals(event.getEventType())) {
+                continue;
+            }
+            JsonNode moved = JSON.readTree(event.getPayload());
+            movements.add(new StockMovement(0, event.getEventId(), moved.get("itemCode").asText(),
+                    StockLocation.valueOf(moved.get("location").asText()),
+                    MovementType.valueOf(moved.get("movementType").asText()),
+                    moved.get("quantityDelta").asInt(),
+                    moved.hasNonNull("reference") ? moved.get("reference").asText() : null,
+                    event.getCreatedAt()));
+        }
+        ledgerDAO.appendMovements(movements);
+    }
+
+    /**
+     * Snapshot every item's position as rebuilt from the ledger
+     */
+    public synchronized long takeSnapshot() {
+        long lastMovementId = ledgerDAO.getLastMovementId();
+        Date takenAt = new Date();
+        Map<String, StockPosition> positions = replay(takenAt, lastMovementId);
+        return ledgerDAO.saveSnapshot(takenAt, lastMovementId, positions.values());
+    }
+
+    /**
+     * Rebuild every item's position at a point in time
+     */
+    public synchronized Map<String, StockPosition> getStockAsOf(Date asOf) {
+        return replay(asOf, Long.MAX_VALUE);
+    }
+
+    /**
+     * Rebuild one item's position at a point in time
+     */
+    public synchronized StockPosition getStockAsOf(String itemCode, Date asOf) {
+        StockPosition position = new StockPosition(itemCode);
+        long afterMovementId = 0;
+        Optional<StockLedgerSnapshot> snapshot = ledgerDAO.getLatestSnapshot(asOf);
+        if (snapshot.isPresent()) {
+            afterMovementId = snapshot.get().getLastMovementId();
+            position = ledgerDAO.getSnapshotPosition(snapshot.get().getSnapshotId(), itemCode).orElse(position);
+        }
+        for (StockMovement movement : ledgerDAO.getMovements(itemCode, afterMovementId, asOf)) {
+            position.apply(movement.getLocation(), movement.getQuantityDelta());
+        }
+        return position;
+    }
+
+    /**
+     * Compare current positions rebuilt from the ledger with the live stock tables
+     */
+    public List<StockDrift> findDrift() {
+        Map<String, StockPosition> ledger = getStockAsOf(new Date());
+        Map<String, StockPosition> live = getLivePositions();
+
+        Set<String> itemCodes = new TreeSet<>(ledger.keySet());
+        itemCodes.addAll(live.keySet());
+        List<StockDrift> drift = new ArrayList<>();
+        for (String itemCode : itemCodes) {
+            StockPosition expected = ledger.getOrDefault(itemCode, new StockPosition(itemCode));
+            StockPosition actual = live.getOrDefault(itemCode, new StockPosition(itemCode));
+            if (!expected.sameQuantities(actual)) {
+                drift.add(new StockDrift(expected, actual));
+            }
+        }
+        if (!drift.isEmpty()) {
+            logger.warn("Stock ledger drift found for {} item(s)", drift.size());
+        }
+        return drift;
+    }
+
+    private Map<String, StockPosition> replay(Date asOf, long upToMovementId) {
+        Map<String, StockPosition> positions = new HashMap<>();
+        long afterMovementId = 0;
+        Optional<StockLedgerSnapshot> snapshot = ledgerDAO.getLatestSnapshot(asOf);
+        if (snapshot.isPresent()) {
+            afterMovementId = snapshot.get().getLastMovementId();
+            ledgerDAO.streamSnapshotPositions(snapshot.get().getSnapshotId(),
+                    position -> positions.put(position.getItemCode(), position));
+        }
+        ledgerDAO.streamMovements(afterMovementId, asOf, movement -> {
+            if (movement.getMovementId() <= upToMovementId) {
+                positions.computeIfAbsent(movement.getItemCode(), StockPosition::new)
+                        .apply(movement.getLocation(), movement.getQuantityDelta());
+            }
+        });
+        return positions;
+    }
+
+    private Map<String, StockPosition> getLivePositions() {
+        Map<String, StockPosition> positions = new HashMap<>();
+        for (ShelfStock stock : shelfDAO.getAllShelfStock()) {
+            positions.computeIfAbsent(stock.getItemCode(), StockPosition::new)
+                    .apply(StockLocation.SHELF, stock.getQuantity());
+        }
+        for (WebsiteInventory inventory : websiteDAO.getAllWebsiteInventory()) {
+            positions.computeIfAbsent(inventory.getItemCode(), StockPosition::new)
+                    .apply(StockLocation.WEBSITE, inventory.getQuantity());
+        }
+        batchDAO.getAvailableQuantityByItem().forEach((itemCode, quantity) ->
+                positions.computeIfAbsent(itemCode, StockPosition::new).apply(StockLocation.WAREHOUSE, quantity));
+        return positions;
+    }
+
+    private void snapshotQuietly() {
+        try {
+            takeSnapshot();
+        } catch (Exception e) {
+            logger.error("Error taking stock ledger snapshot", e);
+        }
+    }
+
+    /**
+     * Inner class for an item whose live stock differs from the ledger
+     */
+    public static class StockDrift {
+        private final StockPosition ledger;
+        private final StockPosition actual;
+
+        public StockDrift(StockPosition ledger, StockPosition actual) {
+            this.ledger = ledger;
+            this.actual = actual;
+        }
+
+        // Getters
+        public String getItemCode() { return ledger.getItemCode(); }
+        public StockPosition getLedger() { return ledger; }
+        public StockPosition getActual() { return actual; }
+    }
+}
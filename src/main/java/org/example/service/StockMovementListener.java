@@ -0,0 +1,10 @@
+package org.example.service;
+
+import org.example.model.StockMovement;
+
+/**
+ * Callback fired after a stock operation has changed a location's quantity
+ */
+public interface StockMovementListener {
+    void onStockMoved(StockMovement movement);
+}
@@ -1,12 +1,14 @@
 // File: src/main/java/org/example/service/StockService.java
 package org.example.service;
 
+import org.example.config.ConfigManager;
 import org.example.dao.*;
 import org.example.model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 /**
@@ -14,15 +16,46 @@ import java.util.stream.Collectors;
  */
 public class StockService {
     private static final Logger logger = LoggerFactory.getLogger(StockService.class);
+    private static final int MAX_BATCHES_PER_REPLENISHMENT = 10;
 
     private final StockBatchDAO batchDAO;
     private final ShelfStockDAO shelfDAO;
     private final WebsiteInventoryDAO websiteDAO;
+    private final StockTransferDAO transferDAO;
+    private final StockSummaryDAO summaryDAO;
+    private final List<StockMovementListener> movementListeners = new CopyOnWriteArrayList<>();
+    private DomainEventBus eventBus;
+    private InMemoryStockEngine stockEngine;
 
-    public StockService(StockBatchDAO batchDAO, ShelfStockDAO shelfDAO, WebsiteInventoryDAO websiteDAO) {
+    public StockService(StockBatchDAO batchDAO, ShelfStockDAO shelfDAO, WebsiteInventoryDAO websiteDAO,
+                        StockTransferDAO transferDAO, StockSummaryDAO summaryDAO) {
         this.batchDAO = batchDAO;
         this.shelfDAO = shelfDAO;
         this.websiteDAO = websiteDAO;
+        this.transferDAO = transferDAO;
+        this.summaryDAO = summaryDAO;
+    }
+
+    /**
+     * Register a listener for stock moved by this service
+     */
+    public void addMovementListener(StockMovementListener listener) {
+        movementListeners.add(listener);
+    }
+
+    /**
+     * Publish stock moved by this service on the domain event bus
+     */
+    public void setEventBus(DomainEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    /**
+     * Shelf and website stock is authoritative in the engine: transfers are checked and applied there,
+     * reshelved stock is put there, and shelf and website reads come from it
+     */
+    public void setStockEngine(InMemoryStockEngine stockEngine) {
+        this.stockEngine = stockEngine;
     }
 
     /**
@@ -31,40 +64,31 @@ public class StockService {
      */
     public boolean reshelveItems(String itemCode) {
         try {
-            List<StockBatch> availableBatches = batchDAO.getBatchesForReshelving(itemCode);
-            if (availableBatches.isEmpty()) {
+            // Earliest-expiring warehouse batch, FIFO by received date on ties
+            Optional<StockBatch> nextBatch = batchDAO.getNextBatchForReshelving(itemCode);
+            if (nextBatch.isEmpty()) {
                 logger.info("No batches available for reshelving: {}", itemCode);
                 return false;
             }
 
-            // Sort batches by expiry date first, then by received date (FIFO)
-            availableBatches.sort((b1, b2) -> {
-                int expiryCompare = b1.getExpiryDate().compareTo(b2.getExpiryDate());
-                if (expiryCompare != 0) {
-                    return expiryCompare;
-                }
-                return b1.getReceivedDate().compareTo(b2.getReceivedDate());
-            });
+            StockBatch batchToMove = nextBatch.get();
 
-            // Move the first (earliest expiring) batch to shelf
-            StockBatch batchToMove = availableBatches.get(0);
-
-            Optional<ShelfStock> currentStockOpt = shelfDAO.getShelfStock(itemCode);
-            int currentShelfQty = currentStockOpt.map(ShelfStock::getQuantity).orElse(0);
-            int newShelfQty = currentShelfQty + batchToMove.getQuantity();
+            // Batch zeroing, move flag and shelf increment commit together
+            int moved = batchDAO.moveBatchToShelf(batchToMove.getBatchId());
+            if (moved <= 0) {
+                logger.info("Batch {} was already moved to the shelf", batchToMove.getBatchId());
+                return false;
+            }
 
-            if (currentStockOpt.isPresent()) {
-                shelfDAO.updateShelfStock(itemCode, newShelfQty);
-            } else {
-                shelfDAO.addShelfStock(new ShelfStock(itemCode, batchToMove.getQuantity()));
+            if (stockEngine != null) {
+                stockEngine.put(itemCode, StockLocation.SHELF, moved);
             }
 
-            // Mark batch as moved and update quantity
-            batchDAO.updateBatchQuantity(batchToMove.getBatchId(), 0);
-            batchDAO.markBatchAsMovedToShelf(batchToMove.getBatchId());
+            String reference = "batch:" + batchToMove.getBatchId();
+            fireMovement(itemCode, StockLocation.WAREHOUSE, MovementType.RESHELVE, -moved, reference);
+            fireMovement(itemCode, StockLocation.SHELF, MovementType.RESHELVE, moved, reference);
 
-            logger.info("Reshelved {} units of {} from batch {}",
-                    batchToMove.getQuantity(), itemCode, batchToMove.getBatchId());
+            logger.info("Reshelved {} units of {} from batch {}", moved, itemCode, batchToMove.getBatchId());
             return true;
 
         } catch (Exception e) {
@@ -79,6 +103,8 @@ public class StockService {
     public boolean receiveNewBatch(StockBatch batch) {
         try {
             batchDAO.addBatch(batch);
+            fireMovement(batch.getItemCode(), StockLocation.WAREHOUSE, MovementType.RECEIVE,
+                    batch.getQuantity(), "batch:" + batch.getBatchId());
             logger.info("New stock batch received: {} - {} units",
                     batch.getItemCode(), batch.getQuantity());
             return true;
@@ -88,28 +114,83 @@ public class StockService {
         }
     }
 
+    /**
+     * Receive the batches of a delivery together: all are saved, or none are
+     *
+     * @throws RuntimeException if the batches could not be saved
+     */
+    public void receiveBatches(List<StockBatch> batches) {
+        if (batches.isEmpty()) {
+            return;
+        }
+        batchDAO.addBatches(batches);
+        for (StockBatch batch : batches) {
+            fireMovement(batch.getItemCode(), StockLocation.WAREHOUSE, MovementType.RECEIVE,
+                    batch.getQuantity(), "batch:" + batch.getBatchId());
+        }
+        logger.info("Received {} stock batches", batches.size());
+    }
+
+    /**
+     * Write off the remaining warehouse quantity of a batch, e.g. expired or damaged stock
+     */
+    public boolean writeOffBatch(int batchId, String reason) {
+        try {
+            Optional<StockBatch> batchOpt = batchDAO.getBatchById(batchId);
+            // The batch row is locked and zeroed in one transaction, so a concurrent reshelve cannot take it too
+            int writtenOff = batchOpt.isEmpty() ? 0 : batchDAO.writeOffBatch(batchId);
+            if (writtenOff <= 0) {
+                logger.warn("No warehouse stock to write off for batch: {}", batchId);
+                return false;
+            }
+            StockBatch batch = batchOpt.get();
+            fireMovement(batch.getItemCode(), StockLocation.WAREHOUSE, MovementType.WRITE_OFF,
+                    -writtenOff, "batch:" + batchId);
+            logger.info("Wrote off {} units of {} from batch {}: {}",
+                    writtenOff, batch.getItemCode(), batchId, reason);
+            return true;
+        } catch (Exception e) {
+            logger.error("Error writing off batch: " + batchId, e);
+            return false;
+        }
+    }
+
     /**
      * Auto-reshelve items that are running low
      */
     public List<String> autoReshelvelow(String itemCode) {
         List<String> reshelvedItems = new ArrayList<>();
+        if (replenishShelf(itemCode, ConfigManager.getInstance().getReplenishThreshold()) > 0) {
+            reshelvedItems.add(itemCode);
+        }
+        return reshelvedItems;
+    }
 
-        Optional<ShelfStock> stockOpt = shelfDAO.getShelfStock(itemCode);
-        if (stockOpt.isPresent()) {
-            ShelfStock stock = stockOpt.get();
-            // Auto-reshelve if stock is low (less than 20 units)
-            if (stock.getQuantity() < 20) {
-                if (reshelveItems(itemCode)) {
-                    reshelvedItems.add(itemCode);
-                }
+    /**
+     * Move FEFO batches to the shelf until it holds at least the threshold quantity
+     *
+     * @return number of batches moved
+     */
+    public int replenishShelf(String itemCode, int threshold) {
+        int batchesMoved = 0;
+        while (batchesMoved < MAX_BATCHES_PER_REPLENISHMENT && getShelfQuantity(itemCode) < threshold) {
+            if (!reshelveItems(itemCode)) {
+                break;
             }
+            batchesMoved++;
         }
+        return batchesMoved;
+    }
 
-        return reshelvedItems;
+    /**
+     * Get current shelf quantity for an item
+     */
+    public int getShelfQuantity(String itemCode) {
+        return shelf().getTotalShelfStock(itemCode);
     }
 
     /**
-     * Get batches expiring within specified days
+     * Get batches expiring within specified days, served from the FEFO index when the batch DAO has one
      */
     public List<StockBatch> getBatchesExpiringSoon(int days) {
         Calendar cal = Calendar.getInstance();
@@ -124,43 +205,43 @@ public class StockService {
      */
     public boolean transferStock(String itemCode, int quantity, boolean fromShelfToWebsite) {
         try {
-            if (fromShelfToWebsite) {
-                // Transfer from shelf to website
-                if (shelfDAO.reduceShelfStock(itemCode, quantity)) {
-                    Optional<WebsiteInventory> webInvOpt = websiteDAO.getWebsiteInventory(itemCode);
-                    int currentWebQty = webInvOpt.map(WebsiteInventory::getQuantity).orElse(0);
-                    websiteDAO.updateWebsiteInventory(itemCode, currentWebQty + quantity);
-                    logger.info("Transferred {} units of {} from shelf to website", quantity, itemCode);
-                    return true;
-                } else {
-                    logger.warn("Insufficient shelf stock for transfer: {}", itemCode);
-                    return false;
-                }
-            } else {
-                // Transfer from website to shelf
-                if (websiteDAO.reduceWebsiteInventory(itemCode, quantity)) {
-                    Optional<ShelfStock> shelfStockOpt = shelfDAO.getShelfStock(itemCode);
-                    int currentShelfQty = shelfStockOpt.map(ShelfStock::getQuantity).orElse(0);
-                    shelfDAO.updateShelfStock(itemCode, currentShelfQty + quantity);
-                    logger.info("Transferred {} units of {} from website to shelf", quantity, itemCode);
-                    return true;
-                } else {
-                    logger.warn("Insufficient website inventory for transfer: {}", itemCode);
-                    return false;
-                }
+            StockTransfer transfer = new StockTransfer(itemCode, quantity, fromShelfToWebsite);
+            if (stockEngine != null ? transferInEngine(transfer) : transferDAO.transferStock(transfer)) {
+                fireTransfer(transfer);
+                logger.info("Transferred {} units of {} from {}", quantity, itemCode,
+                        fromShelfToWebsite ? "shelf to website" : "website to shelf");
+                return true;
             }
+            logger.warn("Insufficient {} stock for transfer: {}", fromShelfToWebsite ? "shelf" : "website", itemCode);
+            return false;
         } catch (Exception e) {
             logger.error("Error transferring stock for: " + itemCode, e);
             return false;
         }
     }
 
+    /**
+     * Apply a multi-item rebalancing plan in one transaction
+     */
+    public TransferResult transferStock(List<StockTransfer> plan) {
+        try {
+            List<StockTransfer> applied = stockEngine != null ? transferInEngine(plan) : transferDAO.transferStock(plan);
+            applied.forEach(this::fireTransfer);
+            List<StockTransfer> rejected = new ArrayList<>(plan);
+            rejected.removeAll(applied);
+            return new TransferResult(applied, rejected);
+        } catch (Exception e) {
+            logger.error("Error applying stock transfer plan", e);
+            return new TransferResult(new ArrayList<>(), new ArrayList<>(plan));
+        }
+    }
+
     /**
      * Get comprehensive stock summary for an item
      */
     public StockSummary getStockSummary(String itemCode) {
-        Optional<ShelfStock> shelfStockOpt = shelfDAO.getShelfStock(itemCode);
-        Optional<WebsiteInventory> webInvOpt = websiteDAO.getWebsiteInventory(itemCode);
+        Optional<ShelfStock> shelfStockOpt = shelf().getShelfStock(itemCode);
+        Optional<WebsiteInventory> webInvOpt = website().getWebsiteInventory(itemCode);
         List<StockBatch> batches = batchDAO.getBatchesByItemCode(itemCode);
 
         int shelfQuantity = shelfStockOpt.map(ShelfStock::getQuantity).orElse(0);
@@ -173,6 +254,22 @@ public class StockService {
         return new StockSummary(itemCode, shelfQuantity, websiteQuantity, warehouseQuantity, batches);
     }
 
+    /**
+     * Get one page of the catalog-wide stock summary
+     *
+     * @param page zero-based page number
+     */
+    public CatalogStockPage getCatalogStockSummary(StockSummaryDAO.SortField sortField, boolean ascending,
+                                                   int page, int pageSize) {
+        if (page < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("Page must be >= 0 and page size positive");
+        }
+        int totalItems = summaryDAO.countItems();
+        List<CatalogStockSummary> summaries =
+                summaryDAO.getStockSummaries(sortField, ascending, page * pageSize, pageSize);
+        return new CatalogStockPage(summaries, page, pageSize, totalItems);
+    }
+
     /**
      * Get all stock batches
      */
@@ -184,14 +281,107 @@ public class StockService {
      * Get all shelf stock
      */
     public List<ShelfStock> getAllShelfStock() {
-        return shelfDAO.getAllShelfStock();
+        return shelf().getAllShelfStock();
     }
 
     /**
      * Get all website inventory
      */
     public List<WebsiteInventory> getAllWebsiteInventory() {
-        return websiteDAO.getAllWebsiteInventory();
+        return website().getAllWebsiteInventory();
+    }
+
+    private boolean transferInEngine(StockTransfer transfer) {
+        StockLocation from = transfer.isFromShelfToWebsite() ? StockLocation.SHELF : StockLocation.WEBSITE;
+        StockLocation to = transfer.isFromShelfToWebsite() ? StockLocation.WEBSITE : StockLocation.SHELF;
+        return stockEngine.transfer(transfer.getItemCode(), from, to, transfer.getQuantity());
+    }
+
+    private List<StockTransfer> transferInEngine(List<StockTransfer> plan) {
+        List<StockTransfer> applied = new ArrayList<>();
+        for (StockTransfer transfer : plan) {
+            if (transferInEngine(transfer)) {
+                applied.add(transfer);
+            } else {
+                logger.warn("Skipping transfer, insufficient stock: {}", transfer);
+            }
+        }
+        return applied;
+    }
+
+    private ShelfStockDAO shelf() {
+        return stockEngine != null ? stockEngine.shelfStockDAO() : shelfDAO;
+    }
+
+    private WebsiteInventoryDAO website() {
+        return stockEngine != null ? stockEngine.websiteInventoryDAO() : websiteDAO;
+    }
+
+    private void fireTransfer(StockTransfer transfer) {
+        StockLocation from = transfer.isFromShelfToWebsite() ? StockLocation.SHELF : StockLocation.WEBSITE;
+        StockLocation to = transfer.isFromShelfToWebsite() ? StockLocation.WEBSITE : StockLocation.SHELF;
+        fireMovement(transfer.getItemCode(), from, MovementType.TRANSFER, -transfer.getQuantity(), null);
+        fireMovement(transfer.getItemCode(), to, MovementType.TRANSFER, transfer.getQuantity(), null);
+    }
+
+    private void fireMovement(String itemCode, StockLocation location, MovementType type, int delta, String reference) {
+        if (eventBus != null) {
+            eventBus.publishStockChanged(itemCode, location, type, delta);
+        }
+        if (movementListeners.isEmpty()) {
+            return;
+        }
+        StockMovement movement = new StockMovement(itemCode, location, type, delta, reference);
+        for (StockMovementListener listener : movementListeners) {
+            try {
+                listener.onStockMoved(movement);
+            } catch (Exception e) {
+                logger.error("Stock movement listener failed for item: " + itemCode, e);
+            }
+        }
+    }
+
+    /**
+     * Inner class for the outcome of a transfer plan
+     */
+    public static class TransferResult {
+        private final List<StockTransfer> applied;
+        private final List<StockTransfer> rejected;
+
+        public TransferResult(List<StockTransfer> applied, List<StockTransfer> rejected) {
+            this.applied = applied;
+            this.rejected = rejected;
+        }
+
+        // Getters
+        public List<StockTransfer> getApplied() { return applied; }
+        public List<StockTransfer> getRejected() { return rejected; }
+        public int getUnitsMoved() { return applied.stream().mapToInt(StockTransfer::getQuantity).sum(); }
+    }
+
+    /**
+     * Inner class for one page of the catalog stock summary
+     */
+    public static class CatalogStockPage {
+        private final List<CatalogStockSummary> summaries;
+        private final int page;
+        private final int pageSize;
+        private final int totalItems;
+
+        public CatalogStockPage(List<CatalogStockSummary> summaries, int page, int pageSize, int totalItems) {
+            this.summaries = summaries;
+            this.page = page;
+            this.pageSize = pageSize;
+            this.totalItems = totalItems;
+        }
+
+        // Getters
+        public List<CatalogStockSummary> getSummaries() { return summaries; }
+        public int getPage() { return page; }
+        public int getPageSize() { return pageSize; }
+        public int getTotalItems() { return totalItems; }
+        public int getTotalPages() { return (totalItems + pageSize - 1) / pageSize; }
+        public boolean hasNext() { return page + 1 < getTotalPages(); }
     }
 
     /**
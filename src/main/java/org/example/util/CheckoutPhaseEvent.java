@@ -0,0 +1,62 @@
+package org.example.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.example.config.ConfigManager;
+
+/**
+ * Flight Recorder event for one phase of a checkout. Created only when jfr.events.enabled is set
+ * and a recording has the event on, so a switched-off event costs one static check.
+ */
+@Name("org.example.CheckoutPhase")
+@Label("Checkout Phase")
+@Category({"SYOS", "Checkout"})
+@Description("One phase of billing a checkout")
+@StackTrace(false)
+public class CheckoutPhaseEvent extends Event {
+    public static final String VALIDATION = "validation";
+    public static final String CUSTOMER_RESOLVE = "customer resolve";
+    public static final String STOCK_REDUCTION = "stock reduction";
+    public static final String BILL_SAVE = "bill save";
+    public static final String RECEIPT_RENDER = "receipt render";
+
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(ConfigManager.getInstance().getProperty("jfr.events.enabled", "false"));
+
+    @Label("Phase")
+    private String phase;
+
+    @Label("Request Token")
+    private String requestToken;
+
+    @Label("Items")
+    private int items;
+
+    /**
+     * @return the started event, or null if it is not being recorded
+     */
+    public static CheckoutPhaseEvent start(String phase, String requestToken, int items) {
+        if (!ENABLED) {
+            return null;
+        }
+        CheckoutPhaseEvent event = new CheckoutPhaseEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.phase = phase;
+        event.requestToken = requestToken;
+        event.items = items;
+        event.begin();
+        return event;
+    }
+
+    public static void finish(CheckoutPhaseEvent event) {
+        if (event != null) {
+            event.commit();
+        }
+    }
+}
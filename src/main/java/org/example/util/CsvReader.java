@@ -0,0 +1,106 @@
+package org.example.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads CSV records one at a time, for files too large to load whole.
+ * Fields are comma separated and may be quoted; a quote inside a quoted field is doubled and
+ * a quoted field may run over several lines. Blank lines are skipped.
+ */
+public class CsvReader implements Closeable {
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    private final BufferedReader reader;
+    private long lineNumber;
+    private long recordLine;
+
+    public CsvReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Open a UTF-8 file, with or without a byte order mark
+     */
+    public static CsvReader open(Path file) throws IOException {
+        return new CsvReader(new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), BUFFER_CHARS));
+    }
+
+    /**
+     * @return the fields of the next record, or null at the end of the input
+     */
+    public List<String> readRecord() throws IOException {
+        String line = reader.readLine();
+        lineNumber++;
+        while (line != null && line.isEmpty()) {
+            line = reader.readLine();
+            lineNumber++;
+        }
+        if (line == null) {
+            return null;
+        }
+        if (lineNumber == 1 && line.charAt(0) == '\uFEFF') {
+            line = line.substring(1);
+        }
+        recordLine = lineNumber;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    fields.add(field.toString());
+                    return fields;
+                }
+                line = reader.readLine();
+                lineNumber++;
+                if (line == null) {
+                    throw new IOException("Unterminated quoted field in the record on line " + recordLine);
+                }
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else {
+                field.append(c);
+            }
+        }
+    }
+
+    /**
+     * Line on which the last record read started, counting from 1
+     */
+    public long getRecordLine() {
+        return recordLine;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.util;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide latency histograms, counters and gauges, by name. Histograms are named after the
+ * operation they time, e.g. {@code billing.processBilling} or {@code dao.ItemDAO.getItemByCode}.
+ * Callers on hot paths look a histogram up once and keep it; recording is lock-free.
+ */
+public final class Metrics {
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static LatencyHistogram histogram(String operation) {
+        return histograms.computeIfAbsent(operation, name -> new LatencyHistogram());
+    }
+
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Register a value read whenever metrics are shown or scraped
+     */
+    public static void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Wrap an implementation of an interface so every call through the interface is timed, as
+     * {@code dao.<Interface>.<method>}; calls that throw are timed too
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T timed(Class<T> type, T target) {
+        Map<Method, LatencyHistogram> byMethod = new HashMap<>();
+        for (Method method : type.getMethods()) {
+            byMethod.put(method, histogram("dao." + type.getSimpleName() + "." + method.getName()));
+        }
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            LatencyHistogram histogram = byMethod.get(method);
+            if (histogram == null) {
+                // equals, hashCode and toString
+                return method.invoke(target, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                histogram.recordSince(start);
+            }
+        });
+    }
+
+    /**
+     * Snapshots of every histogram that has recorded something, by operation name
+     */
+    public static Map<String, LatencyHistogram.Snapshot> snapshots() {
+        Map<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        histograms.forEach((name, histogram) -> {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            if (snapshot.getCount() > 0) {
+                snapshots.put(name, snapshot);
+            }
+        });
+        return snapshots;
+    }
+
+    /**
+     * Counters and gauges, by name
+     */
+    public static Map<String, Long> values() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    /**
+     * Write everything in the Prometheus text exposition format. Histograms become one summary,
+     * {@code syos_latency_seconds}, labelled by operation; counters and gauges keep their own names.
+     */
+    public static void writePrometheus(Appendable out) throws IOException {
+        Map<String, LatencyHistogram.Snapshot> snapshots = snapshots();
+        if (!snapshots.isEmpty()) {
+            out.append("# HELP syos_latency_seconds Operation latency since start\n");
+            out.append("# TYPE syos_latency_seconds summary\n");
+            for (Map.Entry<String, LatencyHistogram.Snapshot> entry : snapshots.entrySet()) {
+                String op = "op=\"" + entry.getKey() + "\"";
+                LatencyHistogram.Snapshot snapshot = entry.getValue();
+                for (double quantile : QUANTILES) {
+                    out.append("syos_latency_seconds{").append(op).append(",quantile=\"").append(String.valueOf(quantile))
+                            .append("\"} ").append(seconds(snapshot.valueAtPercentile(quantile * 100))).append('\n');
+                }
+                out.append("syos_latency_seconds_sum{").append(op).append("} ")
+                        .append(seconds(snapshot.getTotalNanos())).append('\n');
+                out.append("syos_latency_seconds_count{").append(op).append("} ")
+                        .append(String.valueOf(snapshot.getCount())).append('\n');
+            }
+        }
+        for (Map.Entry<String, Long> entry : values().entrySet()) {
+            String name = "syos_" + entry.getKey().replaceAll("[^A-Za-z0-9_]", "_").toLowerCase(Locale.ROOT);
+            out.append("# TYPE ").append(name).append(counters.containsKey(entry.getKey()) ? " counter\n" : " gauge\n");
+            out.append(name).append(' ').append(String.valueOf(entry.getValue())).append('\n');
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+}
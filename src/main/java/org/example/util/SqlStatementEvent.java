@@ -0,0 +1,44 @@
+package org.example.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one execution of a JDBC statement. Its duration is the execute call;
+ * rows of a query are counted as the caller reads them, and the event is written once the results
+ * are read through, closed, or the statement runs again.
+ */
+@Name("org.example.SqlStatement")
+@Label("SQL Statement")
+@Category({"SYOS", "Database"})
+@Description("One execution of a DAO statement")
+public class SqlStatementEvent extends Event {
+
+    @Label("SQL Id")
+    @Description("Hash of the SQL text, the same for every run of a statement")
+    public String sqlId;
+
+    @Label("SQL")
+    public String sql;
+
+    @Label("Operation")
+    @Description("The execute method called, e.g. executeQuery or executeBatch")
+    public String operation;
+
+    @Label("Rows")
+    @Description("Rows read or changed, -1 when not known")
+    public long rows;
+
+    @Label("Batch Size")
+    public int batchSize;
+
+    @Label("Failed")
+    public boolean failed;
+
+    public static String idOf(String sql) {
+        return sql == null ? null : String.format("%08x", sql.hashCode());
+    }
+}
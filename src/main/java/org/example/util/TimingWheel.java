@@ -0,0 +1,164 @@
+package org.example.util;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Hierarchical timing wheel for keyed deadlines.
+ * Level 0 slots are one tick wide, each higher level is {@code wheelSize} times coarser.
+ * Entries cascade down a level when their coarse slot comes round, so each tick only
+ * touches the slots that are due no matter how many deadlines are held.
+ */
+public class TimingWheel<K, V> {
+    private final long tickMillis;
+    private final int wheelSize;
+    private final List<List<Entry<K, V>>[]> levels = new ArrayList<>();
+    private final long[] slotTicks;
+    private final Map<K, Entry<K, V>> entries = new HashMap<>();
+    private long currentTick;
+
+    public TimingWheel(long tickMillis, int wheelSize, int levelCount, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2 || levelCount < 1) {
+            throw new IllegalArgumentException("Invalid timing wheel dimensions");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.slotTicks = new long[levelCount];
+        long width = 1;
+        for (int level = 0; level < levelCount; level++) {
+            slotTicks[level] = width;
+            levels.add(newSlots(wheelSize));
+            width = Math.multiplyExact(width, wheelSize);
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedule or reschedule a deadline for a key.
+     *
+     * @return false if the deadline has already passed; nothing is scheduled in that case
+     */
+    public synchronized boolean schedule(K key, long deadlineMillis, V value) {
+        cancel(key);
+        Entry<K, V> entry = new Entry<>(key, deadlineMillis / tickMillis, value);
+        if (entry.deadlineTick <= currentTick) {
+            return false;
+        }
+        entries.put(key, entry);
+        place(entry);
+        return true;
+    }
+
+    /**
+     * Cancel a pending deadline. Cancelled entries are skipped lazily when their slot is reached.
+     */
+    public synchronized boolean cancel(K key) {
+        Entry<K, V> entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        entry.cancelled = true;
+        return true;
+    }
+
+    /**
+     * Replace the value attached to a pending deadline without moving it
+     */
+    public synchronized boolean update(K key, V value) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            return false;
+        }
+        entry.value = value;
+        return true;
+    }
+
+    public synchronized boolean contains(K key) {
+        return entries.containsKey(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Advance the clock to the given time, handing every deadline that passed to the callback
+     */
+    public void advanceTo(long nowMillis, BiConsumer<K, V> expired) {
+        List<Entry<K, V>> due = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = nowMillis / tickMillis;
+            while (currentTick < targetTick) {
+                currentTick++;
+                // Cascade coarse levels first so entries landing in this tick's slot fire now
+                for (int level = levels.size() - 1; level > 0; level--) {
+                    if (currentTick % slotTicks[level] == 0) {
+                        List<Entry<K, V>>[] slots = levels.get(level);
+                        int index = (int) ((currentTick / slotTicks[level]) % wheelSize);
+                        List<Entry<K, V>> cascading = slots[index];
+                        slots[index] = new ArrayList<>();
+                        for (Entry<K, V> entry : cascading) {
+                            reinsert(entry, due);
+                        }
+                    }
+                }
+                List<Entry<K, V>>[] slots = levels.get(0);
+                int index = (int) (currentTick % wheelSize);
+                List<Entry<K, V>> slot = slots[index];
+                slots[index] = new ArrayList<>();
+                for (Entry<K, V> entry : slot) {
+                    reinsert(entry, due);
+                }
+            }
+        }
+        // Callbacks run outside the lock so listeners may schedule or cancel freely
+        for (Entry<K, V> entry : due) {
+            expired.accept(entry.key, entry.value);
+        }
+    }
+
+    private void reinsert(Entry<K, V> entry, List<Entry<K, V>> due) {
+        if (entry.cancelled) {
+            return;
+        }
+        if (entry.deadlineTick <= currentTick) {
+            entries.remove(entry.key);
+            due.add(entry);
+        } else {
+            place(entry);
+        }
+    }
+
+    private void place(Entry<K, V> entry) {
+        long delta = entry.deadlineTick - currentTick;
+        int level = 0;
+        while (level < levels.size() - 1 && delta >= slotTicks[level + 1]) {
+            level++;
+        }
+        // Deadlines beyond the top level's span sit there and are re-placed when it cascades
+        int index = (int) ((entry.deadlineTick / slotTicks[level]) % wheelSize);
+        levels.get(level)[index].add(entry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> List<Entry<K, V>>[] newSlots(int size) {
+        List<Entry<K, V>>[] slots = new List[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ArrayList<>();
+        }
+        return slots;
+    }
+
+    private static class Entry<K, V> {
+        private final K key;
+        private final long deadlineTick;
+        private V value;
+        private boolean cancelled;
+
+        private Entry(K key, long deadlineTick, V value) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+            this.value = value;
+        }
+    }
+}
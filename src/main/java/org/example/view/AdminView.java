@@ -44,6 +44,7 @@ public class AdminView {
             System.out.println("5. Reports");
             System.out.println("6. User Management");
             System.out.println("7. Bill Management");
+            System.out.println("8. Performance Metrics");
             System.out.println("9. Logout");
             System.out.println("0. Exit Application");
             System.out.println("=".repeat(50));
@@ -74,6 +75,9 @@ public class AdminView {
                     case "7":
                         billManagementController.showMenu();
                         break;
+                    case "8":
+                        reportController.showPerformanceMetrics();
+                        break;
                     case "9":
                         authController.logout();
                         return true; // Return to login
@@ -106,6 +110,10 @@ public class AdminView {
             System.out.println("3. Transfer Stock (Shelf ↔ Website)");
             System.out.println("4. View Stock Summary");
             System.out.println("5. View Expiring Stock");
+            System.out.println("6. Rebalance Stock from Plan File");
+            System.out.println("7. View Catalog Stock Summary");
+            System.out.println("8. Write Off Batch");
+            System.out.println("9. Receive Delivery Manifest (CSV/JSON)");
             System.out.println("0. Back to Admin Menu");
             System.out.println("=".repeat(50));
 
@@ -129,6 +137,18 @@ public class AdminView {
                     case "5":
                         stockController.viewExpiringStock(scanner);
                         break;
+                    case "6":
+                        stockController.transferStockPlan(scanner);
+                        break;
+                    case "7":
+                        stockController.viewCatalogStockSummary(scanner);
+                        break;
+                    case "8":
+                        stockController.writeOffBatch(scanner);
+                        break;
+                    case "9":
+                        stockController.receiveManifest(scanner);
+                        break;
                     case "0":
                         return; // Back to admin menu
                     default:
@@ -100,6 +100,10 @@ public class ManagerView {
             System.out.println("3. Transfer Stock (Shelf ↔ Website)");
             System.out.println("4. View Stock Summary");
             System.out.println("5. View Expiring Stock");
+            System.out.println("6. Rebalance Stock from Plan File");
+            System.out.println("7. View Catalog Stock Summary");
+            System.out.println("8. Write Off Batch");
+            System.out.println("9. Receive Delivery Manifest (CSV/JSON)");
             System.out.println("0. Back to Manager Menu");
             System.out.println("=".repeat(50));
 
@@ -123,6 +127,18 @@ public class ManagerView {
                     case "5":
                         stockController.viewExpiringStock(scanner);
                         break;
+                    case "6":
+                        stockController.transferStockPlan(scanner);
+                        break;
+                    case "7":
+                        stockController.viewCatalogStockSummary(scanner);
+                        break;
+                    case "8":
+                        stockController.writeOffBatch(scanner);
+                        break;
+                    case "9":
+                        stockController.receiveManifest(scanner);
+                        break;
                     case "0":
                         return; 
                     default:
@@ -134,7 +150,7 @@ public class ManagerView {
             }
 
             // Pause after operations (except logout/exit)
-            if (!choice.equals("9") && !choice.equals("0")) {
+            if (!choice.equals("0")) {
                 System.out.println("\nPress Enter to continue...");
                 scanner.nextLine();
             }
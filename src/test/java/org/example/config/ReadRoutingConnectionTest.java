@@ -0,0 +1,86 @@
+package org.example.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for ReadRoutingConnection
+ */
+public class ReadRoutingConnectionTest {
+
+    @Mock
+    private ReadRoutingConnection.Pools pools;
+
+    @Mock
+    private Connection primary;
+
+    @Mock
+    private Connection replica;
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        when(pools.primary()).thenReturn(primary);
+        when(pools.replica()).thenReturn(replica);
+        when(pools.isReplicaUsable()).thenReturn(true);
+        connection = ReadRoutingConnection.create(pools);
+    }
+
+    @Test
+    void testStatementsStayOnReplicaWhileItIsUsable() throws Exception {
+        connection.prepareStatement("SELECT 1");
+        connection.prepareStatement("SELECT 2");
+
+        verify(pools, times(1)).replica();
+        verify(replica).prepareStatement("SELECT 1");
+        verify(replica).prepareStatement("SELECT 2");
+        verify(replica, never()).close();
+        verifyNoInteractions(primary);
+    }
+
+    @Test
+    void testLaggingReplicaSwapsToPrimaryAndBack() throws Exception {
+        connection.prepareStatement("SELECT 1");
+        when(pools.isReplicaUsable()).thenReturn(false);
+        connection.prepareStatement("SELECT 2");
+        when(pools.isReplicaUsable()).thenReturn(true);
+        connection.prepareStatement("SELECT 3");
+        connection.close();
+
+        InOrder order = inOrder(replica, primary);
+        order.verify(replica).prepareStatement("SELECT 1");
+        order.verify(replica).close();
+        order.verify(primary).prepareStatement("SELECT 2");
+        order.verify(primary).close();
+        order.verify(replica).prepareStatement("SELECT 3");
+        order.verify(replica).close();
+        assertTrue(connection.isClosed());
+    }
+
+    @Test
+    void testUnreachableReplicaFallsBackToPrimary() throws Exception {
+        when(pools.replica()).thenThrow(new SQLException("Connection refused"));
+        connection.prepareStatement("SELECT 1");
+
+        verify(primary).prepareStatement("SELECT 1");
+        verify(replica, never()).prepareStatement(anyString());
+    }
+
+    @Test
+    void testTransactionsAreRefused() {
+        assertThrows(SQLException.class, () -> connection.setAutoCommit(false));
+        verifyNoInteractions(primary, replica);
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.dao.impl;
+
+import org.example.model.StockBatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for FefoBatchIndex
+ */
+public class FefoBatchIndexTest {
+
+    private FefoBatchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FefoBatchIndex();
+    }
+
+    @Test
+    void testNextBatchIsEarliestExpiry() {
+        index.put(batch(1, "MILK001", 10, date(2025, 1, 1), date(2025, 3, 1)));
+        index.put(batch(2, "MILK001", 10, date(2025, 1, 5), date(2025, 2, 1)));
+        index.put(batch(3, "MILK001", 10, date(2025, 1, 2), date(2025, 2, 15)));
+
+        Optional<StockBatch> next = index.peekNextForReshelving("MILK001");
+
+        assertTrue(next.isPresent());
+        assertEquals(2, next.get().getBatchId());
+    }
+
+    @Test
+    void testSameExpiryFallsBackToReceivedDate() {
+        index.put(batch(1, "RICE001", 10, date(2025, 1, 9), date(2026, 1, 1)));
+        index.put(batch(2, "RICE001", 10, date(2025, 1, 3), date(2026, 1, 1)));
+
+        assertEquals(2, index.peekNextForReshelving("RICE001").get().getBatchId());
+    }
+
+    @Test
+    void testMovedAndDepletedBatchesLeaveReshelvingOrder() {
+        index.put(batch(1, "TEA001", 10, date(2025, 1, 1), date(2025, 6, 1)));
+        index.put(batch(2, "TEA001", 20, date(2025, 1, 1), date(2025, 7, 1)));
+        index.put(batch(3, "TEA001", 30, date(2025, 1, 1), date(2025, 8, 1)));
+
+        index.markMovedToShelf(1);
+        index.updateQuantity(2, 0);
+
+        assertEquals(3, index.peekNextForReshelving("TEA001").get().getBatchId());
+        // Batch 1 is on the shelf but still has quantity, so it stays available
+        assertEquals(2, index.getAvailableBatches("TEA001").size());
+        assertEquals(40, index.getAvailableQuantityByItem().get("TEA001"));
+    }
+
+    @Test
+    void testDepletedBatchIsNotUpdatedInPlace() {
+        index.put(batch(1, "JAM001", 10, date(2025, 1, 1), date(2025, 6, 1)));
+
+        assertTrue(index.updateQuantity(1, 0));
+        // Gone from the index, so a restored quantity has to be put back by the caller
+        assertFalse(index.updateQuantity(1, 5));
+        assertTrue(index.getAvailableBatches("JAM001").isEmpty());
+
+        StockBatch restored = batch(1, "JAM001", 5, date(2025, 1, 1), date(2025, 6, 1));
+        index.put(restored);
+        assertEquals(1, index.peekNextForReshelving("JAM001").get().getBatchId());
+    }
+
+    @Test
+    void testExpiringBeforeStopsAtCutoffPerItem() {
+        index.put(batch(1, "MILK001", 10, date(2025, 1, 1), date(2025, 2, 1)));
+        index.put(batch(2, "MILK001", 10, date(2025, 1, 1), date(2025, 4, 1)));
+        index.put(batch(3, "BREAD01", 10, date(2025, 1, 1), date(2025, 1, 20)));
+        index.put(batch(4, "BREAD01", 10, date(2025, 1, 1), date(2025, 3, 1)));
+        index.put(batch(5, "TEA001", 0, date(2025, 1, 1), date(2025, 1, 10)));
+
+        List<StockBatch> expiring = index.getBatchesExpiringBefore(date(2025, 3, 1));
+
+        assertEquals(List.of(3, 1, 4), expiring.stream().map(StockBatch::getBatchId).toList());
+    }
+
+    @Test
+    void testReturnedBatchesAreCopies() {
+        index.put(batch(1, "SOAP001", 10, date(2025, 1, 1), date(2027, 1, 1)));
+
+        List<StockBatch> batches = index.getBatchesForReshelving("SOAP001");
+        batches.get(0).setQuantity(999);
+
+        assertEquals(10, index.getAvailableQuantityByItem().get("SOAP001"));
+    }
+
+    @Test
+    void testReplaceItemDropsStaleBatches() {
+        index.put(batch(1, "BREAD001", 10, date(2025, 1, 1), date(2025, 1, 5)));
+        index.put(batch(2, "BREAD001", 10, date(2025, 1, 2), date(2025, 1, 6)));
+
+        index.replaceItem("BREAD001", List.of(batch(7, "BREAD001", 5, date(2025, 1, 3), date(2025, 1, 7))));
+
+        assertEquals(1, index.size());
+        assertEquals(7, index.peekNextForReshelving("BREAD001").get().getBatchId());
+    }
+
+    @Test
+    void testUnknownItemIsEmpty() {
+        assertTrue(index.peekNextForReshelving("NONE001").isEmpty());
+        assertTrue(index.getAvailableBatches("NONE001").isEmpty());
+    }
+
+    private StockBatch batch(int id, String itemCode, int quantity, Date received, Date expiry) {
+        return new StockBatch(id, itemCode, quantity, received, expiry, "Supplier", 10.0);
+    }
+
+    private Date date(int year, int month, int day) {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(year, month - 1, day);
+        return cal.getTime();
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.dao.impl;
+
+import org.example.model.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for ItemDAOImpl
+ */
+public class ItemDAOImplTest {
+
+    @Mock
+    private Connection conn;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        when(conn.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeBatch()).thenReturn(new int[]{1});
+    }
+
+    @Test
+    void testUpsertOverwritesOnlyTheGivenColumns() {
+        assertTrue(ItemDAOImpl.upsertSql(Set.of("price")).endsWith("ON DUPLICATE KEY UPDATE price = VALUES(price)"));
+        assertTrue(ItemDAOImpl.upsertSql(Set.of("is_active", "name")).endsWith(
+                "ON DUPLICATE KEY UPDATE name = VALUES(name), is_active = VALUES(is_active)"));
+        assertTrue(ItemDAOImpl.upsertSql(Set.of()).endsWith("ON DUPLICATE KEY UPDATE item_code = item_code"));
+    }
+
+    @Test
+    void testPriceOnlyUpsertLeavesNameUnsetForNewItems() throws Exception {
+        Item item = new Item("MILK001", null, 125.50, "GENERAL", null, 50);
+
+        new ItemDAOImpl(conn).upsertItems(List.of(item), Set.of("price"));
+
+        verify(conn).prepareStatement(ItemDAOImpl.upsertSql(Set.of("price")));
+        verify(statement).setNull(2, Types.VARCHAR);
+        verify(statement).setDouble(3, 125.50);
+        verify(conn).commit();
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.dao.impl;
+
+import org.example.config.ConfigManager;
+import org.example.model.MovementType;
+import org.example.model.StockLocation;
+import org.example.model.StockMovement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Mapping cost of a large ledger scan: rows read by column name from {@code SELECT *}, as the
+ * DAOs used to, vs the same rows read by index through the movement projection. Only the
+ * mapping loop is timed; the result set is fully buffered by the driver before the clock starts.
+ * Needs the MySQL database from application.properties; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class ProjectionBenchmark {
+    private static final int ROWS = 200_000;
+    private static final int ROWS_PER_INSERT = 1_000;
+    private static final int ROUNDS = 5;
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        ConfigManager config = ConfigManager.getInstance();
+        try {
+            connection = DriverManager.getConnection(config.getDatabaseUrl(),
+                    config.getDatabaseUsername(), config.getDatabasePassword());
+        } catch (SQLException e) {
+            assumeTrue(false, "Benchmark database not available: " + e.getMessage());
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TEMPORARY TABLE bench_movements LIKE stock_movements");
+        }
+        StringBuilder sql = new StringBuilder("INSERT INTO bench_movements (item_code, location, movement_type, "
+                + "quantity_delta, reference, moved_at) VALUES ");
+        for (int i = 0; i < ROWS_PER_INSERT; i++) {
+            sql.append(i == 0 ? "" : ", ").append("(?, 'SHELF', 'SALE', -1, ?, NOW(3))");
+        }
+        try (PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+            for (int insert = 0; insert < ROWS / ROWS_PER_INSERT; insert++) {
+                for (int i = 0; i < ROWS_PER_INSERT; i++) {
+                    ps.setString(2 * i + 1, "ITEM" + (i % 500));
+                    ps.setString(2 * i + 2, "BILL-" + (insert * ROWS_PER_INSERT + i));
+                }
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    @Test
+    void testNameVersusIndexMapping() throws Exception {
+        // Warm up, then measure
+        byName();
+        byIndex();
+        double byName = Double.MAX_VALUE;
+        double byIndex = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            byName = Math.min(byName, byName());
+            byIndex = Math.min(byIndex, byIndex());
+        }
+
+        System.out.printf("Mapping %d stock movements (best of %d)%n", ROWS, ROUNDS);
+        System.out.printf("  SELECT *, getX(name)        : %7.1f ns/row%n", byName);
+        System.out.printf("  projection, getX(index)     : %7.1f ns/row (%.1fx)%n", byIndex, byName / byIndex);
+    }
+
+    /**
+     * @return nanoseconds per row
+     */
+    private double byName() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM bench_movements")) {
+            long began = System.nanoTime();
+            int rows = 0;
+            while (rs.next()) {
+                StockMovement movement = new StockMovement(
+                        rs.getLong("movement_id"),
+                        rs.getString("item_code"),
+                        StockLocation.valueOf(rs.getString("location")),
+                        MovementType.valueOf(rs.getString("movement_type")),
+                        rs.getInt("quantity_delta"),
+                        rs.getString("reference"),
+                        rs.getTimestamp("moved_at"));
+                rows += movement.getQuantityDelta() < 0 ? 1 : 0;
+            }
+            double elapsed = System.nanoTime() - began;
+            assertEquals(ROWS, rows);
+            return elapsed / ROWS;
+        }
+    }
+
+    private double byIndex() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT " + StockLedgerDAOImpl.MOVEMENT.columns() + " FROM bench_movements")) {
+            long began = System.nanoTime();
+            int rows = 0;
+            while (rs.next()) {
+                StockMovement movement = StockLedgerDAOImpl.MOVEMENT.map(rs);
+                rows += movement.getQuantityDelta() < 0 ? 1 : 0;
+            }
+            double elapsed = System.nanoTime() - began;
+            assertEquals(ROWS, rows);
+            return elapsed / ROWS;
+        }
+    }
+}
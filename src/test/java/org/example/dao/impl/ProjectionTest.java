@@ -0,0 +1,94 @@
+package org.example.dao.impl;
+
+import org.example.model.*;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for Projection
+ */
+public class ProjectionTest {
+
+    @Test
+    void testColumnsAreListedInMapperOrder() {
+        assertEquals("item_code, name, price, category, description, min_stock_level, is_active",
+                ItemDAOImpl.ITEM.columns());
+        assertEquals("c.customer_id, c.phone, c.name, c.email, c.address, c.user_id",
+                CustomerDAOImpl.CUSTOMER.columns("c"));
+        assertEquals(7, ItemDAOImpl.ITEM.size());
+    }
+
+    @Test
+    void testItemIsReadByIndex() throws Exception {
+        ResultSet rs = resultSet(new Object[]{"MILK001", "Fresh Milk", 120.0, "Dairy", "1L", 10, false});
+
+        assertTrue(rs.next());
+        Item item = ItemDAOImpl.ITEM.map(rs);
+
+        assertEquals("MILK001", item.getItemCode());
+        assertEquals("Fresh Milk", item.getName());
+        assertEquals(120.0, item.getPrice());
+        assertEquals(10, item.getMinStockLevel());
+        assertFalse(item.isActive());
+    }
+
+    @Test
+    void testNullUserIdStaysNull() throws Exception {
+        ResultSet rs = resultSet(
+                new Object[]{1, "0771234567", "Walk-in", null, null, null},
+                new Object[]{2, "0777654321", "Online", "o@example.com", "Colombo", 5});
+
+        List<Customer> customers = CustomerDAOImpl.CUSTOMER.mapAll(rs);
+
+        assertEquals(2, customers.size());
+        assertNull(customers.get(0).getUserId());
+        assertEquals(5, customers.get(1).getUserId());
+    }
+
+    @Test
+    void testMovementIsReadByIndex() throws Exception {
+        Timestamp movedAt = new Timestamp(1_700_000_000_000L);
+        ResultSet rs = resultSet(new Object[]{42L, "RICE001", "SHELF", "SALE", -3, "BILL-7", movedAt});
+
+        List<StockMovement> movements = StockLedgerDAOImpl.MOVEMENT.mapAll(rs);
+
+        assertEquals(1, movements.size());
+        assertEquals(42L, movements.get(0).getMovementId());
+        assertEquals(StockLocation.SHELF, movements.get(0).getLocation());
+        assertEquals(MovementType.SALE, movements.get(0).getMovementType());
+        assertEquals(-3, movements.get(0).getQuantityDelta());
+        assertEquals(movedAt, movements.get(0).getMovedAt());
+    }
+
+    /**
+     * A forward-only result set over the given rows that only answers lookups by index
+     */
+    private static ResultSet resultSet(Object[]... rows) throws SQLException {
+        int[] row = {-1};
+        Object[] last = {null};
+        ResultSet rs = mock(ResultSet.class);
+        Answer<Object> column = invocation -> {
+            last[0] = rows[row[0]][(Integer) invocation.getArgument(0) - 1];
+            return last[0];
+        };
+        when(rs.next()).thenAnswer(invocation -> ++row[0] < rows.length);
+        when(rs.wasNull()).thenAnswer(invocation -> last[0] == null);
+        when(rs.getString(anyInt())).thenAnswer(column);
+        when(rs.getTimestamp(anyInt())).thenAnswer(column);
+        when(rs.getInt(anyInt())).thenAnswer(invocation -> column.answer(invocation) instanceof Integer value ? value : 0);
+        when(rs.getLong(anyInt())).thenAnswer(invocation -> column.answer(invocation) instanceof Long value ? value : 0L);
+        when(rs.getDouble(anyInt())).thenAnswer(invocation -> column.answer(invocation) instanceof Double value ? value : 0.0);
+        when(rs.getBoolean(anyInt())).thenAnswer(invocation -> Boolean.TRUE.equals(column.answer(invocation)));
+        return rs;
+    }
+}
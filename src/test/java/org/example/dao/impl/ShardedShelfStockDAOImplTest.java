@@ -0,0 +1,242 @@
+package org.example.dao.impl;
+
+import org.example.dao.ShelfStockDAO;
+import org.example.model.ShelfStock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for ShardedShelfStockDAOImpl
+ */
+public class ShardedShelfStockDAOImplTest {
+
+    private static final int SLOTS = 4;
+
+    @Mock
+    private Connection conn;
+
+    @Mock
+    private ShelfStockDAO delegate;
+
+    private final Map<String, Integer> base = new TreeMap<>();
+    private final Map<String, TreeMap<Integer, Integer>> slots = new TreeMap<>();
+    // Slot rows another transaction holds, which SKIP LOCKED passes over
+    private final Set<Integer> heldElsewhere = new HashSet<>();
+    private ShardedShelfStockDAOImpl dao;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        base.clear();
+        slots.clear();
+        heldElsewhere.clear();
+        when(conn.prepareStatement(anyString())).thenAnswer(invocation -> statement(invocation.getArgument(0)));
+        when(delegate.getTotalShelfStock(anyString()))
+                .thenAnswer(invocation -> base.getOrDefault(invocation.<String>getArgument(0), 0));
+        when(delegate.getLowStockItems(anyInt())).thenAnswer(invocation -> {
+            List<ShelfStock> low = new ArrayList<>();
+            base.forEach((itemCode, qty) -> {
+                if (qty < invocation.<Integer>getArgument(0)) {
+                    low.add(new ShelfStock(itemCode, qty));
+                }
+            });
+            return low;
+        });
+        dao = new ShardedShelfStockDAOImpl(conn, delegate, Set.of("MILK001", "EGG001"), SLOTS);
+    }
+
+    @Test
+    void testStockIsSpreadOverSlots() {
+        base.put("MILK001", 0);
+
+        dao.updateShelfStock("MILK001", 42);
+        dao.addShelfStock(new ShelfStock("EGG001", 8));
+
+        assertEquals(12, base.get("MILK001"));
+        assertEquals(Map.of(1, 10, 2, 10, 3, 10), slots.get("MILK001"));
+        assertEquals(42, dao.getTotalShelfStock("MILK001"));
+        // The base row is created for a hot item that had none
+        assertEquals(2, base.get("EGG001"));
+        assertEquals(8, dao.getTotalShelfStock("EGG001"));
+    }
+
+    @Test
+    void testBasketTakesOneFreeSlotFromItsLaneStart() throws Exception {
+        spread("MILK001", 10, 10, 10, 10);
+        heldElsewhere.add(1);
+
+        // This lane starts at slot 1, which another sale holds
+        assertTrue(dao.reduceShelfStockBatch(Map.of("MILK001", 3), null));
+        assertEquals(Map.of(1, 10, 2, 7, 3, 10), slots.get("MILK001"));
+
+        // The next lane starts at a slot of its own
+        heldElsewhere.clear();
+        ExecutorService lane = Executors.newSingleThreadExecutor();
+        assertTrue(lane.submit(() -> dao.reduceShelfStockBatch(Map.of("MILK001", 4), null)).get(5, TimeUnit.SECONDS));
+        lane.shutdown();
+        assertEquals(Map.of(1, 10, 2, 3, 3, 10), slots.get("MILK001"));
+
+        // Neither sale touched the base row or locked the item's rows in order
+        assertEquals(10, base.get("MILK001"));
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(conn, atLeastOnce()).prepareStatement(sql.capture());
+        assertTrue(sql.getAllValues().stream().noneMatch(statement -> statement.startsWith("SELECT quantity FROM shelf_stock")));
+        verify(conn, times(2)).commit();
+    }
+
+    @Test
+    void testSaleNoSingleSlotCoversIsTakenAcrossSlotsInOrder() throws Exception {
+        spread("MILK001", 10, 10, 10, 10);
+
+        assertTrue(dao.reduceShelfStockBatch(Map.of("MILK001", 25), null));
+
+        assertEquals(0, base.get("MILK001"));
+        assertEquals(Map.of(1, 0, 2, 5, 3, 10), slots.get("MILK001"));
+        verify(conn).commit();
+
+        assertFalse(dao.reduceShelfStockBatch(Map.of("MILK001", 16), null));
+        assertEquals(15, dao.getTotalShelfStock("MILK001"));
+        verify(conn).rollback();
+    }
+
+    @Test
+    void testRebalanceEvensOutSlotsAndFoldsDroppedOnes() {
+        spread("MILK001", 0, 0, 3, 20);
+        // Left over from when the item had more slots
+        slots.get("MILK001").put(5, 4);
+
+        dao.rebalance("MILK001");
+
+        assertEquals(9, base.get("MILK001"));
+        assertEquals(Map.of(1, 6, 2, 6, 3, 6), slots.get("MILK001"));
+        assertEquals(27, dao.getTotalShelfStock("MILK001"));
+    }
+
+    @Test
+    void testLowStockJudgesHotItemsOnTheirSlotTotal() {
+        spread("MILK001", 2, 10, 10, 10);
+        spread("EGG001", 1, 1, 1, 1);
+        base.put("RICE001", 3);
+
+        List<ShelfStock> low = dao.getLowStockItems(5);
+
+        assertEquals(List.of("RICE001", "EGG001"), low.stream().map(ShelfStock::getItemCode).toList());
+        assertEquals(List.of(3, 4), low.stream().map(ShelfStock::getQuantity).toList());
+    }
+
+    private void spread(String itemCode, int baseQuantity, int... slotQuantities) {
+        base.put(itemCode, baseQuantity);
+        TreeMap<Integer, Integer> itemSlots = slots.computeIfAbsent(itemCode, k -> new TreeMap<>());
+        for (int slot = 0; slot < slotQuantities.length; slot++) {
+            itemSlots.put(slot + 1, slotQuantities[slot]);
+        }
+    }
+
+    /**
+     * A statement over the fake shelf_stock and shelf_stock_slots tables, answering the statements the DAO sends
+     */
+    private PreparedStatement statement(String sql) throws SQLException {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        Map<Integer, Object> params = new HashMap<>();
+        List<Map<Integer, Object>> batch = new ArrayList<>();
+
+        doAnswer(invocation -> params.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(ps).setInt(anyInt(), anyInt());
+        doAnswer(invocation -> params.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(ps).setString(anyInt(), anyString());
+        doAnswer(invocation -> batch.add(new HashMap<>(params))).when(ps).addBatch();
+        when(ps.executeUpdate()).thenAnswer(invocation -> update(sql, params));
+        when(ps.executeBatch()).thenAnswer(invocation -> {
+            int[] counts = new int[batch.size()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = update(sql, batch.get(i));
+            }
+            batch.clear();
+            return counts;
+        });
+        when(ps.executeQuery()).thenAnswer(invocation -> rows(query(sql, params)));
+        return ps;
+    }
+
+    private int update(String sql, Map<Integer, Object> p) {
+        if (sql.startsWith("UPDATE shelf_stock_slots SET quantity = quantity - ?")) {
+            Map<Integer, Integer> itemSlots = slots.getOrDefault((String) p.get(2), new TreeMap<>());
+            int slot = (Integer) p.get(3);
+            if (itemSlots.getOrDefault(slot, 0) < (Integer) p.get(1)) {
+                return 0;
+            }
+            itemSlots.merge(slot, -(Integer) p.get(1), Integer::sum);
+            return 1;
+        }
+        if (sql.startsWith("UPDATE shelf_stock SET quantity = quantity - ?")) {
+            String itemCode = (String) p.get(2);
+            if (base.getOrDefault(itemCode, 0) < (Integer) p.get(1)) {
+                return 0;
+            }
+            base.merge(itemCode, -(Integer) p.get(1), Integer::sum);
+            return 1;
+        }
+        if (sql.startsWith("UPDATE shelf_stock SET quantity = ?")) {
+            return base.replace((String) p.get(2), (Integer) p.get(1)) == null ? 0 : 1;
+        }
+        if (sql.startsWith("DELETE FROM shelf_stock_slots")) {
+            slots.getOrDefault((String) p.get(1), new TreeMap<>()).tailMap((Integer) p.get(2)).clear();
+        } else if (sql.startsWith("INSERT INTO shelf_stock_slots")) {
+            slots.computeIfAbsent((String) p.get(1), k -> new TreeMap<>()).put((Integer) p.get(2), (Integer) p.get(3));
+        } else if (sql.startsWith("INSERT INTO shelf_stock ")) {
+            base.put((String) p.get(1), 0);
+        }
+        return 1;
+    }
+
+    private List<int[]> query(String sql, Map<Integer, Object> p) {
+        String itemCode = (String) p.get(1);
+        Map<Integer, Integer> itemSlots = slots.getOrDefault(itemCode, new TreeMap<>());
+        if (sql.startsWith("SELECT slot FROM shelf_stock_slots")) {
+            int last = (Integer) p.get(2);
+            int quantity = (Integer) p.get(3);
+            int start = (Integer) p.get(4);
+            return itemSlots.entrySet().stream()
+                    .filter(e -> e.getKey() >= 1 && e.getKey() <= last && e.getValue() >= quantity)
+                    .filter(e -> !heldElsewhere.contains(e.getKey()))
+                    .sorted(Comparator.comparing((Map.Entry<Integer, Integer> e) -> e.getKey() < start)
+                            .thenComparing(Map.Entry::getKey))
+                    .limit(1)
+                    .map(e -> new int[]{e.getKey()})
+                    .toList();
+        }
+        if (sql.startsWith("SELECT quantity FROM shelf_stock ")) {
+            return base.containsKey(itemCode) ? List.of(new int[]{base.get(itemCode)}) : List.of();
+        }
+        if (sql.startsWith("SELECT slot, quantity FROM shelf_stock_slots")) {
+            return itemSlots.entrySet().stream().map(e -> new int[]{e.getKey(), e.getValue()}).toList();
+        }
+        if (sql.startsWith("SELECT COALESCE(SUM(quantity), 0)")) {
+            return List.of(new int[]{itemSlots.values().stream().mapToInt(Integer::intValue).sum()});
+        }
+        throw new AssertionError("Unexpected query: " + sql);
+    }
+
+    private ResultSet rows(List<int[]> rows) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        int[] row = {-1};
+        when(rs.next()).thenAnswer(invocation -> ++row[0] < rows.size());
+        when(rs.getInt(anyInt())).thenAnswer(invocation -> rows.get(row[0])[invocation.<Integer>getArgument(0) - 1]);
+        return rs;
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.dao.impl;
+
+import org.example.config.ConfigManager;
+import org.example.dao.ShelfStockDAO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Contention benchmark: many checkout lanes selling one SKU through the checkout's basket reduction,
+ * single shelf_stock row vs sharded slots.
+ * Needs the MySQL database from application.properties; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class ShelfStockContentionBenchmark {
+    private static final String ITEM_CODE = "BENCH_HOT";
+    private static final int LANES = 16;
+    private static final int SALES_PER_LANE = 500;
+    private static final int SLOTS = 16;
+
+    private final List<Connection> connections = new ArrayList<>();
+    private Connection setupConnection;
+
+    @BeforeEach
+    void setUp() {
+        try {
+            setupConnection = openConnection();
+        } catch (SQLException e) {
+            assumeTrue(false, "Benchmark database not available: " + e.getMessage());
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        if (setupConnection != null) {
+            execute("DELETE FROM shelf_stock_slots WHERE item_code = ?");
+            execute("DELETE FROM shelf_stock WHERE item_code = ?");
+            execute("DELETE FROM outbox_events WHERE aggregate_id = ?");
+            execute("DELETE FROM items WHERE item_code = ?");
+            setupConnection.close();
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    @Test
+    void testSingleRowVersusShardedSlots() throws Exception {
+        int stock = LANES * SALES_PER_LANE;
+
+        resetStock(stock);
+        double singleRow = runLanes(ShelfStockDAOImpl::new);
+        assertEquals(0, new ShelfStockDAOImpl(setupConnection).getTotalShelfStock(ITEM_CODE));
+
+        resetStock(stock);
+        ShardedShelfStockDAOImpl setupDAO = sharded(setupConnection);
+        setupDAO.rebalance(ITEM_CODE);
+        double sharded = runLanes(this::sharded);
+        assertEquals(0, setupDAO.getTotalShelfStock(ITEM_CODE));
+
+        System.out.printf("%d lanes x %d sales on one SKU%n", LANES, SALES_PER_LANE);
+        System.out.printf("  single row : %,10.0f sales/s%n", singleRow);
+        System.out.printf("  %2d slots   : %,10.0f sales/s (%.2fx)%n", SLOTS, sharded, sharded / singleRow);
+    }
+
+    /**
+     * Every lane sells one unit per basket transaction on its own connection until its share is gone
+     *
+     * @return sales per second across all lanes
+     */
+    private double runLanes(Function<Connection, ShelfStockDAO> daoFactory) throws Exception {
+        List<ShelfStockDAO> lanes = new ArrayList<>();
+        for (int i = 0; i < LANES; i++) {
+            Connection connection = openConnection();
+            connections.add(connection);
+            lanes.add(daoFactory.apply(connection));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(LANES);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger failedSales = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (ShelfStockDAO lane : lanes) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                Map<String, Integer> basket = Map.of(ITEM_CODE, 1);
+                for (int sale = 0; sale < SALES_PER_LANE; sale++) {
+                    if (!lane.reduceShelfStockBatch(basket, null)) {
+                        failedSales.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - began;
+        pool.shutdown();
+
+        // Stock exactly covers every sale, so none may fail and none may oversell
+        assertEquals(0, failedSales.get());
+        return LANES * SALES_PER_LANE / (elapsed / 1e9);
+    }
+
+    private ShardedShelfStockDAOImpl sharded(Connection connection) {
+        return new ShardedShelfStockDAOImpl(connection, new ShelfStockDAOImpl(connection), Set.of(ITEM_CODE), SLOTS);
+    }
+
+    private void resetStock(int quantity) throws SQLException {
+        try (PreparedStatement ps = setupConnection.prepareStatement(
+                "INSERT IGNORE INTO items (item_code, name, price, category) VALUES (?, 'Benchmark item', 1.00, 'BENCH')")) {
+            ps.setString(1, ITEM_CODE);
+            ps.executeUpdate();
+        }
+        execute("DELETE FROM shelf_stock_slots WHERE item_code = ?");
+        new ShelfStockDAOImpl(setupConnection).addShelfStock(new org.example.model.ShelfStock(ITEM_CODE, quantity));
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (PreparedStatement ps = setupConnection.prepareStatement(sql)) {
+            ps.setString(1, ITEM_CODE);
+            ps.executeUpdate();
+        }
+    }
+
+    private static Connection openConnection() throws SQLException {
+        ConfigManager config = ConfigManager.getInstance();
+        return DriverManager.getConnection(config.getDatabaseUrl(), config.getDatabaseUsername(),
+                config.getDatabasePassword());
+    }
+}
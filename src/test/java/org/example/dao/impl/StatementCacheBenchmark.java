@@ -0,0 +1,118 @@
+package org.example.dao.impl;
+
+import org.example.config.ConfigManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Per-call cost of the checkout lookups (item by code, customer by phone, request token):
+ * a fresh prepare on every call with default driver settings, the same with the configured
+ * db.datasource.* settings (server-side prepares and the driver's statement cache), and
+ * statements leased from StatementCache on top of those settings.
+ * Needs the MySQL database from application.properties; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class StatementCacheBenchmark {
+    private static final int CALLS = 20_000;
+    private static final String[] CHECKOUT_SQL = {
+            "SELECT * FROM items WHERE item_code = ?",
+            "SELECT * FROM customers WHERE phone = ?",
+            "SELECT bill_id FROM checkout_requests WHERE request_token = ?"
+    };
+    private static final String[] ARGUMENTS = {"MILK001", "0771234567", "no-such-token"};
+
+    private final List<Connection> connections = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        try {
+            openConnection(false).close();
+        } catch (SQLException e) {
+            assumeTrue(false, "Benchmark database not available: " + e.getMessage());
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    @Test
+    void testFreshPrepareVersusCachedStatements() throws Exception {
+        Connection plain = openConnection(false);
+        Connection tuned = openConnection(true);
+        StatementCache cache = new StatementCache(tuned, 64);
+
+        // Warm up, then measure
+        fresh(plain, CALLS / 4);
+        fresh(tuned, CALLS / 4);
+        cached(cache, CALLS / 4);
+        double freshDefault = fresh(plain, CALLS);
+        double freshTuned = fresh(tuned, CALLS);
+        double leased = cached(cache, CALLS);
+
+        System.out.printf("Checkout lookups, %d calls each%n", CALLS);
+        System.out.printf("  prepare per call, driver defaults : %7.1f us/call%n", freshDefault);
+        System.out.printf("  prepare per call, tuned driver    : %7.1f us/call%n", freshTuned);
+        System.out.printf("  StatementCache, tuned driver      : %7.1f us/call (%.1fx)%n",
+                leased, freshDefault / leased);
+    }
+
+    /**
+     * @return microseconds per call
+     */
+    private double fresh(Connection connection, int calls) throws SQLException {
+        long began = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            int query = i % CHECKOUT_SQL.length;
+            try (PreparedStatement ps = connection.prepareStatement(CHECKOUT_SQL[query])) {
+                run(ps, query);
+            }
+        }
+        return (System.nanoTime() - began) / 1e3 / calls;
+    }
+
+    private double cached(StatementCache cache, int calls) throws SQLException {
+        long began = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            int query = i % CHECKOUT_SQL.length;
+            try (StatementCache.Lease lease = cache.prepare(CHECKOUT_SQL[query])) {
+                run(lease.statement(), query);
+            }
+        }
+        return (System.nanoTime() - began) / 1e3 / calls;
+    }
+
+    private static void run(PreparedStatement ps, int query) throws SQLException {
+        ps.setString(1, ARGUMENTS[query]);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                rs.getString(1);
+            }
+        }
+    }
+
+    private Connection openConnection(boolean tuned) throws SQLException {
+        ConfigManager config = ConfigManager.getInstance();
+        Properties properties = new Properties();
+        properties.setProperty("user", config.getDatabaseUsername());
+        properties.setProperty("password", config.getDatabasePassword());
+        if (tuned) {
+            properties.putAll(config.getPropertiesWithPrefix("db.datasource."));
+        }
+        Connection connection = DriverManager.getConnection(config.getDatabaseUrl(), properties);
+        connections.add(connection);
+        return connection;
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.dao.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for StatementCache
+ */
+public class StatementCacheTest {
+
+    private static final String SQL = "SELECT * FROM items WHERE item_code = ?";
+
+    @Mock
+    private Connection conn;
+
+    private final List<PreparedStatement> prepared = new ArrayList<>();
+    private StatementCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        prepared.clear();
+        when(conn.prepareStatement(anyString())).thenAnswer(invocation -> {
+            PreparedStatement statement = mock(PreparedStatement.class);
+            prepared.add(statement);
+            return statement;
+        });
+        cache = new StatementCache(conn, 2);
+    }
+
+    @Test
+    void testStatementIsPreparedOnceAndCleared() throws Exception {
+        PreparedStatement first;
+        try (StatementCache.Lease lease = cache.prepare(SQL)) {
+            first = lease.statement();
+            first.setString(1, "MILK001");
+        }
+        try (StatementCache.Lease lease = cache.prepare(SQL)) {
+            assertSame(first, lease.statement());
+        }
+
+        verify(conn, times(1)).prepareStatement(SQL);
+        verify(first, times(2)).clearParameters();
+        verify(first, never()).close();
+    }
+
+    @Test
+    void testConcurrentLeaseGetsItsOwnStatement() throws Exception {
+        try (StatementCache.Lease outer = cache.prepare(SQL);
+             StatementCache.Lease inner = cache.prepare(SQL)) {
+            assertNotSame(outer.statement(), inner.statement());
+        }
+
+        // One goes back to the cache, the other is closed
+        assertEquals(2, prepared.size());
+        verify(prepared.get(0)).close();
+        verify(prepared.get(1), never()).close();
+    }
+
+    @Test
+    void testClosedStatementIsPreparedAgain() throws Exception {
+        try (StatementCache.Lease lease = cache.prepare(SQL)) {
+            lease.statement();
+        }
+        // As when Hikari evicts the connection and closes its statements
+        when(prepared.get(0).isClosed()).thenReturn(true);
+
+        try (StatementCache.Lease lease = cache.prepare(SQL)) {
+            assertSame(prepared.get(1), lease.statement());
+        }
+        verify(conn, times(2)).prepareStatement(SQL);
+    }
+
+    @Test
+    void testCacheIsBounded() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            try (StatementCache.Lease lease = cache.prepare(SQL + " AND " + i)) {
+                lease.statement();
+            }
+        }
+        verify(prepared.get(0), never()).close();
+        verify(prepared.get(1), never()).close();
+        verify(prepared.get(2)).close();
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.dao.impl;
+
+import org.example.dao.StockSummaryDAO.SortField;
+import org.example.model.CatalogStockSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for StockSummaryDAOImpl
+ */
+public class StockSummaryDAOImplTest {
+
+    @Mock
+    private Connection conn;
+
+    @Mock
+    private PreparedStatement ps;
+
+    @Mock
+    private Statement stmt;
+
+    private final List<Map<String, Object>> rows = new ArrayList<>();
+    private StockSummaryDAOImpl dao;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        rows.clear();
+        when(conn.prepareStatement(anyString())).thenReturn(ps);
+        when(conn.createStatement()).thenReturn(stmt);
+        when(ps.executeQuery()).thenAnswer(invocation -> resultSet());
+        dao = new StockSummaryDAOImpl(conn);
+    }
+
+    @Test
+    void testPageIsOrderedByTheSortColumnThenItemCode() throws Exception {
+        dao.getStockSummaries(SortField.TOTAL, false, 40, 20);
+        dao.getStockSummaries(SortField.NAME, true, 0, 20);
+
+        List<String> sql = captureSql(2);
+        assertTrue(sql.get(0).endsWith("ORDER BY total_qty DESC, i.item_code LIMIT ? OFFSET ?"), sql.get(0));
+        assertTrue(sql.get(1).endsWith("ORDER BY i.name ASC, i.item_code LIMIT ? OFFSET ?"), sql.get(1));
+        // LIMIT takes the page size, OFFSET the rows before the page
+        verify(ps, times(2)).setInt(1, 20);
+        verify(ps).setInt(2, 40);
+        verify(ps).setInt(2, 0);
+    }
+
+    @Test
+    void testEverySortFieldMapsToAKnownColumn() throws Exception {
+        for (SortField sortField : SortField.values()) {
+            dao.getStockSummaries(sortField, true, 0, 10);
+        }
+
+        List<String> columns = captureSql(SortField.values().length).stream()
+                .map(sql -> sql.substring(sql.indexOf("ORDER BY ") + 9, sql.indexOf(" ASC")))
+                .toList();
+        assertEquals(List.of("i.item_code", "i.name", "shelf_qty", "website_qty", "warehouse_qty", "total_qty",
+                "batch_count"), columns);
+    }
+
+    @Test
+    void testRowsAreMappedToSummaries() {
+        rows.add(row("MILK001", "Fresh Milk", 12, 4, 30, 3, 2));
+        rows.add(row("RICE001", "Basmati Rice", 0, 0, 0, 0, 0));
+
+        List<CatalogStockSummary> summaries = dao.getStockSummaries(SortField.ITEM_CODE, true, 0, 20);
+
+        assertEquals(2, summaries.size());
+        CatalogStockSummary milk = summaries.get(0);
+        assertEquals("MILK001", milk.getItemCode());
+        assertEquals("Fresh Milk", milk.getItemName());
+        assertEquals(12, milk.getShelfQuantity());
+        assertEquals(4, milk.getWebsiteQuantity());
+        assertEquals(30, milk.getWarehouseQuantity());
+        assertEquals(46, milk.getTotalQuantity());
+        assertEquals(3, milk.getBatchCount());
+        assertEquals(2, milk.getWarehouseBatchCount());
+        assertEquals(0, summaries.get(1).getTotalQuantity());
+    }
+
+    @Test
+    void testFailedQueriesAreReported() throws Exception {
+        doThrow(new SQLException("connection lost")).when(ps).executeQuery();
+        when(stmt.executeQuery(anyString())).thenThrow(new SQLException("connection lost"));
+
+        assertThrows(RuntimeException.class, () -> dao.getStockSummaries(SortField.ITEM_CODE, true, 0, 20));
+        RuntimeException e = assertThrows(RuntimeException.class, () -> dao.countItems());
+        assertEquals("Failed to count catalog items", e.getMessage());
+    }
+
+    @Test
+    void testCountReadsActiveItems() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true);
+        when(rs.getInt(1)).thenReturn(57);
+        when(stmt.executeQuery(anyString())).thenReturn(rs);
+
+        assertEquals(57, dao.countItems());
+        verify(stmt).executeQuery("SELECT COUNT(*) FROM items WHERE is_active = TRUE");
+    }
+
+    private List<String> captureSql(int statements) throws SQLException {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(conn, times(statements)).prepareStatement(sql.capture());
+        return sql.getAllValues();
+    }
+
+    private static Map<String, Object> row(String itemCode, String name, int shelf, int website, int warehouse,
+                                           int batches, int warehouseBatches) {
+        return Map.of("item_code", itemCode, "name", name, "shelf_qty", shelf, "website_qty", website,
+                "warehouse_qty", warehouse, "batch_count", batches, "warehouse_batch_count", warehouseBatches);
+    }
+
+    private ResultSet resultSet() throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        int[] row = {-1};
+        when(rs.next()).thenAnswer(invocation -> ++row[0] < rows.size());
+        when(rs.getString(anyString())).thenAnswer(invocation -> rows.get(row[0]).get(invocation.<String>getArgument(0)));
+        when(rs.getInt(anyString())).thenAnswer(invocation -> rows.get(row[0]).get(invocation.<String>getArgument(0)));
+        return rs;
+    }
+}
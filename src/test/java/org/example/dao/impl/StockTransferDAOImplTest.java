@@ -0,0 +1,170 @@
+package org.example.dao.impl;
+
+import org.example.model.StockTransfer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for StockTransferDAOImpl
+ */
+public class StockTransferDAOImplTest {
+
+    @Mock
+    private Connection conn;
+
+    private final Map<String, Integer> shelf = new TreeMap<>();
+    private final Map<String, Integer> website = new TreeMap<>();
+    private String zeroCountSql;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        shelf.clear();
+        website.clear();
+        zeroCountSql = null;
+        shelf.put("MILK001", 10);
+        shelf.put("RICE001", 10);
+        website.put("MILK001", 10);
+        website.put("RICE001", 10);
+        when(conn.prepareStatement(anyString())).thenAnswer(invocation -> statement(invocation.getArgument(0)));
+    }
+
+    @Test
+    void testPlanIsCommittedWhenEveryRowChanges() throws Exception {
+        StockTransferDAOImpl dao = new StockTransferDAOImpl(conn);
+
+        List<StockTransfer> applied = dao.transferStock(List.of(
+                new StockTransfer("RICE001", 4, true), new StockTransfer("MILK001", 3, false)));
+
+        assertEquals(2, applied.size());
+        assertEquals(Map.of("MILK001", 13, "RICE001", 6), shelf);
+        assertEquals(Map.of("MILK001", 7, "RICE001", 14), website);
+        verify(conn).commit();
+        verify(conn, never()).rollback();
+    }
+
+    @Test
+    void testLaterLineMayUseStockAnEarlierLineMoved() throws Exception {
+        website.put("MILK001", 3);
+        StockTransferDAOImpl dao = new StockTransferDAOImpl(conn);
+
+        // The website only has 8 once the first line has moved 5 there
+        List<StockTransfer> applied = dao.transferStock(List.of(
+                new StockTransfer("MILK001", 5, true), new StockTransfer("MILK001", 8, false)));
+
+        assertEquals(2, applied.size());
+        assertEquals(13, shelf.get("MILK001"));
+        assertEquals(0, website.get("MILK001"));
+        verify(conn).commit();
+    }
+
+    @Test
+    void testPlanIsRolledBackWhenAReductionChangesNoRow() throws Exception {
+        zeroCountSql = "UPDATE website_inventory";
+        StockTransferDAOImpl dao = new StockTransferDAOImpl(conn);
+
+        List<StockTransfer> applied = dao.transferStock(List.of(
+                new StockTransfer("RICE001", 4, true), new StockTransfer("MILK001", 3, false)));
+
+        assertTrue(applied.isEmpty());
+        verify(conn, never()).commit();
+        verify(conn).rollback();
+    }
+
+    @Test
+    void testSingleTransferLocksShelfBeforeWebsiteEitherWay() throws Exception {
+        StockTransferDAOImpl dao = new StockTransferDAOImpl(conn);
+
+        assertTrue(dao.transferStock(new StockTransfer("MILK001", 2, false)));
+        assertTrue(dao.transferStock(new StockTransfer("MILK001", 2, true)));
+        assertFalse(dao.transferStock(new StockTransfer("MILK001", 50, false)));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(conn, atLeastOnce()).prepareStatement(sql.capture());
+        List<String> locked = sql.getAllValues().stream()
+                .filter(statement -> statement.endsWith("FOR UPDATE"))
+                .map(statement -> statement.contains("shelf_stock") ? "shelf_stock" : "website_inventory")
+                .toList();
+        assertEquals(List.of("shelf_stock", "website_inventory", "shelf_stock", "website_inventory",
+                "shelf_stock", "website_inventory"), locked);
+        verify(conn, times(2)).commit();
+        verify(conn).rollback();
+    }
+
+    /**
+     * A statement over the fake tables: SELECT ... FOR UPDATE reads them, updates and upserts
+     * change them, a reduction only where the row holds enough
+     */
+    private PreparedStatement statement(String sql) throws SQLException {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        Map<String, Integer> table = sql.contains("shelf_stock") ? shelf : website;
+        Object[] params = new Object[3];
+        List<Object[]> batch = new ArrayList<>();
+
+        doAnswer(invocation -> params[(Integer) invocation.getArgument(0) - 1] = invocation.getArgument(1))
+                .when(ps).setInt(anyInt(), anyInt());
+        doAnswer(invocation -> params[(Integer) invocation.getArgument(0) - 1] = invocation.getArgument(1))
+                .when(ps).setString(anyInt(), anyString());
+        doAnswer(invocation -> batch.add(params.clone())).when(ps).addBatch();
+        when(ps.executeUpdate()).thenAnswer(invocation -> apply(sql, table, params));
+        when(ps.executeBatch()).thenAnswer(invocation -> {
+            int[] counts = new int[batch.size()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = apply(sql, table, batch.get(i));
+            }
+            batch.clear();
+            return counts;
+        });
+        if (sql.startsWith("SELECT")) {
+            when(ps.executeQuery()).thenAnswer(invocation -> rows(table));
+        }
+        return ps;
+    }
+
+    private int apply(String sql, Map<String, Integer> table, Object[] params) {
+        if (zeroCountSql != null && sql.startsWith(zeroCountSql)) {
+            return 0;
+        }
+        if (sql.startsWith("UPDATE")) {
+            int quantity = (Integer) params[0];
+            String itemCode = (String) params[1];
+            if (table.getOrDefault(itemCode, 0) < quantity) {
+                return 0;
+            }
+            table.merge(itemCode, -quantity, Integer::sum);
+            return 1;
+        }
+        if (sql.startsWith("INSERT INTO shelf_stock") || sql.startsWith("INSERT INTO website_inventory")) {
+            table.merge((String) params[0], (Integer) params[1], Integer::sum);
+        }
+        return 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ResultSet rows(Map<String, Integer> table) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        Iterator<Map.Entry<String, Integer>> it = new ArrayList<>(table.entrySet()).iterator();
+        Map.Entry<String, Integer>[] current = new Map.Entry[1];
+        when(rs.next()).thenAnswer(invocation -> {
+            current[0] = it.hasNext() ? it.next() : null;
+            return current[0] != null;
+        });
+        when(rs.getString("item_code")).thenAnswer(invocation -> current[0].getKey());
+        when(rs.getInt("quantity")).thenAnswer(invocation -> current[0].getValue());
+        return rs;
+    }
+}
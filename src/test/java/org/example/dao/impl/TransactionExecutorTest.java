@@ -0,0 +1,171 @@
+package org.example.dao.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for TransactionExecutor
+ */
+public class TransactionExecutorTest {
+
+    private static final List<String> ITEMS = List.of("BREAD001", "EGG001", "MILK001", "RICE001", "SUGAR001", "TEA001");
+    private static final int LANES = 16;
+    private static final int SALES_PER_LANE = 200;
+
+    @Mock
+    private Connection conn;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testDeadlockIsRetriedUntilCommitted() throws Exception {
+        TransactionExecutor executor = new TransactionExecutor(conn, 5, 1, 2);
+        AtomicInteger runs = new AtomicInteger();
+        long deadlocksBefore = TransactionExecutor.getStats().getDeadlocks();
+
+        boolean committed = executor.execute("reduce shelf stock", () -> {
+            if (runs.incrementAndGet() < 3) {
+                throw new SQLException("Deadlock found when trying to get lock", "40001", 1213);
+            }
+            return true;
+        });
+
+        assertTrue(committed);
+        assertEquals(3, runs.get());
+        verify(conn).commit();
+        verify(conn, times(2)).rollback();
+        assertEquals(deadlocksBefore + 2, TransactionExecutor.getStats().getDeadlocks());
+    }
+
+    @Test
+    void testOtherErrorsAreNotRetried() {
+        TransactionExecutor executor = new TransactionExecutor(conn, 5, 1, 2);
+        AtomicInteger runs = new AtomicInteger();
+
+        assertThrows(RuntimeException.class, () -> executor.execute("reduce shelf stock", () -> {
+            runs.incrementAndGet();
+            throw new SQLException("Duplicate entry", "23000", 1062);
+        }));
+        assertEquals(1, runs.get());
+        assertEquals(TransactionExecutor.Conflict.LOCK_WAIT_TIMEOUT,
+                TransactionExecutor.classify(new SQLException("Lock wait timeout exceeded", "HY000", 1205)));
+        assertNull(TransactionExecutor.classify(new SQLException("Duplicate entry", "23000", 1062)));
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        TransactionExecutor executor = new TransactionExecutor(conn, 3, 1, 2);
+        AtomicInteger runs = new AtomicInteger();
+        long exhaustedBefore = TransactionExecutor.getStats().getExhausted();
+
+        assertThrows(RuntimeException.class, () -> executor.execute("reduce shelf stock", () -> {
+            runs.incrementAndGet();
+            throw new SQLException("Lock wait timeout exceeded", "HY000", 1205);
+        }));
+        assertEquals(3, runs.get());
+        assertEquals(exhaustedBefore + 1, TransactionExecutor.getStats().getExhausted());
+    }
+
+    @Test
+    void testOverlappingBasketsNeverFailSales() throws Exception {
+        // Row locks held until commit or rollback; a wait that runs out is MySQL's lock wait timeout
+        Map<String, ReentrantLock> rowLocks = new HashMap<>();
+        Map<String, AtomicInteger> stock = new HashMap<>();
+        for (String itemCode : ITEMS) {
+            rowLocks.put(itemCode, new ReentrantLock());
+            stock.put(itemCode, new AtomicInteger(LANES * SALES_PER_LANE));
+        }
+        List<List<String>> committedOrders = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger failedSales = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(LANES);
+        List<Future<?>> lanes = new ArrayList<>();
+        for (int lane = 0; lane < LANES; lane++) {
+            ShelfStockDAOImpl dao = new ShelfStockDAOImpl(laneConnection(rowLocks, stock, committedOrders));
+            lanes.add(pool.submit(() -> {
+                Random random = new Random();
+                for (int sale = 0; sale < SALES_PER_LANE; sale++) {
+                    // Basket lines in scan order, overlapping with the other lanes' baskets
+                    List<String> basket = new ArrayList<>(ITEMS);
+                    Collections.shuffle(basket, random);
+                    Map<String, Integer> lines = new LinkedHashMap<>();
+                    basket.subList(0, 3).forEach(itemCode -> lines.put(itemCode, 1));
+                    try {
+                        if (!dao.reduceShelfStockBatch(lines, null)) {
+                            failedSales.incrementAndGet();
+                        }
+                    } catch (RuntimeException e) {
+                        failedSales.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> lane : lanes) {
+            lane.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(0, failedSales.get());
+        assertEquals(LANES * SALES_PER_LANE, committedOrders.size());
+        // The DAO updates every basket's rows in item code order, whatever order the lines came in
+        for (List<String> order : committedOrders) {
+            assertEquals(new ArrayList<>(new TreeSet<>(order)), order);
+        }
+        int remaining = stock.values().stream().mapToInt(AtomicInteger::get).sum();
+        assertEquals((ITEMS.size() - 3) * LANES * SALES_PER_LANE, remaining);
+    }
+
+    /**
+     * A lane's connection: each shelf stock UPDATE takes its row's lock, waiting at most a second, and
+     * commit applies the transaction's reductions and records the order its rows were updated in
+     */
+    private static Connection laneConnection(Map<String, ReentrantLock> rowLocks, Map<String, AtomicInteger> stock,
+                                             List<List<String>> committedOrders) throws SQLException {
+        List<String> updated = new ArrayList<>();
+        String[] itemCode = new String[1];
+        PreparedStatement reduce = mock(PreparedStatement.class);
+        doAnswer(invocation -> itemCode[0] = invocation.getArgument(1)).when(reduce).setString(eq(2), anyString());
+        when(reduce.executeUpdate()).thenAnswer(invocation -> {
+            if (!rowLocks.get(itemCode[0]).tryLock(1, TimeUnit.SECONDS)) {
+                throw new SQLException("Lock wait timeout exceeded", "HY000", 1205);
+            }
+            updated.add(itemCode[0]);
+            return 1;
+        });
+
+        Connection conn = mock(Connection.class);
+        when(conn.prepareStatement(anyString())).thenAnswer(invocation ->
+                invocation.<String>getArgument(0).startsWith("UPDATE shelf_stock") ? reduce : mock(PreparedStatement.class));
+        doAnswer(invocation -> {
+            updated.forEach(code -> stock.get(code).decrementAndGet());
+            committedOrders.add(new ArrayList<>(updated));
+            updated.forEach(code -> rowLocks.get(code).unlock());
+            updated.clear();
+            return null;
+        }).when(conn).commit();
+        doAnswer(invocation -> {
+            updated.forEach(code -> rowLocks.get(code).unlock());
+            updated.clear();
+            return null;
+        }).when(conn).rollback();
+        return conn;
+    }
+}
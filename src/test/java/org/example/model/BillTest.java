@@ -0,0 +1,57 @@
+package org.example.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for Bill
+ */
+public class BillTest {
+
+    private int loads;
+    private Bill header;
+
+    @BeforeEach
+    void setUp() {
+        loads = 0;
+        header = new Bill(7, 1007, new Date(), 3, 480.00, 10.00, 500.00, 20.00, TransactionType.IN_STORE, () -> {
+            loads++;
+            return new ArrayList<>(List.of(
+                    new BillItem("MILK001", "Fresh Milk", 2, 120.00),
+                    new BillItem("RICE001", "Basmati Rice", 1, 250.00)));
+        });
+    }
+
+    @Test
+    void testHeaderUsesStoredTotalsWithoutLoadingLines() {
+        assertEquals(480.00, header.getTotalAmount());
+        assertEquals(20.00, header.getChangeAmount());
+        assertEquals(10.00, header.getDiscount());
+        assertFalse(header.isItemsLoaded());
+        assertEquals(0, loads);
+    }
+
+    @Test
+    void testLinesLoadOnceOnFirstAccess() {
+        assertEquals(2, header.getItems().size());
+        assertEquals(2, header.getItems().size());
+
+        assertTrue(header.isItemsLoaded());
+        assertEquals(1, loads);
+    }
+
+    @Test
+    void testDiscountChangeRecalculatesFromLoadedLines() {
+        header.setDiscount(0.0);
+
+        assertEquals(490.00, header.getTotalAmount());
+        assertEquals(10.00, header.getChangeAmount());
+        assertEquals(1, loads);
+    }
+}
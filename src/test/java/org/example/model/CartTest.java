@@ -0,0 +1,62 @@
+package org.example.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for Cart
+ */
+public class CartTest {
+
+    private Cart cart;
+    private Item milk;
+    private Item rice;
+
+    @BeforeEach
+    void setUp() {
+        cart = new Cart(TransactionType.IN_STORE);
+        milk = new Item("MILK001", "Fresh Milk", 0.10, "Dairy");
+        rice = new Item("RICE001", "Basmati Rice", 249.99, "Grains");
+    }
+
+    @Test
+    void testSubtotalIsExactInCents() {
+        // 0.10 ten times is not 1.0 in doubles
+        for (int i = 0; i < 10; i++) {
+            cart.add(milk, 1, 100);
+        }
+
+        assertEquals(100, cart.getSubtotalCents());
+        assertEquals(1.00, cart.getSubtotal());
+    }
+
+    @Test
+    void testRepeatedScansMergeIntoOneLine() {
+        cart.add(rice, 2, 10);
+        cart.add(milk, 3, 50);
+        cart.add(rice, 1, 9);
+
+        assertEquals(2, cart.getLines().size());
+        assertEquals(3, cart.getQuantity("RICE001"));
+        assertEquals(9, cart.getAvailableSnapshot("RICE001"));
+        assertEquals(3 * 24999 + 3 * 10, cart.getSubtotalCents());
+
+        List<BillItem> items = cart.toBillItems();
+        assertEquals("RICE001", items.get(0).getItemCode());
+        assertEquals("Basmati Rice", items.get(0).getItemName());
+        assertEquals(3, items.get(0).getQuantity());
+        assertEquals(749.97, items.get(0).getTotalPrice());
+    }
+
+    @Test
+    void testUnknownItemHasNoSnapshot() {
+        assertTrue(cart.isEmpty());
+        assertEquals(0, cart.getQuantity("MILK001"));
+        assertEquals(-1, cart.getAvailableSnapshot("MILK001"));
+        assertThrows(IllegalArgumentException.class, () -> cart.add(milk, 0, 10));
+    }
+}
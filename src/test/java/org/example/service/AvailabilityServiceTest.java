@@ -0,0 +1,84 @@
+package org.example.service;
+
+import org.example.dao.StockAvailabilityDAO;
+import org.example.model.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for AvailabilityService
+ */
+public class AvailabilityServiceTest {
+
+    @Mock
+    private StockAvailabilityDAO availabilityDAO;
+
+    private final Map<String, Integer> shelfRows = new HashMap<>();
+    private final Map<String, Integer> websiteRows = new HashMap<>();
+    private final List<Date> shelfQueries = new ArrayList<>();
+    private long databaseTime;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        shelfRows.clear();
+        websiteRows.clear();
+        shelfQueries.clear();
+        shelfRows.put("MILK001", 10);
+        shelfRows.put("RICE001", 4);
+        websiteRows.put("MILK001", 7);
+        databaseTime = 1_000_000;
+        when(availabilityDAO.getDatabaseTime()).thenAnswer(invocation -> new Date(databaseTime));
+        when(availabilityDAO.getShelfQuantities(any())).thenAnswer(invocation -> {
+            shelfQueries.add(invocation.getArgument(0));
+            return new HashMap<>(shelfRows);
+        });
+        when(availabilityDAO.getWebsiteQuantities(any())).thenAnswer(invocation -> new HashMap<>(websiteRows));
+    }
+
+    @Test
+    void testLookupsComeFromSnapshot() {
+        AvailabilityService service = new AvailabilityService(availabilityDAO, 1000, 60_000);
+        service.refresh();
+        shelfRows.put("MILK001", 0);
+
+        // Still the snapshot until the next refresh
+        assertEquals(10, service.getAvailable("MILK001", TransactionType.IN_STORE));
+        assertEquals(7, service.getAvailable("MILK001", TransactionType.ONLINE));
+        assertEquals(0, service.getAvailable("BREAD001", TransactionType.IN_STORE));
+        assertEquals(Map.of("MILK001", 10, "RICE001", 4, "BREAD001", 0),
+                service.getAvailable(List.of("MILK001", "RICE001", "BREAD001"), TransactionType.IN_STORE));
+    }
+
+    @Test
+    void testRefreshReadsOnlyChangesWithOverlap() {
+        AvailabilityService service = new AvailabilityService(availabilityDAO, 1000, 60_000);
+        service.refresh();
+        databaseTime += 1000;
+        shelfRows.put("MILK001", 8);
+        service.refresh();
+
+        assertNull(shelfQueries.get(0));
+        assertEquals(1_000_000 - 2000, shelfQueries.get(1).getTime());
+        assertEquals(8, service.getAvailable("MILK001", TransactionType.IN_STORE));
+    }
+
+    @Test
+    void testFullRefreshDropsDeletedRows() {
+        AvailabilityService service = new AvailabilityService(availabilityDAO, 1000, 0);
+        service.refresh();
+        shelfRows.remove("RICE001");
+        service.refresh();
+
+        assertNull(shelfQueries.get(1));
+        assertEquals(0, service.getAvailable("RICE001", TransactionType.IN_STORE));
+    }
+}
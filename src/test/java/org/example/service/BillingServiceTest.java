@@ -0,0 +1,219 @@
+package org.example.service;
+
+import org.example.dao.*;
+import org.example.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for BillingService
+ */
+public class BillingServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private BillDAO billDAO;
+
+    @Mock
+    private CustomerDAO customerDAO;
+
+    @Mock
+    private ShelfStockDAO shelfStockDAO;
+
+    @Mock
+    private WebsiteInventoryDAO websiteInventoryDAO;
+
+    @Mock
+    private ItemDAO itemDAO;
+
+    @Mock
+    private OutboxDAO outboxDAO;
+
+    private final Map<String, Integer> shelf = new HashMap<>();
+    private final Map<String, Integer> billsByToken = new HashMap<>();
+    private final Map<String, Integer> billsByRef = new HashMap<>();
+    // Net stock moved per item under each checkout ref, as the outbox events record it
+    private final Map<String, Map<String, Integer>> movedByRef = new HashMap<>();
+    private int failingSaves;
+    private CheckoutJournal journal;
+    private BillingService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        shelf.clear();
+        billsByToken.clear();
+        billsByRef.clear();
+        movedByRef.clear();
+        failingSaves = 0;
+        shelf.put("MILK001", 10);
+        // Bills are saved under increasing ids; the first failingSaves calls throw as a rolled back save does
+        when(billDAO.saveBill(any(Bill.class), anyString(), any())).thenAnswer(invocation -> {
+            if (failingSaves > 0) {
+                failingSaves--;
+                throw new RuntimeException("Failed to save bill");
+            }
+            int billId = billsByToken.size() + 1;
+            billsByToken.put(invocation.getArgument(1), billId);
+            if (invocation.getArgument(2) != null) {
+                billsByRef.put(invocation.getArgument(2), billId);
+            }
+            return billId;
+        });
+        when(billDAO.findBillIdByRequestToken(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(billsByToken.get(invocation.<String>getArgument(0))));
+        when(billDAO.findBillIdByCheckoutRef(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(billsByRef.get(invocation.<String>getArgument(0))));
+        when(customerDAO.getCustomerByPhone(anyString()))
+                .thenAnswer(invocation -> Optional.of(new Customer(1, invocation.getArgument(0), "Nimal")));
+        // Shelf quantities in a map; a batch reduction is all or nothing
+        when(shelfStockDAO.reduceShelfStockBatch(anyMap(), any())).thenAnswer(invocation -> {
+            Map<String, Integer> quantities = invocation.getArgument(0);
+            if (quantities.entrySet().stream().anyMatch(e -> shelf.getOrDefault(e.getKey(), 0) < e.getValue())) {
+                return false;
+            }
+            quantities.forEach((itemCode, quantity) -> move(invocation.getArgument(1), itemCode, -quantity));
+            return true;
+        });
+        // A sale already made takes what is there and reports the rest
+        when(shelfStockDAO.takeShelfStockBatch(anyMap(), any())).thenAnswer(invocation -> {
+            Map<String, Integer> shortfall = new TreeMap<>();
+            invocation.<Map<String, Integer>>getArgument(0).forEach((itemCode, quantity) -> {
+                int taken = Math.min(shelf.getOrDefault(itemCode, 0), quantity);
+                move(invocation.getArgument(1), itemCode, -taken);
+                if (taken < quantity) {
+                    shortfall.put(itemCode, quantity - taken);
+                }
+            });
+            return shortfall;
+        });
+        doAnswer(invocation -> {
+            invocation.<Map<String, Integer>>getArgument(0).forEach((itemCode, quantity) ->
+                    move(invocation.getArgument(1), itemCode, quantity));
+            return null;
+        }).when(shelfStockDAO).addShelfStockBatch(anyMap(), any());
+        when(outboxDAO.getStockMovedBy(anyString())).thenAnswer(invocation -> {
+            Map<String, Integer> moved = new TreeMap<>(movedByRef.getOrDefault(invocation.getArgument(0), Map.of()));
+            moved.values().removeIf(delta -> delta == 0);
+            return moved;
+        });
+        journal = new CheckoutJournal(tempDir, "till-1", 64 * 1024);
+        journal.open();
+        service = new BillingService(billDAO, customerDAO, shelfStockDAO, websiteInventoryDAO, itemDAO);
+        service.setCheckoutJournal(journal, outboxDAO);
+    }
+
+    @Test
+    void testRetryAfterFailedBillSaveTakesStockOnce() {
+        Cart cart = new Cart(TransactionType.IN_STORE);
+        cart.add(new Item("MILK001", "Fresh Milk", 120.00, "Dairy"), 3, 10);
+        failingSaves = 1;
+
+        assertEquals(-1, service.processBilling("0771234567", "Nimal", cart, 500.00, 0.0));
+        assertEquals(10, shelf.get("MILK001"));
+        assertEquals(0, journal.getOpenCount());
+
+        int billId = service.processBilling("0771234567", "Nimal", cart, 500.00, 0.0);
+
+        assertTrue(billId > 0);
+        assertEquals(7, shelf.get("MILK001"));
+        assertEquals(0, journal.getOpenCount());
+    }
+
+    @Test
+    void testOfflineSaleIsBilledWhenShelfIsShort() {
+        OfflineSale sale = new OfflineSale("token-1", 1, System.currentTimeMillis(), "0771234567", "Nimal",
+                200_000, 0, List.of(new BillItem("MILK001", "Fresh Milk", 12, 120.00)));
+
+        BillingService.OfflineBilling billing = service.billOfflineSale(sale);
+
+        assertTrue(billing.getBillId() > 0);
+        assertEquals(Map.of("MILK001", 2), billing.getShortfall());
+        assertEquals(0, shelf.get("MILK001"));
+        verify(shelfStockDAO, never()).reduceShelfStockBatch(anyMap(), any());
+        assertEquals(0, journal.getOpenCount());
+    }
+
+    @Test
+    void testRecoveryIgnoresBillOfAnotherAttemptWithTheSameToken() throws Exception {
+        List<BillItem> basket = List.of(new BillItem("MILK001", "Fresh Milk", 3, 120.00));
+        long crashed = journal.begin("token-1", "ref-crashed", TransactionType.IN_STORE, basket);
+        move("ref-crashed", "MILK001", -3);
+        journal.stockTaken(crashed);
+        // A later attempt with the same token took its own stock and saved the bill
+        billsByToken.put("token-1", 1);
+        billsByRef.put("ref-retry", 1);
+
+        CheckoutJournal restarted = restart();
+
+        assertEquals(1, service.recoverCheckouts(restarted.open()));
+        assertEquals(10, shelf.get("MILK001"));
+        assertEquals(0, restarted.getOpenCount());
+    }
+
+    @Test
+    void testRecoveryGivesBackStockTakenBeforeItWasJournaled() throws Exception {
+        List<BillItem> basket = List.of(new BillItem("MILK001", "Fresh Milk", 3, 120.00));
+        // The reduction committed, then the till died before TAKEN was written
+        journal.begin("token-1", "ref-1", TransactionType.IN_STORE, basket);
+        move("ref-1", "MILK001", -3);
+        // This one died before its reduction committed
+        journal.begin("token-2", "ref-2", TransactionType.IN_STORE, basket);
+
+        CheckoutJournal restarted = restart();
+
+        assertEquals(2, service.recoverCheckouts(restarted.open()));
+        assertEquals(10, shelf.get("MILK001"));
+        verify(shelfStockDAO).addShelfStockBatch(Map.of("MILK001", 3), "ref-1");
+        assertEquals(0, restarted.getOpenCount());
+    }
+
+    @Test
+    void testRecoveryDoesNotGiveBackStockTwice() throws Exception {
+        List<BillItem> basket = List.of(new BillItem("MILK001", "Fresh Milk", 3, 120.00));
+        // The bill save failed and the stock went back, then the till died before ABORTED was written
+        journal.stockTaken(journal.begin("token-1", "ref-1", TransactionType.IN_STORE, basket));
+        move("ref-1", "MILK001", -3);
+        move("ref-1", "MILK001", 3);
+
+        CheckoutJournal restarted = restart();
+
+        assertEquals(1, service.recoverCheckouts(restarted.open()));
+        assertEquals(10, shelf.get("MILK001"));
+        verify(shelfStockDAO, never()).addShelfStockBatch(anyMap(), any());
+        assertEquals(0, restarted.getOpenCount());
+    }
+
+    /**
+     * Reopen the journal without closing it, as after a crash
+     */
+    private CheckoutJournal restart() {
+        CheckoutJournal restarted = new CheckoutJournal(tempDir, "till-1", 64 * 1024);
+        service.setCheckoutJournal(restarted, outboxDAO);
+        return restarted;
+    }
+
+    /**
+     * A committed shelf change, with the outbox event it writes under the checkout's ref
+     */
+    private void move(String checkoutRef, String itemCode, int delta) {
+        shelf.merge(itemCode, delta, Integer::sum);
+        if (checkoutRef != null) {
+            movedByRef.computeIfAbsent(checkoutRef, ref -> new HashMap<>()).merge(itemCode, delta, Integer::sum);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.service;
+
+import org.example.dao.ItemDAO;
+import org.example.model.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for CatalogImportService
+ */
+public class CatalogImportServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private ItemDAO itemDAO;
+
+    private final List<List<Item>> upserted = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        upserted.clear();
+        // The service reuses its chunk list, so keep a copy of each one saved
+        doAnswer(invocation -> upserted.add(new ArrayList<>(invocation.getArgument(0))))
+                .when(itemDAO).upsertItems(anyList(), anySet());
+    }
+
+    @Test
+    void testValidRowsAreUpsertedInChunksAndBadRowsReported() throws Exception {
+        Path file = csv("""
+                item_code,name,price,category,description,min_stock_level,is_active
+                milk001,Fresh Milk,120.00,Dairy,"1L, full cream",20,yes
+                RICE001,Basmati Rice,249.99,,,,
+                bad code,Broken,10.00,,,,
+                BREAD001,"White ""Sandwich"" Bread",180,Bakery,"Sliced
+                loaf",,no
+                EGG001,Eggs,-5,,,,
+                SUGAR001,Sugar,95.50,Grocery,,,1
+                """);
+        List<Long> progressRows = new ArrayList<>();
+
+        CatalogImportService.ImportResult result = new CatalogImportService(itemDAO, 2)
+                .importCsv(file, progress -> progressRows.add(progress.getRowsRead()));
+
+        assertEquals(6, result.getRowsRead());
+        assertEquals(4, result.getUpserted());
+        assertEquals(2, result.getRejected());
+        assertEquals(List.of(4L, 7L), result.getErrors().stream().map(CatalogImportService.RowError::getLine).toList());
+        assertEquals(List.of(2L, 6L, 6L), progressRows);
+        assertEquals(List.of(2, 2), upserted.stream().map(List::size).toList());
+
+        Map<String, Item> items = byCode(upserted);
+        Item milk = items.get("MILK001");
+        assertEquals("1L, full cream", milk.getDescription());
+        assertEquals(20, milk.getMinStockLevel());
+        assertEquals("GENERAL", items.get("RICE001").getCategory());
+        assertEquals(50, items.get("RICE001").getMinStockLevel());
+        Item bread = items.get("BREAD001");
+        assertEquals("White \"Sandwich\" Bread", bread.getName());
+        assertEquals("Sliced\nloaf", bread.getDescription());
+        assertFalse(bread.isActive());
+    }
+
+    @Test
+    void testRowRefusedByDatabaseDoesNotSinkItsChunk() throws Exception {
+        // A chunk holding the refused code fails as a whole, as a transaction would
+        doThrow(new RuntimeException("Failed to upsert items", new IllegalStateException("refused")))
+                .when(itemDAO).upsertItems(argThat(chunk -> chunk.stream().anyMatch(item -> item.getItemCode().equals("TEA001"))),
+                        anySet());
+        Path file = csv("""
+                item_code,name,price
+                COFFEE001,Coffee,850
+                TEA001,Tea,400
+                COCOA001,Cocoa,600
+                """);
+
+        CatalogImportService.ImportResult result = new CatalogImportService(itemDAO, 10).importCsv(file, progress -> { });
+
+        assertEquals(2, result.getUpserted());
+        assertEquals(1, result.getRejected());
+        assertEquals(3, result.getErrors().get(0).getLine());
+        assertEquals(Set.of("COFFEE001", "COCOA001"), byCode(upserted).keySet());
+    }
+
+    @Test
+    void testPriceOnlyFileUpdatesJustPrices() throws Exception {
+        Path file = csv("""
+                item_code,price
+                MILK001,125.50
+                RICE001,0
+                """);
+
+        CatalogImportService service = new CatalogImportService(itemDAO, 10);
+        CatalogImportService.ImportResult result = service.importCsv(file, progress -> { });
+
+        assertEquals(1, result.getUpserted());
+        assertEquals(List.of(3L), result.getErrors().stream().map(CatalogImportService.RowError::getLine).toList());
+        verify(itemDAO).upsertItems(anyList(), eq(Set.of("price")));
+        assertEquals(125.50, byCode(upserted).get("MILK001").getPrice());
+    }
+
+    @Test
+    void testFileWithoutRequiredColumnIsRefused() throws Exception {
+        CatalogImportService service = new CatalogImportService(itemDAO, 10);
+
+        Path noCode = csv("""
+                name,price
+                Fresh Milk,120.00
+                """);
+        assertThrows(IllegalArgumentException.class, () -> service.importCsv(noCode, progress -> { }));
+        Path onlyCode = csv("""
+                item_code,colour
+                MILK001,white
+                """);
+        assertThrows(IllegalArgumentException.class, () -> service.importCsv(onlyCode, progress -> { }));
+        verifyNoInteractions(itemDAO);
+    }
+
+    private Path csv(String content) throws Exception {
+        Path file = tempDir.resolve("catalog.csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static Map<String, Item> byCode(List<List<Item>> chunks) {
+        return chunks.stream().flatMap(List::stream)
+                .collect(Collectors.toMap(Item::getItemCode, Function.identity(), (first, second) -> second));
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for CheckoutDeduplicator
+ */
+public class CheckoutDeduplicatorTest {
+
+    @Test
+    void testRecordedTokenIsFound() {
+        CheckoutDeduplicator deduplicator = new CheckoutDeduplicator(100, 60_000);
+        deduplicator.record("token-1", 42);
+
+        assertEquals(Optional.of(42), deduplicator.find("token-1"));
+        assertEquals(Optional.empty(), deduplicator.find("token-2"));
+    }
+
+    @Test
+    void testWindowKeepsOnlyNewestTokens() {
+        CheckoutDeduplicator deduplicator = new CheckoutDeduplicator(2, 60_000);
+        deduplicator.record("token-1", 1);
+        deduplicator.record("token-2", 2);
+        deduplicator.record("token-3", 3);
+
+        assertEquals(Optional.empty(), deduplicator.find("token-1"));
+        assertEquals(Optional.of(3), deduplicator.find("token-3"));
+    }
+
+    @Test
+    void testConcurrentRetriesBillOnce() throws Exception {
+        CheckoutDeduplicator deduplicator = new CheckoutDeduplicator(100, 60_000);
+        AtomicInteger billsCreated = new AtomicInteger();
+
+        // What BillingService does: look the token up, otherwise bill and record it
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> attempts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            attempts.add(pool.submit(() -> deduplicator.runExclusive("token-1", () -> {
+                Optional<Integer> committed = deduplicator.find("token-1");
+                if (committed.isPresent()) {
+                    return committed.get();
+                }
+                int billId = 100 + billsCreated.incrementAndGet();
+                deduplicator.record("token-1", billId);
+                return billId;
+            })));
+        }
+        for (Future<Integer> attempt : attempts) {
+            assertEquals(101, attempt.get(10, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        assertEquals(1, billsCreated.get());
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.service;
+
+import org.example.model.BillItem;
+import org.example.model.TransactionType;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Latency benchmark: journaling a checkout (begin, taken, done) in the memory-mapped journal
+ * vs plain FileChannel writes of the same records, with and without an fsync per checkout.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class CheckoutJournalBenchmark {
+    private static final int CHECKOUTS = 200_000;
+    private static final int SYNCED_CHECKOUTS = 2_000;
+
+    @TempDir
+    Path tempDir;
+
+    private final List<BillItem> basket = List.of(
+            new BillItem("MILK001", "Fresh Milk", 2, 120.00),
+            new BillItem("RICE001", "Basmati Rice", 1, 249.99),
+            new BillItem("BREAD001", "White Bread", 1, 180.00));
+
+    @Test
+    void testMappedVersusFileChannelWrites() throws Exception {
+        CheckoutJournal journal = new CheckoutJournal(tempDir.resolve("mapped"), "bench", 16 * 1024 * 1024);
+        journal.open();
+        String token = UUID.randomUUID().toString();
+        // Warm up, then measure
+        mapped(journal, token, CHECKOUTS);
+        double mapped = mapped(journal, token, CHECKOUTS);
+        assertEquals(0, journal.getOpenCount());
+
+        byte[] begin = ("B 1 " + token + " IN_STORE MILK001:2,RICE001:1,BREAD001:1\n").getBytes(StandardCharsets.UTF_8);
+        byte[] end = "D 1\n".getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(tempDir.resolve("plain.log"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            plain(channel, begin, end, CHECKOUTS, false);
+            double plain = plain(channel, begin, end, CHECKOUTS, false);
+            double synced = plain(channel, begin, end, SYNCED_CHECKOUTS, true);
+
+            System.out.printf("Journaling one checkout (3 records)%n");
+            System.out.printf("  memory-mapped        : %8.2f us%n", mapped);
+            System.out.printf("  FileChannel.write    : %8.2f us (%.1fx)%n", plain, plain / mapped);
+            System.out.printf("  FileChannel + fsync  : %8.2f us (%.1fx)%n", synced, synced / mapped);
+        }
+    }
+
+    /**
+     * @return microseconds per checkout
+     */
+    private double mapped(CheckoutJournal journal, String token, int checkouts) {
+        long began = System.nanoTime();
+        for (int i = 0; i < checkouts; i++) {
+            long id = journal.begin(token, "ref-" + token, TransactionType.IN_STORE, basket);
+            journal.stockTaken(id);
+            journal.complete(id);
+        }
+        return (System.nanoTime() - began) / 1e3 / checkouts;
+    }
+
+    private double plain(FileChannel channel, byte[] begin, byte[] end, int checkouts, boolean sync) throws Exception {
+        long began = System.nanoTime();
+        for (int i = 0; i < checkouts; i++) {
+            channel.write(ByteBuffer.wrap(begin));
+            channel.write(ByteBuffer.wrap(end));
+            channel.write(ByteBuffer.wrap(end));
+            if (sync) {
+                channel.force(false);
+            }
+        }
+        return (System.nanoTime() - began) / 1e3 / checkouts;
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.service;
+
+import org.example.model.BillItem;
+import org.example.model.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for CheckoutJournal
+ */
+public class CheckoutJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<BillItem> basket = List.of(
+            new BillItem("MILK001", "Fresh Milk", 2, 120.00),
+            new BillItem("RICE001", "Basmati Rice", 1, 249.99),
+            new BillItem("MILK001", "Fresh Milk", 1, 120.00));
+
+    @Test
+    void testUnfinishedCheckoutsSurviveRestart() throws Exception {
+        CheckoutJournal journal = new CheckoutJournal(tempDir, "till-1", 64 * 1024);
+        journal.open();
+        long taken = journal.begin("token-1", "ref-1", TransactionType.IN_STORE, basket);
+        journal.stockTaken(taken);
+        long done = journal.begin("token-2", "ref-2", TransactionType.IN_STORE, basket);
+        journal.stockTaken(done);
+        journal.complete(done);
+        long begun = journal.begin("token-3", "ref-3", TransactionType.ONLINE, basket);
+
+        // No close: as after a crash
+        List<CheckoutJournal.OpenCheckout> open = new CheckoutJournal(tempDir, "till-1", 64 * 1024).open();
+
+        assertEquals(2, open.size());
+        assertEquals(taken, open.get(0).getId());
+        assertEquals("token-1", open.get(0).getRequestToken());
+        assertEquals("ref-1", open.get(0).getCheckoutRef());
+        assertTrue(open.get(0).isStockTaken());
+        assertEquals(Map.of("MILK001", 3, "RICE001", 1), open.get(0).getQuantities());
+        assertEquals(begun, open.get(1).getId());
+        assertEquals("ref-3", open.get(1).getCheckoutRef());
+        assertEquals(TransactionType.ONLINE, open.get(1).getTransactionType());
+        assertFalse(open.get(1).isStockTaken());
+    }
+
+    @Test
+    void testFullSegmentRollsOverWithOpenCheckouts() throws Exception {
+        CheckoutJournal journal = new CheckoutJournal(tempDir, "till-1", 1024);
+        journal.open();
+        long open = journal.begin("token-open", "ref-open", TransactionType.IN_STORE, basket);
+        journal.stockTaken(open);
+        for (int i = 0; i < 500; i++) {
+            long id = journal.begin("token-" + i, "ref-" + i, TransactionType.IN_STORE, basket);
+            journal.stockTaken(id);
+            journal.complete(id);
+        }
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+        List<CheckoutJournal.OpenCheckout> recovered = new CheckoutJournal(tempDir, "till-1", 1024).open();
+        assertEquals(1, recovered.size());
+        assertEquals("token-open", recovered.get(0).getRequestToken());
+        assertTrue(recovered.get(0).isStockTaken());
+    }
+
+    @Test
+    void testDamagedRecordEndsTheSegment() throws Exception {
+        CheckoutJournal journal = new CheckoutJournal(tempDir, "till-1", 4096);
+        journal.open();
+        long first = journal.begin("token-1", "ref-1", TransactionType.IN_STORE, basket);
+        journal.begin("token-2", "ref-2", TransactionType.IN_STORE, basket);
+
+        Path segment;
+        try (Stream<Path> files = Files.list(tempDir)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        // Flip a payload byte of the second record, as a torn page would
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            int firstLength = file.readInt();
+            long secondPayload = 8 + firstLength + 8 + 12;
+            file.seek(secondPayload);
+            int value = file.read();
+            file.seek(secondPayload);
+            file.write(value ^ 0xFF);
+        }
+
+        List<CheckoutJournal.OpenCheckout> open = new CheckoutJournal(tempDir, "till-1", 4096).open();
+        assertEquals(1, open.size());
+        assertEquals(first, open.get(0).getId());
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.service;
+
+import org.example.model.MovementType;
+import org.example.model.StockLocation;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Publish latency and consumer throughput of the domain event bus, against handing the same
+ * events to each consumer through its own ArrayBlockingQueue.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class DomainEventBusBenchmark {
+    private static final int EVENTS = 5_000_000;
+    private static final int CONSUMERS = 3;
+    private static final int BUFFER = 8192;
+
+    @Test
+    void testRingBufferVersusBlockingQueues() throws Exception {
+        // Warm up, then measure
+        ring(EVENTS / 5);
+        queues(EVENTS / 5);
+        double[] ring = ring(EVENTS);
+        double[] queues = queues(EVENTS);
+
+        System.out.printf("%d events to %d consumers%n", EVENTS, CONSUMERS);
+        System.out.printf("  ring buffer     : publish %6.1f ns/event, %6.2f M events/s delivered%n", ring[0], ring[1]);
+        System.out.printf("  blocking queues : publish %6.1f ns/event, %6.2f M events/s delivered%n", queues[0], queues[1]);
+    }
+
+    /**
+     * @return publish nanoseconds per event, and millions of events per second through all consumers
+     */
+    private double[] ring(int events) throws Exception {
+        DomainEventBus bus = new DomainEventBus(BUFFER, TimeUnit.SECONDS.toNanos(10));
+        LongAdder sum = new LongAdder();
+        CountDownLatch done = new CountDownLatch(CONSUMERS);
+        for (int c = 0; c < CONSUMERS; c++) {
+            long[] local = new long[1];
+            bus.addHandler("bench-" + c, (event, sequence, endOfBatch) -> {
+                local[0] += event.getQuantityDelta();
+                if (sequence == events - 1) {
+                    sum.add(local[0]);
+                    done.countDown();
+                }
+            });
+        }
+        bus.start();
+        long began = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            bus.publishStockChanged("MILK001", StockLocation.SHELF, MovementType.SALE, 1);
+        }
+        long published = System.nanoTime();
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        long delivered = System.nanoTime();
+        bus.stop();
+        assertEquals((long) events * CONSUMERS, sum.sum());
+        assertEquals(0, bus.getStats().getDropped());
+        return new double[] {
+                (published - began) / (double) events,
+                events * 1e3 / (delivered - began)
+        };
+    }
+
+    private double[] queues(int events) throws Exception {
+        List<BlockingQueue<StockEvent>> queues = new ArrayList<>();
+        LongAdder sum = new LongAdder();
+        ExecutorService pool = Executors.newFixedThreadPool(CONSUMERS);
+        List<Future<?>> consumers = new ArrayList<>();
+        for (int c = 0; c < CONSUMERS; c++) {
+            BlockingQueue<StockEvent> queue = new ArrayBlockingQueue<>(BUFFER);
+            queues.add(queue);
+            consumers.add(pool.submit(() -> {
+                long local = 0;
+                for (int i = 0; i < events; i++) {
+                    local += queue.take().quantityDelta;
+                }
+                sum.add(local);
+                return null;
+            }));
+        }
+        long began = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            StockEvent event = new StockEvent("MILK001", StockLocation.SHELF, MovementType.SALE, 1);
+            for (BlockingQueue<StockEvent> queue : queues) {
+                queue.put(event);
+            }
+        }
+        long published = System.nanoTime();
+        for (Future<?> consumer : consumers) {
+            consumer.get(60, TimeUnit.SECONDS);
+        }
+        long delivered = System.nanoTime();
+        pool.shutdown();
+        assertEquals((long) events * CONSUMERS, sum.sum());
+        return new double[] {
+                (published - began) / (double) events,
+                events * 1e3 / (delivered - began)
+        };
+    }
+
+    private record StockEvent(String itemCode, StockLocation location, MovementType movementType, int quantityDelta) {
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.service;
+
+import org.example.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for DomainEventBus
+ */
+public class DomainEventBusTest {
+
+    private DomainEventBus bus;
+
+    @AfterEach
+    void tearDown() {
+        if (bus != null) {
+            bus.stop();
+        }
+    }
+
+    @Test
+    void testEveryConsumerSeesEventsInOrder() throws Exception {
+        bus = new DomainEventBus(8, TimeUnit.SECONDS.toNanos(5));
+        List<String> first = Collections.synchronizedList(new ArrayList<>());
+        List<String> second = Collections.synchronizedList(new ArrayList<>());
+        bus.addHandler("first", (event, sequence, endOfBatch) -> first.add(event.toString()));
+        bus.addHandler("second", (event, sequence, endOfBatch) -> second.add(event.toString()));
+        bus.start();
+
+        Item milk = new Item("MILK001", "Fresh Milk", 120.00, "Dairy");
+        for (int i = 0; i < 20; i++) {
+            assertTrue(bus.publishStockChanged("MILK001", StockLocation.SHELF, MovementType.SALE, -i));
+        }
+        bus.publishBillCommitted(7, 1007, TransactionType.IN_STORE, 240.00);
+        bus.publishItemUpdated(milk);
+        bus.stop();
+
+        assertEquals(22, first.size());
+        assertEquals(first, second);
+        assertEquals("StockChanged{item='MILK001', SALE SHELF -19}", first.get(19));
+        assertEquals("BillCommitted{bill=7, serial=1007, IN_STORE, 240.00}", first.get(20));
+        assertEquals("ItemUpdated{item='MILK001'}", first.get(21));
+    }
+
+    @Test
+    void testConcurrentPublishersLoseNothing() throws Exception {
+        bus = new DomainEventBus(64, TimeUnit.SECONDS.toNanos(5));
+        Map<String, Integer> totals = new HashMap<>();
+        bus.addHandler("totals", (event, sequence, endOfBatch) ->
+                totals.merge(event.getItemCode(), event.getQuantityDelta(), Integer::sum));
+        bus.start();
+
+        ExecutorService lanes = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int lane = 0; lane < 4; lane++) {
+            String itemCode = "ITEM" + lane;
+            futures.add(lanes.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    assertTrue(bus.publishStockChanged(itemCode, StockLocation.SHELF, MovementType.SALE, -1));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        lanes.shutdown();
+        bus.stop();
+
+        assertEquals(Map.of("ITEM0", -10_000, "ITEM1", -10_000, "ITEM2", -10_000, "ITEM3", -10_000), totals);
+        assertEquals(0, bus.getStats().getDropped());
+    }
+
+    @Test
+    void testStalledConsumerCostsEventsNotPublishers() throws Exception {
+        bus = new DomainEventBus(4, 0);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        bus.addHandler("stalled", (event, sequence, endOfBatch) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            seen.add(event.getQuantityDelta());
+        });
+        bus.start();
+
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (bus.publishStockChanged("MILK001", StockLocation.SHELF, MovementType.SALE, i)) {
+                accepted++;
+            }
+        }
+        release.countDown();
+        bus.stop();
+
+        assertTrue(accepted >= 4 && accepted < 10);
+        assertEquals(10 - accepted, bus.getStats().getDropped());
+        assertEquals(accepted, seen.size());
+    }
+
+    @Test
+    void testFailingHandlerKeepsConsuming() {
+        bus = new DomainEventBus(8, TimeUnit.SECONDS.toNanos(5));
+        List<Long> handled = Collections.synchronizedList(new ArrayList<>());
+        bus.addHandler("flaky", (event, sequence, endOfBatch) -> {
+            if (sequence == 1) {
+                throw new IllegalStateException("boom");
+            }
+            handled.add(sequence);
+        });
+        bus.start();
+        for (int i = 0; i < 3; i++) {
+            bus.publishStockChanged("MILK001", StockLocation.SHELF, MovementType.SALE, -1);
+        }
+        bus.stop();
+
+        assertEquals(List.of(0L, 2L), handled);
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for FlightRecordingService
+ */
+public class FlightRecordingServiceTest {
+
+    private Map<String, String> settings;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        settings = FlightRecordingService.settings();
+    }
+
+    @Test
+    void testBundledSettingsEnableSyosEvents() {
+        assertEquals("true", settings.get("org.example.CheckoutPhase#enabled"));
+        assertEquals("true", settings.get("org.example.SqlStatement#enabled"));
+        assertEquals("true", settings.get("org.example.SqlStatement#stackTrace"));
+    }
+
+    @Test
+    void testBundledSettingsOverrideDefaultProfile() {
+        assertEquals("20 ms", settings.get("jdk.ExecutionSample#period"));
+        assertEquals("5 ms", settings.get("jdk.ThreadPark#threshold"));
+        // Events the bundled file does not mention keep their default settings
+        assertNotNull(settings.get("jdk.CPULoad#enabled"));
+    }
+}
@@ -0,0 +1,162 @@
+package org.example.service;
+
+import org.example.dao.ItemDAO;
+import org.example.dao.StockBatchDAO;
+import org.example.model.StockBatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for GoodsReceivedService
+ */
+public class GoodsReceivedServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private ItemDAO itemDAO;
+
+    @Mock
+    private StockBatchDAO batchDAO;
+
+    private final Set<String> catalog = new HashSet<>();
+    private final List<Set<String>> lookups = new ArrayList<>();
+    private final List<StockBatch> saved = new ArrayList<>();
+    private final List<Integer> chunkSizes = new ArrayList<>();
+    private GoodsReceivedService service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        catalog.clear();
+        catalog.addAll(Set.of("MILK001", "RICE001", "BREAD001"));
+        lookups.clear();
+        saved.clear();
+        chunkSizes.clear();
+        // Code lookups are answered from the catalog set
+        when(itemDAO.findActiveItemCodes(anyCollection())).thenAnswer(invocation -> {
+            Set<String> codes = new HashSet<>(invocation.<Collection<String>>getArgument(0));
+            lookups.add(codes);
+            Set<String> found = new HashSet<>(codes);
+            found.retainAll(catalog);
+            return found;
+        });
+        // Batches are saved to a list with increasing ids
+        doAnswer(invocation -> {
+            List<StockBatch> batches = invocation.getArgument(0);
+            chunkSizes.add(batches.size());
+            for (StockBatch batch : batches) {
+                batch.setBatchId(saved.size() + 1);
+                saved.add(batch);
+            }
+            return null;
+        }).when(batchDAO).addBatches(anyList());
+        service = new GoodsReceivedService(itemDAO, new StockService(batchDAO, null, null, null, null), 2);
+    }
+
+    @Test
+    void testCsvLinesAreReceivedInChunksAndBadLinesReported() throws Exception {
+        Path file = write("delivery.csv", """
+                item_code,quantity,received_date,expiry_date,supplier_name,purchase_price
+                milk001,24,2026-10-01,2026-10-08,"Dairy Co, Ltd",95.00
+                RICE001,10,,2027-10-01,,
+                MILK001,0,2026-10-01,2026-10-08,,
+                TEA001,5,2026-10-01,2027-01-01,,
+                BREAD001,12,2026-10-05,2026-10-03,,
+                MILK001,6,2026-10-02,2026-10-09,Dairy Co,not-a-price
+                BREAD001,30,2026-10-02,2026-10-06,Bakery,
+                """);
+        List<Long> progressLines = new ArrayList<>();
+
+        GoodsReceivedService.IngestResult result = service.ingest(file,
+                progress -> progressLines.add(progress.getLinesRead()));
+
+        assertEquals(7, result.getLinesRead());
+        assertEquals(3, result.getBatchesReceived());
+        assertEquals(64, result.getUnitsReceived());
+        assertEquals(4, result.getRejected());
+        assertEquals(List.of(4L, 6L, 7L, 5L), result.getErrors().stream().map(CatalogImportService.RowError::getLine).toList());
+        assertEquals(List.of(2, 1), chunkSizes);
+        assertEquals(List.of(2L, 7L, 7L), progressLines);
+
+        StockBatch milk = saved.get(0);
+        assertEquals("MILK001", milk.getItemCode());
+        assertEquals("Dairy Co, Ltd", milk.getSupplierName());
+        assertEquals(95.00, milk.getPurchasePrice());
+        assertTrue(milk.getBatchId() > 0);
+        assertEquals(java.sql.Date.valueOf(LocalDate.now()), saved.get(1).getReceivedDate());
+    }
+
+    @Test
+    void testJsonManifestReportsSourceLinesAndLooksUpEachCodeOnce() throws Exception {
+        Path file = write("delivery.json", """
+                [
+                  {"item_code": "MILK001", "quantity": 24, "expiry_date": "2026-12-01", "purchase_price": 95.5},
+                  {"item_code": "MILK001", "quantity": 12, "expiry_date": "2026-12-02", "extra": {"note": "cold"}},
+                  {"item_code": "TEA001", "quantity": 5, "expiry_date": "2027-01-01"},
+                  {"item_code": "TEA001", "quantity": 5, "expiry_date": "2027-01-01", "supplier_name": null}
+                ]
+                """);
+
+        GoodsReceivedService.IngestResult result = service.ingest(file, progress -> { });
+
+        assertEquals(4, result.getLinesRead());
+        assertEquals(2, result.getBatchesReceived());
+        assertEquals(List.of(4L, 5L), result.getErrors().stream().map(CatalogImportService.RowError::getLine).toList());
+        assertEquals(List.of(Set.of("MILK001"), Set.of("TEA001")), lookups);
+        assertEquals(95.5, saved.get(0).getPurchasePrice());
+    }
+
+    @Test
+    void testFailedChunkRejectsItsLinesAndLaterChunksStillLoad() throws Exception {
+        // A chunk holding the refused code fails as a whole
+        doThrow(new RuntimeException("Failed to add stock batches", new IllegalStateException("refused")))
+                .when(batchDAO).addBatches(argThat(batches -> batches.stream()
+                        .anyMatch(batch -> batch.getItemCode().equals("RICE001"))));
+        Path file = write("delivery.csv", """
+                item_code,quantity,expiry_date
+                MILK001,1,2099-01-01
+                RICE001,1,2099-01-01
+                BREAD001,1,2099-01-01
+                """);
+
+        GoodsReceivedService.IngestResult result = service.ingest(file, progress -> { });
+
+        assertEquals(1, result.getBatchesReceived());
+        assertEquals(2, result.getRejected());
+        assertEquals("BREAD001", saved.get(0).getItemCode());
+    }
+
+    @Test
+    void testCsvWithoutRequiredColumnIsRefused() throws Exception {
+        Path file = write("delivery.csv", """
+                item_code,quantity
+                MILK001,1
+                """);
+
+        assertThrows(IllegalArgumentException.class, () -> service.ingest(file, progress -> { }));
+        assertTrue(saved.isEmpty());
+    }
+
+    private Path write(String name, String content) throws Exception {
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+}
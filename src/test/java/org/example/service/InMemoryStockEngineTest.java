@@ -0,0 +1,179 @@
+package org.example.service;
+
+import org.example.dao.ShelfStockDAO;
+import org.example.dao.WebsiteInventoryDAO;
+import org.example.model.ShelfStock;
+import org.example.model.StockLocation;
+import org.example.model.WebsiteInventory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for InMemoryStockEngine
+ */
+public class InMemoryStockEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private ShelfStockDAO shelfStockDAO;
+
+    @Mock
+    private WebsiteInventoryDAO websiteInventoryDAO;
+
+    private final Map<String, Integer> shelfTable = new ConcurrentHashMap<>();
+    private final Map<String, Integer> websiteTable = new ConcurrentHashMap<>();
+    private final AtomicInteger batchesWritten = new AtomicInteger();
+    private Path journalPath;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        shelfTable.clear();
+        websiteTable.clear();
+        shelfTable.put("MILK001", 100);
+        shelfTable.put("RICE001", 40);
+        websiteTable.put("MILK001", 20);
+        batchesWritten.set(0);
+        journalPath = tempDir.resolve("stock-engine.journal");
+        // Both tables are kept in maps; each non-empty save counts as one batch
+        when(shelfStockDAO.getAllShelfStock()).thenAnswer(invocation -> {
+            List<ShelfStock> stock = new ArrayList<>();
+            shelfTable.forEach((itemCode, qty) -> stock.add(new ShelfStock(itemCode, qty)));
+            return stock;
+        });
+        when(websiteInventoryDAO.getAllWebsiteInventory()).thenAnswer(invocation -> {
+            List<WebsiteInventory> inventory = new ArrayList<>();
+            websiteTable.forEach((itemCode, qty) -> inventory.add(new WebsiteInventory(itemCode, qty)));
+            return inventory;
+        });
+        doAnswer(invocation -> save(shelfTable, invocation.getArgument(0)))
+                .when(shelfStockDAO).saveShelfStockBatch(anyMap());
+        doAnswer(invocation -> save(websiteTable, invocation.getArgument(0)))
+                .when(websiteInventoryDAO).saveWebsiteInventoryBatch(anyMap());
+    }
+
+    @Test
+    void testConcurrentSalesNeverOversell() throws Exception {
+        shelfTable.put("MILK001", 1000);
+        InMemoryStockEngine engine = newEngine();
+        ShelfStockDAO shelf = engine.shelfStockDAO();
+        AtomicInteger sold = new AtomicInteger();
+
+        int lanes = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(lanes);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int lane = 0; lane < lanes; lane++) {
+            futures.add(pool.submit(() -> {
+                while (shelf.reduceShelfStock("MILK001", 1)) {
+                    sold.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(1000, sold.get());
+        assertEquals(0, shelf.getTotalShelfStock("MILK001"));
+        assertFalse(shelf.reduceShelfStock("MILK001", 1));
+    }
+
+    @Test
+    void testFlushWritesChangesInOneBatchPerTable() throws Exception {
+        InMemoryStockEngine engine = newEngine();
+        engine.shelfStockDAO().reduceShelfStock("MILK001", 3);
+        engine.shelfStockDAO().reduceShelfStock("MILK001", 2);
+        engine.shelfStockDAO().reduceShelfStock("RICE001", 5);
+        engine.websiteInventoryDAO().reduceWebsiteInventory("MILK001", 4);
+
+        // Nothing reaches the database until the write-behind runs
+        assertEquals(100, shelfTable.get("MILK001"));
+        int before = batchesWritten.get();
+
+        assertEquals(3, engine.flush());
+        assertEquals(2, batchesWritten.get() - before);
+        assertEquals(95, shelfTable.get("MILK001"));
+        assertEquals(35, shelfTable.get("RICE001"));
+        assertEquals(16, websiteTable.get("MILK001"));
+    }
+
+    @Test
+    void testRestartAfterCrashRecoversJournaledSales() throws Exception {
+        InMemoryStockEngine crashed = newEngine();
+        crashed.shelfStockDAO().reduceShelfStock("MILK001", 7);
+        crashed.adjust("RICE001", StockLocation.SHELF, 10);
+        crashed.websiteInventoryDAO().reduceWebsiteInventory("MILK001", 20);
+        // No flush and no stop: the database still has the old quantities
+
+        InMemoryStockEngine recovered = newEngine();
+
+        assertEquals(93, recovered.getQuantity("MILK001", StockLocation.SHELF));
+        assertEquals(50, recovered.getQuantity("RICE001", StockLocation.SHELF));
+        assertEquals(0, recovered.getQuantity("MILK001", StockLocation.WEBSITE));
+        assertEquals(93, shelfTable.get("MILK001"));
+        assertEquals(50, shelfTable.get("RICE001"));
+        assertEquals(0, websiteTable.get("MILK001"));
+    }
+
+    @Test
+    void testTransferIsCheckedAgainstEngineNotTable() throws Exception {
+        InMemoryStockEngine engine = newEngine();
+        engine.shelfStockDAO().reduceShelfStock("MILK001", 90);
+        // The table still says 100 until the next write-behind
+
+        assertFalse(engine.transfer("MILK001", StockLocation.SHELF, StockLocation.WEBSITE, 50));
+        assertTrue(engine.transfer("MILK001", StockLocation.SHELF, StockLocation.WEBSITE, 10));
+
+        assertEquals(0, engine.getQuantity("MILK001", StockLocation.SHELF));
+        assertEquals(30, engine.getQuantity("MILK001", StockLocation.WEBSITE));
+    }
+
+    @Test
+    void testAdjustBelowZeroFailsWithoutChange() throws Exception {
+        InMemoryStockEngine engine = newEngine();
+
+        assertThrows(IllegalStateException.class, () -> engine.adjust("RICE001", StockLocation.SHELF, -41));
+        assertEquals(40, engine.getQuantity("RICE001", StockLocation.SHELF));
+    }
+
+    @Test
+    void testCleanStopLeavesEmptyJournal() throws Exception {
+        InMemoryStockEngine engine = newEngine();
+        engine.shelfStockDAO().reduceShelfStock("RICE001", 1);
+        engine.stop();
+
+        assertEquals(39, shelfTable.get("RICE001"));
+        assertEquals(0, Files.size(journalPath));
+    }
+
+    private InMemoryStockEngine newEngine() throws Exception {
+        InMemoryStockEngine engine = new InMemoryStockEngine(shelfStockDAO, websiteInventoryDAO,
+                new StockEngineJournal(journalPath, false), 64, 1000);
+        engine.initialize();
+        return engine;
+    }
+
+    private Void save(Map<String, Integer> table, Map<String, Integer> quantities) {
+        if (!quantities.isEmpty()) {
+            batchesWritten.incrementAndGet();
+            table.putAll(quantities);
+        }
+        return null;
+    }
+}
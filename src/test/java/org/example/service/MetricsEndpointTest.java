@@ -0,0 +1,72 @@
+package org.example.service;
+
+import org.example.util.Metrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for MetricsEndpoint
+ */
+public class MetricsEndpointTest {
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private MetricsEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        endpoint = new MetricsEndpoint("127.0.0.1", 0);
+        endpoint.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        endpoint.stop();
+    }
+
+    @Test
+    void testScrapeServesPrometheusTextWithSanitisedNames() throws Exception {
+        Metrics.histogram("endpoint.scrape").record(1_500_000);
+        Metrics.counter("Endpoint.Scrapes-Total").add(2);
+        Metrics.gauge("pool.Endpoint Test.connections_idle", () -> 7);
+
+        HttpResponse<String> response = client.send(request("GET"), HttpResponse.BodyHandlers.ofString());
+
+        assertNotEquals(0, endpoint.getPort());
+        assertEquals(200, response.statusCode());
+        assertEquals("text/plain; version=0.0.4; charset=utf-8",
+                response.headers().firstValue("Content-Type").orElse(null));
+        String text = response.body();
+        assertTrue(text.contains("# TYPE syos_latency_seconds summary\n"));
+        assertTrue(text.contains("syos_latency_seconds{op=\"endpoint.scrape\",quantile=\"0.5\"} 0.001"));
+        assertTrue(text.contains("syos_latency_seconds_count{op=\"endpoint.scrape\"} 1\n"));
+        assertTrue(text.contains("# TYPE syos_endpoint_scrapes_total counter\nsyos_endpoint_scrapes_total 2\n"));
+        assertTrue(text.contains("# TYPE syos_pool_endpoint_test_connections_idle gauge\nsyos_pool_endpoint_test_connections_idle 7\n"));
+        // Every sample line is a metric name of [a-z0-9_], optional labels and a value
+        for (String line : text.split("\n")) {
+            assertTrue(line.startsWith("# ") || line.matches("[a-z_][a-z0-9_]*(\\{[^}]*})? -?[0-9.]+"), line);
+        }
+    }
+
+    @Test
+    void testOnlyGetIsServed() throws Exception {
+        HttpResponse<String> response = client.send(request("POST"), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(405, response.statusCode());
+    }
+
+    private HttpRequest request(String method) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + endpoint.getPort() + "/metrics"))
+                .timeout(Duration.ofSeconds(5))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+}
@@ -0,0 +1,188 @@
+package org.example.service;
+
+import org.example.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for OfflineTillService
+ */
+public class OfflineTillServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private OfflineTillService.ReplaySession session;
+
+    private final List<String> billed = new ArrayList<>();
+    private final Set<String> unbillable = new HashSet<>();
+    private final Map<String, Map<String, Integer>> shortfalls = new HashMap<>();
+    private boolean databaseUp;
+    private Item milk;
+    private Item rice;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        billed.clear();
+        unbillable.clear();
+        shortfalls.clear();
+        databaseUp = false;
+        milk = new Item("MILK001", "Fresh Milk", 120.00, "Dairy");
+        rice = new Item("RICE001", "Basmati Rice", 249.99, "Grains");
+        when(session.loadCatalog()).thenAnswer(invocation -> List.of(milk, rice));
+        // An unbillable sale is refused by the database, as a bill for an item since deleted is
+        when(session.bill(any(OfflineSale.class))).thenAnswer(invocation -> {
+            String token = invocation.<OfflineSale>getArgument(0).getRequestToken();
+            if (unbillable.contains(token)) {
+                throw new RuntimeException("Failed to save bill");
+            }
+            billed.add(token);
+            return new BillingService.OfflineBilling(billed.size(), shortfalls.getOrDefault(token, Map.of()));
+        });
+        when(session.getSerialNumber(anyInt())).thenAnswer(invocation -> 1000 + invocation.<Integer>getArgument(0));
+        when(session.isConnected()).thenAnswer(invocation -> databaseUp);
+    }
+
+    @Test
+    void testQueuedSalesAreBilledInOrderWhenDatabaseReturns() throws Exception {
+        OfflineTillService till = newTill();
+        till.probe();
+        assertTrue(till.isOffline());
+
+        OfflineSale first = till.recordSale(cart(milk, 2), "0771234567", "Nimal Perera", 500, 0);
+        OfflineSale second = till.recordSale(cart(rice, 1), "0777654321", "Kamala Silva", 300, 10);
+        assertEquals("OFF-000001", first.getReceiptNumber());
+        assertEquals("OFF-000002", second.getReceiptNumber());
+
+        databaseUp = true;
+        till.probe();
+
+        assertFalse(till.isOffline());
+        assertEquals(0, till.getPendingCount());
+        assertEquals(List.of(first.getRequestToken(), second.getRequestToken()), billed);
+        assertTrue(till.getConflicts().isEmpty());
+    }
+
+    @Test
+    void testQueuedSalesSurviveRestart() throws Exception {
+        OfflineTillService till = newTill();
+        till.probe();
+        OfflineSale sale = till.recordSale(cart(rice, 3), "0771234567", "Nimal Perera, Jr.", 1000, 0);
+        till.stop();
+
+        OfflineTillService restarted = newTill();
+        assertEquals(1, restarted.getPendingCount());
+        assertEquals("OFF-000002", restarted.recordSale(cart(milk, 1), "0771234567", "Nimal", 200, 0).getReceiptNumber());
+
+        databaseUp = true;
+        restarted.probe();
+        assertEquals(sale.getRequestToken(), billed.get(0));
+        restarted.stop();
+
+        // Billed sales are gone after the next start, the receipt numbers carry on
+        OfflineTillService again = newTill();
+        assertEquals(0, again.getPendingCount());
+        assertEquals("OFF-000003", again.recordSale(cart(milk, 1), "0771234567", "Nimal", 200, 0).getReceiptNumber());
+    }
+
+    @Test
+    void testUnbillableSaleIsReportedKeptAndRetried() throws Exception {
+        OfflineTillService till = newTill();
+        till.probe();
+        OfflineSale stuck = till.recordSale(cart(rice, 50), "0771234567", "Nimal Perera", 20000, 0);
+        OfflineSale fine = till.recordSale(cart(milk, 1), "0771234567", "Nimal Perera", 200, 0);
+        unbillable.add(stuck.getRequestToken());
+
+        databaseUp = true;
+        till.probe();
+
+        assertFalse(till.isOffline());
+        assertEquals(List.of(fine.getRequestToken()), billed);
+        assertEquals(1, till.getConflicts().size());
+        assertTrue(till.getConflicts().get(0).startsWith("OFF-000001"));
+        till.stop();
+
+        OfflineTillService restarted = newTill();
+        assertEquals(1, restarted.getConflicts().size());
+
+        // Once the cause is fixed the next pass bills it, and it stays settled after a restart
+        unbillable.clear();
+        restarted.probe();
+        assertEquals(List.of(fine.getRequestToken(), stuck.getRequestToken()), billed);
+        assertTrue(restarted.getConflicts().isEmpty());
+        restarted.stop();
+        assertTrue(newTill().getConflicts().isEmpty());
+    }
+
+    @Test
+    void testSaleIsBilledWhenShelfIsShortAndShortfallReported() throws Exception {
+        OfflineTillService till = newTill();
+        till.probe();
+        OfflineSale sale = till.recordSale(cart(rice, 5), "0771234567", "Nimal Perera", 2000, 0);
+        shortfalls.put(sale.getRequestToken(), Map.of("RICE001", 2));
+
+        databaseUp = true;
+        till.probe();
+
+        assertEquals(List.of(sale.getRequestToken()), billed);
+        assertEquals(0, till.getPendingCount());
+        assertEquals(1, till.getConflicts().size());
+        assertTrue(till.getConflicts().get(0).contains("billed as bill 1 with 2 unit(s) of RICE001"));
+    }
+
+    @Test
+    void testConcurrentLanesLoseNoSales() throws Exception {
+        OfflineTillService till = newTill();
+        till.probe();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> lanes = new ArrayList<>();
+        for (int lane = 0; lane < 8; lane++) {
+            lanes.add(pool.submit(() -> {
+                for (int sale = 0; sale < 25; sale++) {
+                    till.recordSale(cart(milk, 1), "0771234567", "Nimal Perera", 200, 0);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> lane : lanes) {
+            lane.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        till.stop();
+
+        assertEquals(200, newTill().getPendingCount());
+    }
+
+    private OfflineTillService newTill() throws Exception {
+        OfflineTillService till = new OfflineTillService(new OfflineSaleJournal(tempDir.resolve("offline.journal")),
+                () -> {
+                    if (!databaseUp) {
+                        throw new IllegalStateException("Communications link failure");
+                    }
+                    return session;
+                }, () -> databaseUp, 60_000, 60_000);
+        till.initialize();
+        return till;
+    }
+
+    private Cart cart(Item item, int quantity) {
+        Cart cart = new Cart(TransactionType.IN_STORE);
+        cart.add(item, quantity, 1000);
+        return cart;
+    }
+}
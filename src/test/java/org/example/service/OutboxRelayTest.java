@@ -0,0 +1,162 @@
+package org.example.service;
+
+import org.example.dao.OutboxDAO;
+import org.example.model.OutboxEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for OutboxRelay
+ */
+public class OutboxRelayTest {
+
+    private final TreeMap<Long, OutboxEvent> events = new TreeMap<>();
+    private final Map<String, Long> savedOffsets = new HashMap<>();
+
+    @Mock
+    private OutboxDAO outboxDAO;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        events.clear();
+        savedOffsets.clear();
+        // The outbox table and the offsets are kept in maps
+        when(outboxDAO.getEventsAfter(anyLong(), anyInt())).thenAnswer(invocation -> events
+                .tailMap(invocation.<Long>getArgument(0), false).values().stream()
+                .limit(invocation.<Integer>getArgument(1)).toList());
+        when(outboxDAO.getOffset(anyString()))
+                .thenAnswer(invocation -> savedOffsets.getOrDefault(invocation.<String>getArgument(0), 0L));
+        doAnswer(invocation -> savedOffsets.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(outboxDAO).saveOffset(anyString(), anyLong());
+    }
+
+    @Test
+    void testEventsAreDeliveredInBatchesAndOffsetsSaved() {
+        addEvents(1, 25);
+        RecordingSubscriber subscriber = new RecordingSubscriber("export");
+        OutboxRelay relay = new OutboxRelay(outboxDAO, 10, 1000, 60_000, 0);
+        relay.addSubscriber(subscriber);
+
+        assertEquals(25, relay.relay());
+
+        assertEquals(List.of(10, 10, 5), subscriber.batchSizes);
+        assertEquals(ids(1, 25), subscriber.received);
+        assertEquals(25L, savedOffsets.get("export"));
+        assertEquals(0, relay.relay());
+    }
+
+    @Test
+    void testFailedBatchIsDeliveredAgainWithoutHoldingBackOthers() {
+        addEvents(1, 5);
+        RecordingSubscriber flaky = new RecordingSubscriber("flaky");
+        flaky.failuresLeft = 1;
+        RecordingSubscriber steady = new RecordingSubscriber("steady");
+        OutboxRelay relay = new OutboxRelay(outboxDAO, 2, 1000, 60_000, 0);
+        relay.addSubscriber(flaky);
+        relay.addSubscriber(steady);
+
+        relay.relay();
+        assertEquals(ids(1, 5), steady.received);
+        assertTrue(flaky.received.isEmpty());
+        assertNull(savedOffsets.get("flaky"));
+
+        relay.relay();
+        assertEquals(ids(1, 5), flaky.received);
+        assertEquals(5L, savedOffsets.get("flaky"));
+    }
+
+    @Test
+    void testRestartResumesFromSavedOffset() {
+        addEvents(1, 8);
+        savedOffsets.put("export", 5L);
+        RecordingSubscriber subscriber = new RecordingSubscriber("export");
+        OutboxRelay relay = new OutboxRelay(outboxDAO, 100, 1000, 60_000, 0);
+        relay.addSubscriber(subscriber);
+
+        relay.relay();
+
+        assertEquals(ids(6, 8), subscriber.received);
+    }
+
+    @Test
+    void testGapWaitsForTransactionInFlight() throws Exception {
+        addEvents(1, 2);
+        addEvents(4, 5);
+        RecordingSubscriber subscriber = new RecordingSubscriber("export");
+        OutboxRelay relay = new OutboxRelay(outboxDAO, 100, 1000, 50, 0);
+        relay.addSubscriber(subscriber);
+
+        relay.relay();
+        assertEquals(ids(1, 2), subscriber.received);
+
+        // Id 3 commits late and is delivered in order
+        addEvents(3, 3);
+        relay.relay();
+        assertEquals(ids(1, 5), subscriber.received);
+
+        // Id 6 was rolled back: delivery moves past it once the gap times out
+        addEvents(7, 7);
+        relay.relay();
+        assertEquals(ids(1, 5), subscriber.received);
+        Thread.sleep(80);
+        relay.relay();
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 7L), subscriber.received);
+    }
+
+    @Test
+    void testGapTimeoutOutlastsEveryRetryWaitingOnLocks() {
+        // 5 attempts, each waiting out a 50 s lock wait and a 200 ms backoff
+        assertEquals(276_100, OutboxRelay.gapTimeoutMillis(0, 5, 50_000, 200));
+        assertEquals(276_100, OutboxRelay.gapTimeoutMillis(5_000, 5, 50_000, 200));
+        assertEquals(600_000, OutboxRelay.gapTimeoutMillis(600_000, 5, 50_000, 200));
+    }
+
+    private void addEvents(long from, long to) {
+        for (long id = from; id <= to; id++) {
+            events.put(id, new OutboxEvent(id, OutboxEvent.BILL_CREATED, String.valueOf(id), "{}", new Date()));
+        }
+    }
+
+    private static List<Long> ids(long from, long to) {
+        List<Long> ids = new ArrayList<>();
+        for (long id = from; id <= to; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static class RecordingSubscriber implements OutboxSubscriber {
+        private final String name;
+        private final List<Long> received = new ArrayList<>();
+        private final List<Integer> batchSizes = new ArrayList<>();
+        private int failuresLeft;
+
+        RecordingSubscriber(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() { return name; }
+
+        @Override
+        public void onEvents(List<OutboxEvent> batch) {
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                throw new IllegalStateException("Export share unavailable");
+            }
+            batchSizes.add(batch.size());
+            batch.forEach(event -> received.add(event.getEventId()));
+        }
+    }
+}
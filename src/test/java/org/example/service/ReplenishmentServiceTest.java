@@ -0,0 +1,184 @@
+package org.example.service;
+
+import org.example.dao.ItemDAO;
+import org.example.dao.ShelfStockDAO;
+import org.example.dao.StockBatchDAO;
+import org.example.model.Item;
+import org.example.model.StockBatch;
+import org.example.model.TransactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for ReplenishmentService
+ */
+public class ReplenishmentServiceTest {
+
+    @Mock
+    private ItemDAO itemDAO;
+
+    @Mock
+    private StockBatchDAO batchDAO;
+
+    @Mock
+    private ShelfStockDAO shelfDAO;
+
+    private final Map<String, Integer> shelf = new ConcurrentHashMap<>();
+    private final Map<String, Integer> minStockLevels = new ConcurrentHashMap<>();
+    private final Map<String, Deque<StockBatch>> warehouse = new ConcurrentHashMap<>();
+    private final List<String> checks = Collections.synchronizedList(new ArrayList<>());
+    private StockService stockService;
+    private ReplenishmentService service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        shelf.clear();
+        minStockLevels.clear();
+        warehouse.clear();
+        checks.clear();
+        // Each threshold lookup is one check of the item
+        when(itemDAO.getItemByCode(anyString())).thenAnswer(invocation -> {
+            String itemCode = invocation.getArgument(0);
+            checks.add(itemCode);
+            return Optional.ofNullable(minStockLevels.get(itemCode))
+                    .map(level -> new Item(itemCode, itemCode, 100.00, "Grocery", null, level));
+        });
+        when(shelfDAO.getTotalShelfStock(anyString()))
+                .thenAnswer(invocation -> shelf.getOrDefault(invocation.<String>getArgument(0), 0));
+        // Warehouse batches in FEFO order; moving one empties it onto the shelf
+        when(batchDAO.getNextBatchForReshelving(anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(warehouse.getOrDefault(invocation.<String>getArgument(0), new ArrayDeque<>()).peek()));
+        when(batchDAO.moveBatchToShelf(anyInt())).thenAnswer(invocation -> {
+            for (Deque<StockBatch> batches : warehouse.values()) {
+                StockBatch batch = batches.peek();
+                if (batch != null && batch.getBatchId() == invocation.<Integer>getArgument(0)) {
+                    batches.poll();
+                    shelf.merge(batch.getItemCode(), batch.getQuantity(), Integer::sum);
+                    return batch.getQuantity();
+                }
+            }
+            return 0;
+        });
+        stockService = new StockService(batchDAO, shelfDAO, null, null, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    @Test
+    void testThresholdIsMinStockLevelOrTheConfiguredFallback() {
+        service = new ReplenishmentService(stockService, itemDAO, 5, 0, 10);
+        // MILK001 has its own level, above the fallback
+        minStockLevels.put("MILK001", 20);
+        shelf.put("MILK001", 15);
+        receive("MILK001", 4, 4, 4);
+        // RICE001 has none set and falls back to 5
+        minStockLevels.put("RICE001", 0);
+        shelf.put("RICE001", 6);
+        receive("RICE001", 4);
+        // TEA001 is not in the catalog and also falls back
+        receive("TEA001", 10);
+
+        assertEquals(2, service.replenish("MILK001"));
+        assertEquals(23, shelf.get("MILK001"));
+        assertEquals(0, service.replenish("RICE001"));
+        shelf.put("RICE001", 3);
+        assertEquals(1, service.replenish("RICE001"));
+        assertEquals(1, service.replenish("TEA001"));
+        assertEquals(10, shelf.get("TEA001"));
+    }
+
+    @Test
+    void testBurstOfDecrementsIsCoalescedIntoOneCheck() throws Exception {
+        service = new ReplenishmentService(stockService, itemDAO, 5, 200, 10);
+        service.start();
+
+        for (int i = 0; i < 5; i++) {
+            service.onStockDecremented("MILK001", 1, TransactionType.IN_STORE);
+        }
+        // Website sales do not take from the shelf
+        service.onStockDecremented("BREAD001", 1, TransactionType.ONLINE);
+        awaitChecks(1);
+        service.stop();
+
+        assertEquals(List.of("MILK001"), checks);
+    }
+
+    @Test
+    void testEachItemHasItsOwnWindow() throws Exception {
+        service = new ReplenishmentService(stockService, itemDAO, 5, 50, 10);
+        service.start();
+
+        service.onStockDecremented("MILK001", 1, TransactionType.IN_STORE);
+        service.onStockDecremented("RICE001", 1, TransactionType.IN_STORE);
+        awaitChecks(2);
+        assertEquals(Set.of("MILK001", "RICE001"), new HashSet<>(checks));
+
+        // The first window closed with its check, so a later decrement opens a new one
+        service.onStockDecremented("MILK001", 1, TransactionType.IN_STORE);
+        awaitChecks(3);
+        assertEquals("MILK001", checks.get(2));
+    }
+
+    @Test
+    void testFullQueueDropsTheCheckAndLetsTheItemQueueAgain() throws Exception {
+        service = new ReplenishmentService(stockService, itemDAO, 5, 0, 1);
+        CountDownLatch checking = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            checks.add("MILK001");
+            checking.countDown();
+            release.await();
+            return Optional.empty();
+        }).when(itemDAO).getItemByCode("MILK001");
+        service.start();
+
+        // MILK001 holds the worker, RICE001 fills the queue and BREAD001 has no room
+        service.onStockDecremented("MILK001", 1, TransactionType.IN_STORE);
+        assertTrue(checking.await(5, TimeUnit.SECONDS));
+        service.onStockDecremented("RICE001", 1, TransactionType.IN_STORE);
+        service.onStockDecremented("BREAD001", 1, TransactionType.IN_STORE);
+        Thread.sleep(100);
+        release.countDown();
+        awaitChecks(2);
+
+        service.onStockDecremented("BREAD001", 1, TransactionType.IN_STORE);
+        awaitChecks(3);
+        assertEquals(List.of("MILK001", "RICE001", "BREAD001"), checks);
+    }
+
+    private void receive(String itemCode, int... quantities) {
+        Deque<StockBatch> batches = warehouse.computeIfAbsent(itemCode, k -> new ArrayDeque<>());
+        for (int quantity : quantities) {
+            int batchId = warehouse.values().stream().mapToInt(Deque::size).sum() + 1;
+            batches.add(new StockBatch(batchId, itemCode, quantity, new Date(), new Date()));
+        }
+    }
+
+    private void awaitChecks(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (checks.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, checks.size());
+    }
+}
@@ -0,0 +1,188 @@
+package org.example.service;
+
+import org.example.dao.WebsiteInventoryDAO;
+import org.example.model.BillItem;
+import org.example.model.Reservation;
+import org.example.model.WebsiteInventory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for ReservationService
+ */
+public class ReservationServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private WebsiteInventoryDAO websiteInventoryDAO;
+
+    private final Map<String, Integer> websiteStock = new HashMap<>();
+    private Path journalPath;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        websiteStock.clear();
+        websiteStock.put("MILK001", 10);
+        websiteStock.put("RICE001", 5);
+        journalPath = tempDir.resolve("reservations.journal");
+        when(websiteInventoryDAO.getAllWebsiteInventory()).thenAnswer(invocation -> {
+            List<WebsiteInventory> inventory = new ArrayList<>();
+            websiteStock.forEach((itemCode, qty) -> inventory.add(new WebsiteInventory(itemCode, qty)));
+            return inventory;
+        });
+    }
+
+    @Test
+    void testReserveHoldsStockUntilConfirmed() throws Exception {
+        ReservationService service = newService(1000);
+
+        Optional<Reservation> reservation = service.reserve(List.of(item("MILK001", 4)), 60_000);
+        assertTrue(reservation.isPresent());
+        assertEquals(6, service.getAvailable("MILK001"));
+
+        // Confirming turns the hold into a sale without freeing the stock
+        assertTrue(service.confirm(reservation.get().getReservationId()));
+        assertEquals(6, service.getAvailable("MILK001"));
+        assertEquals(0, service.getHeld("MILK001"));
+        assertFalse(service.release(reservation.get().getReservationId()));
+    }
+
+    @Test
+    void testReserveIsAllOrNothing() throws Exception {
+        ReservationService service = newService(1000);
+
+        Optional<Reservation> reservation = service.reserve(
+                List.of(item("MILK001", 2), item("RICE001", 6)), 60_000);
+
+        assertFalse(reservation.isPresent());
+        assertEquals(10, service.getAvailable("MILK001"));
+        assertEquals(5, service.getAvailable("RICE001"));
+    }
+
+    @Test
+    void testExpiredHoldsAreReaped() throws Exception {
+        ReservationService service = newService(1000);
+        service.reserve(List.of(item("RICE001", 5)), 2000);
+        assertEquals(0, service.getAvailable("RICE001"));
+
+        assertEquals(1, service.reapExpired(System.currentTimeMillis() + 5000));
+        assertEquals(5, service.getAvailable("RICE001"));
+        assertEquals(0, service.getActiveCount());
+    }
+
+    @Test
+    void testJournalRestoresOpenHolds() throws Exception {
+        ReservationService service = newService(1000);
+        Reservation confirmed = service.reserve(List.of(item("MILK001", 3)), 60_000).get();
+        service.reserve(List.of(item("MILK001", 2), item("RICE001", 1)), 60_000);
+        service.confirm(confirmed.getReservationId());
+        service.stop();
+
+        // Website stock already reflects the confirmed sale after a restart
+        websiteStock.put("MILK001", 7);
+        ReservationService restarted = newService(1000);
+
+        assertEquals(1, restarted.getActiveCount());
+        assertEquals(5, restarted.getAvailable("MILK001"));
+        assertEquals(4, restarted.getAvailable("RICE001"));
+        Reservation next = restarted.reserve(List.of(item("RICE001", 1)), 60_000).get();
+        assertTrue(next.getReservationId() > confirmed.getReservationId() + 1);
+    }
+
+    @Test
+    void testConcurrentOnlineLoadNeverOversells() throws Exception {
+        websiteStock.put("MILK001", 500);
+        websiteStock.put("RICE001", 300);
+        ReservationService service = newService(5);
+        String[] items = {"MILK001", "RICE001"};
+        Map<String, AtomicInteger> sold = Map.of("MILK001", new AtomicInteger(), "RICE001", new AtomicInteger());
+        AtomicBoolean negativeSeen = new AtomicBoolean();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        Thread reaper = new Thread(() -> {
+            while (running.get()) {
+                service.reapExpired(System.currentTimeMillis());
+            }
+        });
+        reaper.start();
+
+        int threads = 32;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 2000; i++) {
+                    List<BillItem> order = new ArrayList<>();
+                    order.add(item(items[random.nextInt(2)], 1 + random.nextInt(5)));
+                    if (random.nextBoolean()) {
+                        order.add(item(items[random.nextInt(2)], 1 + random.nextInt(3)));
+                    }
+                    Optional<Reservation> held = service.reserve(order, 10);
+                    for (String itemCode : items) {
+                        if (service.getAvailable(itemCode) < 0) {
+                            negativeSeen.set(true);
+                        }
+                    }
+                    if (held.isEmpty()) {
+                        continue;
+                    }
+                    long id = held.get().getReservationId();
+                    switch (random.nextInt(3)) {
+                        case 0 -> {
+                            // Checkout only sells a hold that is still open, as the controller does
+                            if (service.confirm(id)) {
+                                held.get().getQuantities().forEach((itemCode, quantity) ->
+                                        sold.get(itemCode).addAndGet(quantity));
+                            }
+                        }
+                        case 1 -> service.release(id);
+                        default -> { } // abandoned; left for the reaper
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        running.set(false);
+        reaper.join();
+        service.reapExpired(System.currentTimeMillis() + 1000);
+
+        assertFalse(negativeSeen.get(), "available stock went negative");
+        for (String itemCode : items) {
+            int initial = websiteStock.get(itemCode);
+            assertTrue(sold.get(itemCode).get() <= initial, "oversold " + itemCode);
+            assertEquals(0, service.getHeld(itemCode));
+            assertEquals(initial - sold.get(itemCode).get(), service.getAvailable(itemCode));
+        }
+        assertEquals(0, service.getActiveCount());
+    }
+
+    private ReservationService newService(long tickMillis) throws Exception {
+        ReservationService service = new ReservationService(websiteInventoryDAO,
+                new ReservationJournal(journalPath, false), tickMillis);
+        service.initialize(System.currentTimeMillis());
+        return service;
+    }
+
+    private static BillItem item(String itemCode, int quantity) {
+        return new BillItem(itemCode, itemCode, quantity, 1.0);
+    }
+}
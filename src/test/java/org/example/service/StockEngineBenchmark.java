@@ -0,0 +1,157 @@
+package org.example.service;
+
+import org.example.config.ConfigManager;
+import org.example.dao.ShelfStockDAO;
+import org.example.dao.impl.ShelfStockDAOImpl;
+import org.example.dao.impl.WebsiteInventoryDAOImpl;
+import org.example.model.ShelfStock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Throughput benchmark: checkout decrements through JDBC vs the in-memory stock engine.
+ * Needs the MySQL database from application.properties; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class StockEngineBenchmark {
+    private static final String ITEM_CODE = "BENCH_ENGINE";
+    private static final int LANES = 16;
+    private static final int SALES_PER_LANE = 500;
+
+    @TempDir
+    Path tempDir;
+
+    private final List<Connection> connections = new ArrayList<>();
+    private Connection setupConnection;
+
+    @BeforeEach
+    void setUp() {
+        try {
+            setupConnection = openConnection();
+        } catch (SQLException e) {
+            assumeTrue(false, "Benchmark database not available: " + e.getMessage());
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        if (setupConnection != null) {
+            execute("DELETE FROM shelf_stock WHERE item_code = ?");
+            execute("DELETE FROM items WHERE item_code = ?");
+            setupConnection.close();
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    @Test
+    void testJdbcVersusInMemoryDecrements() throws Exception {
+        int stock = LANES * SALES_PER_LANE;
+        ShelfStockDAO database = new ShelfStockDAOImpl(setupConnection);
+
+        resetStock(stock);
+        List<ShelfStockDAO> jdbcLanes = new ArrayList<>();
+        for (int i = 0; i < LANES; i++) {
+            Connection connection = openConnection();
+            connections.add(connection);
+            jdbcLanes.add(new ShelfStockDAOImpl(connection));
+        }
+        double jdbc = runLanes(jdbcLanes);
+        assertEquals(0, database.getTotalShelfStock(ITEM_CODE));
+
+        resetStock(stock);
+        Connection engineConnection = openConnection();
+        connections.add(engineConnection);
+        InMemoryStockEngine engine = new InMemoryStockEngine(new ShelfStockDAOImpl(engineConnection),
+                new WebsiteInventoryDAOImpl(engineConnection),
+                new StockEngineJournal(tempDir.resolve("stock-engine.journal"), false), 65536, 200);
+        engine.initialize();
+        engine.start();
+        List<ShelfStockDAO> engineLanes = new ArrayList<>();
+        for (int i = 0; i < LANES; i++) {
+            engineLanes.add(engine.shelfStockDAO());
+        }
+        double inMemory = runLanes(engineLanes);
+        engine.stop();
+        // Write-behind has caught up once the engine stops
+        assertEquals(0, database.getTotalShelfStock(ITEM_CODE));
+
+        System.out.printf("%d lanes x %d sales on one SKU%n", LANES, SALES_PER_LANE);
+        System.out.printf("  JDBC      : %,12.0f sales/s%n", jdbc);
+        System.out.printf("  in-memory : %,12.0f sales/s (%.1fx)%n", inMemory, inMemory / jdbc);
+    }
+
+    /**
+     * Every lane sells one unit at a time until its share is gone
+     *
+     * @return sales per second across all lanes
+     */
+    private double runLanes(List<ShelfStockDAO> lanes) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(lanes.size());
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger failedSales = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (ShelfStockDAO lane : lanes) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int sale = 0; sale < SALES_PER_LANE; sale++) {
+                    if (!lane.reduceShelfStock(ITEM_CODE, 1)) {
+                        failedSales.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - began;
+        pool.shutdown();
+
+        // Stock exactly covers every sale, so none may fail and none may oversell
+        assertEquals(0, failedSales.get());
+        return lanes.size() * SALES_PER_LANE / (elapsed / 1e9);
+    }
+
+    private void resetStock(int quantity) throws SQLException {
+        try (PreparedStatement ps = setupConnection.prepareStatement(
+                "INSERT IGNORE INTO items (item_code, name, price, category) VALUES (?, 'Benchmark item', 1.00, 'BENCH')")) {
+            ps.setString(1, ITEM_CODE);
+            ps.executeUpdate();
+        }
+        new ShelfStockDAOImpl(setupConnection).addShelfStock(new ShelfStock(ITEM_CODE, quantity));
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (PreparedStatement ps = setupConnection.prepareStatement(sql)) {
+            ps.setString(1, ITEM_CODE);
+            ps.executeUpdate();
+        }
+    }
+
+    private static Connection openConnection() throws SQLException {
+        ConfigManager config = ConfigManager.getInstance();
+        return DriverManager.getConnection(config.getDatabaseUrl(), config.getDatabaseUsername(),
+                config.getDatabasePassword());
+    }
+}
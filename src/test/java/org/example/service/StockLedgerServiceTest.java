@@ -0,0 +1,211 @@
+package org.example.service;
+
+import org.example.dao.*;
+import org.example.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for StockLedgerService
+ */
+public class StockLedgerServiceTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @Mock
+    private StockLedgerDAO ledgerDAO;
+
+    @Mock
+    private OutboxDAO outboxDAO;
+
+    @Mock
+    private ShelfStockDAO shelfDAO;
+
+    @Mock
+    private WebsiteInventoryDAO websiteDAO;
+
+    @Mock
+    private StockBatchDAO batchDAO;
+
+    private final List<StockMovement> movements = new ArrayList<>();
+    private final List<StockLedgerSnapshot> snapshots = new ArrayList<>();
+    private final Map<Long, List<StockPosition>> snapshotLines = new HashMap<>();
+    private final List<ShelfStock> shelf = new ArrayList<>();
+    private final Map<String, Integer> warehouse = new HashMap<>();
+    private StockLedgerService service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        movements.clear();
+        snapshots.clear();
+        snapshotLines.clear();
+        shelf.clear();
+        warehouse.clear();
+        // The ledger is a list; a movement whose event id is already there is skipped
+        doAnswer(invocation -> {
+            for (StockMovement movement : invocation.<List<StockMovement>>getArgument(0)) {
+                if (movements.stream().noneMatch(recorded -> recorded.getEventId() == movement.getEventId())) {
+                    movements.add(new StockMovement(movements.size() + 1, movement.getEventId(), movement.getItemCode(),
+                            movement.getLocation(), movement.getMovementType(), movement.getQuantityDelta(),
+                            movement.getReference(), movement.getMovedAt()));
+                }
+            }
+            return null;
+        }).when(ledgerDAO).appendMovements(anyList());
+        when(ledgerDAO.getLastMovementId()).thenAnswer(invocation -> (long) movements.size());
+        when(ledgerDAO.saveSnapshot(any(Date.class), anyLong(), anyCollection())).thenAnswer(invocation -> {
+            long snapshotId = snapshots.size() + 1;
+            snapshots.add(new StockLedgerSnapshot(snapshotId, invocation.getArgument(0), invocation.getArgument(1)));
+            snapshotLines.put(snapshotId, invocation.<Collection<StockPosition>>getArgument(2).stream()
+                    .map(StockLedgerServiceTest::copy).toList());
+            return snapshotId;
+        });
+        when(ledgerDAO.getLatestSnapshot(any(Date.class))).thenAnswer(invocation -> snapshots.stream()
+                .filter(snapshot -> !snapshot.getTakenAt().after(invocation.getArgument(0)))
+                .reduce((first, second) -> second));
+        doAnswer(invocation -> {
+            snapshotLines.get(invocation.<Long>getArgument(0)).stream().map(StockLedgerServiceTest::copy)
+                    .forEach(invocation.<Consumer<StockPosition>>getArgument(1));
+            return null;
+        }).when(ledgerDAO).streamSnapshotPositions(anyLong(), any());
+        when(ledgerDAO.getSnapshotPosition(anyLong(), anyString())).thenAnswer(invocation ->
+                snapshotLines.get(invocation.<Long>getArgument(0)).stream()
+                        .filter(position -> position.getItemCode().equals(invocation.getArgument(1)))
+                        .map(StockLedgerServiceTest::copy).findFirst());
+        doAnswer(invocation -> {
+            ledgerTail(null, invocation.getArgument(0), invocation.getArgument(1))
+                    .forEach(invocation.<Consumer<StockMovement>>getArgument(2));
+            return null;
+        }).when(ledgerDAO).streamMovements(anyLong(), any(Date.class), any());
+        when(ledgerDAO.getMovements(anyString(), anyLong(), any(Date.class))).thenAnswer(invocation ->
+                ledgerTail(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)));
+        when(shelfDAO.getAllShelfStock()).thenAnswer(invocation -> new ArrayList<>(shelf));
+        when(websiteDAO.getAllWebsiteInventory()).thenReturn(List.of(new WebsiteInventory("MILK001", 4)));
+        when(batchDAO.getAvailableQuantityByItem()).thenAnswer(invocation -> new HashMap<>(warehouse));
+        service = new StockLedgerService(ledgerDAO, outboxDAO, shelfDAO, websiteDAO, batchDAO, HOUR);
+    }
+
+    @Test
+    void testOpeningSnapshotStartsTheLedgerAtTheOutboxEnd() {
+        shelf.add(new ShelfStock("MILK001", 10));
+        warehouse.put("MILK001", 20);
+        when(outboxDAO.getLastEventId()).thenReturn(41L);
+
+        service.start();
+        service.stop();
+        // A ledger that has a snapshot is not opened again
+        service.start();
+        service.stop();
+
+        verify(ledgerDAO, times(1)).saveSnapshot(any(Date.class), anyLong(), anyCollection());
+        verify(outboxDAO).saveOffset("stock-ledger", 41L);
+        StockPosition milk = service.getStockAsOf("MILK001", new Date());
+        assertEquals(10, milk.getShelfQuantity());
+        assertEquals(4, milk.getWebsiteQuantity());
+        assertEquals(20, milk.getWarehouseQuantity());
+    }
+
+    @Test
+    void testRedeliveredEventsAreRecordedOnce() throws Exception {
+        Date now = new Date();
+        List<OutboxEvent> events = List.of(
+                moved(1, "MILK001", StockLocation.WAREHOUSE, MovementType.RECEIVE, 20, "batch:7", now),
+                moved(2, "MILK001", StockLocation.WAREHOUSE, MovementType.RESHELVE, -20, "batch:7", now),
+                moved(3, "MILK001", StockLocation.SHELF, MovementType.RESHELVE, 20, "batch:7", now),
+                new OutboxEvent(4, OutboxEvent.BILL_CREATED, "1", "{\"billId\":1}", now),
+                moved(5, "MILK001", StockLocation.SHELF, MovementType.SALE, -3, null, now));
+
+        service.onEvents(events);
+        // Delivered again, as after a crash before the relay saved its offset
+        service.onEvents(events);
+
+        assertEquals(List.of(1L, 2L, 3L, 5L), movements.stream().map(StockMovement::getEventId).toList());
+        assertEquals("batch:7", movements.get(0).getReference());
+        assertNull(movements.get(3).getReference());
+        StockPosition milk = service.getStockAsOf(new Date(now.getTime() + 1)).get("MILK001");
+        assertEquals(17, milk.getShelfQuantity());
+        assertEquals(0, milk.getWarehouseQuantity());
+    }
+
+    @Test
+    void testStockAsOfReplaysFromTheNearestSnapshot() throws Exception {
+        long now = System.currentTimeMillis();
+        service.onEvents(List.of(moved(1, "MILK001", StockLocation.WAREHOUSE, MovementType.RECEIVE, 20, "batch:7",
+                new Date(now - 3 * HOUR))));
+        service.takeSnapshot();
+        service.onEvents(List.of(
+                moved(2, "MILK001", StockLocation.WAREHOUSE, MovementType.WRITE_OFF, -5, "batch:7", new Date()),
+                moved(3, "MILK001", StockLocation.SHELF, MovementType.RECEIVE, 5, null, new Date(now + HOUR))));
+
+        Map<String, StockPosition> current = service.getStockAsOf(new Date(now + 1000));
+        StockPosition later = service.getStockAsOf("MILK001", new Date(now + 2 * HOUR));
+        Map<String, StockPosition> before = service.getStockAsOf(new Date(now - 2 * HOUR));
+
+        // Only the movements after the snapshot are read
+        verify(ledgerDAO).streamMovements(eq(1L), any(Date.class), any());
+        verify(ledgerDAO).getMovements(eq("MILK001"), eq(1L), any(Date.class));
+        assertEquals(15, current.get("MILK001").getWarehouseQuantity());
+        assertEquals(0, current.get("MILK001").getShelfQuantity());
+        assertEquals(15, later.getWarehouseQuantity());
+        assertEquals(5, later.getShelfQuantity());
+        // Before the snapshot was taken the ledger is replayed from its start, as taking the snapshot did
+        verify(ledgerDAO, times(2)).streamMovements(eq(0L), any(Date.class), any());
+        assertEquals(20, before.get("MILK001").getWarehouseQuantity());
+    }
+
+    @Test
+    void testDriftListsItemsWhoseLiveStockDiffersFromTheLedger() throws Exception {
+        Date now = new Date();
+        service.onEvents(List.of(
+                moved(1, "MILK001", StockLocation.WEBSITE, MovementType.TRANSFER, 4, null, now),
+                moved(2, "MILK001", StockLocation.SHELF, MovementType.RESHELVE, 5, "batch:7", now),
+                moved(3, "MILK001", StockLocation.SHELF, MovementType.SALE, -2, null, now),
+                moved(4, "EGG001", StockLocation.WAREHOUSE, MovementType.RECEIVE, 12, "batch:8", now)));
+        // One sale of milk never reached the ledger, and the rice was never recorded at all
+        shelf.add(new ShelfStock("MILK001", 2));
+        shelf.add(new ShelfStock("RICE001", 4));
+        warehouse.put("EGG001", 12);
+
+        List<StockLedgerService.StockDrift> drift = service.findDrift();
+
+        assertEquals(List.of("MILK001", "RICE001"), drift.stream().map(StockLedgerService.StockDrift::getItemCode).toList());
+        assertEquals(3, drift.get(0).getLedger().getShelfQuantity());
+        assertEquals(2, drift.get(0).getActual().getShelfQuantity());
+        assertEquals(0, drift.get(1).getLedger().getTotalQuantity());
+        assertEquals(4, drift.get(1).getActual().getShelfQuantity());
+    }
+
+    private List<StockMovement> ledgerTail(String itemCode, long afterMovementId, Date upTo) {
+        return movements.stream()
+                .filter(movement -> itemCode == null || movement.getItemCode().equals(itemCode))
+                .filter(movement -> movement.getMovementId() > afterMovementId && !movement.getMovedAt().after(upTo))
+                .toList();
+    }
+
+    private static OutboxEvent moved(long eventId, String itemCode, StockLocation location, MovementType type,
+                                     int delta, String reference, Date createdAt) {
+        String payload = String.format("{\"itemCode\":\"%s\",\"location\":\"%s\",\"movementType\":\"%s\",\"quantityDelta\":%d%s}",
+                itemCode, location, type, delta, reference == null ? "" : ",\"reference\":\"" + reference + "\"");
+        return new OutboxEvent(eventId, OutboxEvent.STOCK_MOVED, itemCode, payload, createdAt);
+    }
+
+    private static StockPosition copy(StockPosition position) {
+        return new StockPosition(position.getItemCode(), position.getShelfQuantity(), position.getWebsiteQuantity(),
+                position.getWarehouseQuantity());
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for LatencyHistogram
+ */
+public class LatencyHistogramTest {
+
+    private LatencyHistogram histogram;
+
+    @BeforeEach
+    void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    void testPercentilesAreWithinBucketPrecision() {
+        // 1 µs .. 10 ms in 1 µs steps
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.getCount());
+        assertEquals(10_000_000, snapshot.getMaxNanos());
+        assertClose(5_000_000, snapshot.valueAtPercentile(50));
+        assertClose(9_900_000, snapshot.valueAtPercentile(99));
+        assertClose(9_990_000, snapshot.valueAtPercentile(99.9));
+        assertEquals(10_000_000, snapshot.valueAtPercentile(100));
+    }
+
+    @Test
+    void testSmallAndOutOfRangeValues() {
+        histogram.record(0);
+        histogram.record(-5);
+        histogram.record(100);
+        histogram.record(Long.MAX_VALUE);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.valueAtPercentile(50));
+        assertEquals(100, snapshot.valueAtPercentile(75));
+        assertEquals((1L << 40) - 1, snapshot.getMaxNanos());
+        assertEquals(0, new LatencyHistogram().snapshot().valueAtPercentile(99));
+    }
+
+    @Test
+    void testConcurrentRecordingLosesNothing() throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 1; i <= 100_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(800_000, snapshot.getCount());
+        assertEquals(8L * 100_000 * 100_001 / 2, snapshot.getTotalNanos());
+        assertEquals(100_000, snapshot.getMaxNanos());
+    }
+
+    private static void assertClose(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 64,
+                "expected about " + expected + " but was " + actual);
+    }
+}
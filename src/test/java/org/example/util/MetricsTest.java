@@ -0,0 +1,44 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for Metrics
+ */
+public class MetricsTest {
+
+    @Test
+    void testTimedProxyRecordsEachCallEvenWhenItThrows() {
+        IntUnaryOperator timed = Metrics.timed(IntUnaryOperator.class, operand -> {
+            if (operand < 0) {
+                throw new IllegalArgumentException("negative");
+            }
+            return operand * 2;
+        });
+
+        assertEquals(42, timed.applyAsInt(21));
+        assertThrows(IllegalArgumentException.class, () -> timed.applyAsInt(-1));
+
+        assertEquals(2, Metrics.snapshots().get("dao.IntUnaryOperator.applyAsInt").getCount());
+    }
+
+    @Test
+    void testPrometheusTextHasQuantilesCountsAndGauges() throws Exception {
+        Metrics.histogram("test.export").record(2_000_000);
+        Metrics.counter("test.failures_total").add(3);
+        Metrics.gauge("pool.Test.connections_active", () -> 5);
+
+        StringBuilder text = new StringBuilder();
+        Metrics.writePrometheus(text);
+
+        assertTrue(text.toString().contains("# TYPE syos_latency_seconds summary\n"));
+        assertTrue(text.toString().contains("syos_latency_seconds{op=\"test.export\",quantile=\"0.99\"} 0.002"));
+        assertTrue(text.toString().contains("syos_latency_seconds_count{op=\"test.export\"} 1\n"));
+        assertTrue(text.toString().contains("# TYPE syos_test_failures_total counter\nsyos_test_failures_total 3\n"));
+        assertTrue(text.toString().contains("# TYPE syos_pool_test_connections_active gauge\nsyos_pool_test_connections_active 5\n"));
+    }
+}
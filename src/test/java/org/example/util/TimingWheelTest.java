@@ -0,0 +1,121 @@
+package org.example.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for TimingWheel
+ */
+public class TimingWheelTest {
+
+    private static final long TICK = 1000;
+
+    private TimingWheel<String, String> wheel;
+    private Map<String, Long> fired;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        // 8 slots x 3 levels covers 512 ticks before deadlines park on the top level
+        wheel = new TimingWheel<>(TICK, 8, 3, 0);
+        fired = new LinkedHashMap<>();
+        now = 0;
+    }
+
+    @Test
+    void testFiresOnDeadlineTick() {
+        wheel.schedule("a", 5 * TICK, "A");
+
+        advance(4 * TICK);
+        assertTrue(fired.isEmpty());
+
+        advance(5 * TICK);
+        assertEquals(5 * TICK, fired.get("a"));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testCascadesFromHigherLevels() {
+        wheel.schedule("level1", 20 * TICK, "B");
+        wheel.schedule("level2", 300 * TICK, "C");
+
+        for (long t = 1; t <= 300; t++) {
+            advance(t * TICK);
+        }
+
+        assertEquals(20 * TICK, fired.get("level1"));
+        assertEquals(300 * TICK, fired.get("level2"));
+    }
+
+    @Test
+    void testDeadlineBeyondTopLevelSpan() {
+        wheel.schedule("far", 2000 * TICK, "D");
+
+        advance(1999 * TICK);
+        assertFalse(fired.containsKey("far"));
+
+        advance(2000 * TICK);
+        assertTrue(fired.containsKey("far"));
+    }
+
+    @Test
+    void testCancelledEntryNeverFires() {
+        wheel.schedule("a", 3 * TICK, "A");
+        assertTrue(wheel.cancel("a"));
+
+        advance(10 * TICK);
+        assertTrue(fired.isEmpty());
+    }
+
+    @Test
+    void testRescheduleMovesDeadline() {
+        wheel.schedule("a", 3 * TICK, "A");
+        wheel.schedule("a", 12 * TICK, "A2");
+
+        advance(11 * TICK);
+        assertTrue(fired.isEmpty());
+
+        advance(12 * TICK);
+        assertEquals(1, fired.size());
+        assertEquals(12 * TICK, fired.get("a"));
+    }
+
+    @Test
+    void testPastDeadlineIsRejected() {
+        advance(10 * TICK);
+        assertFalse(wheel.schedule("late", 5 * TICK, "L"));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testRandomDeadlinesFireInOrderAndExactlyOnce() {
+        Random random = new Random(42);
+        Map<String, Long> expected = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            long deadline = (1 + random.nextInt(3000)) * TICK;
+            wheel.schedule("k" + i, deadline, "v");
+            expected.put("k" + i, deadline);
+        }
+
+        // Jump forward in uneven steps, as a stalled ticker would
+        while (now < 3000 * TICK) {
+            advance(now + (1 + random.nextInt(50)) * TICK);
+        }
+
+        assertEquals(expected.size(), fired.size());
+        for (Map.Entry<String, Long> entry : expected.entrySet()) {
+            assertTrue(fired.get(entry.getKey()) >= entry.getValue(), "Fired early: " + entry.getKey());
+        }
+    }
+
+    private void advance(long to) {
+        now = to;
+        wheel.advanceTo(to, (key, value) -> {
+            assertNull(fired.put(key, now), "Fired twice: " + key);
+        });
+    }
+}